@@ -0,0 +1,84 @@
+/** */
+package rules.api.bench;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import org.kie.api.KieServices;
+import org.kie.api.builder.KieFileSystem;
+import org.kie.api.builder.Message;
+import org.kie.api.builder.ReleaseId;
+import org.kie.api.builder.Results;
+
+/**
+ * This class builds the sample kjar bundled with the benchmarks and installs it in the
+ * KieRepository, so the engine finds it without any maven repository. The release must match the
+ * one of rulesConfig.properties.
+ *
+ * @author chandresh.mishra
+ */
+public final class BenchKjar {
+
+  public static final String GROUP_ID = "com.rules-api";
+  public static final String ARTIFACT_ID = "rule-api-bench-kjar";
+  public static final String VERSION = "1.0.0";
+
+  public static final String KIE_BASE = "benchBase";
+  public static final String STATEFUL_SESSION = "benchSession";
+  public static final String STATELESS_SESSION = "benchStatelessSession";
+
+  private static final String[] RESOURCES = {"META-INF/kmodule.xml", "rules/bench/applicant.drl"};
+
+  private static boolean installed;
+
+  private BenchKjar() {}
+
+  /**
+   * Builds the kjar once per JVM.
+   *
+   * @return the release of the kjar
+   */
+  public static synchronized ReleaseId install() {
+
+    KieServices kieService = KieServices.Factory.get();
+    ReleaseId releaseId = kieService.newReleaseId(GROUP_ID, ARTIFACT_ID, VERSION);
+
+    if (installed) {
+      return releaseId;
+    }
+
+    KieFileSystem kieFileSystem = kieService.newKieFileSystem();
+    kieFileSystem.generateAndWritePomXML(releaseId);
+    for (String resource : RESOURCES) {
+      kieFileSystem.write("src/main/resources/" + resource, read("bench-kjar/" + resource));
+    }
+
+    // buildAll adds the module to the KieRepository
+    Results results = kieService.newKieBuilder(kieFileSystem).buildAll().getResults();
+    if (results.hasMessages(Message.Level.ERROR)) {
+      throw new IllegalStateException("Bench kjar does not build: " + results.getMessages());
+    }
+
+    installed = true;
+    return releaseId;
+  }
+
+  private static byte[] read(String resource) {
+
+    try (InputStream in = BenchKjar.class.getClassLoader().getResourceAsStream(resource)) {
+      if (null == in) {
+        throw new IllegalStateException("Missing resource " + resource);
+      }
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      byte[] buffer = new byte[8192];
+      int read;
+      while ((read = in.read(buffer)) > 0) {
+        out.write(buffer, 0, read);
+      }
+      return out.toByteArray();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
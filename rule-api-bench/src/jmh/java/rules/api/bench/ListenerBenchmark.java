@@ -0,0 +1,51 @@
+/** */
+package rules.api.bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import rules.api.enums.SessionType;
+import rules.api.message.RulesRequest;
+import rules.api.message.RulesResponse;
+
+/**
+ * Measures the overhead of the agenda listener. With audit off no listener is added, counts adds
+ * the listener and full also records every fired rule and fact.
+ *
+ * @author chandresh.mishra
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ListenerBenchmark extends RulesEngineState {
+
+  @Param({"STATEFUL", "STATELESS"})
+  public SessionType sessionType;
+
+  @Param({"off", "counts", "full"})
+  public String auditMode;
+
+  @Param({"1000"})
+  public int factCount;
+
+  private RulesRequest rulesRequest;
+
+  @Override
+  protected String getAuditMode() {
+    return auditMode;
+  }
+
+  @Setup(Level.Trial)
+  public void createRequest() {
+    rulesRequest = newRequest(sessionType, false, newApplicants(factCount));
+  }
+
+  @Benchmark
+  public RulesResponse fireRules() {
+    return rulesEngine.fireRules(rulesRequest, null);
+  }
+}
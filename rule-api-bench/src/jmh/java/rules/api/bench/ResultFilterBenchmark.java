@@ -0,0 +1,62 @@
+/** */
+package rules.api.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import rules.api.bench.model.Decision;
+import rules.api.enums.SessionType;
+import rules.api.message.RulesRequest;
+import rules.api.message.RulesResponse;
+
+/**
+ * Measures the cost of filtering the returned facts with returnedFactsClass.
+ *
+ * @author chandresh.mishra
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ResultFilterBenchmark extends RulesEngineState {
+
+  @Param({"STATEFUL", "STATELESS"})
+  public SessionType sessionType;
+
+  // none, one class, or two classes whose results are concatenated
+  @Param({"none", "decision", "decisionAndId"})
+  public String filter;
+
+  @Param({"1000"})
+  public int factCount;
+
+  private RulesRequest rulesRequest;
+
+  private List<Class> returnedFactsClass;
+
+  @Setup(Level.Trial)
+  public void createRequest() {
+
+    rulesRequest = newRequest(sessionType, false, newApplicants(factCount));
+
+    if ("none".equals(filter)) {
+      returnedFactsClass = null;
+    } else {
+      returnedFactsClass = new ArrayList<>();
+      returnedFactsClass.add(Decision.class);
+      if ("decisionAndId".equals(filter)) {
+        returnedFactsClass.add(Long.class);
+      }
+    }
+  }
+
+  @Benchmark
+  public RulesResponse fireRules() {
+    return rulesEngine.fireRules(rulesRequest, returnedFactsClass);
+  }
+}
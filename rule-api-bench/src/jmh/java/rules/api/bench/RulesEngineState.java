@@ -0,0 +1,96 @@
+/** */
+package rules.api.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import rules.api.bench.model.Applicant;
+import rules.api.config.RulesConfig;
+import rules.api.engine.RulesEngine;
+import rules.api.enums.SessionType;
+import rules.api.message.RulesRequest;
+
+/**
+ * Base state of the benchmarks. It starts the engine with the production Spring configuration on
+ * top of the bench kjar, once per trial.
+ *
+ * @author chandresh.mishra
+ */
+@State(Scope.Benchmark)
+public abstract class RulesEngineState {
+
+  protected AnnotationConfigApplicationContext context;
+
+  protected RulesEngine rulesEngine;
+
+  /** @return the audit mode the engine is started with */
+  protected String getAuditMode() {
+    return "off";
+  }
+
+  /** Starts the engine. System properties override rulesConfig.properties. */
+  @Setup(Level.Trial)
+  public void startEngine() {
+
+    BenchKjar.install();
+    System.setProperty("drools.audit.mode", getAuditMode());
+
+    context = new AnnotationConfigApplicationContext(RulesConfig.class);
+    rulesEngine = context.getBean(RulesEngine.class);
+  }
+
+  /** Stops the engine. */
+  @TearDown(Level.Trial)
+  public void stopEngine() {
+
+    context.close();
+    System.clearProperty("drools.audit.mode");
+  }
+
+  /**
+   * Creates applicants with a fixed seed, so every run inserts the same facts.
+   *
+   * @param count
+   * @return List of facts
+   */
+  protected static List<Object> newApplicants(int count) {
+
+    Random random = new Random(42);
+    List<Object> applicants = new ArrayList<>(count);
+    for (int id = 0; id < count; id++) {
+      applicants.add(new Applicant(id, 10 + random.nextInt(60), 20000 + random.nextInt(180000)));
+    }
+    return applicants;
+  }
+
+  /**
+   * Creates a request for the bench session or kieBase.
+   *
+   * @param sessionType
+   * @param byKieBase - true to build the session from the kieBase instead of the session name
+   * @param facts
+   * @return RulesRequest
+   */
+  protected static RulesRequest newRequest(
+      SessionType sessionType, boolean byKieBase, List<Object> facts) {
+
+    RulesRequest.RulesRequestBuilder builder =
+        new RulesRequest.RulesRequestBuilder().sessionType(sessionType).facts(facts);
+
+    if (byKieBase) {
+      builder.buildSessionByKieBase(true).kieBasename(BenchKjar.KIE_BASE);
+    } else {
+      builder.sessionName(
+          sessionType == SessionType.STATELESS
+              ? BenchKjar.STATELESS_SESSION
+              : BenchKjar.STATEFUL_SESSION);
+    }
+    return builder.build();
+  }
+}
@@ -0,0 +1,46 @@
+/** */
+package rules.api.bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import rules.api.enums.SessionType;
+import rules.api.message.RulesRequest;
+import rules.api.message.RulesResponse;
+
+/**
+ * Measures fireRules for both session types, with the session created from its name or from the
+ * kieBase, and from 1 to 100k facts per request.
+ *
+ * @author chandresh.mishra
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SessionBenchmark extends RulesEngineState {
+
+  @Param({"STATEFUL", "STATELESS"})
+  public SessionType sessionType;
+
+  @Param({"sessionName", "kieBase"})
+  public String sessionBy;
+
+  @Param({"1", "100", "10000", "100000"})
+  public int factCount;
+
+  private RulesRequest rulesRequest;
+
+  @Setup(Level.Trial)
+  public void createRequest() {
+    rulesRequest = newRequest(sessionType, "kieBase".equals(sessionBy), newApplicants(factCount));
+  }
+
+  @Benchmark
+  public RulesResponse fireRules() {
+    return rulesEngine.fireRules(rulesRequest, null);
+  }
+}
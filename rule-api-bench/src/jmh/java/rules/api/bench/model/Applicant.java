@@ -0,0 +1,37 @@
+/** */
+package rules.api.bench.model;
+
+/**
+ * Fact inserted in the benchmark sessions.
+ *
+ * @author chandresh.mishra
+ */
+public class Applicant {
+
+  private final long id;
+
+  private final int age;
+
+  private final int income;
+
+  public Applicant(long id, int age, int income) {
+    this.id = id;
+    this.age = age;
+    this.income = income;
+  }
+
+  /** @return the id */
+  public long getId() {
+    return id;
+  }
+
+  /** @return the age */
+  public int getAge() {
+    return age;
+  }
+
+  /** @return the income */
+  public int getIncome() {
+    return income;
+  }
+}
@@ -0,0 +1,29 @@
+/** */
+package rules.api.bench.model;
+
+/**
+ * Fact sent to the channel by the benchmark rules.
+ *
+ * @author chandresh.mishra
+ */
+public class Decision {
+
+  private final long applicantId;
+
+  private final String outcome;
+
+  public Decision(long applicantId, String outcome) {
+    this.applicantId = applicantId;
+    this.outcome = outcome;
+  }
+
+  /** @return the applicantId */
+  public long getApplicantId() {
+    return applicantId;
+  }
+
+  /** @return the outcome */
+  public String getOutcome() {
+    return outcome;
+  }
+}
@@ -0,0 +1,149 @@
+/** */
+package rules.api.server.load;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import rules.api.config.RulesConfig;
+import rules.api.enums.SessionType;
+import rules.api.message.RulesRequest;
+import rules.api.message.RulesResponse;
+import rules.api.metrics.LatencyHistogram;
+import rules.api.server.RulesClient;
+import rules.api.server.RulesServer;
+import rules.api.server.load.model.Applicant;
+
+/**
+ * This class load tests the rules server on the local host. It starts the engine and the server on
+ * a free port, then every client connection sends stateless requests, keeping up to window requests
+ * pipelined. The throughput and the latency seen by the clients are printed once for a warm-up run
+ * and once for the measured run.
+ *
+ * <p>Arguments: clients, requests per client, facts per request and optionally the
+ * drools.server.batchMaxFacts of the server, 0 to compare without batching.
+ *
+ * @author chandresh.mishra
+ */
+public final class LoadTest {
+
+  // Requests of a connection sent and not answered yet
+  private static final int WINDOW = 128;
+
+  private LoadTest() {}
+
+  public static void main(String[] args) throws Exception {
+
+    int clients = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+    int requests = args.length > 1 ? Integer.parseInt(args[1]) : 20000;
+    int facts = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+    if (args.length > 3) {
+      System.setProperty("drools.server.batchMaxFacts", args[3]);
+    }
+
+    LoadKjar.install();
+
+    try (AnnotationConfigApplicationContext context =
+        new AnnotationConfigApplicationContext(RulesConfig.class)) {
+
+      RulesServer server = context.getBean(RulesServer.class);
+      server.start();
+
+      run("warm-up", server.getPort(), clients, Math.max(1, requests / 10), facts);
+      run("load", server.getPort(), clients, requests, facts);
+    }
+  }
+
+  private static void run(String name, int port, int clients, int requests, int facts)
+      throws Exception {
+
+    LatencyHistogram latency = new LatencyHistogram();
+    LongAdder failures = new LongAdder();
+    CountDownLatch done = new CountDownLatch(clients);
+
+    long start = System.nanoTime();
+
+    for (int client = 0; client < clients; client++) {
+      int seed = client;
+      Thread thread =
+          new Thread(
+              () -> {
+                try {
+                  send(port, seed, requests, facts, latency, failures);
+                } catch (Exception e) {
+                  e.printStackTrace();
+                  failures.add(requests);
+                } finally {
+                  done.countDown();
+                }
+              },
+              "load-client-" + client);
+      thread.start();
+    }
+    done.await();
+
+    long elapsed = System.nanoTime() - start;
+    long total = (long) clients * requests;
+
+    System.out.printf(
+        "%s: %d clients, %d requests of %d facts in %d ms, %.0f requests/s, %d failed%n  latency "
+            + "%s%n",
+        name,
+        clients,
+        total,
+        facts,
+        TimeUnit.NANOSECONDS.toMillis(elapsed),
+        total * 1e9 / elapsed,
+        failures.sum(),
+        latency.getStats());
+  }
+
+  private static void send(
+      int port, int seed, int requests, int facts, LatencyHistogram latency, LongAdder failures)
+      throws Exception {
+
+    Random random = new Random(seed);
+    Semaphore window = new Semaphore(WINDOW);
+
+    try (RulesClient client = new RulesClient("127.0.0.1", port)) {
+      for (int request = 0; request < requests; request++) {
+
+        List<Object> applicants = new ArrayList<>(facts);
+        for (int fact = 0; fact < facts; fact++) {
+          applicants.add(
+              new Applicant(
+                  (long) request * facts + fact,
+                  10 + random.nextInt(60),
+                  20000 + random.nextInt(180000)));
+        }
+        RulesRequest rulesRequest =
+            new RulesRequest.RulesRequestBuilder()
+                .sessionType(SessionType.STATELESS)
+                .sessionName(LoadKjar.STATELESS_SESSION)
+                .facts(applicants)
+                .build();
+
+        window.acquire();
+        long sent = System.nanoTime();
+        client
+            .send(rulesRequest, null)
+            .whenComplete(
+                (RulesResponse rulesResponse, Throwable failure) -> {
+                  latency.record(System.nanoTime() - sent);
+                  // Every applicant gets at least one decision
+                  if (null != failure
+                      || rulesResponse.isFailed()
+                      || rulesResponse.getFactsFromSession().size() < facts) {
+                    failures.increment();
+                  }
+                  window.release();
+                });
+      }
+      window.acquire(WINDOW);
+    }
+  }
+}
@@ -0,0 +1,55 @@
+/** */
+package rules.api.server.load.model;
+
+/**
+ * Fact sent to the server by the load test.
+ *
+ * @author chandresh.mishra
+ */
+public class Applicant {
+
+  private long id;
+
+  private int age;
+
+  private int income;
+
+  // Used by the server to decode the fact
+  public Applicant() {}
+
+  public Applicant(long id, int age, int income) {
+    this.id = id;
+    this.age = age;
+    this.income = income;
+  }
+
+  /** @return the id */
+  public long getId() {
+    return id;
+  }
+
+  /** @param id the id to set */
+  public void setId(long id) {
+    this.id = id;
+  }
+
+  /** @return the age */
+  public int getAge() {
+    return age;
+  }
+
+  /** @param age the age to set */
+  public void setAge(int age) {
+    this.age = age;
+  }
+
+  /** @return the income */
+  public int getIncome() {
+    return income;
+  }
+
+  /** @param income the income to set */
+  public void setIncome(int income) {
+    this.income = income;
+  }
+}
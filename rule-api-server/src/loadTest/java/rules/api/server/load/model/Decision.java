@@ -0,0 +1,42 @@
+/** */
+package rules.api.server.load.model;
+
+/**
+ * Fact sent to the channel by the load test rules.
+ *
+ * @author chandresh.mishra
+ */
+public class Decision {
+
+  private long applicantId;
+
+  private String outcome;
+
+  // Used by the client to decode the fact
+  public Decision() {}
+
+  public Decision(long applicantId, String outcome) {
+    this.applicantId = applicantId;
+    this.outcome = outcome;
+  }
+
+  /** @return the applicantId */
+  public long getApplicantId() {
+    return applicantId;
+  }
+
+  /** @param applicantId the applicantId to set */
+  public void setApplicantId(long applicantId) {
+    this.applicantId = applicantId;
+  }
+
+  /** @return the outcome */
+  public String getOutcome() {
+    return outcome;
+  }
+
+  /** @param outcome the outcome to set */
+  public void setOutcome(String outcome) {
+    this.outcome = outcome;
+  }
+}
@@ -0,0 +1,173 @@
+/** */
+package rules.api.server;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.PostConstruct;
+import org.apache.commons.lang.StringUtils;
+import org.kie.api.definition.KiePackage;
+import org.kie.api.definition.type.FactType;
+import org.kie.api.runtime.KieContainer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import rules.api.container.ContainerLease;
+import rules.api.container.KieContainerManager;
+import rules.api.exception.RulesApiException;
+import rules.api.session.SessionKey;
+
+/**
+ * This class loads the classes of the facts from the container of the session. Only the types
+ * declared in the kjar and the ones of drools.server.factTypes are accepted, any other class name
+ * sent over the wire is rejected before it is loaded.
+ *
+ * <p>The accepted types of a container are read once, on a worker as it may build the container,
+ * and cached until the rules change or the container is unloaded. Types read while a container
+ * changed are read again, so the classes of an old container are never cached. The selector thread
+ * only resolves the types of the containers already read.
+ *
+ * @author chandresh.mishra
+ */
+@Component
+public class ContainerTypeResolver implements TypeResolver {
+
+  @Autowired private KieContainerManager containerManager;
+
+  @Autowired private ServerSettings settings;
+
+  // Accepted types by container id, "" for the current container
+  private final ConcurrentMap<String, ContainerTypes> containerTypes = new ConcurrentHashMap<>();
+
+  // Incremented before the types of a changed container are dropped
+  private final AtomicLong changes = new AtomicLong();
+
+  /** Drops the types of a container when it changes. */
+  @PostConstruct
+  public void init() {
+
+    containerManager.addListener(container -> drop(""));
+    containerManager.addEvictionListener(this::drop);
+  }
+
+  /** Reads the accepted types of the container when they are not cached, which may build it. */
+  @Override
+  public Class<?> resolve(SessionKey sessionKey, String type) {
+
+    String containerId = toContainerId(sessionKey);
+    ContainerTypes types = containerTypes.get(containerId);
+
+    while (null == types) {
+      long changesBefore = changes.get();
+      ContainerLease lease = containerManager.acquire(sessionKey);
+      try {
+        types = new ContainerTypes(lease.getContainer(), settings.getFactTypes());
+      } finally {
+        lease.release();
+      }
+      ContainerTypes previous = containerTypes.putIfAbsent(containerId, types);
+      if (null != previous) {
+        types = previous;
+      }
+      if (changes.get() != changesBefore) {
+        // A container changed while the types were read, they may be the ones of the old container
+        containerTypes.remove(containerId, types);
+        types = null;
+      }
+    }
+    return types.resolve(type);
+  }
+
+  /**
+   * Resolves a type without blocking, for the selector thread.
+   *
+   * @param sessionKey
+   * @param type
+   * @return the class
+   * @throws TypesNotLoadedException when the types of the container are not read yet
+   */
+  Class<?> resolveLoaded(SessionKey sessionKey, String type) {
+
+    ContainerTypes types = containerTypes.get(toContainerId(sessionKey));
+    if (null == types) {
+      throw new TypesNotLoadedException(sessionKey.getContainerId());
+    }
+    return types.resolve(type);
+  }
+
+  private void drop(String containerId) {
+    changes.incrementAndGet();
+    containerTypes.remove(containerId);
+  }
+
+  private static String toContainerId(SessionKey sessionKey) {
+    return null == sessionKey.getContainerId() ? "" : sessionKey.getContainerId();
+  }
+
+  /** The types accepted for a container and the classes loaded so far. */
+  private static final class ContainerTypes {
+
+    private final ClassLoader classLoader;
+
+    // Declared types of the kjar and the configured class names
+    private final Set<String> names = new HashSet<>();
+
+    // Packages of the configured names ending with .*
+    private final Set<String> packages = new HashSet<>();
+
+    private final ConcurrentMap<String, Class<?>> classes = new ConcurrentHashMap<>();
+
+    private ContainerTypes(KieContainer kContainer, String factTypes) {
+
+      this.classLoader = kContainer.getClassLoader();
+
+      for (String kieBaseName : kContainer.getKieBaseNames()) {
+        for (KiePackage kiePackage : kContainer.getKieBase(kieBaseName).getKiePackages()) {
+          for (FactType factType : kiePackage.getFactTypes()) {
+            names.add(factType.getName());
+          }
+        }
+      }
+
+      for (String factType : StringUtils.split(factTypes, ',')) {
+        factType = factType.trim();
+        if (factType.endsWith(".*")) {
+          packages.add(factType.substring(0, factType.length() - 2));
+        } else if (!factType.isEmpty()) {
+          names.add(factType);
+        }
+      }
+    }
+
+    private Class<?> resolve(String type) {
+
+      Class<?> factClass = classes.get(type);
+      if (null != factClass) {
+        return factClass;
+      }
+
+      int dot = type.lastIndexOf('.');
+      if (!names.contains(type) && (dot < 0 || !packages.contains(type.substring(0, dot)))) {
+        throw new RulesApiException("Fact type " + type + " is not accepted");
+      }
+      try {
+        factClass = Class.forName(type, false, classLoader);
+      } catch (ClassNotFoundException e) {
+        throw new RulesApiException("Unknown fact type " + type);
+      }
+      classes.putIfAbsent(type, factClass);
+      return factClass;
+    }
+  }
+
+  /** Thrown on the selector thread when the types of the container are not read yet. */
+  static final class TypesNotLoadedException extends RulesApiException {
+
+    private static final long serialVersionUID = 1L;
+
+    private TypesNotLoadedException(String containerId) {
+      super("Types of container " + containerId + " are not loaded");
+    }
+  }
+}
@@ -0,0 +1,27 @@
+/** */
+package rules.api.server;
+
+import java.util.Map;
+
+/**
+ * This interface converts the facts sent over the wire as a type name and field values. A bean
+ * implementing it replaces the ReflectionFactMapper, for facts without a default constructor or
+ * with a different wire layout.
+ *
+ * @author chandresh.mishra
+ */
+public interface FactMapper {
+
+  /**
+   * @param factClass - class of the type name sent by the client
+   * @param fields - field values, already decoded
+   * @return the fact
+   */
+  Object toFact(Class<?> factClass, Map<String, Object> fields);
+
+  /**
+   * @param fact - a fact returned by the rules, not a string, number, collection or map
+   * @return the field values sent to the client
+   */
+  Map<String, Object> toFields(Object fact);
+}
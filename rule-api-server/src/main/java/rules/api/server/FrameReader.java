@@ -0,0 +1,119 @@
+/** */
+package rules.api.server;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import rules.api.exception.RulesApiException;
+
+/**
+ * This class reads a frame written by the FrameWriter. The buffer holds the frame without its
+ * length. A frame that ends too early fails with RulesApiException.
+ *
+ * @author chandresh.mishra
+ */
+final class FrameReader {
+
+  private final ByteBuffer buffer;
+
+  FrameReader(ByteBuffer buffer) {
+    this.buffer = buffer;
+  }
+
+  int readByte() {
+    checkRemaining(1);
+    return buffer.get() & 0xFF;
+  }
+
+  int readInt() {
+    checkRemaining(4);
+    return buffer.getInt();
+  }
+
+  long readVarLong() {
+    long value = readUnsignedVarLong();
+    return (value >>> 1) ^ -(value & 1);
+  }
+
+  int readSize() {
+
+    long value = readUnsignedVarLong();
+    if (value > buffer.remaining()) {
+      // Every element takes at least one byte
+      throw new RulesApiException("Invalid size " + value + " in frame");
+    }
+    return (int) value;
+  }
+
+  double readDouble() {
+    checkRemaining(8);
+    return buffer.getDouble();
+  }
+
+  byte[] readBytes() {
+    byte[] value = new byte[readSize()];
+    buffer.get(value);
+    return value;
+  }
+
+  String readString() {
+    return readUtf8(readSize());
+  }
+
+  /** @return the string or null */
+  String readOptionalString() {
+
+    long length = readUnsignedVarLong();
+    if (length == 0) {
+      return null;
+    }
+    if (length - 1 > buffer.remaining()) {
+      throw new RulesApiException("Invalid size " + (length - 1) + " in frame");
+    }
+    return readUtf8((int) length - 1);
+  }
+
+  /** @return true when the frame is fully read */
+  boolean isComplete() {
+    return !buffer.hasRemaining();
+  }
+
+  private String readUtf8(int length) {
+
+    String value;
+    if (buffer.hasArray()) {
+      value =
+          new String(
+              buffer.array(),
+              buffer.arrayOffset() + buffer.position(),
+              length,
+              StandardCharsets.UTF_8);
+      buffer.position(buffer.position() + length);
+    } else {
+      byte[] utf8 = new byte[length];
+      buffer.get(utf8);
+      value = new String(utf8, StandardCharsets.UTF_8);
+    }
+    return value;
+  }
+
+  private long readUnsignedVarLong() {
+
+    long value = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      checkRemaining(1);
+      byte next = buffer.get();
+      value |= (long) (next & 0x7F) << shift;
+      if ((next & 0x80) == 0) {
+        return value;
+      }
+    }
+    throw new RulesApiException("Invalid number in frame");
+  }
+
+  private void checkRemaining(int count) {
+
+    if (buffer.remaining() < count) {
+      throw new RulesApiException("Frame ends too early");
+    }
+  }
+}
@@ -0,0 +1,112 @@
+/** */
+package rules.api.server;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * This class writes a frame to a growing array. A frame starts with its length, set when the frame
+ * is complete, and the request id. Numbers are written as variable length integers, the small ones
+ * take one byte.
+ *
+ * @author chandresh.mishra
+ */
+final class FrameWriter {
+
+  private byte[] bytes;
+
+  private int position;
+
+  /**
+   * @param requestId
+   * @param capacity - initial size in bytes, the array grows as needed
+   */
+  FrameWriter(int requestId, int capacity) {
+    this.bytes = new byte[Math.max(capacity, 16)];
+    this.position = 4;
+    writeInt(requestId);
+  }
+
+  void writeByte(int value) {
+    ensureCapacity(1);
+    bytes[position++] = (byte) value;
+  }
+
+  void writeInt(int value) {
+    ensureCapacity(4);
+    bytes[position++] = (byte) (value >>> 24);
+    bytes[position++] = (byte) (value >>> 16);
+    bytes[position++] = (byte) (value >>> 8);
+    bytes[position++] = (byte) value;
+  }
+
+  /** @param value - written zigzag encoded, so small negative values are short too */
+  void writeVarLong(long value) {
+    writeUnsignedVarLong((value << 1) ^ (value >> 63));
+  }
+
+  /** @param value - not negative, like a length or a count */
+  void writeSize(int value) {
+    writeUnsignedVarLong(value);
+  }
+
+  void writeDouble(double value) {
+    long bits = Double.doubleToLongBits(value);
+    writeInt((int) (bits >>> 32));
+    writeInt((int) bits);
+  }
+
+  void writeBytes(byte[] value) {
+    writeSize(value.length);
+    ensureCapacity(value.length);
+    System.arraycopy(value, 0, bytes, position, value.length);
+    position += value.length;
+  }
+
+  void writeString(String value) {
+    writeBytes(value.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /** @param value - may be null, it is written with a length off by one */
+  void writeOptionalString(String value) {
+
+    if (null == value) {
+      writeSize(0);
+      return;
+    }
+    byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+    writeSize(utf8.length + 1);
+    ensureCapacity(utf8.length);
+    System.arraycopy(utf8, 0, bytes, position, utf8.length);
+    position += utf8.length;
+  }
+
+  /** @return the frame, with its length, ready to be written to a channel */
+  ByteBuffer toFrame() {
+
+    int length = position - 4;
+    bytes[0] = (byte) (length >>> 24);
+    bytes[1] = (byte) (length >>> 16);
+    bytes[2] = (byte) (length >>> 8);
+    bytes[3] = (byte) length;
+    return ByteBuffer.wrap(bytes, 0, position);
+  }
+
+  private void writeUnsignedVarLong(long value) {
+
+    ensureCapacity(10);
+    while ((value & ~0x7FL) != 0) {
+      bytes[position++] = (byte) ((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    bytes[position++] = (byte) value;
+  }
+
+  private void ensureCapacity(int count) {
+
+    if (position + count > bytes.length) {
+      bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, position + count));
+    }
+  }
+}
@@ -0,0 +1,219 @@
+/** */
+package rules.api.server;
+
+import java.beans.IntrospectionException;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import rules.api.exception.RulesApiException;
+
+/**
+ * This class converts the facts from and to their bean properties by reflection. A fact is created
+ * with the public default constructor of its public class, and its properties are set with their
+ * public setters and read with their public getters. Nothing else of the class is reachable, so the
+ * wire can not set private state. The declared types of a kjar are such beans.
+ *
+ * <p>Numbers are converted to the type of the field, strings to enums, numbers to dates and lists
+ * to arrays or sets.
+ *
+ * @author chandresh.mishra
+ */
+public class ReflectionFactMapper implements FactMapper {
+
+  private final ClassValue<FactClass> factClasses =
+      new ClassValue<FactClass>() {
+        @Override
+        protected FactClass computeValue(Class<?> type) {
+          return new FactClass(type);
+        }
+      };
+
+  @Override
+  public Object toFact(Class<?> factClass, Map<String, Object> fields) {
+
+    FactClass mapping = factClasses.get(factClass);
+    Object fact = mapping.newInstance();
+
+    for (Map.Entry<String, Object> entry : fields.entrySet()) {
+      PropertyDescriptor property = mapping.properties.get(entry.getKey());
+      Method setter = null == property ? null : property.getWriteMethod();
+      if (null == setter) {
+        throw new RulesApiException(
+            "Unknown property " + entry.getKey() + " of " + factClass.getName());
+      }
+      Class<?> type = property.getPropertyType();
+      Object value = convert(entry.getValue(), type, property);
+      if (null != value || !type.isPrimitive()) {
+        try {
+          setter.invoke(fact, value);
+        } catch (ReflectiveOperationException e) {
+          throw new RulesApiException("Can not set property " + property.getName() + ": " + e);
+        }
+      }
+    }
+    return fact;
+  }
+
+  @Override
+  public Map<String, Object> toFields(Object fact) {
+
+    FactClass mapping = factClasses.get(fact.getClass());
+    Map<String, Object> fields = new LinkedHashMap<>(mapping.properties.size() * 4 / 3 + 1);
+
+    for (PropertyDescriptor property : mapping.properties.values()) {
+      try {
+        fields.put(property.getName(), property.getReadMethod().invoke(fact));
+      } catch (ReflectiveOperationException e) {
+        throw new RulesApiException("Can not read property " + property.getName() + ": " + e);
+      }
+    }
+    return fields;
+  }
+
+  /**
+   * @param value - decoded value
+   * @param type - type of the property or of the array element
+   * @param property - for the error message
+   * @return the value converted to the type
+   */
+  private Object convert(Object value, Class<?> type, PropertyDescriptor property) {
+
+    if (null == value || type.isInstance(value)) {
+      return value;
+    }
+
+    if (value instanceof Number) {
+      Number number = (Number) value;
+
+      if (type == int.class || type == Integer.class) {
+        return number.intValue();
+      } else if (type == long.class || type == Long.class) {
+        return number.longValue();
+      } else if (type == double.class || type == Double.class) {
+        return number.doubleValue();
+      } else if (type == float.class || type == Float.class) {
+        return number.floatValue();
+      } else if (type == short.class || type == Short.class) {
+        return number.shortValue();
+      } else if (type == byte.class || type == Byte.class) {
+        return number.byteValue();
+      } else if (type == BigDecimal.class) {
+        return new BigDecimal(number.toString());
+      } else if (type == BigInteger.class) {
+        return new BigDecimal(number.toString()).toBigInteger();
+      } else if (type == Date.class) {
+        return new Date(number.longValue());
+      }
+    }
+
+    if (value instanceof Boolean && type == boolean.class) {
+      return value;
+    }
+
+    if (value instanceof String) {
+      String string = (String) value;
+
+      if ((type == char.class || type == Character.class) && string.length() == 1) {
+        return string.charAt(0);
+      } else if (type.isEnum()) {
+        return toEnum(type, string);
+      }
+    }
+
+    if (value instanceof Collection) {
+      Collection<?> values = (Collection<?>) value;
+
+      if (type.isArray()) {
+        Object array = Array.newInstance(type.getComponentType(), values.size());
+        int index = 0;
+        for (Object element : values) {
+          Array.set(array, index++, convert(element, type.getComponentType(), property));
+        }
+        return array;
+      } else if (type.isAssignableFrom(LinkedHashSet.class)) {
+        return new LinkedHashSet<>(values);
+      } else if (type.isAssignableFrom(ArrayList.class)) {
+        return new ArrayList<>(values);
+      }
+    }
+
+    throw new RulesApiException(
+        "Can not set property "
+            + property.getName()
+            + " of type "
+            + type.getSimpleName()
+            + " from "
+            + value.getClass().getSimpleName());
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private static Object toEnum(Class<?> type, String name) {
+    return Enum.valueOf((Class<Enum>) type, name);
+  }
+
+  /** The constructor and the properties of a fact class. */
+  private static final class FactClass {
+
+    private final Class<?> type;
+
+    // Null when the class has no public default constructor
+    private final Constructor<?> constructor;
+
+    // Properties with a public getter, by name
+    private final Map<String, PropertyDescriptor> properties = new LinkedHashMap<>();
+
+    private FactClass(Class<?> type) {
+      this.type = type;
+      this.constructor = getDefaultConstructor(type);
+
+      try {
+        for (PropertyDescriptor property :
+            Introspector.getBeanInfo(type, Object.class).getPropertyDescriptors()) {
+          if (null != property.getReadMethod()) {
+            properties.put(property.getName(), property);
+          }
+        }
+      } catch (IntrospectionException e) {
+        throw new RulesApiException("Can not read the properties of " + type.getName());
+      }
+    }
+
+    private Object newInstance() {
+
+      if (null == constructor) {
+        throw new RulesApiException("No public default constructor in " + type.getName());
+      }
+      try {
+        return constructor.newInstance();
+      } catch (ReflectiveOperationException e) {
+        throw new RulesApiException("Can not create " + type.getName() + ": " + e.getMessage());
+      }
+    }
+
+    private static Constructor<?> getDefaultConstructor(Class<?> type) {
+
+      if (!Modifier.isPublic(type.getModifiers())
+          || Modifier.isAbstract(type.getModifiers())
+          || (null != type.getEnclosingClass() && !Modifier.isStatic(type.getModifiers()))) {
+        return null;
+      }
+      try {
+        return type.getConstructor();
+      } catch (NoSuchMethodException e) {
+        return null;
+      }
+    }
+  }
+}
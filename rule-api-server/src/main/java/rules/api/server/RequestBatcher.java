@@ -0,0 +1,189 @@
+/** */
+package rules.api.server;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import rules.api.engine.RulesEngine;
+import rules.api.message.RulesRequest;
+import rules.api.message.RulesResponse;
+import rules.api.session.SessionKey;
+
+/**
+ * This class groups the small requests read by the selector that target the same session and return
+ * the same classes, so a worker runs them as one batch of the engine. No request waits for a batch
+ * to fill: the batches are handed to the workers once the selector has read every ready connection,
+ * so requests are only batched when they arrive together, like pipelined requests.
+ *
+ * <p>It is used by the selector thread only.
+ *
+ * @author chandresh.mishra
+ */
+final class RequestBatcher {
+
+  private Logger logger = LogManager.getLogger(this);
+
+  private final RulesEngine rulesEngine;
+
+  private final RulesCodec codec;
+
+  private final Executor workers;
+
+  private final int batchMaxFacts;
+
+  private final int batchSize;
+
+  private final Map<BatchKey, List<ServerRequest>> pending = new HashMap<>();
+
+  RequestBatcher(
+      RulesEngine rulesEngine,
+      RulesCodec codec,
+      Executor workers,
+      int batchMaxFacts,
+      int batchSize) {
+    this.rulesEngine = rulesEngine;
+    this.codec = codec;
+    this.workers = workers;
+    this.batchMaxFacts = batchMaxFacts;
+    this.batchSize = batchSize;
+  }
+
+  /**
+   * Runs a large request at once, and adds a small one to the batch of its session.
+   *
+   * @param serverRequest
+   */
+  void add(ServerRequest serverRequest) {
+
+    if (batchMaxFacts <= 0 || serverRequest.getRulesRequest().getFacts().size() > batchMaxFacts) {
+      submit(Collections.singletonList(serverRequest));
+      return;
+    }
+
+    BatchKey batchKey =
+        new BatchKey(serverRequest.getSessionKey(), serverRequest.getReturnedFactsClass());
+    List<ServerRequest> batch = pending.computeIfAbsent(batchKey, key -> new ArrayList<>());
+    batch.add(serverRequest);
+
+    if (batch.size() >= batchSize) {
+      pending.remove(batchKey);
+      submit(batch);
+    }
+  }
+
+  /** Hands the pending batches to the workers. */
+  void flush() {
+
+    if (pending.isEmpty()) {
+      return;
+    }
+    for (List<ServerRequest> batch : pending.values()) {
+      submit(batch);
+    }
+    pending.clear();
+  }
+
+  private void submit(List<ServerRequest> batch) {
+
+    try {
+      workers.execute(() -> run(batch));
+    } catch (RejectedExecutionException e) {
+      logger.error("Server workers are busy, {} requests rejected", batch.size());
+      for (ServerRequest serverRequest : batch) {
+        serverRequest
+            .getConnection()
+            .send(
+                codec.encodeFailure(
+                    serverRequest.getRequestId(),
+                    new RejectedExecutionException("Server is busy. Request rejected")));
+      }
+    }
+  }
+
+  /**
+   * Fires the rules of a batch and sends the responses. It is called by the workers.
+   *
+   * @param batch
+   */
+  void run(List<ServerRequest> batch) {
+
+    List<RulesResponse> rulesResponses;
+
+    if (batch.size() == 1) {
+      ServerRequest serverRequest = batch.get(0);
+      RulesResponse rulesResponse;
+      try {
+        rulesResponse =
+            rulesEngine.fireRules(
+                serverRequest.getRulesRequest(), serverRequest.getReturnedFactsClass());
+      } catch (RuntimeException e) {
+        rulesResponse = new RulesResponse(e);
+      }
+      rulesResponses = Collections.singletonList(rulesResponse);
+
+    } else {
+      List<RulesRequest> rulesRequests = new ArrayList<>(batch.size());
+      for (ServerRequest serverRequest : batch) {
+        rulesRequests.add(serverRequest.getRulesRequest());
+      }
+      try {
+        rulesResponses =
+            rulesEngine.fireRulesBatch(rulesRequests, batch.get(0).getReturnedFactsClass());
+      } catch (RuntimeException e) {
+        rulesResponses = Collections.nCopies(batch.size(), new RulesResponse(e));
+      }
+    }
+
+    for (int index = 0; index < batch.size(); index++) {
+      ServerRequest serverRequest = batch.get(index);
+      serverRequest.getConnection().send(encode(serverRequest, rulesResponses.get(index)));
+    }
+  }
+
+  private ByteBuffer encode(ServerRequest serverRequest, RulesResponse rulesResponse) {
+
+    try {
+      return codec.encodeResponse(serverRequest.getRequestId(), rulesResponse);
+    } catch (RuntimeException e) {
+      logger.error("Can not encode the response of request {}", serverRequest.getRequestId(), e);
+      return codec.encodeFailure(serverRequest.getRequestId(), e);
+    }
+  }
+
+  /** Requests run by the same batch. */
+  private static final class BatchKey {
+
+    private final SessionKey sessionKey;
+
+    private final List<Class> returnedFactsClass;
+
+    private BatchKey(SessionKey sessionKey, List<Class> returnedFactsClass) {
+      this.sessionKey = sessionKey;
+      this.returnedFactsClass = returnedFactsClass;
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * sessionKey.hashCode() + Objects.hashCode(returnedFactsClass);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+
+      if (!(obj instanceof BatchKey)) {
+        return false;
+      }
+      BatchKey other = (BatchKey) obj;
+      return sessionKey.equals(other.sessionKey)
+          && Objects.equals(returnedFactsClass, other.returnedFactsClass);
+    }
+  }
+}
@@ -0,0 +1,168 @@
+/** */
+package rules.api.server;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import rules.api.exception.RulesApiException;
+import rules.api.message.RulesRequest;
+import rules.api.message.RulesResponse;
+
+/**
+ * This class is a Java client of the rules server. The requests are sent at once, without waiting
+ * for the responses of the previous ones, and a thread reads the responses. The facts are converted
+ * by the ReflectionFactMapper, the classes of the returned facts must be on the classpath of the
+ * client. It is thread safe.
+ *
+ * @author chandresh.mishra
+ */
+public class RulesClient implements AutoCloseable {
+
+  private Logger logger = LogManager.getLogger(this);
+
+  private final SocketChannel channel;
+
+  private final RulesCodec codec;
+
+  private final ConcurrentMap<Integer, CompletableFuture<RulesResponse>> pending =
+      new ConcurrentHashMap<>();
+
+  private final AtomicInteger nextRequestId = new AtomicInteger();
+
+  private final Thread reader;
+
+  private volatile boolean closed;
+
+  /**
+   * Connects to the server.
+   *
+   * @param host
+   * @param port
+   * @throws IOException
+   */
+  public RulesClient(String host, int port) throws IOException {
+
+    ClassLoader classLoader = RulesClient.class.getClassLoader();
+    this.codec =
+        new RulesCodec(
+            new ReflectionFactMapper(),
+            (sessionKey, type) -> {
+              try {
+                return Class.forName(type, false, classLoader);
+              } catch (ClassNotFoundException e) {
+                throw new RulesApiException("Unknown fact type " + type);
+              }
+            });
+
+    this.channel = SocketChannel.open(new InetSocketAddress(host, port));
+    this.channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+
+    this.reader = new Thread(this::readResponses, "rules-client-reader");
+    this.reader.setDaemon(true);
+    this.reader.start();
+  }
+
+  /**
+   * Sends a request.
+   *
+   * @param rulesRequest
+   * @param returnedTypes - class names of the returned facts, may be null for all of them
+   * @return CompletableFuture of the response. A request that failed on the server completes with a
+   *     response holding the failure, a connection failure completes it exceptionally
+   */
+  public CompletableFuture<RulesResponse> send(
+      RulesRequest rulesRequest, List<String> returnedTypes) {
+
+    int requestId = nextRequestId.incrementAndGet();
+    ByteBuffer frame = codec.encodeRequest(requestId, rulesRequest, returnedTypes);
+
+    CompletableFuture<RulesResponse> response = new CompletableFuture<>();
+    pending.put(requestId, response);
+
+    try {
+      synchronized (channel) {
+        while (frame.hasRemaining()) {
+          channel.write(frame);
+        }
+      }
+    } catch (IOException e) {
+      pending.remove(requestId);
+      response.completeExceptionally(e);
+    }
+    return response;
+  }
+
+  /**
+   * Sends a request and waits for its response.
+   *
+   * @param rulesRequest
+   * @param returnedTypes - class names of the returned facts, may be null for all of them
+   * @return RulesResponse
+   */
+  public RulesResponse fireRules(RulesRequest rulesRequest, List<String> returnedTypes) {
+    return send(rulesRequest, returnedTypes).join();
+  }
+
+  /** Closes the connection. The requests waiting for their response fail. */
+  @Override
+  public void close() throws IOException {
+
+    closed = true;
+    channel.close();
+    failPending(new IOException("Connection closed"));
+  }
+
+  private void readResponses() {
+
+    try {
+      DataInputStream in =
+          new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel), 64 * 1024));
+
+      while (!closed) {
+        byte[] frame = new byte[in.readInt()];
+        in.readFully(frame);
+
+        ByteBuffer buffer = ByteBuffer.wrap(frame);
+        CompletableFuture<RulesResponse> response = pending.remove(RulesCodec.getRequestId(buffer));
+        if (null == response) {
+          continue;
+        }
+        try {
+          response.complete(codec.decodeResponse(buffer));
+        } catch (RuntimeException e) {
+          response.completeExceptionally(e);
+        }
+      }
+    } catch (EOFException e) {
+      failPending(e);
+    } catch (IOException e) {
+      if (!closed) {
+        logger.error("Rules server connection failed", e);
+      }
+      failPending(e);
+    }
+  }
+
+  private void failPending(IOException e) {
+
+    for (Integer requestId : pending.keySet()) {
+      CompletableFuture<RulesResponse> response = pending.remove(requestId);
+      if (null != response) {
+        response.completeExceptionally(e);
+      }
+    }
+  }
+}
@@ -0,0 +1,403 @@
+/** */
+package rules.api.server;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import rules.api.enums.FiringStatus;
+import rules.api.enums.SessionType;
+import rules.api.exception.RulesApiException;
+import rules.api.message.RulesRequest;
+import rules.api.message.RulesResponse;
+import rules.api.session.SessionKey;
+
+/**
+ * This class encodes the requests and responses of the rules server. Every frame starts with its
+ * length and the request id as 4 byte integers, the response carries the id of its request.
+ *
+ * <p>A request holds the protocol version, the session type (0 none, 1 stateless, 2 stateful), the
+ * buildSessionByKieBase flag, the container id, session name and kieBase name, the timeout, the
+ * maximum number of rules fired, the class names of the returned facts, the globals and the facts.
+ * A response holds its status (0 completed, 1 failed), then either the number of rules fired, the
+ * firing status, the hot rules and the facts, or the error message.
+ *
+ * <p>A value starts with its tag. Numbers are variable length integers, zigzag encoded when signed,
+ * strings are UTF-8 with their length. An object is its class name and its property values,
+ * converted by the FactMapper.
+ *
+ * @author chandresh.mishra
+ */
+public class RulesCodec {
+
+  public static final int VERSION = 1;
+
+  static final int TAG_NULL = 0;
+  static final int TAG_TRUE = 1;
+  static final int TAG_FALSE = 2;
+  static final int TAG_INT = 3;
+  static final int TAG_LONG = 4;
+  static final int TAG_DOUBLE = 5;
+  static final int TAG_STRING = 6;
+  static final int TAG_BYTES = 7;
+  static final int TAG_LIST = 8;
+  static final int TAG_MAP = 9;
+  static final int TAG_OBJECT = 10;
+  static final int TAG_DECIMAL = 11;
+
+  private static final int STATUS_COMPLETED = 0;
+  private static final int STATUS_FAILED = 1;
+
+  // Guards against cycles between the fields of the facts
+  private static final int MAX_DEPTH = 32;
+
+  private final FactMapper factMapper;
+
+  private final TypeResolver typeResolver;
+
+  /**
+   * @param factMapper - converts the objects from and to their fields
+   * @param typeResolver - finds the class of the objects read
+   */
+  public RulesCodec(FactMapper factMapper, TypeResolver typeResolver) {
+    this.factMapper = factMapper;
+    this.typeResolver = typeResolver;
+  }
+
+  /**
+   * @param frame - a frame without its length
+   * @return the request id of the frame, the frame is not read
+   */
+  public static int getRequestId(ByteBuffer frame) {
+    return frame.getInt(frame.position());
+  }
+
+  /**
+   * @param requestId
+   * @param rulesRequest
+   * @param returnedTypes - class names of the returned facts, may be null for all of them
+   * @return the frame of the request
+   */
+  public ByteBuffer encodeRequest(
+      int requestId, RulesRequest rulesRequest, List<String> returnedTypes) {
+
+    FrameWriter out = new FrameWriter(requestId, 256);
+    out.writeByte(VERSION);
+    out.writeByte(
+        null == rulesRequest.getSessionType() ? 0 : rulesRequest.getSessionType().ordinal() + 1);
+    out.writeByte(rulesRequest.isBuildSessionByKieBase() ? 1 : 0);
+    out.writeOptionalString(rulesRequest.getContainerId());
+    out.writeOptionalString(rulesRequest.getSessionName());
+    out.writeOptionalString(rulesRequest.getKieBasename());
+    out.writeVarLong(rulesRequest.getTimeout());
+    out.writeVarLong(rulesRequest.getMaxRulesFired());
+
+    if (null == returnedTypes) {
+      out.writeSize(0);
+    } else {
+      out.writeSize(returnedTypes.size());
+      returnedTypes.forEach(out::writeString);
+    }
+
+    Map<String, Object> globals = rulesRequest.getGlobalElement();
+    if (null == globals) {
+      out.writeSize(0);
+    } else {
+      out.writeSize(globals.size());
+      for (Map.Entry<String, Object> global : globals.entrySet()) {
+        out.writeString(global.getKey());
+        writeValue(out, global.getValue(), 0);
+      }
+    }
+
+    List<Object> facts = rulesRequest.getFacts();
+    if (null == facts) {
+      out.writeSize(0);
+    } else {
+      out.writeSize(facts.size());
+      for (Object fact : facts) {
+        writeValue(out, fact, 0);
+      }
+    }
+    return out.toFrame();
+  }
+
+  /**
+   * @param frame - a frame without its length
+   * @return the request
+   */
+  ServerRequest decodeRequest(ByteBuffer frame) {
+
+    FrameReader in = new FrameReader(frame);
+    int requestId = in.readInt();
+
+    int version = in.readByte();
+    if (version != VERSION) {
+      throw new RulesApiException("Unsupported protocol version " + version);
+    }
+
+    int sessionType = in.readByte();
+    if (sessionType > SessionType.values().length) {
+      throw new RulesApiException("Unknown session type " + sessionType);
+    }
+
+    RulesRequest rulesRequest =
+        new RulesRequest.RulesRequestBuilder()
+            .sessionType(0 == sessionType ? null : SessionType.values()[sessionType - 1])
+            .buildSessionByKieBase(in.readByte() == 1)
+            .containerId(in.readOptionalString())
+            .sessionName(in.readOptionalString())
+            .kieBasename(in.readOptionalString())
+            .timeout(in.readVarLong())
+            .maxRulesFired((int) in.readVarLong())
+            .build();
+
+    // The classes of the facts are the ones of the container of the session
+    SessionKey sessionKey = SessionKey.of(rulesRequest);
+
+    int typeCount = in.readSize();
+    List<Class> returnedFactsClass = null;
+    if (typeCount > 0) {
+      returnedFactsClass = new ArrayList<>(typeCount);
+      for (int index = 0; index < typeCount; index++) {
+        returnedFactsClass.add(typeResolver.resolve(sessionKey, in.readString()));
+      }
+    }
+
+    int globalCount = in.readSize();
+    if (globalCount > 0) {
+      Map<String, Object> globals = new HashMap<>(globalCount * 4 / 3 + 1);
+      for (int index = 0; index < globalCount; index++) {
+        globals.put(in.readString(), readValue(in, sessionKey, 0));
+      }
+      rulesRequest.setGlobalElement(globals);
+    }
+
+    int factCount = in.readSize();
+    List<Object> facts = new ArrayList<>(factCount);
+    for (int index = 0; index < factCount; index++) {
+      facts.add(readValue(in, sessionKey, 0));
+    }
+    rulesRequest.setFacts(facts);
+
+    if (!in.isComplete()) {
+      throw new RulesApiException("Unexpected bytes at the end of request " + requestId);
+    }
+    return new ServerRequest(requestId, rulesRequest, returnedFactsClass, sessionKey);
+  }
+
+  /**
+   * @param requestId
+   * @param rulesResponse
+   * @return the frame of the response, or of its failure
+   */
+  public ByteBuffer encodeResponse(int requestId, RulesResponse rulesResponse) {
+
+    if (rulesResponse.isFailed()) {
+      return encodeFailure(requestId, rulesResponse.getFailure());
+    }
+
+    List<Object> facts = rulesResponse.getFactsFromSession();
+    FrameWriter out = new FrameWriter(requestId, null == facts ? 32 : 32 + facts.size() * 16);
+    out.writeByte(STATUS_COMPLETED);
+    out.writeSize(rulesResponse.getNumberOfRulesFired());
+    out.writeByte(rulesResponse.getFiringStatus().ordinal());
+
+    List<String> hotRules = rulesResponse.getHotRules();
+    if (null == hotRules) {
+      out.writeSize(0);
+    } else {
+      out.writeSize(hotRules.size());
+      hotRules.forEach(out::writeString);
+    }
+
+    if (null == facts) {
+      out.writeSize(0);
+    } else {
+      out.writeSize(facts.size());
+      for (Object fact : facts) {
+        writeValue(out, fact, 0);
+      }
+    }
+    return out.toFrame();
+  }
+
+  /**
+   * @param requestId
+   * @param failure
+   * @return the frame of a failed response
+   */
+  public ByteBuffer encodeFailure(int requestId, Throwable failure) {
+
+    FrameWriter out = new FrameWriter(requestId, 64);
+    out.writeByte(STATUS_FAILED);
+    out.writeString(
+        null == failure.getMessage() ? failure.getClass().getName() : failure.getMessage());
+    return out.toFrame();
+  }
+
+  /**
+   * @param frame - a frame without its length
+   * @return the response. A failure is returned as a response with a RulesApiException
+   */
+  public RulesResponse decodeResponse(ByteBuffer frame) {
+
+    FrameReader in = new FrameReader(frame);
+    in.readInt();
+
+    if (in.readByte() == STATUS_FAILED) {
+      return new RulesResponse(new RulesApiException(in.readString()));
+    }
+
+    int numberOfRulesFired = in.readSize();
+    int firingStatus = in.readByte();
+    if (firingStatus >= FiringStatus.values().length) {
+      throw new RulesApiException("Unknown firing status " + firingStatus);
+    }
+
+    int hotRuleCount = in.readSize();
+    List<String> hotRules = null;
+    if (hotRuleCount > 0) {
+      hotRules = new ArrayList<>(hotRuleCount);
+      for (int index = 0; index < hotRuleCount; index++) {
+        hotRules.add(in.readString());
+      }
+    }
+
+    int factCount = in.readSize();
+    List<Object> facts = new ArrayList<>(factCount);
+    for (int index = 0; index < factCount; index++) {
+      facts.add(readValue(in, null, 0));
+    }
+
+    return new RulesResponse(
+        numberOfRulesFired, facts, FiringStatus.values()[firingStatus], hotRules);
+  }
+
+  private void writeValue(FrameWriter out, Object value, int depth) {
+
+    if (depth > MAX_DEPTH) {
+      throw new RulesApiException("Value nested deeper than " + MAX_DEPTH + " levels");
+    }
+
+    if (null == value) {
+      out.writeByte(TAG_NULL);
+    } else if (value instanceof String) {
+      out.writeByte(TAG_STRING);
+      out.writeString((String) value);
+    } else if (value instanceof Boolean) {
+      out.writeByte((Boolean) value ? TAG_TRUE : TAG_FALSE);
+    } else if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+      out.writeByte(TAG_INT);
+      out.writeVarLong(((Number) value).intValue());
+    } else if (value instanceof Long) {
+      out.writeByte(TAG_LONG);
+      out.writeVarLong((Long) value);
+    } else if (value instanceof Double || value instanceof Float) {
+      out.writeByte(TAG_DOUBLE);
+      out.writeDouble(((Number) value).doubleValue());
+    } else if (value instanceof BigDecimal || value instanceof BigInteger) {
+      out.writeByte(TAG_DECIMAL);
+      out.writeString(value.toString());
+    } else if (value instanceof Character || value instanceof Enum) {
+      out.writeByte(TAG_STRING);
+      out.writeString(value instanceof Enum ? ((Enum<?>) value).name() : value.toString());
+    } else if (value instanceof byte[]) {
+      out.writeByte(TAG_BYTES);
+      out.writeBytes((byte[]) value);
+    } else if (value instanceof Collection) {
+      Collection<?> values = (Collection<?>) value;
+      out.writeByte(TAG_LIST);
+      out.writeSize(values.size());
+      for (Object element : values) {
+        writeValue(out, element, depth + 1);
+      }
+    } else if (value instanceof Object[]) {
+      Object[] values = (Object[]) value;
+      out.writeByte(TAG_LIST);
+      out.writeSize(values.length);
+      for (Object element : values) {
+        writeValue(out, element, depth + 1);
+      }
+    } else if (value instanceof Map) {
+      Map<?, ?> values = (Map<?, ?>) value;
+      out.writeByte(TAG_MAP);
+      out.writeSize(values.size());
+      for (Map.Entry<?, ?> entry : values.entrySet()) {
+        writeValue(out, entry.getKey(), depth + 1);
+        writeValue(out, entry.getValue(), depth + 1);
+      }
+    } else {
+      Map<String, Object> fields = factMapper.toFields(value);
+      out.writeByte(TAG_OBJECT);
+      out.writeString(value.getClass().getName());
+      out.writeSize(fields.size());
+      for (Map.Entry<String, Object> field : fields.entrySet()) {
+        out.writeString(field.getKey());
+        writeValue(out, field.getValue(), depth + 1);
+      }
+    }
+  }
+
+  private Object readValue(FrameReader in, SessionKey sessionKey, int depth) {
+
+    if (depth > MAX_DEPTH) {
+      throw new RulesApiException("Value nested deeper than " + MAX_DEPTH + " levels");
+    }
+
+    int tag = in.readByte();
+    switch (tag) {
+      case TAG_NULL:
+        return null;
+      case TAG_TRUE:
+        return Boolean.TRUE;
+      case TAG_FALSE:
+        return Boolean.FALSE;
+      case TAG_INT:
+        return (int) in.readVarLong();
+      case TAG_LONG:
+        return in.readVarLong();
+      case TAG_DOUBLE:
+        return in.readDouble();
+      case TAG_STRING:
+        return in.readString();
+      case TAG_BYTES:
+        return in.readBytes();
+      case TAG_DECIMAL:
+        return new BigDecimal(in.readString());
+
+      case TAG_LIST:
+        int size = in.readSize();
+        List<Object> values = new ArrayList<>(size);
+        for (int index = 0; index < size; index++) {
+          values.add(readValue(in, sessionKey, depth + 1));
+        }
+        return values;
+
+      case TAG_MAP:
+        int entries = in.readSize();
+        Map<Object, Object> map = new LinkedHashMap<>(entries * 4 / 3 + 1);
+        for (int index = 0; index < entries; index++) {
+          map.put(readValue(in, sessionKey, depth + 1), readValue(in, sessionKey, depth + 1));
+        }
+        return map;
+
+      case TAG_OBJECT:
+        Class<?> factClass = typeResolver.resolve(sessionKey, in.readString());
+        int fieldCount = in.readSize();
+        Map<String, Object> fields = new LinkedHashMap<>(fieldCount * 4 / 3 + 1);
+        for (int index = 0; index < fieldCount; index++) {
+          fields.put(in.readString(), readValue(in, sessionKey, depth + 1));
+        }
+        return factMapper.toFact(factClass, fields);
+
+      default:
+        throw new RulesApiException("Unknown value tag " + tag);
+    }
+  }
+}
@@ -0,0 +1,341 @@
+/** */
+package rules.api.server;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.PreDestroy;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import rules.api.engine.RulesEngine;
+import rules.api.server.ContainerTypeResolver.TypesNotLoadedException;
+
+/**
+ * This class serves the rules engine over TCP with the binary protocol of the RulesCodec. One
+ * selector thread accepts the connections, reads and decodes the requests and writes the responses.
+ * The rules are fired by the workers, small requests of the same session read together being run as
+ * one batch. The selector only decodes the requests of the containers whose types are loaded, the
+ * first request of a container is decoded by a worker as it may build the container.
+ *
+ * <p>A client may send requests without waiting for the responses, up to maxPipelined per
+ * connection. The responses are sent as the requests complete, so they carry the id of their
+ * request and may come back in another order.
+ *
+ * @author chandresh.mishra
+ */
+@Component
+public class RulesServer {
+
+  private Logger logger = LogManager.getLogger(this);
+
+  @Autowired private ServerSettings settings;
+
+  @Autowired private RulesEngine rulesEngine;
+
+  @Autowired private ContainerTypeResolver typeResolver;
+
+  @Autowired(required = false)
+  private FactMapper factMapper;
+
+  // Connections with responses to write, handed by the workers
+  private final Queue<ServerConnection> writable = new ConcurrentLinkedQueue<>();
+
+  // Resolves the types of the loaded containers only, selector thread
+  private RulesCodec codec;
+
+  // Loads the types of the container, workers
+  private RulesCodec workerCodec;
+
+  private Selector selector;
+
+  private ServerSocketChannel serverChannel;
+
+  private ThreadPoolExecutor workers;
+
+  private RequestBatcher batcher;
+
+  private Thread selectorThread;
+
+  private volatile boolean running;
+
+  /**
+   * Opens the server socket and starts the selector thread.
+   *
+   * @throws IOException when the port can not be bound
+   */
+  public synchronized void start() throws IOException {
+
+    if (running) {
+      return;
+    }
+
+    FactMapper mapper = null == factMapper ? new ReflectionFactMapper() : factMapper;
+    codec = new RulesCodec(mapper, typeResolver::resolveLoaded);
+    workerCodec = new RulesCodec(mapper, typeResolver);
+
+    AtomicInteger threadCount = new AtomicInteger();
+    workers =
+        new ThreadPoolExecutor(
+            settings.getWorkers(),
+            settings.getWorkers(),
+            0L,
+            TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(settings.getQueueSize()),
+            runnable -> {
+              Thread thread =
+                  new Thread(runnable, "rules-server-worker-" + threadCount.incrementAndGet());
+              thread.setDaemon(true);
+              return thread;
+            });
+
+    batcher =
+        new RequestBatcher(
+            rulesEngine, codec, workers, settings.getBatchMaxFacts(), settings.getBatchSize());
+
+    selector = Selector.open();
+    serverChannel = ServerSocketChannel.open();
+    serverChannel.bind(new InetSocketAddress(settings.getHost(), settings.getPort()), 1024);
+    serverChannel.configureBlocking(false);
+    serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+
+    running = true;
+    selectorThread = new Thread(this::select, "rules-server-selector");
+    selectorThread.start();
+
+    logger.info("Rules server listening on {}", serverChannel.getLocalAddress());
+  }
+
+  /** Closes the connections and stops the threads. Requests still running are dropped. */
+  @PreDestroy
+  public synchronized void stop() {
+
+    if (!running) {
+      return;
+    }
+    running = false;
+    selector.wakeup();
+    try {
+      selectorThread.join(TimeUnit.SECONDS.toMillis(5));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    workers.shutdownNow();
+    logger.info("Rules server stopped");
+  }
+
+  /** @return the port the server listens on, or -1 when it is stopped */
+  public int getPort() {
+    return running ? serverChannel.socket().getLocalPort() : -1;
+  }
+
+  /**
+   * Hands a connection with responses to write to the selector. It is called by the workers.
+   *
+   * @param connection
+   */
+  void scheduleWrite(ServerConnection connection) {
+    writable.add(connection);
+    selector.wakeup();
+  }
+
+  private void select() {
+
+    List<ByteBuffer> frames = new ArrayList<>();
+
+    try {
+      while (running) {
+        selector.select();
+
+        Iterator<SelectionKey> selectedKeys = selector.selectedKeys().iterator();
+        while (selectedKeys.hasNext()) {
+          SelectionKey selectionKey = selectedKeys.next();
+          selectedKeys.remove();
+
+          if (!selectionKey.isValid()) {
+            continue;
+          }
+          if (selectionKey.isAcceptable()) {
+            accept();
+            continue;
+          }
+
+          ServerConnection connection = (ServerConnection) selectionKey.attachment();
+          try {
+            if (selectionKey.isWritable()) {
+              write(connection);
+            }
+            if (selectionKey.isValid() && selectionKey.isReadable()) {
+              frames.clear();
+              if (connection.read(settings.getMaxFrameSize(), frames)) {
+                frames.forEach(frame -> dispatch(connection, frame));
+                pauseReading(connection);
+              } else {
+                connection.close();
+              }
+            }
+          } catch (IOException | RuntimeException e) {
+            logger.warn("Connection closed: {}", e.getMessage());
+            connection.close();
+          }
+        }
+
+        // Requests read together are batched
+        batcher.flush();
+
+        for (ServerConnection connection = writable.poll();
+            null != connection;
+            connection = writable.poll()) {
+          try {
+            write(connection);
+          } catch (IOException | RuntimeException e) {
+            logger.warn("Connection closed: {}", e.getMessage());
+            connection.close();
+          }
+        }
+      }
+    } catch (IOException | RuntimeException e) {
+      logger.error("Rules server selector failed", e);
+    } finally {
+      close();
+    }
+  }
+
+  private void accept() throws IOException {
+
+    SocketChannel channel = serverChannel.accept();
+    if (null == channel) {
+      return;
+    }
+    channel.configureBlocking(false);
+    channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+
+    SelectionKey selectionKey = channel.register(selector, SelectionKey.OP_READ);
+    selectionKey.attach(new ServerConnection(channel, selectionKey, this));
+  }
+
+  /**
+   * Decodes a request and hands it to the batcher. A request that can not be decoded is answered as
+   * failed, and one of a container whose types are not loaded is decoded and run by a worker.
+   *
+   * @param connection
+   * @param frame
+   */
+  private void dispatch(ServerConnection connection, ByteBuffer frame) {
+
+    int requestId = RulesCodec.getRequestId(frame);
+    ServerRequest serverRequest;
+    try {
+      serverRequest = codec.decodeRequest(frame.duplicate());
+    } catch (TypesNotLoadedException e) {
+      dispatchToWorker(connection, frame, requestId);
+      return;
+    } catch (RuntimeException e) {
+      logger.error("Invalid request {}: {}", requestId, e.getMessage());
+      connection.send(codec.encodeFailure(requestId, e));
+      return;
+    }
+    serverRequest.setConnection(connection);
+    batcher.add(serverRequest);
+  }
+
+  /**
+   * Decodes a request on a worker, loading the types of its container, and runs it alone.
+   *
+   * @param connection
+   * @param frame
+   * @param requestId
+   */
+  private void dispatchToWorker(ServerConnection connection, ByteBuffer frame, int requestId) {
+
+    try {
+      workers.execute(
+          () -> {
+            ServerRequest serverRequest;
+            try {
+              serverRequest = workerCodec.decodeRequest(frame);
+            } catch (RuntimeException e) {
+              logger.error("Invalid request {}: {}", requestId, e.getMessage());
+              connection.send(workerCodec.encodeFailure(requestId, e));
+              return;
+            }
+            serverRequest.setConnection(connection);
+            batcher.run(Collections.singletonList(serverRequest));
+          });
+    } catch (RejectedExecutionException e) {
+      logger.error("Server workers are busy, request {} rejected", requestId);
+      connection.send(
+          codec.encodeFailure(
+              requestId, new RejectedExecutionException("Server is busy. Request rejected")));
+    }
+  }
+
+  /**
+   * Writes the queued responses, waiting for the socket when its buffer is full, and reads the
+   * connection again once it has few requests running.
+   *
+   * @param connection
+   * @throws IOException
+   */
+  private void write(ServerConnection connection) throws IOException {
+
+    if (connection.isClosed()) {
+      return;
+    }
+    SelectionKey selectionKey = connection.getSelectionKey();
+    boolean flushed = connection.flush();
+
+    int interestOps = selectionKey.interestOps();
+    interestOps =
+        flushed ? interestOps & ~SelectionKey.OP_WRITE : interestOps | SelectionKey.OP_WRITE;
+    if (connection.getPipelined() < settings.getMaxPipelined()) {
+      interestOps |= SelectionKey.OP_READ;
+    }
+    selectionKey.interestOps(interestOps);
+  }
+
+  /**
+   * Stops reading a connection with too many requests running.
+   *
+   * @param connection
+   */
+  private void pauseReading(ServerConnection connection) {
+
+    if (connection.getPipelined() >= settings.getMaxPipelined()) {
+      SelectionKey selectionKey = connection.getSelectionKey();
+      selectionKey.interestOps(selectionKey.interestOps() & ~SelectionKey.OP_READ);
+    }
+  }
+
+  private void close() {
+
+    for (SelectionKey selectionKey : selector.keys()) {
+      if (selectionKey.attachment() instanceof ServerConnection) {
+        ((ServerConnection) selectionKey.attachment()).close();
+      }
+    }
+    try {
+      serverChannel.close();
+      selector.close();
+    } catch (IOException e) {
+      logger.error("Can not close the rules server", e);
+    }
+  }
+}
@@ -0,0 +1,26 @@
+/** */
+package rules.api.server;
+
+import java.io.IOException;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import rules.api.config.RulesConfig;
+
+/**
+ * This class starts the rules server. The engine and the server are configured by
+ * rulesConfig.properties, system properties override it. The server stops with the JVM.
+ *
+ * @author chandresh.mishra
+ */
+public final class RulesServerMain {
+
+  private RulesServerMain() {}
+
+  public static void main(String[] args) throws IOException {
+
+    AnnotationConfigApplicationContext context =
+        new AnnotationConfigApplicationContext(RulesConfig.class);
+    context.registerShutdownHook();
+
+    context.getBean(RulesServer.class).start();
+  }
+}
@@ -0,0 +1,182 @@
+/** */
+package rules.api.server;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import rules.api.exception.RulesApiException;
+
+/**
+ * This class is a client connection of the server. Frames are read and written by the selector
+ * thread only. The workers queue the responses, which are written in the order they complete, and
+ * hand the connection to the selector.
+ *
+ * @author chandresh.mishra
+ */
+final class ServerConnection {
+
+  // Maximum number of responses written by one gathering write
+  private static final int MAX_GATHER = 64;
+
+  private final SocketChannel channel;
+
+  private final SelectionKey selectionKey;
+
+  private final RulesServer server;
+
+  private ByteBuffer readBuffer = ByteBuffer.allocate(64 * 1024);
+
+  // Responses queued by the workers
+  private final Queue<ByteBuffer> responses = new ConcurrentLinkedQueue<>();
+
+  // Responses taken from the queue and not fully written yet, selector thread only
+  private final ArrayDeque<ByteBuffer> writing = new ArrayDeque<>();
+
+  private final ByteBuffer[] gather = new ByteBuffer[MAX_GATHER];
+
+  private final AtomicBoolean writeScheduled = new AtomicBoolean();
+
+  // Requests read and not answered yet
+  private final AtomicInteger pipelined = new AtomicInteger();
+
+  private volatile boolean closed;
+
+  ServerConnection(SocketChannel channel, SelectionKey selectionKey, RulesServer server) {
+    this.channel = channel;
+    this.selectionKey = selectionKey;
+    this.server = server;
+  }
+
+  /**
+   * Reads what the client sent and cuts it into frames.
+   *
+   * @param maxFrameSize
+   * @param frames - receives the frames, without their length
+   * @return false when the client closed the connection
+   * @throws IOException
+   */
+  boolean read(int maxFrameSize, List<ByteBuffer> frames) throws IOException {
+
+    int read = channel.read(readBuffer);
+    if (read < 0) {
+      return false;
+    }
+
+    int count = 0;
+    readBuffer.flip();
+    while (readBuffer.remaining() >= 4) {
+      int length = readBuffer.getInt(readBuffer.position());
+      if (length < 4 || length > maxFrameSize) {
+        throw new RulesApiException("Invalid frame length " + length);
+      }
+      if (readBuffer.remaining() < 4 + length) {
+        break;
+      }
+      byte[] frame = new byte[length];
+      readBuffer.position(readBuffer.position() + 4);
+      readBuffer.get(frame);
+      frames.add(ByteBuffer.wrap(frame));
+      count++;
+    }
+    readBuffer.compact();
+
+    // A frame larger than the buffer is read once the buffer grew
+    if (!readBuffer.hasRemaining()) {
+      ByteBuffer larger =
+          ByteBuffer.allocate(Math.min(readBuffer.capacity() * 2, maxFrameSize + 4));
+      readBuffer.flip();
+      larger.put(readBuffer);
+      readBuffer = larger;
+    }
+    pipelined.addAndGet(count);
+    return true;
+  }
+
+  /**
+   * Queues a response. It is called by the workers.
+   *
+   * @param frame
+   */
+  void send(ByteBuffer frame) {
+
+    if (closed) {
+      return;
+    }
+    responses.add(frame);
+    if (writeScheduled.compareAndSet(false, true)) {
+      server.scheduleWrite(this);
+    }
+  }
+
+  /**
+   * Writes the queued responses until the socket buffer is full.
+   *
+   * @return true when every response is written
+   * @throws IOException
+   */
+  boolean flush() throws IOException {
+
+    // Responses queued from now on schedule the connection again
+    writeScheduled.set(false);
+    for (ByteBuffer frame = responses.poll(); null != frame; frame = responses.poll()) {
+      writing.add(frame);
+    }
+
+    while (!writing.isEmpty()) {
+      int count = 0;
+      for (ByteBuffer frame : writing) {
+        if (count == gather.length) {
+          break;
+        }
+        gather[count++] = frame;
+      }
+      channel.write(gather, 0, count);
+
+      while (!writing.isEmpty() && !writing.peek().hasRemaining()) {
+        writing.poll();
+        pipelined.decrementAndGet();
+      }
+      // The socket buffer is full when the last response of the write is not fully written
+      if (gather[count - 1].hasRemaining()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** @return number of requests read and not answered yet */
+  int getPipelined() {
+    return pipelined.get();
+  }
+
+  /** @return the selectionKey */
+  SelectionKey getSelectionKey() {
+    return selectionKey;
+  }
+
+  /** @return true once the connection is closed */
+  boolean isClosed() {
+    return closed;
+  }
+
+  /** Closes the connection, the responses still running are dropped. */
+  void close() {
+
+    closed = true;
+    selectionKey.cancel();
+    responses.clear();
+    writing.clear();
+    try {
+      channel.close();
+    } catch (IOException e) {
+      // Nothing left to do with the connection
+    }
+  }
+}
@@ -0,0 +1,67 @@
+/** */
+package rules.api.server;
+
+import java.util.List;
+import rules.api.message.RulesRequest;
+import rules.api.session.SessionKey;
+
+/**
+ * This class is a request read by the server, along with the connection it is answered on.
+ *
+ * @author chandresh.mishra
+ */
+final class ServerRequest {
+
+  private final int requestId;
+
+  private final RulesRequest rulesRequest;
+
+  // Null to return all the facts
+  private final List<Class> returnedFactsClass;
+
+  private final SessionKey sessionKey;
+
+  // Set by the server once the request is read
+  private ServerConnection connection;
+
+  ServerRequest(
+      int requestId,
+      RulesRequest rulesRequest,
+      List<Class> returnedFactsClass,
+      SessionKey sessionKey) {
+    this.requestId = requestId;
+    this.rulesRequest = rulesRequest;
+    this.returnedFactsClass = returnedFactsClass;
+    this.sessionKey = sessionKey;
+  }
+
+  /** @return the requestId */
+  int getRequestId() {
+    return requestId;
+  }
+
+  /** @return the rulesRequest */
+  RulesRequest getRulesRequest() {
+    return rulesRequest;
+  }
+
+  /** @return the returnedFactsClass */
+  List<Class> getReturnedFactsClass() {
+    return returnedFactsClass;
+  }
+
+  /** @return the sessionKey */
+  SessionKey getSessionKey() {
+    return sessionKey;
+  }
+
+  /** @return the connection */
+  ServerConnection getConnection() {
+    return connection;
+  }
+
+  /** @param connection the connection to set */
+  void setConnection(ServerConnection connection) {
+    this.connection = connection;
+  }
+}
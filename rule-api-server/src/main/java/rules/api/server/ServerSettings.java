@@ -0,0 +1,101 @@
+/** */
+package rules.api.server;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.stereotype.Component;
+
+/**
+ * This class holds the settings of the rules server. It is populated from property file and every
+ * value has a default.
+ *
+ * @author chandresh.mishra
+ */
+@PropertySource("classpath:rulesConfig.properties")
+@Component
+public class ServerSettings {
+
+  // Address the server listens on. Only the local host by default
+  @Value("${drools.server.host:127.0.0.1}")
+  private String host;
+
+  // Port the server listens on. 0 picks a free port
+  @Value("${drools.server.port:9401}")
+  private int port;
+
+  // Number of threads running the rules. 0 uses the number of available processors
+  @Value("${drools.server.workers:0}")
+  private int workers;
+
+  // Maximum number of batches waiting for a worker. Requests beyond it are answered as failed
+  @Value("${drools.server.queueSize:10000}")
+  private int queueSize;
+
+  // Maximum number of requests of a connection waiting for their response. Reading the connection
+  // stops until responses are sent
+  @Value("${drools.server.maxPipelined:1024}")
+  private int maxPipelined;
+
+  // Maximum size in bytes of a request. A larger request closes the connection
+  @Value("${drools.server.maxFrameSize:16777216}")
+  private int maxFrameSize;
+
+  // Requests with at most this number of facts are batched with the requests of the same session
+  // read at the same time. 0 turns batching off
+  @Value("${drools.server.batchMaxFacts:64}")
+  private int batchMaxFacts;
+
+  // Maximum number of requests in a batch
+  @Value("${drools.server.batchSize:64}")
+  private int batchSize;
+
+  // Class names accepted as facts and returned types besides the types declared in the kjar,
+  // separated by commas. A name ending with .* accepts the classes of a package
+  @Value("${drools.server.factTypes:}")
+  private String factTypes;
+
+  /** @return the host */
+  public String getHost() {
+    return host;
+  }
+
+  /** @return the port */
+  public int getPort() {
+    return port;
+  }
+
+  /** @return the workers */
+  public int getWorkers() {
+    return workers > 0 ? workers : Runtime.getRuntime().availableProcessors();
+  }
+
+  /** @return the queueSize */
+  public int getQueueSize() {
+    return queueSize > 0 ? queueSize : 1;
+  }
+
+  /** @return the maxPipelined */
+  public int getMaxPipelined() {
+    return maxPipelined > 0 ? maxPipelined : 1;
+  }
+
+  /** @return the maxFrameSize */
+  public int getMaxFrameSize() {
+    return maxFrameSize;
+  }
+
+  /** @return the batchMaxFacts */
+  public int getBatchMaxFacts() {
+    return batchMaxFacts;
+  }
+
+  /** @return the batchSize */
+  public int getBatchSize() {
+    return batchSize > 0 ? batchSize : 1;
+  }
+
+  /** @return the factTypes */
+  public String getFactTypes() {
+    return factTypes;
+  }
+}
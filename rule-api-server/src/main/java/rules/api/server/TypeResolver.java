@@ -0,0 +1,21 @@
+/** */
+package rules.api.server;
+
+import rules.api.session.SessionKey;
+
+/**
+ * This interface finds the class of a type name sent over the wire.
+ *
+ * @author chandresh.mishra
+ */
+@FunctionalInterface
+public interface TypeResolver {
+
+  /**
+   * @param sessionKey - session the fact is sent to, its container holds the classes of the kjar
+   * @param type - class name
+   * @return the class
+   * @throws rules.api.exception.RulesApiException when the class is unknown
+   */
+  Class<?> resolve(SessionKey sessionKey, String type);
+}
@@ -0,0 +1,153 @@
+/** */
+package rules.api.server;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.testng.annotations.Test;
+import rules.api.enums.FiringStatus;
+import rules.api.enums.SessionKeyType;
+import rules.api.enums.SessionType;
+import rules.api.exception.RulesApiException;
+import rules.api.message.RulesRequest;
+import rules.api.message.RulesResponse;
+
+/**
+ * Test class for the RulesCodec
+ *
+ * @author chandresh.mishra
+ */
+public class RulesCodecTest {
+
+  private final RulesCodec codec =
+      new RulesCodec(
+          new ReflectionFactMapper(),
+          (sessionKey, type) -> {
+            try {
+              return Class.forName(type);
+            } catch (ClassNotFoundException e) {
+              throw new RulesApiException("Unknown fact type " + type);
+            }
+          });
+
+  @Test
+  public void testRequestIsDecodedAsEncoded() {
+    Map<String, Object> globals = new HashMap<>();
+    globals.put("limit", new BigDecimal("12.50"));
+    RulesRequest rulesRequest =
+        new RulesRequest.RulesRequestBuilder()
+            .sessionType(SessionType.STATELESS)
+            .kieBasename("kbase")
+            .buildSessionByKieBase(true)
+            .timeout(250)
+            .facts(Arrays.asList(new Item("a", -3, 1.5, Arrays.asList("x", "y")), 42L, null))
+            .globalService(globals)
+            .build();
+
+    ByteBuffer frame =
+        codec.encodeRequest(7, rulesRequest, Collections.singletonList("java.lang.Long"));
+    assertEquals(frame.getInt(), frame.remaining());
+
+    ServerRequest serverRequest = codec.decodeRequest(frame.slice());
+    RulesRequest decoded = serverRequest.getRulesRequest();
+
+    assertEquals(serverRequest.getRequestId(), 7);
+    assertEquals(serverRequest.getSessionKey().getType(), SessionKeyType.KIE_BASE);
+    assertEquals(serverRequest.getReturnedFactsClass(), Collections.singletonList(Long.class));
+    assertEquals(decoded.getSessionType(), SessionType.STATELESS);
+    assertEquals(decoded.getTimeout(), 250);
+    assertNull(decoded.getContainerId());
+    assertEquals(decoded.getGlobalElement(), globals);
+
+    Item item = (Item) decoded.getFacts().get(0);
+    assertEquals(item.getName(), "a");
+    assertEquals(item.getCount(), -3);
+    assertEquals(item.getScore(), 1.5);
+    assertEquals(item.getTags(), new String[] {"x", "y"});
+    assertEquals(decoded.getFacts().subList(1, 3), Arrays.asList(42L, null));
+  }
+
+  @Test
+  public void testResponseAndFailureAreDecoded() {
+    RulesResponse rulesResponse =
+        new RulesResponse(
+            3,
+            Arrays.<Object>asList("done", 1),
+            FiringStatus.MAX_RULES_FIRED,
+            Collections.singletonList("p.loop (3)"));
+
+    ByteBuffer frame = codec.encodeResponse(9, rulesResponse);
+    frame.getInt();
+    assertEquals(RulesCodec.getRequestId(frame), 9);
+
+    RulesResponse decoded = codec.decodeResponse(frame);
+    assertEquals(decoded.getNumberOfRulesFired(), 3);
+    assertEquals(decoded.getFactsFromSession(), Arrays.asList("done", 1));
+    assertEquals(decoded.getFiringStatus(), FiringStatus.MAX_RULES_FIRED);
+    assertEquals(decoded.getHotRules(), Collections.singletonList("p.loop (3)"));
+
+    frame = codec.encodeFailure(10, new RulesApiException("Session is closed"));
+    frame.getInt();
+    decoded = codec.decodeResponse(frame);
+    assertTrue(decoded.isFailed());
+    assertEquals(decoded.getFailure().getMessage(), "Session is closed");
+  }
+
+  /** Fact set through its bean properties. */
+  public static final class Item {
+
+    private String name;
+    private int count;
+    private double score;
+    private String[] tags;
+
+    public Item() {}
+
+    Item(String name, int count, double score, List<String> tags) {
+      this.name = name;
+      this.count = count;
+      this.score = score;
+      this.tags = tags.toArray(new String[0]);
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public void setName(String name) {
+      this.name = name;
+    }
+
+    public int getCount() {
+      return count;
+    }
+
+    public void setCount(int count) {
+      this.count = count;
+    }
+
+    public double getScore() {
+      return score;
+    }
+
+    public void setScore(double score) {
+      this.score = score;
+    }
+
+    public String[] getTags() {
+      return tags;
+    }
+
+    public void setTags(String[] tags) {
+      this.tags = tags;
+    }
+  }
+}
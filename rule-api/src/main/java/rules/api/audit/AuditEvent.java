@@ -0,0 +1,62 @@
+/** */
+package rules.api.audit;
+
+import rules.api.enums.AuditEventType;
+
+/**
+ * This class is one slot of the audit ring buffer. Slots are allocated once and overwritten, so an
+ * event must not be kept after the drain callback returns.
+ *
+ * @author chandresh.mishra
+ */
+public final class AuditEvent {
+
+  // Sequence of the event stored in the slot. Written last by the producer
+  volatile long published = -1;
+
+  private AuditEventType type;
+
+  // Rule name or session key
+  private Object name;
+
+  // Class of the fact. Null for rule and request events
+  private Class<?> factClass;
+
+  // Rules fired by the request. 0 for other events
+  private int count;
+
+  private long timestamp;
+
+  void set(AuditEventType type, Object name, Class<?> factClass, int count, long timestamp) {
+    this.type = type;
+    this.name = name;
+    this.factClass = factClass;
+    this.count = count;
+    this.timestamp = timestamp;
+  }
+
+  /** @return the type */
+  public AuditEventType getType() {
+    return type;
+  }
+
+  /** @return the rule name or the session key */
+  public Object getName() {
+    return name;
+  }
+
+  /** @return the factClass */
+  public Class<?> getFactClass() {
+    return factClass;
+  }
+
+  /** @return the count */
+  public int getCount() {
+    return count;
+  }
+
+  /** @return the timestamp */
+  public long getTimestamp() {
+    return timestamp;
+  }
+}
@@ -0,0 +1,107 @@
+/** */
+package rules.api.audit;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import rules.api.enums.AuditEventType;
+
+/**
+ * This class is a lock-free ring buffer of audit events with many producers and one consumer.
+ * Producers claim a sequence with a compare-and-set and fill the preallocated slot, so recording an
+ * event does not allocate. When the buffer is full the event is dropped and counted instead of
+ * blocking the thread firing the rules.
+ *
+ * @author chandresh.mishra
+ */
+public class AuditRingBuffer {
+
+  private final AuditEvent[] slots;
+
+  private final int mask;
+
+  // Next sequence to claim by a producer
+  private final AtomicLong tail = new AtomicLong();
+
+  // Next sequence to read by the consumer
+  private final AtomicLong head = new AtomicLong();
+
+  private final LongAdder dropped = new LongAdder();
+
+  /** @param capacity - rounded up to a power of two */
+  public AuditRingBuffer(int capacity) {
+
+    int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+    this.slots = new AuditEvent[size];
+    this.mask = size - 1;
+    for (int i = 0; i < size; i++) {
+      slots[i] = new AuditEvent();
+    }
+  }
+
+  /**
+   * Records an event.
+   *
+   * @param type
+   * @param name
+   * @param factClass
+   * @param count
+   * @return false when the buffer is full and the event was dropped
+   */
+  public boolean publish(AuditEventType type, Object name, Class<?> factClass, int count) {
+
+    long sequence;
+    do {
+      sequence = tail.get();
+      if (sequence - head.get() >= slots.length) {
+        dropped.increment();
+        return false;
+      }
+    } while (!tail.compareAndSet(sequence, sequence + 1));
+
+    AuditEvent event = slots[(int) sequence & mask];
+    event.set(type, name, factClass, count, System.currentTimeMillis());
+    event.published = sequence;
+    return true;
+  }
+
+  /**
+   * Hands the published events to the consumer in order. Only one thread may drain the buffer.
+   *
+   * @param consumer - must not keep the event
+   * @return number of events drained
+   */
+  public int drain(Consumer<AuditEvent> consumer) {
+
+    long sequence = head.get();
+    int drained = 0;
+
+    while (true) {
+      AuditEvent event = slots[(int) sequence & mask];
+      if (event.published != sequence) {
+        break;
+      }
+      consumer.accept(event);
+      sequence++;
+      drained++;
+      // Frees the slot for the producers
+      head.lazySet(sequence);
+    }
+    return drained;
+  }
+
+  /** @return number of events dropped because the buffer was full */
+  public long getDropped() {
+    return dropped.sum();
+  }
+
+  /** @return number of events waiting to be drained */
+  public long size() {
+    return tail.get() - head.get();
+  }
+
+  /** @return the capacity */
+  public int capacity() {
+    return slots.length;
+  }
+}
@@ -0,0 +1,228 @@
+/** */
+package rules.api.audit;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import rules.api.config.AuditSettings;
+import rules.api.enums.AuditEventType;
+import rules.api.enums.AuditMode;
+import rules.api.message.RulesRequest;
+import rules.api.session.SessionKey;
+
+/**
+ * This class records what the rule engine does. In counts mode it only keeps counters. In full mode
+ * it also records one compact event per fired rule and fact in a ring buffer. A background writer
+ * drains the buffer and writes the events to the "rules.api.audit" logger, so the thread firing the
+ * rules never builds a string.
+ *
+ * @author chandresh.mishra
+ */
+@Component
+public class AuditTrail {
+
+  private Logger logger = LogManager.getLogger(this);
+
+  // Destination of the events in full mode
+  private Logger auditLogger = LogManager.getLogger("rules.api.audit");
+
+  @Autowired private AuditSettings settings;
+
+  private AuditMode mode = AuditMode.OFF;
+
+  private AuditRingBuffer ringBuffer;
+
+  private Thread writer;
+
+  private volatile boolean running;
+
+  private final LongAdder requests = new LongAdder();
+  private final LongAdder rulesFired = new LongAdder();
+  private final LongAdder factsInserted = new LongAdder();
+  private final LongAdder factsEmitted = new LongAdder();
+
+  /** Starts the background writer in full mode. */
+  @PostConstruct
+  public void init() {
+
+    mode = settings.getMode();
+    logger.info("Audit mode " + mode.getType());
+
+    if (mode == AuditMode.FULL) {
+      ringBuffer = new AuditRingBuffer(settings.getBufferSize());
+      running = true;
+      writer = new Thread(this::writeEvents, "rules-audit-writer");
+      writer.setDaemon(true);
+      writer.start();
+    }
+  }
+
+  /** Stops the writer after the remaining events are written. */
+  @PreDestroy
+  public void shutdown() {
+
+    running = false;
+    if (null != writer) {
+      LockSupport.unpark(writer);
+      try {
+        writer.join(TimeUnit.SECONDS.toMillis(5));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  /** @return the mode */
+  public AuditMode getMode() {
+    return mode;
+  }
+
+  /** @return true if a listener is needed to record the fired rules */
+  public boolean isEnabled() {
+    return mode != AuditMode.OFF;
+  }
+
+  /**
+   * Records a fired rule.
+   *
+   * @param ruleName
+   */
+  public void ruleFired(String ruleName) {
+
+    if (mode == AuditMode.OFF) {
+      return;
+    }
+    rulesFired.increment();
+    if (mode == AuditMode.FULL) {
+      ringBuffer.publish(AuditEventType.RULE_FIRED, ruleName, null, 0);
+    }
+  }
+
+  /**
+   * Records the facts passed to the session.
+   *
+   * @param facts
+   */
+  public void factsInserted(List<Object> facts) {
+    recordFacts(facts, factsInserted, AuditEventType.FACT_INSERTED);
+  }
+
+  /**
+   * Records the facts sent to the channel by the rules.
+   *
+   * @param facts
+   */
+  public void factsEmitted(List<Object> facts) {
+    recordFacts(facts, factsEmitted, AuditEventType.FACT_EMITTED);
+  }
+
+  /**
+   * Records the end of a request.
+   *
+   * @param rulesRequest
+   * @param numberOfRulesFired
+   */
+  public void requestCompleted(RulesRequest rulesRequest, int numberOfRulesFired) {
+
+    if (mode == AuditMode.OFF) {
+      return;
+    }
+    requestCompleted(SessionKey.of(rulesRequest), numberOfRulesFired);
+  }
+
+  /**
+   * Records the end of a request run on a session of the key.
+   *
+   * @param sessionKey
+   * @param numberOfRulesFired
+   */
+  public void requestCompleted(SessionKey sessionKey, int numberOfRulesFired) {
+
+    if (mode == AuditMode.OFF) {
+      return;
+    }
+    requests.increment();
+    if (mode == AuditMode.FULL) {
+      ringBuffer.publish(AuditEventType.REQUEST_COMPLETED, sessionKey, null, numberOfRulesFired);
+    }
+  }
+
+  /** @return number of requests recorded */
+  public long getRequests() {
+    return requests.sum();
+  }
+
+  /** @return number of fired rules recorded */
+  public long getRulesFired() {
+    return rulesFired.sum();
+  }
+
+  /** @return number of facts passed to sessions */
+  public long getFactsInserted() {
+    return factsInserted.sum();
+  }
+
+  /** @return number of facts sent to the channel */
+  public long getFactsEmitted() {
+    return factsEmitted.sum();
+  }
+
+  /** @return number of events dropped because the writer could not keep up */
+  public long getDropped() {
+    return null == ringBuffer ? 0 : ringBuffer.getDropped();
+  }
+
+  private void recordFacts(List<Object> facts, LongAdder counter, AuditEventType type) {
+
+    if (mode == AuditMode.OFF || null == facts || facts.isEmpty()) {
+      return;
+    }
+    counter.add(facts.size());
+    if (mode == AuditMode.FULL) {
+      for (Object fact : facts) {
+        ringBuffer.publish(type, null, null == fact ? null : fact.getClass(), 0);
+      }
+    }
+  }
+
+  /** Body of the writer thread. */
+  private void writeEvents() {
+
+    long drainInterval = TimeUnit.MILLISECONDS.toNanos(settings.getDrainInterval());
+
+    while (running) {
+      if (ringBuffer.drain(this::writeEvent) == 0) {
+        LockSupport.parkNanos(this, drainInterval);
+      }
+    }
+    ringBuffer.drain(this::writeEvent);
+  }
+
+  private void writeEvent(AuditEvent event) {
+
+    if (event.getType() == AuditEventType.REQUEST_COMPLETED) {
+      auditLogger.info(
+          "{} {} session={} rulesFired={}",
+          event.getTimestamp(),
+          event.getType().getType(),
+          event.getName(),
+          event.getCount());
+    } else if (event.getType() == AuditEventType.RULE_FIRED) {
+      auditLogger.info(
+          "{} {} rule={}", event.getTimestamp(), event.getType().getType(), event.getName());
+    } else {
+      auditLogger.info(
+          "{} {} class={}",
+          event.getTimestamp(),
+          event.getType().getType(),
+          null == event.getFactClass() ? null : event.getFactClass().getName());
+    }
+  }
+}
@@ -0,0 +1,131 @@
+/** */
+package rules.api.channels;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import org.kie.api.runtime.Channel;
+
+/**
+ * This class is used for collecting all the data passed to a channel from the rule RHS. Results are
+ * bucketed by their concrete class as they arrive. The requested classes are matched against the
+ * buckets, not against every result, so filtering only walks the results when several concrete
+ * classes match. The results are always returned in the order they were sent. A collector is used
+ * by one session at a time.
+ *
+ * @author chandresh.mishra
+ */
+public class ResultCollector implements Channel {
+
+  // All the results in the order they were sent
+  private final ArrayList<Object> results;
+
+  // Results per concrete class
+  private final Map<Class<?>, List<Object>> buckets = new IdentityHashMap<>();
+
+  // Rules often send many objects of the same class in a row
+  private Class<?> lastClass;
+  private List<Object> lastBucket;
+
+  public ResultCollector() {
+    this(10);
+  }
+
+  /** @param expectedSize - number of results expected, used to presize the list */
+  public ResultCollector(int expectedSize) {
+    this.results = new ArrayList<>(Math.max(expectedSize, 10));
+  }
+
+  @Override
+  public void send(Object object) {
+
+    results.add(object);
+
+    if (null == object) {
+      return;
+    }
+
+    Class<?> objectClass = object.getClass();
+    if (objectClass != lastClass) {
+      lastBucket = buckets.get(objectClass);
+      if (null == lastBucket) {
+        lastBucket = new ArrayList<>();
+        buckets.put(objectClass, lastBucket);
+      }
+      lastClass = objectClass;
+    }
+    lastBucket.add(object);
+  }
+
+  /** @return all the results in the order they were sent. The list is not copied */
+  public List<Object> getResults() {
+    return results;
+  }
+
+  /**
+   * @param resultClass - a class, a supertype or an interface
+   * @return the results that are instances of the class in the order they were sent
+   */
+  public List<Object> getResults(Class<?> resultClass) {
+    return getResults(Collections.singletonList(resultClass));
+  }
+
+  /**
+   * @param resultClasses - classes, supertypes or interfaces
+   * @return the results that are instances of one of the classes in the order they were sent
+   */
+  public List<Object> getResults(List<Class> resultClasses) {
+
+    ResultFilter resultFilter = ResultFilter.of(resultClasses);
+
+    // The only bucket matched is returned as is
+    List<Object> matched = null;
+    int matchedBuckets = 0;
+    int size = 0;
+
+    for (Map.Entry<Class<?>, List<Object>> bucket : buckets.entrySet()) {
+      if (resultFilter.accepts(bucket.getKey())) {
+        matched = bucket.getValue();
+        matchedBuckets++;
+        size += matched.size();
+      }
+    }
+
+    if (matchedBuckets == 0) {
+      return Collections.emptyList();
+    }
+    if (matchedBuckets == 1) {
+      return matched;
+    }
+
+    // Several concrete classes match, the results are walked to keep the order they were sent
+    List<Object> filtered = new ArrayList<>(size);
+    Class<?> previousClass = null;
+    boolean accepted = false;
+    for (Object result : results) {
+      if (null == result) {
+        continue;
+      }
+      if (result.getClass() != previousClass) {
+        previousClass = result.getClass();
+        accepted = resultFilter.accepts(previousClass);
+      }
+      if (accepted) {
+        filtered.add(result);
+      }
+    }
+    return filtered;
+  }
+
+  /** @return the classes of the results */
+  public Iterable<Class<?>> getResultClasses() {
+    return buckets.keySet();
+  }
+
+  /** @return number of results */
+  public int size() {
+    return results.size();
+  }
+}
@@ -0,0 +1,79 @@
+/** */
+package rules.api.channels;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * This class decides whether a result is an instance of one of the requested classes, so supertypes
+ * and interfaces can be requested. Null classes of the list are skipped. The decision is computed
+ * once per concrete class and kept in a ClassValue.
+ *
+ * <p>Filters are shared by the requests asking for the same list of classes. The cache is cleared
+ * when it holds too many lists, so classes of an old kjar are not kept forever.
+ *
+ * @author chandresh.mishra
+ */
+final class ResultFilter {
+
+  private static final int MAX_FILTERS = 256;
+
+  private static final ConcurrentMap<List<Class>, ResultFilter> FILTERS = new ConcurrentHashMap<>();
+
+  private final Class<?>[] resultClasses;
+
+  // True when the concrete class is assignable to one of the requested classes
+  private final ClassValue<Boolean> accepted =
+      new ClassValue<Boolean>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+          for (Class<?> resultClass : resultClasses) {
+            if (resultClass.isAssignableFrom(type)) {
+              return true;
+            }
+          }
+          return false;
+        }
+      };
+
+  private ResultFilter(List<Class> resultClasses) {
+
+    List<Class<?>> nonNull = new ArrayList<>(resultClasses.size());
+    for (Class<?> resultClass : resultClasses) {
+      if (null != resultClass) {
+        nonNull.add(resultClass);
+      }
+    }
+    this.resultClasses = nonNull.toArray(new Class<?>[nonNull.size()]);
+  }
+
+  /**
+   * @param resultClasses
+   * @return the filter of the classes
+   */
+  static ResultFilter of(List<Class> resultClasses) {
+
+    ResultFilter resultFilter = FILTERS.get(resultClasses);
+
+    if (null == resultFilter) {
+      if (FILTERS.size() >= MAX_FILTERS) {
+        FILTERS.clear();
+      }
+      // The list of the caller may change after the call
+      List<Class> key = Collections.unmodifiableList(new ArrayList<>(resultClasses));
+      resultFilter = FILTERS.computeIfAbsent(key, ResultFilter::new);
+    }
+    return resultFilter;
+  }
+
+  /**
+   * @param type - concrete class of a result
+   * @return true when the type is assignable to one of the requested classes
+   */
+  boolean accepts(Class<?> type) {
+    return accepted.get(type);
+  }
+}
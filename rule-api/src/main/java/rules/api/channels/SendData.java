@@ -8,7 +8,7 @@ import org.kie.api.runtime.Channel;
 
 /**
  * This class is used for collecting all the data inserted as a part of rule RHS and passed to a
- * channel.
+ * channel. The rule engine uses {@link ResultCollector}, which also buckets the data by class.
  *
  * @author chandresh.mishra
  */
@@ -23,8 +23,7 @@ public class SendData implements Channel {
   public void send(Object object) {
 
     newObjectInsterted.add(object);
-    newObjectInsterted.trimToSize();
-    log.debug("inserted new fact in channels" + object.toString());
+    log.debug("inserted new fact in channels {}", object);
   }
 
   /** @return the newObjectInsterted */
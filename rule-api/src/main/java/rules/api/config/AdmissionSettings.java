@@ -0,0 +1,90 @@
+/** */
+package rules.api.config;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.commons.lang.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.stereotype.Component;
+import rules.api.enums.AdmissionPolicy;
+import rules.api.exception.RulesApiException;
+
+/**
+ * This class holds the settings of the admission control in front of the rule engine. It is
+ * populated from property file and every value has a default.
+ *
+ * @author chandresh.mishra
+ */
+@PropertySource("classpath:rulesConfig.properties")
+@Component
+public class AdmissionSettings {
+
+  // Limit the number of requests running at the same time on each session
+  @Value("${drools.admission.enabled:false}")
+  private boolean enabled;
+
+  // Requests running at the same time on a session. 0 uses the number of available processors
+  @Value("${drools.admission.maxConcurrent:0}")
+  private int maxConcurrent;
+
+  // Limits of some sessions as sessionName=limit or kieBaseName=limit, separated by commas
+  @Value("${drools.admission.limits:}")
+  private String limits;
+
+  // Number of requests waiting for a session before new ones are rejected
+  @Value("${drools.admission.queueDepth:100}")
+  private int queueDepth;
+
+  // Time in milliseconds a request waits for a session before it is rejected
+  @Value("${drools.admission.maxWait:1000}")
+  private long maxWait;
+
+  // reject or fallback
+  @Value("${drools.admission.policy:reject}")
+  private String policy;
+
+  /** @return the enabled */
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /** @return the maxConcurrent */
+  public int getMaxConcurrent() {
+    return maxConcurrent > 0 ? maxConcurrent : Runtime.getRuntime().availableProcessors();
+  }
+
+  /** @return the limits by session or kieBase name */
+  public Map<String, Integer> getLimits() {
+
+    if (StringUtils.isBlank(limits)) {
+      return Collections.emptyMap();
+    }
+
+    Map<String, Integer> limitsByName = new HashMap<>();
+    for (String limit : StringUtils.split(limits, ',')) {
+      String[] nameLimit = StringUtils.split(limit, '=');
+      if (nameLimit.length != 2 || !StringUtils.isNumeric(nameLimit[1].trim())) {
+        throw new RulesApiException("Invalid admission limit " + limit);
+      }
+      limitsByName.put(nameLimit[0].trim(), Integer.valueOf(nameLimit[1].trim()));
+    }
+    return limitsByName;
+  }
+
+  /** @return the queueDepth */
+  public int getQueueDepth() {
+    return queueDepth;
+  }
+
+  /** @return the maxWait */
+  public long getMaxWait() {
+    return maxWait;
+  }
+
+  /** @return the policy */
+  public AdmissionPolicy getPolicy() {
+    return AdmissionPolicy.of(policy);
+  }
+}
@@ -0,0 +1,44 @@
+/** */
+package rules.api.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.stereotype.Component;
+
+/**
+ * This class holds the settings of the executor running asynchronous requests. It is populated from
+ * property file and every value has a default.
+ *
+ * @author chandresh.mishra
+ */
+@PropertySource("classpath:rulesConfig.properties")
+@Component
+public class AsyncSettings {
+
+  // Number of requests evaluated at the same time. 0 uses the number of available processors
+  @Value("${drools.async.poolSize:0}")
+  private int poolSize;
+
+  // Number of requests waiting for a thread before new ones are rejected
+  @Value("${drools.async.queueDepth:1000}")
+  private int queueDepth;
+
+  // Run each request on its own virtual thread when the JVM supports it (Java 21+)
+  @Value("${drools.async.virtualThreads:true}")
+  private boolean virtualThreads;
+
+  /** @return the poolSize */
+  public int getPoolSize() {
+    return poolSize > 0 ? poolSize : Runtime.getRuntime().availableProcessors();
+  }
+
+  /** @return the queueDepth */
+  public int getQueueDepth() {
+    return queueDepth;
+  }
+
+  /** @return the virtualThreads */
+  public boolean isVirtualThreads() {
+    return virtualThreads;
+  }
+}
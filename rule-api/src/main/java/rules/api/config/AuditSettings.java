@@ -0,0 +1,45 @@
+/** */
+package rules.api.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.stereotype.Component;
+import rules.api.enums.AuditMode;
+
+/**
+ * This class holds the audit settings of the rule engine. It is populated from property file and
+ * every value has a default.
+ *
+ * @author chandresh.mishra
+ */
+@PropertySource("classpath:rulesConfig.properties")
+@Component
+public class AuditSettings {
+
+  // off, counts or full
+  @Value("${drools.audit.mode:off}")
+  private String mode;
+
+  // Number of events the ring buffer holds. Rounded up to a power of two
+  @Value("${drools.audit.bufferSize:65536}")
+  private int bufferSize;
+
+  // Time in milliseconds the writer waits when the buffer is empty
+  @Value("${drools.audit.drainInterval:100}")
+  private long drainInterval;
+
+  /** @return the mode */
+  public AuditMode getMode() {
+    return AuditMode.of(mode);
+  }
+
+  /** @return the bufferSize */
+  public int getBufferSize() {
+    return bufferSize;
+  }
+
+  /** @return the drainInterval */
+  public long getDrainInterval() {
+    return drainInterval;
+  }
+}
@@ -0,0 +1,35 @@
+/** */
+package rules.api.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.stereotype.Component;
+
+/**
+ * This class holds the settings of the batch execution. It is populated from property file and
+ * every value has a default.
+ *
+ * @author chandresh.mishra
+ */
+@PropertySource("classpath:rulesConfig.properties")
+@Component
+public class BatchSettings {
+
+  // Number of worker threads. 0 uses the number of available processors
+  @Value("${drools.batch.parallelism:0}")
+  private int parallelism;
+
+  // Maximum number of requests run one after the other by a worker task
+  @Value("${drools.batch.chunkSize:64}")
+  private int chunkSize;
+
+  /** @return the parallelism */
+  public int getParallelism() {
+    return parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+  }
+
+  /** @return the chunkSize */
+  public int getChunkSize() {
+    return chunkSize > 0 ? chunkSize : 1;
+  }
+}
@@ -0,0 +1,79 @@
+/** */
+package rules.api.config;
+
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class limits the number of tasks an unbounded executor accepts. A task submitted when the
+ * limit is reached is rejected with RejectedExecutionException, the same way a ThreadPoolExecutor
+ * with a full queue rejects it. It is used with the virtual thread executor, which starts a thread
+ * for every task.
+ *
+ * @author chandresh.mishra
+ */
+class BoundedExecutorService extends AbstractExecutorService {
+
+  private final ExecutorService delegate;
+
+  private final Semaphore permits;
+
+  /**
+   * @param delegate - executor running the tasks
+   * @param limit - maximum number of tasks running or waiting
+   */
+  BoundedExecutorService(ExecutorService delegate, int limit) {
+    this.delegate = delegate;
+    this.permits = new Semaphore(limit);
+  }
+
+  @Override
+  public void execute(Runnable command) {
+
+    if (!permits.tryAcquire()) {
+      throw new RejectedExecutionException("Executor limit reached");
+    }
+    try {
+      delegate.execute(
+          () -> {
+            try {
+              command.run();
+            } finally {
+              permits.release();
+            }
+          });
+    } catch (RejectedExecutionException e) {
+      permits.release();
+      throw e;
+    }
+  }
+
+  @Override
+  public void shutdown() {
+    delegate.shutdown();
+  }
+
+  @Override
+  public List<Runnable> shutdownNow() {
+    return delegate.shutdownNow();
+  }
+
+  @Override
+  public boolean isShutdown() {
+    return delegate.isShutdown();
+  }
+
+  @Override
+  public boolean isTerminated() {
+    return delegate.isTerminated();
+  }
+
+  @Override
+  public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+    return delegate.awaitTermination(timeout, unit);
+  }
+}
@@ -0,0 +1,71 @@
+/** */
+package rules.api.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.stereotype.Component;
+
+/**
+ * This class holds the settings of the registry of the containers named by the requests. It is
+ * populated from property file and every value has a default.
+ *
+ * @author chandresh.mishra
+ */
+@PropertySource("classpath:rulesConfig.properties")
+@Component
+public class ContainerRegistrySettings {
+
+  // Tenant releases as tenant=groupId:artifactId:version or tenant=kjar path, separated by commas
+  @Value("${drools.containers.releases:}")
+  private String releases;
+
+  // True to accept any groupId:artifactId:version named by a request, not only the tenants
+  @Value("${drools.containers.dynamic:false}")
+  private boolean dynamic;
+
+  // Maximum number of containers loaded at the same time
+  @Value("${drools.containers.maxLoaded:16}")
+  private int maxLoaded;
+
+  // Memory in megabytes the loaded containers may use, 0 for no budget
+  @Value("${drools.containers.memoryBudget:0}")
+  private long memoryBudget;
+
+  // Time in milliseconds after which an unused container is unloaded, 0 keeps it loaded
+  @Value("${drools.containers.idleTimeout:1800000}")
+  private long idleTimeout;
+
+  // Time in milliseconds between two runs of the idle eviction
+  @Value("${drools.containers.evictionInterval:60000}")
+  private long evictionInterval;
+
+  /** @return the releases */
+  public String getReleases() {
+    return releases;
+  }
+
+  /** @return the dynamic */
+  public boolean isDynamic() {
+    return dynamic;
+  }
+
+  /** @return the maxLoaded */
+  public int getMaxLoaded() {
+    return maxLoaded;
+  }
+
+  /** @return the memoryBudget */
+  public long getMemoryBudget() {
+    return memoryBudget;
+  }
+
+  /** @return the idleTimeout */
+  public long getIdleTimeout() {
+    return idleTimeout;
+  }
+
+  /** @return the evictionInterval */
+  public long getEvictionInterval() {
+    return evictionInterval;
+  }
+}
@@ -0,0 +1,53 @@
+/** */
+package rules.api.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.stereotype.Component;
+
+/**
+ * This class holds the settings of the event streams. It is populated from property file and every
+ * value has a default.
+ *
+ * @author chandresh.mishra
+ */
+@PropertySource("classpath:rulesConfig.properties")
+@Component
+public class EventStreamSettings {
+
+  // Number of events waiting to be inserted per stream. Rounded up to a power of two
+  @Value("${drools.stream.queueCapacity:65536}")
+  private int queueCapacity;
+
+  // Maximum number of events inserted in one batch
+  @Value("${drools.stream.batchSize:512}")
+  private int batchSize;
+
+  // Session clock, realtime or pseudo. The pseudo clock only moves with advanceTime
+  @Value("${drools.stream.clock:realtime}")
+  private String clock;
+
+  // Time in milliseconds the ingestion waits when the queue is empty
+  @Value("${drools.stream.drainInterval:1}")
+  private long drainInterval;
+
+  /** @return the queueCapacity */
+  public int getQueueCapacity() {
+    return queueCapacity;
+  }
+
+  /** @return the batchSize */
+  public int getBatchSize() {
+    return batchSize > 0 ? batchSize : 1;
+  }
+
+  /** @return the clock */
+  public String getClock() {
+    return clock;
+  }
+
+  /** @return the drainInterval */
+  public long getDrainInterval() {
+    return drainInterval;
+  }
+}
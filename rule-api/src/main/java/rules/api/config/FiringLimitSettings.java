@@ -0,0 +1,44 @@
+/** */
+package rules.api.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.stereotype.Component;
+
+/**
+ * This class holds the default limits of the firing of a request. It is populated from property
+ * file and every value has a default. A request may set its own limits.
+ *
+ * @author chandresh.mishra
+ */
+@PropertySource("classpath:rulesConfig.properties")
+@Component
+public class FiringLimitSettings {
+
+  // Time in milliseconds after which the rules of a request are halted, 0 for no timeout
+  @Value("${drools.firing.timeout:0}")
+  private long timeout;
+
+  // Number of rules fired after which the firing of a request stops, 0 for no maximum
+  @Value("${drools.firing.maxRulesFired:0}")
+  private int maxRulesFired;
+
+  // Number of rules named in the response when the firing is stopped
+  @Value("${drools.firing.hotRules:5}")
+  private int hotRules;
+
+  /** @return the timeout */
+  public long getTimeout() {
+    return timeout;
+  }
+
+  /** @return the maxRulesFired */
+  public int getMaxRulesFired() {
+    return maxRulesFired;
+  }
+
+  /** @return the hotRules */
+  public int getHotRules() {
+    return hotRules;
+  }
+}
@@ -0,0 +1,35 @@
+/** */
+package rules.api.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.stereotype.Component;
+
+/**
+ * This class holds the settings of the kjar hot swap. It is populated from property file and every
+ * value has a default.
+ *
+ * @author chandresh.mishra
+ */
+@PropertySource("classpath:rulesConfig.properties")
+@Component
+public class HotSwapSettings {
+
+  // Build a new release in a separate container and swap it in, instead of updating in place
+  @Value("${drools.hotswap.enabled:false}")
+  private boolean enabled;
+
+  // Number of times the warm-up requests are fired on the new container before the swap
+  @Value("${drools.hotswap.warmupIterations:1}")
+  private int warmupIterations;
+
+  /** @return the enabled */
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /** @return the warmupIterations */
+  public int getWarmupIterations() {
+    return warmupIterations;
+  }
+}
@@ -0,0 +1,35 @@
+/** */
+package rules.api.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.stereotype.Component;
+
+/**
+ * This class holds the settings of the on-disk cache of compiled kieBases. It is populated from
+ * property file and every value has a default.
+ *
+ * @author chandresh.mishra
+ */
+@PropertySource("classpath:rulesConfig.properties")
+@Component
+public class KieBaseCacheSettings {
+
+  // Load the kieBases from the cache instead of compiling them when the kjar has not changed
+  @Value("${drools.kbaseCache.enabled:false}")
+  private boolean enabled;
+
+  // Directory holding one sub directory per kjar release and content hash
+  @Value("${drools.kbaseCache.dir:${java.io.tmpdir}/rules-kbase-cache}")
+  private String dir;
+
+  /** @return the enabled */
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /** @return the dir */
+  public String getDir() {
+    return dir;
+  }
+}
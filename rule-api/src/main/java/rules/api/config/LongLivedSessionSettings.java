@@ -0,0 +1,44 @@
+/** */
+package rules.api.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.stereotype.Component;
+
+/**
+ * This class holds the settings of the long lived stateful sessions. It is populated from property
+ * file and every value has a default.
+ *
+ * @author chandresh.mishra
+ */
+@PropertySource("classpath:rulesConfig.properties")
+@Component
+public class LongLivedSessionSettings {
+
+  // Maximum number of open sessions. The least recently used idle session is closed to open another
+  @Value("${drools.longLived.maxSessions:1000}")
+  private int maxSessions;
+
+  // Idle time in milliseconds after which a session is closed. 0 disables eviction
+  @Value("${drools.longLived.idleTimeout:1800000}")
+  private long idleTimeout;
+
+  // Interval in milliseconds of the idle eviction run
+  @Value("${drools.longLived.evictionInterval:60000}")
+  private long evictionInterval;
+
+  /** @return the maxSessions */
+  public int getMaxSessions() {
+    return maxSessions > 0 ? maxSessions : 1;
+  }
+
+  /** @return the idleTimeout */
+  public long getIdleTimeout() {
+    return idleTimeout;
+  }
+
+  /** @return the evictionInterval */
+  public long getEvictionInterval() {
+    return evictionInterval;
+  }
+}
@@ -0,0 +1,44 @@
+/** */
+package rules.api.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.stereotype.Component;
+
+/**
+ * This class holds the settings of the engine metrics. It is populated from property file and every
+ * value has a default.
+ *
+ * @author chandresh.mishra
+ */
+@PropertySource("classpath:rulesConfig.properties")
+@Component
+public class MetricsSettings {
+
+  // Record the acquire, insert and fire time of every session key
+  @Value("${drools.metrics.enabled:false}")
+  private boolean enabled;
+
+  // Record the fire count and RHS time of every rule. It adds a listener to every request
+  @Value("${drools.metrics.rules:false}")
+  private boolean rules;
+
+  // Publish the metrics as MBeans under the rules.api domain
+  @Value("${drools.metrics.jmx:false}")
+  private boolean jmx;
+
+  /** @return the enabled */
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /** @return the rules */
+  public boolean isRules() {
+    return enabled && rules;
+  }
+
+  /** @return the jmx */
+  public boolean isJmx() {
+    return jmx;
+  }
+}
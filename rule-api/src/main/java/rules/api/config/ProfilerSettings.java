@@ -0,0 +1,36 @@
+/** */
+package rules.api.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.stereotype.Component;
+
+/**
+ * This class holds the settings of the rule profiler. It is populated from property file and every
+ * value has a default.
+ *
+ * @author chandresh.mishra
+ */
+@PropertySource("classpath:rulesConfig.properties")
+@Component
+public class ProfilerSettings {
+
+  // Count the matches created, cancelled and fired and the RHS time of every rule. It adds a
+  // listener to every request
+  @Value("${drools.profiler.enabled:false}")
+  private boolean enabled;
+
+  // Directory of the report files. A report is written per kjar release when the engine stops
+  @Value("${drools.profiler.reportDir:profiles}")
+  private String reportDir;
+
+  /** @return the enabled */
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /** @return the reportDir */
+  public String getReportDir() {
+    return reportDir;
+  }
+}
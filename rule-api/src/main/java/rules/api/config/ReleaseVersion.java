@@ -7,7 +7,7 @@ import org.springframework.stereotype.Component;
 
 /**
  * This class holds the KieJar's groupID,artifactID and version. which is populated from property
- * file.
+ * file. They are not needed when the kjar is read from a local path.
  *
  * @author chandresh.mishra
  */
@@ -16,19 +16,23 @@ import org.springframework.stereotype.Component;
 public class ReleaseVersion {
 
   // Group ID for the Kiejar
-  @Value("${drools.groupID}")
+  @Value("${drools.groupID:}")
   private String groupID;
 
   // Artifact ID for the Kiejar
-  @Value("${drools.artifactID}")
+  @Value("${drools.artifactID:}")
   private String artifactID;
 
   // Version for the Kiejar
-  @Value("${drools.version}")
+  @Value("${drools.version:}")
   private String version;
 
-  //Scan Interval
-  @Value("${drools.scanner}")
+  // Kjar file or exploded kjar directory read instead of resolving the release through Maven
+  @Value("${drools.kjarPath:}")
+  private String kjarPath;
+
+  //Scan Interval in milliseconds, 0 disables the scanner
+  @Value("${drools.scanner:0}")
   private Long scanInterval;
 
   /** @return the groupID */
@@ -46,6 +50,11 @@ public class ReleaseVersion {
     return version;
   }
 
+  /** @return the kjarPath */
+  public String getKjarPath() {
+    return kjarPath;
+  }
+
   /** @return the scanInterval */
   public Long getScanInterval() {
     return scanInterval;
@@ -0,0 +1,44 @@
+/** */
+package rules.api.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.stereotype.Component;
+
+/**
+ * This class holds the settings of the cache of stateless responses. It is populated from property
+ * file and every value has a default.
+ *
+ * @author chandresh.mishra
+ */
+@PropertySource("classpath:rulesConfig.properties")
+@Component
+public class ResultCacheSettings {
+
+  // Return the cached response of a stateless request already run with equal facts and globals
+  @Value("${drools.resultCache.enabled:false}")
+  private boolean enabled;
+
+  // Maximum number of cached responses, the oldest are evicted first
+  @Value("${drools.resultCache.maxEntries:10000}")
+  private int maxEntries;
+
+  // Time in milliseconds a response stays cached. 0 keeps it until evicted
+  @Value("${drools.resultCache.ttl:300000}")
+  private long ttl;
+
+  /** @return the enabled */
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /** @return the maxEntries */
+  public int getMaxEntries() {
+    return maxEntries;
+  }
+
+  /** @return the ttl */
+  public long getTtl() {
+    return ttl;
+  }
+}
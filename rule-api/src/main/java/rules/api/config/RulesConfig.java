@@ -1,22 +1,25 @@
 /** */
 package rules.api.config;
 
-import java.util.List;
-import org.apache.commons.lang.StringUtils;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.kie.api.KieServices;
 import org.kie.api.builder.KieScanner;
-import org.kie.api.builder.Message;
-import org.kie.api.builder.ReleaseId;
-import org.kie.api.builder.Results;
 import org.kie.api.runtime.KieContainer;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.support.PropertySourcesPlaceholderConfigurer;
-import rules.api.exception.RulesApiException;
+import rules.api.container.KieContainerBuilder;
 
 /**
  * This class is responsible for rule engine Java based configuration.
@@ -31,6 +34,14 @@ public class RulesConfig {
 
   @Autowired private ReleaseVersion releaseVersion;
 
+  @Autowired private BatchSettings batchSettings;
+
+  @Autowired private AsyncSettings asyncSettings;
+
+  @Autowired private HotSwapSettings hotSwapSettings;
+
+  @Autowired private KieContainerBuilder containerBuilder;
+
   /**
    * Bean used for property place holder.It is used by spring to populate values from property file.
    */
@@ -48,60 +59,102 @@ public class RulesConfig {
 
     logger.traceEntry("START - method - [getKieContainer()]");
 
-    if (StringUtils.isEmpty(releaseVersion.getGroupID())
-        || StringUtils.isEmpty(releaseVersion.getArtifactID())
-        || StringUtils.isEmpty(releaseVersion.getVersion())) {
+    KieContainer kContainer = containerBuilder.build();
 
-      logger.error("Not able to build the container.Missing mandatory details");
+    logger.traceExit("END - method - [getKieContainer()]");
+    return kContainer;
+  }
 
-      throw new RulesApiException("Not able to build the container.Missing mandatory details");
-    }
+  /**
+   * This method starts the scanner which looks for a new KieJar in the repository and updates the
+   * container. It is a bean so the container manager can listen for updates. There is no scanner
+   * when the kjar is read from a local path, nor in hot swap mode where the container manager scans
+   * the container it swaps in next.
+   */
+  @Bean
+  public KieScanner getKieScanner() {
 
-    logger.info("Building Container");
-    logger.info("Group ID " + releaseVersion.getGroupID());
-    logger.info("Artifact ID " + releaseVersion.getArtifactID());
-    logger.info("version " + releaseVersion.getVersion());
+    if (containerBuilder.isOffline()) {
+      logger.info("Kjar read from a local path, the scanner is off");
+      return null;
+    }
+    if (hotSwapSettings.isEnabled()) {
+      logger.info("Hot swap mode, the container manager scans the releases");
+      return null;
+    }
 
     KieServices kieService = KieServices.Factory.get();
 
-    ReleaseId releaseId =
-        kieService.newReleaseId(
-            releaseVersion.getGroupID(),
-            releaseVersion.getArtifactID(),
-            releaseVersion.getVersion());
+    KieScanner scanner = kieService.newKieScanner(getKieContainer());
 
-    //Building container using kiejar from repository
-    KieContainer kContainer = kieService.newKieContainer(releaseId);
+    //Scan for new Kiejar in repository at certain interval. 0 turns the scanning off
+    if (releaseVersion.getScanInterval() > 0) {
+      scanner.start(releaseVersion.getScanInterval());
+    }
 
-    //Verifying all the rules loaded in container
-    Results results = kContainer.verify();
+    return scanner;
+  }
 
-    //checking for errors in rule file.
-    if (results.hasMessages(Message.Level.WARNING, Message.Level.ERROR)) {
+  /** Worker pool used to run the requests of a batch in parallel. */
+  @Bean(name = "rulesBatchPool", destroyMethod = "shutdown")
+  public ForkJoinPool getBatchPool() {
 
-      List<Message> messages = results.getMessages(Message.Level.WARNING, Message.Level.ERROR);
+    logger.info("Batch pool parallelism " + batchSettings.getParallelism());
 
-      for (Message message : messages) {
+    return new ForkJoinPool(batchSettings.getParallelism());
+  }
 
-        logger.error(
-            "Compilation errors in rules: {} in file {} at line number  {} and coloumn {}.Error message is: {}",
-            message.getLevel(),
-            message.getPath(),
-            message.getLine(),
-            message.getColumn(),
-            message.getText());
-      }
+  /**
+   * Executor used to run asynchronous requests. On Java 21+ every request gets its own virtual
+   * thread, limited to poolSize + queueDepth requests in flight. Otherwise a fixed pool of platform
+   * threads with a bounded queue is used. Requests over the limit are rejected.
+   */
+  @Bean(name = "rulesAsyncExecutor", destroyMethod = "shutdown")
+  public ExecutorService getAsyncExecutor() {
 
-      throw new RulesApiException(
-          "Compilation errors are found in the rules file. Please check the logs.");
-    }
+    int poolSize = asyncSettings.getPoolSize();
+    int queueDepth = asyncSettings.getQueueDepth();
+
+    if (asyncSettings.isVirtualThreads()) {
+      ExecutorService virtualThreadExecutor = newVirtualThreadExecutor();
 
-    KieScanner scanner = kieService.newKieScanner(kContainer);
+      if (null != virtualThreadExecutor) {
+        logger.info("Async executor uses virtual threads, limit " + (poolSize + queueDepth));
+        return new BoundedExecutorService(virtualThreadExecutor, poolSize + queueDepth);
+      }
+    }
 
-    //Scan for new Kiejar in repository at certain interval
-    scanner.start(releaseVersion.getScanInterval());
+    logger.info("Async executor pool size " + poolSize + ", queue depth " + queueDepth);
+
+    AtomicInteger threadNumber = new AtomicInteger();
+
+    return new ThreadPoolExecutor(
+        poolSize,
+        poolSize,
+        0L,
+        TimeUnit.MILLISECONDS,
+        queueDepth > 0 ? new ArrayBlockingQueue<>(queueDepth) : new SynchronousQueue<>(),
+        runnable -> {
+          Thread thread = new Thread(runnable, "rules-async-" + threadNumber.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        });
+  }
 
-    logger.traceExit("END - method - [getKieContainer()]");
-    return kContainer;
+  /**
+   * Creates a virtual thread per task executor. The method only exists from Java 21, so it is
+   * looked up by reflection to keep the library running on Java 8.
+   *
+   * @return ExecutorService or null when the JVM has no virtual threads
+   */
+  private ExecutorService newVirtualThreadExecutor() {
+
+    try {
+      return (ExecutorService)
+          Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    } catch (ReflectiveOperationException e) {
+      logger.debug("Virtual threads are not available");
+      return null;
+    }
   }
 }
@@ -0,0 +1,71 @@
+/** */
+package rules.api.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.stereotype.Component;
+
+/**
+ * This class holds the settings of the stateful session pool. It is populated from property file
+ * and every value has a default, so existing property files keep working.
+ *
+ * @author chandresh.mishra
+ */
+@PropertySource("classpath:rulesConfig.properties")
+@Component
+public class SessionPoolSettings {
+
+  // Reuse stateful sessions between requests
+  @Value("${drools.pool.enabled:true}")
+  private boolean enabled;
+
+  // Maximum number of sessions handed out at the same time for one session key
+  @Value("${drools.pool.maxTotalPerKey:256}")
+  private int maxTotalPerKey;
+
+  // Maximum number of idle sessions kept for one session key
+  @Value("${drools.pool.maxIdlePerKey:16}")
+  private int maxIdlePerKey;
+
+  // Time in milliseconds to wait for a session when maxTotalPerKey is reached
+  @Value("${drools.pool.borrowTimeout:30000}")
+  private long borrowTimeout;
+
+  // Idle time in milliseconds after which a session is evicted. 0 disables eviction
+  @Value("${drools.pool.idleTimeout:300000}")
+  private long idleTimeout;
+
+  // Interval in milliseconds of the idle eviction run
+  @Value("${drools.pool.evictionInterval:60000}")
+  private long evictionInterval;
+
+  /** @return the enabled */
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /** @return the maxTotalPerKey */
+  public int getMaxTotalPerKey() {
+    return maxTotalPerKey;
+  }
+
+  /** @return the maxIdlePerKey */
+  public int getMaxIdlePerKey() {
+    return maxIdlePerKey;
+  }
+
+  /** @return the borrowTimeout */
+  public long getBorrowTimeout() {
+    return borrowTimeout;
+  }
+
+  /** @return the idleTimeout */
+  public long getIdleTimeout() {
+    return idleTimeout;
+  }
+
+  /** @return the evictionInterval */
+  public long getEvictionInterval() {
+    return evictionInterval;
+  }
+}
@@ -0,0 +1,35 @@
+/** */
+package rules.api.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.stereotype.Component;
+
+/**
+ * This class holds the settings of the sharded evaluation. It is populated from property file and
+ * every value has a default.
+ *
+ * @author chandresh.mishra
+ */
+@PropertySource("classpath:rulesConfig.properties")
+@Component
+public class ShardSettings {
+
+  // Number of partitions of a sharded request. 0 uses the parallelism of the batch pool
+  @Value("${drools.shard.partitions:0}")
+  private int partitions;
+
+  // Minimum number of facts per partition, small requests use fewer partitions
+  @Value("${drools.shard.minFactsPerPartition:1000}")
+  private int minFactsPerPartition;
+
+  /** @return the partitions, 0 when the parallelism of the batch pool is used */
+  public int getPartitions() {
+    return Math.max(0, partitions);
+  }
+
+  /** @return the minFactsPerPartition */
+  public int getMinFactsPerPartition() {
+    return minFactsPerPartition > 0 ? minFactsPerPartition : 1;
+  }
+}
@@ -0,0 +1,54 @@
+/** */
+package rules.api.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.stereotype.Component;
+
+/**
+ * This class holds the settings of the snapshots of the long lived sessions. It is populated from
+ * property file and every value has a default.
+ *
+ * @author chandresh.mishra
+ */
+@PropertySource("classpath:rulesConfig.properties")
+@Component
+public class SnapshotSettings {
+
+  // Write the long lived sessions to local files so they survive a restart
+  @Value("${drools.snapshot.enabled:false}")
+  private boolean enabled;
+
+  // Directory of the snapshot files, one per session
+  @Value("${drools.snapshot.dir:snapshots}")
+  private String dir;
+
+  // Time in milliseconds between two snapshots of the sessions used since their last one. 0 only
+  // takes them when the engine stops
+  @Value("${drools.snapshot.interval:300000}")
+  private long interval;
+
+  // Open the sessions of the snapshot files when the engine starts
+  @Value("${drools.snapshot.restore:true}")
+  private boolean restore;
+
+  /** @return the enabled */
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /** @return the dir */
+  public String getDir() {
+    return dir;
+  }
+
+  /** @return the interval */
+  public long getInterval() {
+    return interval;
+  }
+
+  /** @return the restore */
+  public boolean isRestore() {
+    return enabled && restore;
+  }
+}
@@ -0,0 +1,44 @@
+/** */
+package rules.api.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.stereotype.Component;
+
+/**
+ * This class holds the settings used to insert the facts of a fact source in chunks. It is
+ * populated from property file and every value has a default.
+ *
+ * @author chandresh.mishra
+ */
+@PropertySource("classpath:rulesConfig.properties")
+@Component
+public class StreamingSettings {
+
+  // Number of facts inserted before the rules are fired
+  @Value("${drools.streaming.chunkSize:10000}")
+  private int chunkSize;
+
+  // Fires the rules after every chunk. Otherwise the rules fire once at the end
+  @Value("${drools.streaming.fireBetweenChunks:true}")
+  private boolean fireBetweenChunks;
+
+  // Deletes the facts of a chunk once its rules have fired, so they can be garbage collected
+  @Value("${drools.streaming.retractProcessed:false}")
+  private boolean retractProcessed;
+
+  /** @return the chunkSize */
+  public int getChunkSize() {
+    return chunkSize > 0 ? chunkSize : 1;
+  }
+
+  /** @return the fireBetweenChunks */
+  public boolean isFireBetweenChunks() {
+    return fireBetweenChunks;
+  }
+
+  /** @return the retractProcessed, only applied when the rules fire between chunks */
+  public boolean isRetractProcessed() {
+    return fireBetweenChunks && retractProcessed;
+  }
+}
@@ -0,0 +1,54 @@
+/** */
+package rules.api.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.stereotype.Component;
+
+/**
+ * This class holds the settings of the container warm-up. It is populated from property file and
+ * every value has a default.
+ *
+ * @author chandresh.mishra
+ */
+@PropertySource("classpath:rulesConfig.properties")
+@Component
+public class WarmupSettings {
+
+  // Warm the startup container before the engine reports ready
+  @Value("${drools.warmup.startup:false}")
+  private boolean startup;
+
+  // Warm the startup container on a background thread instead of during the context start
+  @Value("${drools.warmup.background:false}")
+  private boolean background;
+
+  // Fire facts created with the no-arg constructor of every fact type used by the rules. The rules
+  // then run with the static globals of the sessions, so only enable it when they have no effects
+  @Value("${drools.warmup.generateFacts:false}")
+  private boolean generateFacts;
+
+  // Number of rounds of warm-up requests. 0 uses the constraint jitting threshold plus one
+  @Value("${drools.warmup.iterations:0}")
+  private int iterations;
+
+  /** @return the startup */
+  public boolean isStartup() {
+    return startup;
+  }
+
+  /** @return the background */
+  public boolean isBackground() {
+    return background;
+  }
+
+  /** @return the generateFacts */
+  public boolean isGenerateFacts() {
+    return generateFacts;
+  }
+
+  /** @return the iterations, 0 when the jitting threshold is used */
+  public int getIterations() {
+    return Math.max(0, iterations);
+  }
+}
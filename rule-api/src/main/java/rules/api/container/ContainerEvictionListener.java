@@ -0,0 +1,19 @@
+/** */
+package rules.api.container;
+
+/**
+ * Listener notified when the registry unloads a container, so the sessions kept for it can be
+ * dropped. The container is disposed once the sessions still using it are done.
+ *
+ * @author chandresh.mishra
+ */
+@FunctionalInterface
+public interface ContainerEvictionListener {
+
+  /**
+   * Called after the container is unloaded, from the thread doing it.
+   *
+   * @param containerId
+   */
+  void containerEvicted(String containerId);
+}
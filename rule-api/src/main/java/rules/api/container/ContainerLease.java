@@ -0,0 +1,73 @@
+/** */
+package rules.api.container;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.kie.api.runtime.KieContainer;
+
+/**
+ * This class counts the users of a container. The manager holds one reference while the container
+ * is current and every pooled or running session holds one more. The container is disposed when the
+ * last reference is released, so requests started before a swap finish on the old container.
+ *
+ * @author chandresh.mishra
+ */
+public final class ContainerLease {
+
+  private static final Logger logger = LogManager.getLogger(ContainerLease.class);
+
+  private final KieContainer container;
+
+  private final AtomicInteger references = new AtomicInteger(1);
+
+  /**
+   * Creates the lease with the reference of its creator.
+   *
+   * @param container
+   */
+  public ContainerLease(KieContainer container) {
+    this.container = container;
+  }
+
+  /** @return the container */
+  public KieContainer getContainer() {
+    return container;
+  }
+
+  /**
+   * Adds a reference unless the container is already disposed.
+   *
+   * @return false when the last reference has been released
+   */
+  public boolean tryRetain() {
+
+    for (; ; ) {
+      int count = references.get();
+      if (count == 0) {
+        return false;
+      }
+      if (references.compareAndSet(count, count + 1)) {
+        return true;
+      }
+    }
+  }
+
+  /** Releases a reference. The container is disposed with the last one. */
+  public void release() {
+
+    int count = references.decrementAndGet();
+
+    if (count == 0) {
+      logger.info("Disposing container {}", container.getReleaseId());
+      container.dispose();
+    } else if (count < 0) {
+      throw new IllegalStateException("Container lease released too many times");
+    }
+  }
+
+  /** @return number of references */
+  public int getReferences() {
+    return references.get();
+  }
+}
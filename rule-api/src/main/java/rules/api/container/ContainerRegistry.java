@@ -0,0 +1,423 @@
+/** */
+package rules.api.container;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import org.apache.commons.lang.StringUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.kie.api.KieServices;
+import org.kie.api.builder.ReleaseId;
+import org.kie.api.runtime.KieContainer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import rules.api.config.ContainerRegistrySettings;
+import rules.api.exception.RulesApiException;
+
+/**
+ * This class holds the containers named by the requests, next to the default container of the
+ * container manager. A container id is a tenant configured in drools.containers.releases, or any
+ * groupId:artifactId:version release when drools.containers.dynamic is set. A tenant may also name
+ * a local kjar file or exploded kjar directory, which is read without Maven.
+ *
+ * <p>A container is built on its first request and kept with a lease like the default one. When
+ * more than maxLoaded containers are loaded, or when they use more than the memory budget, the
+ * least recently used ones are unloaded. Containers unused for the idle timeout are unloaded too.
+ * The listeners drop the sessions kept for an unloaded container, which is disposed once the
+ * requests running on it are done, and the next request builds it again. An unloaded container, or
+ * one that failed to build, is removed from the registry. Its statistics are kept by container id,
+ * so they add up across loads.
+ *
+ * <p>The memory of a container is the number of bytes allocated while it was built, which is an
+ * upper bound of what it holds. It is 0 when the JVM does not count allocations per thread.
+ *
+ * @author chandresh.mishra
+ */
+@Component
+public class ContainerRegistry {
+
+  private Logger logger = LogManager.getLogger(this);
+
+  @Autowired private ContainerRegistrySettings settings;
+
+  @Autowired private KieContainerBuilder containerBuilder;
+
+  private final KieServices kieService = KieServices.Factory.get();
+
+  // Release or local kjar path of the configured tenants
+  private final Map<String, String> releases = new ConcurrentHashMap<>();
+
+  // Containers loaded or being loaded
+  private final ConcurrentMap<String, RegisteredContainer> containers = new ConcurrentHashMap<>();
+
+  // Statistics of every container loaded so far, kept once it is unloaded
+  private final ConcurrentMap<String, ContainerCounters> counters = new ConcurrentHashMap<>();
+
+  private final List<ContainerEvictionListener> listeners = new CopyOnWriteArrayList<>();
+
+  private ScheduledExecutorService evictor;
+
+  /** Reads the tenant releases and starts the idle eviction. */
+  @PostConstruct
+  public void init() {
+
+    for (String tenant : StringUtils.split(settings.getReleases(), ',')) {
+      String[] tenantRelease = StringUtils.split(tenant, '=');
+      if (tenantRelease.length != 2) {
+        throw new RulesApiException("Invalid container release " + tenant);
+      }
+      String release = tenantRelease[1].trim();
+      if (!Files.exists(Paths.get(release))) {
+        toReleaseId(release);
+      }
+      releases.put(tenantRelease[0].trim(), release);
+    }
+
+    if (settings.getIdleTimeout() > 0) {
+      evictor =
+          Executors.newSingleThreadScheduledExecutor(
+              runnable -> {
+                Thread thread = new Thread(runnable, "rules-container-evictor");
+                thread.setDaemon(true);
+                return thread;
+              });
+      evictor.scheduleWithFixedDelay(
+          this::evictIdle,
+          settings.getEvictionInterval(),
+          settings.getEvictionInterval(),
+          TimeUnit.MILLISECONDS);
+    }
+  }
+
+  /** Stops the eviction and unloads every container. */
+  @PreDestroy
+  public void shutdown() {
+
+    if (null != evictor) {
+      evictor.shutdownNow();
+    }
+    for (RegisteredContainer registered : containers.values()) {
+      evict(registered);
+    }
+  }
+
+  /**
+   * Returns a lease on the container, building it when it is not loaded. The caller must release it
+   * when the sessions created from the container are disposed.
+   *
+   * @param containerId
+   * @return ContainerLease
+   */
+  public ContainerLease acquire(String containerId) {
+
+    if (!releases.containsKey(containerId) && !settings.isDynamic()) {
+      logger.error("Unknown container {}", containerId);
+      throw new RulesApiException("Unknown container " + containerId);
+    }
+
+    for (; ; ) {
+      RegisteredContainer registered =
+          containers.computeIfAbsent(containerId, this::newRegisteredContainer);
+
+      ContainerLease lease = registered.lease;
+      if (null == lease) {
+        lease = load(registered);
+      }
+      // The container may be unloaded in between, it is then registered and built again
+      if (null != lease && lease.tryRetain()) {
+        if (registered.lease == lease) {
+          registered.counters.requests.increment();
+          registered.counters.lastUsed = System.currentTimeMillis();
+          return lease;
+        }
+        lease.release();
+      }
+    }
+  }
+
+  /**
+   * Registers a listener notified when a container is unloaded.
+   *
+   * @param listener
+   */
+  public void addListener(ContainerEvictionListener listener) {
+    listeners.add(listener);
+  }
+
+  /**
+   * Unloads a container. It is built again by its next request.
+   *
+   * @param containerId
+   * @return false when the container is not loaded
+   */
+  public boolean evict(String containerId) {
+
+    RegisteredContainer registered = containers.get(containerId);
+    return null != registered && evict(registered);
+  }
+
+  /** @return the statistics of the containers loaded now or before */
+  public List<ContainerStats> getStats() {
+
+    List<ContainerStats> stats = new ArrayList<>();
+    for (Map.Entry<String, ContainerCounters> entry : counters.entrySet()) {
+      RegisteredContainer registered = containers.get(entry.getKey());
+      ContainerCounters containerCounters = entry.getValue();
+      stats.add(
+          new ContainerStats(
+              entry.getKey(),
+              containerCounters.release,
+              null != registered && null != registered.lease,
+              containerCounters.loads,
+              containerCounters.evictions,
+              containerCounters.requests.sum(),
+              containerCounters.loadTime,
+              containerCounters.memory,
+              containerCounters.lastUsed));
+    }
+    return stats;
+  }
+
+  /** Unloads the containers that have not been used for longer than the idle timeout. */
+  void evictIdle() {
+
+    long oldest = System.currentTimeMillis() - settings.getIdleTimeout();
+
+    for (RegisteredContainer registered : containers.values()) {
+      if (null != registered.lease && registered.counters.lastUsed < oldest) {
+        evict(registered);
+      }
+    }
+  }
+
+  /**
+   * Builds the container unless another thread did it first. A container that fails to build is
+   * removed from the registry.
+   *
+   * @param registered
+   * @return the lease of the container, or null when it was removed from the registry
+   */
+  private ContainerLease load(RegisteredContainer registered) {
+
+    ContainerLease lease;
+
+    synchronized (registered) {
+      if (registered.removed || null != registered.lease) {
+        return registered.lease;
+      }
+
+      long start = System.currentTimeMillis();
+      long allocated = getAllocatedBytes();
+
+      KieContainer kContainer;
+      try {
+        kContainer =
+            null == registered.releaseId
+                ? containerBuilder.build(registered.kjarPath)
+                : containerBuilder.build(registered.releaseId);
+      } catch (RuntimeException e) {
+        remove(registered);
+        throw e;
+      }
+
+      ContainerCounters containerCounters =
+          counters.computeIfAbsent(
+              registered.containerId,
+              id ->
+                  new ContainerCounters(
+                      null == registered.releaseId
+                          ? registered.kjarPath.toString()
+                          : registered.releaseId.toExternalForm()));
+      containerCounters.memory =
+          allocated < 0 ? 0 : Math.max(0, getAllocatedBytes() - allocated);
+      containerCounters.loadTime = System.currentTimeMillis() - start;
+      containerCounters.lastUsed = System.currentTimeMillis();
+      containerCounters.loads++;
+      registered.counters = containerCounters;
+
+      lease = new ContainerLease(kContainer);
+      registered.lease = lease;
+    }
+
+    logger.info(
+        "Loaded container {} of {} in {} ms, {} bytes allocated",
+        registered.containerId,
+        null == registered.releaseId ? registered.kjarPath : registered.releaseId,
+        registered.counters.loadTime,
+        registered.counters.memory);
+
+    evictOverBudget(registered);
+    return lease;
+  }
+
+  /**
+   * Unloads the least recently used containers while too many are loaded or they use more than the
+   * memory budget. The container just loaded is kept.
+   *
+   * @param loadedNow
+   */
+  private void evictOverBudget(RegisteredContainer loadedNow) {
+
+    List<RegisteredContainer> loaded = new ArrayList<>();
+    long memory = 0;
+    for (RegisteredContainer registered : containers.values()) {
+      if (null != registered.lease) {
+        loaded.add(registered);
+        memory += registered.counters.memory;
+      }
+    }
+    loaded.sort(Comparator.comparingLong(registered -> registered.counters.lastUsed));
+
+    long budget = settings.getMemoryBudget() * 1024 * 1024;
+    int count = loaded.size();
+
+    for (RegisteredContainer registered : loaded) {
+      if (count <= settings.getMaxLoaded() && (budget <= 0 || memory <= budget)) {
+        return;
+      }
+      if (registered != loadedNow && evict(registered)) {
+        count--;
+        memory -= registered.counters.memory;
+      }
+    }
+  }
+
+  /**
+   * Drops the reference of the registry on the container, removes it and notifies the listeners.
+   *
+   * @param registered
+   * @return false when the container is not loaded
+   */
+  private boolean evict(RegisteredContainer registered) {
+
+    ContainerLease lease;
+
+    synchronized (registered) {
+      lease = registered.lease;
+      if (null == lease) {
+        return false;
+      }
+      registered.lease = null;
+      registered.counters.evictions++;
+      remove(registered);
+    }
+
+    for (ContainerEvictionListener listener : listeners) {
+      try {
+        listener.containerEvicted(registered.containerId);
+      } catch (RuntimeException e) {
+        logger.error("Container eviction listener failed", e);
+      }
+    }
+
+    logger.info("Unloaded container {}", registered.containerId);
+    lease.release();
+    return true;
+  }
+
+  /**
+   * Removes a container from the registry, the requests holding it register it again. It is called
+   * with the lock of the container held.
+   *
+   * @param registered
+   */
+  private void remove(RegisteredContainer registered) {
+    registered.removed = true;
+    containers.remove(registered.containerId, registered);
+  }
+
+  /**
+   * @param containerId
+   * @return the container of a tenant, or of the release named by the id
+   */
+  private RegisteredContainer newRegisteredContainer(String containerId) {
+
+    String release = releases.getOrDefault(containerId, containerId);
+
+    if (releases.containsKey(containerId) && Files.exists(Paths.get(release))) {
+      return new RegisteredContainer(containerId, null, Paths.get(release));
+    }
+    return new RegisteredContainer(containerId, toReleaseId(release), null);
+  }
+
+  private ReleaseId toReleaseId(String release) {
+
+    String[] gav = StringUtils.split(release, ':');
+    if (gav.length != 3) {
+      logger.error("Unknown container {}", release);
+      throw new RulesApiException("Unknown container " + release);
+    }
+    return kieService.newReleaseId(gav[0], gav[1], gav[2]);
+  }
+
+  /** @return bytes allocated by the current thread so far, or -1 when they are not counted */
+  private long getAllocatedBytes() {
+
+    ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+    if (threadBean instanceof com.sun.management.ThreadMXBean) {
+      return ((com.sun.management.ThreadMXBean) threadBean)
+          .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+    return -1;
+  }
+
+  /** A container of the registry. */
+  private static final class RegisteredContainer {
+
+    private final String containerId;
+
+    // Null when the container is read from a local kjar
+    private final ReleaseId releaseId;
+    private final Path kjarPath;
+
+    // Null while the container is not loaded
+    private volatile ContainerLease lease;
+
+    // True once removed from the registry, it is not loaded again
+    private volatile boolean removed;
+
+    // Statistics of the container id, set by the first load
+    private volatile ContainerCounters counters;
+
+    private RegisteredContainer(String containerId, ReleaseId releaseId, Path kjarPath) {
+      this.containerId = containerId;
+      this.releaseId = releaseId;
+      this.kjarPath = kjarPath;
+    }
+  }
+
+  /** The statistics of a container id, across its loads. */
+  private static final class ContainerCounters {
+
+    // Release or local kjar path of the container
+    private final String release;
+
+    private final LongAdder requests = new LongAdder();
+
+    private volatile long loads;
+    private volatile long evictions;
+    private volatile long loadTime;
+    private volatile long memory;
+    private volatile long lastUsed;
+
+    private ContainerCounters(String release) {
+      this.release = release;
+    }
+  }
+}
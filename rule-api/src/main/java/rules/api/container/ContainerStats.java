@@ -0,0 +1,120 @@
+/** */
+package rules.api.container;
+
+/**
+ * This class holds a snapshot of the statistics of one container of the registry.
+ *
+ * @author chandresh.mishra
+ */
+public class ContainerStats {
+
+  // Tenant or release named by the requests
+  private final String containerId;
+  // Release the container is built from
+  private final String releaseId;
+  // True while the container is loaded
+  private final boolean loaded;
+  // Number of times the container was built
+  private final long loads;
+  // Number of times the container was unloaded
+  private final long evictions;
+  // Number of leases handed out
+  private final long requests;
+  // Build time of the last load in milliseconds
+  private final long loadTime;
+  // Bytes allocated by the last load, an upper bound of the memory the container holds
+  private final long memory;
+  // Time of the last lease in milliseconds
+  private final long lastUsed;
+
+  public ContainerStats(
+      String containerId,
+      String releaseId,
+      boolean loaded,
+      long loads,
+      long evictions,
+      long requests,
+      long loadTime,
+      long memory,
+      long lastUsed) {
+    this.containerId = containerId;
+    this.releaseId = releaseId;
+    this.loaded = loaded;
+    this.loads = loads;
+    this.evictions = evictions;
+    this.requests = requests;
+    this.loadTime = loadTime;
+    this.memory = memory;
+    this.lastUsed = lastUsed;
+  }
+
+  /** @return the containerId */
+  public String getContainerId() {
+    return containerId;
+  }
+
+  /** @return the releaseId */
+  public String getReleaseId() {
+    return releaseId;
+  }
+
+  /** @return the loaded */
+  public boolean isLoaded() {
+    return loaded;
+  }
+
+  /** @return the loads */
+  public long getLoads() {
+    return loads;
+  }
+
+  /** @return the evictions */
+  public long getEvictions() {
+    return evictions;
+  }
+
+  /** @return the requests */
+  public long getRequests() {
+    return requests;
+  }
+
+  /** @return the loadTime */
+  public long getLoadTime() {
+    return loadTime;
+  }
+
+  /** @return the memory */
+  public long getMemory() {
+    return memory;
+  }
+
+  /** @return the lastUsed */
+  public long getLastUsed() {
+    return lastUsed;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder builder = new StringBuilder();
+    builder.append("ContainerStats [containerId=");
+    builder.append(containerId);
+    builder.append(", releaseId=");
+    builder.append(releaseId);
+    builder.append(", loaded=");
+    builder.append(loaded);
+    builder.append(", loads=");
+    builder.append(loads);
+    builder.append(", evictions=");
+    builder.append(evictions);
+    builder.append(", requests=");
+    builder.append(requests);
+    builder.append(", loadTime=");
+    builder.append(loadTime);
+    builder.append(", memory=");
+    builder.append(memory);
+    builder.append(", lastUsed=");
+    builder.append(lastUsed);
+    builder.append("]");
+    return builder.toString();
+  }
+}
@@ -0,0 +1,21 @@
+/** */
+package rules.api.container;
+
+import org.kie.api.runtime.KieContainer;
+
+/**
+ * Listener notified when the rules of the container change, either because the KieScanner updated
+ * the container in place or because a new container was swapped in.
+ *
+ * @author chandresh.mishra
+ */
+@FunctionalInterface
+public interface ContainerUpdateListener {
+
+  /**
+   * Called after the update, from the thread doing it.
+   *
+   * @param container - the current container
+   */
+  void containerUpdated(KieContainer container);
+}
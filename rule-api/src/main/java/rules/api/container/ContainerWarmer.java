@@ -0,0 +1,200 @@
+/** */
+package rules.api.container;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import org.apache.commons.collections4.CollectionUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.kie.api.KieBase;
+import org.kie.api.builder.model.KieSessionModel;
+import org.kie.api.runtime.KieContainer;
+import org.kie.api.runtime.KieSession;
+import org.kie.api.runtime.StatelessKieSession;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import rules.api.channels.ResultCollector;
+import rules.api.config.HotSwapSettings;
+import rules.api.config.WarmupSettings;
+import rules.api.enums.SessionType;
+import rules.api.message.RulesRequest;
+import rules.api.session.KieSessionFactory;
+import rules.api.session.SessionKey;
+
+/**
+ * This class warms a container before it serves requests. Every kieBase is built and the requests
+ * of the WarmupRequestProvider beans are fired on throw-away sessions, so the rule networks and the
+ * compiled constraints are ready when the container is swapped in.
+ *
+ * <p>Sample facts can also be generated for every kieBase and fired on each of its kieSessions, as
+ * read from the kmodule. The requests are fired until the constraints reach the jitting threshold
+ * of the kieBases, so they run compiled instead of interpreted by MVEL.
+ *
+ * @author chandresh.mishra
+ */
+@Component
+public class ContainerWarmer {
+
+  private Logger logger = LogManager.getLogger(this);
+
+  @Autowired private KieSessionFactory sessionFactory;
+
+  @Autowired private HotSwapSettings settings;
+
+  @Autowired private WarmupSettings warmupSettings;
+
+  @Autowired(required = false)
+  private List<WarmupRequestProvider> warmupRequestProviders = Collections.emptyList();
+
+  /**
+   * Builds the kieBases of the container and fires the warm-up requests on it. A failing request is
+   * logged and does not stop the warm-up.
+   *
+   * @param kContainer
+   * @return the warm-up time in milliseconds
+   */
+  public long warmUp(KieContainer kContainer) {
+
+    long start = System.currentTimeMillis();
+
+    int jittingThreshold = 0;
+    List<RulesRequest> sampleRequests = new ArrayList<>();
+
+    for (String kieBaseName : kContainer.getKieBaseNames()) {
+      KieBase kieBase = kContainer.getKieBase(kieBaseName);
+      jittingThreshold =
+          Math.max(jittingThreshold, SampleFactGenerator.getJittingThreshold(kieBase));
+
+      if (warmupSettings.isGenerateFacts()) {
+        sampleRequests.addAll(
+            newSampleRequests(kContainer, kieBaseName, SampleFactGenerator.generate(kieBase)));
+      }
+    }
+
+    List<RulesRequest> warmupRequests = new ArrayList<>();
+    for (WarmupRequestProvider provider : warmupRequestProviders) {
+      warmupRequests.addAll(provider.getWarmupRequests());
+    }
+
+    int iterations =
+        warmupSettings.getIterations() > 0 ? warmupSettings.getIterations() : jittingThreshold + 1;
+    iterations = Math.max(iterations, settings.getWarmupIterations());
+
+    int failed = 0;
+    for (int iteration = 0; iteration < iterations; iteration++) {
+      for (RulesRequest rulesRequest : warmupRequests) {
+        try {
+          fire(kContainer, rulesRequest);
+        } catch (RuntimeException e) {
+          failed++;
+          logger.warn("Warm-up request failed on {}", SessionKey.of(rulesRequest), e);
+        }
+      }
+      for (RulesRequest rulesRequest : sampleRequests) {
+        try {
+          fire(kContainer, rulesRequest);
+        } catch (RuntimeException e) {
+          // Rules often do not expect facts with default values
+          failed++;
+          logger.debug("Sample facts failed on {}", SessionKey.of(rulesRequest), e);
+        }
+      }
+    }
+
+    long warmupTime = System.currentTimeMillis() - start;
+
+    logger.info(
+        "Container {} warmed with {} requests and {} sample requests in {} rounds in {} ms, {} failed",
+        kContainer.getReleaseId(),
+        warmupRequests.size(),
+        sampleRequests.size(),
+        iterations,
+        warmupTime,
+        failed);
+
+    return warmupTime;
+  }
+
+  /**
+   * Builds a request with the sample facts for every kieSession of the kieBase, or for the kieBase
+   * when it has no kieSession.
+   *
+   * @param kContainer
+   * @param kieBaseName
+   * @param facts
+   * @return the sample requests
+   */
+  private List<RulesRequest> newSampleRequests(
+      KieContainer kContainer, String kieBaseName, List<Object> facts) {
+
+    List<RulesRequest> sampleRequests = new ArrayList<>();
+
+    if (facts.isEmpty()) {
+      return sampleRequests;
+    }
+
+    Collection<String> sessionNames = kContainer.getKieSessionNamesInKieBase(kieBaseName);
+
+    if (sessionNames.isEmpty()) {
+      sampleRequests.add(
+          new RulesRequest.RulesRequestBuilder()
+              .kieBasename(kieBaseName)
+              .buildSessionByKieBase(true)
+              .sessionType(SessionType.STATEFUL)
+              .facts(facts)
+              .build());
+    }
+
+    for (String sessionName : sessionNames) {
+      KieSessionModel kieSessionModel = kContainer.getKieSessionModel(sessionName);
+      sampleRequests.add(
+          new RulesRequest.RulesRequestBuilder()
+              .sessionName(sessionName)
+              .sessionType(
+                  kieSessionModel.getType() == KieSessionModel.KieSessionType.STATELESS
+                      ? SessionType.STATELESS
+                      : SessionType.STATEFUL)
+              .facts(facts)
+              .build());
+    }
+    return sampleRequests;
+  }
+
+  private void fire(KieContainer kContainer, RulesRequest rulesRequest) {
+
+    SessionKey sessionKey = SessionKey.of(rulesRequest);
+
+    if (rulesRequest.getSessionType() == SessionType.STATELESS) {
+
+      StatelessKieSession statelessKieSession =
+          sessionFactory.newStatelessKieSession(kContainer, sessionKey);
+      // The session is not shared, so the channel and globals can be set on it
+      statelessKieSession.registerChannel("send-channel", new ResultCollector());
+      if (null != rulesRequest.getGlobalElement()) {
+        rulesRequest.getGlobalElement().forEach(statelessKieSession::setGlobal);
+      }
+      statelessKieSession.execute(
+          CollectionUtils.isEmpty(rulesRequest.getFacts())
+              ? Collections.emptyList()
+              : rulesRequest.getFacts());
+
+    } else {
+
+      KieSession kSession = sessionFactory.newKieSession(kContainer, sessionKey);
+      try {
+        kSession.registerChannel("send-channel", new ResultCollector());
+        if (null != rulesRequest.getGlobalElement()) {
+          rulesRequest.getGlobalElement().forEach(kSession::setGlobal);
+        }
+        if (!CollectionUtils.isEmpty(rulesRequest.getFacts())) {
+          rulesRequest.getFacts().forEach(kSession::insert);
+        }
+        kSession.fireAllRules();
+      } finally {
+        kSession.dispose();
+      }
+    }
+  }
+}
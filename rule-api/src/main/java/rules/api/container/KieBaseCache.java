@@ -0,0 +1,303 @@
+/** */
+package rules.api.container;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.drools.compiler.kie.builder.impl.InternalKieModule;
+import org.drools.compiler.kie.builder.impl.KieContainerImpl;
+import org.drools.core.common.DroolsObjectInputStream;
+import org.drools.core.common.DroolsObjectOutputStream;
+import org.drools.core.impl.InternalKieContainer;
+import org.drools.core.impl.InternalKnowledgeBase;
+import org.drools.core.util.Drools;
+import org.kie.api.KieBase;
+import org.kie.api.builder.ReleaseId;
+import org.kie.api.runtime.KieContainer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import rules.api.config.KieBaseCacheSettings;
+
+/**
+ * This class keeps the compiled kieBases of a container on disk. An entry is a directory named
+ * after the kjar release and a SHA-256 of the kjar content and of the Drools version, holding one
+ * serialized file per kieBase. A changed kjar gets a new hash, so a stale entry is never loaded,
+ * and the entries of older builds of the same release are deleted when a new one is stored. The
+ * entries of the other versions of the artifact are kept, as the container registry may load
+ * several of them at once.
+ *
+ * @author chandresh.mishra
+ */
+@Component
+public class KieBaseCache {
+
+  private static final String SUFFIX = ".kbase";
+
+  // Hex SHA-256 ending the name of an entry
+  private static final Pattern HASH = Pattern.compile("[0-9a-f]{64}");
+
+  private Logger logger = LogManager.getLogger(this);
+
+  @Autowired private KieBaseCacheSettings settings;
+
+  /** @return true if the cache is enabled */
+  public boolean isEnabled() {
+    return settings.isEnabled();
+  }
+
+  /**
+   * Loads the kieBases of the container from the cache. Nothing is loaded unless every kieBase of
+   * the container is found.
+   *
+   * @param kContainer
+   * @return true if the container got all its kieBases from the cache
+   */
+  public boolean load(KieContainer kContainer) {
+
+    if (!isCacheable(kContainer)) {
+      return false;
+    }
+
+    long start = System.currentTimeMillis();
+    Path entry = null;
+
+    try {
+      entry = getEntry(kContainer);
+      if (!Files.isDirectory(entry)) {
+        logger.info("No cached kieBases for {}", kContainer.getReleaseId());
+        return false;
+      }
+
+      Map<String, KieBase> kieBases = new HashMap<>();
+      for (String kieBaseName : kContainer.getKieBaseNames()) {
+        Path file = entry.resolve(kieBaseName + SUFFIX);
+        if (!Files.isRegularFile(file)) {
+          return false;
+        }
+        kieBases.put(kieBaseName, read(file, kContainer));
+      }
+
+      getKieBases((KieContainerImpl) kContainer).putAll(kieBases);
+
+      logger.info(
+          "Loaded {} kieBases of {} from {} in {} ms",
+          kieBases.size(),
+          kContainer.getReleaseId(),
+          entry,
+          System.currentTimeMillis() - start);
+      return true;
+
+    } catch (IOException | ReflectiveOperationException e) {
+      logger.warn("Can not load the cached kieBases from {}, they are compiled again", entry, e);
+      delete(entry);
+      return false;
+    }
+  }
+
+  /**
+   * Writes the kieBases of a verified container to the cache and deletes the entries of other
+   * builds of the same release. A failure is logged and does not affect the container.
+   *
+   * @param kContainer
+   */
+  public void store(KieContainer kContainer) {
+
+    if (!isCacheable(kContainer)) {
+      return;
+    }
+
+    Path entry = null;
+    Path tmp = null;
+
+    try {
+      entry = getEntry(kContainer);
+      tmp = Files.createTempDirectory(Files.createDirectories(entry.getParent()), "tmp-");
+
+      for (String kieBaseName : kContainer.getKieBaseNames()) {
+        write(tmp.resolve(kieBaseName + SUFFIX), kContainer.getKieBase(kieBaseName));
+      }
+
+      deleteOtherBuilds(entry, getReleasePrefix(kContainer.getReleaseId()));
+
+      // Readers see the whole entry or nothing
+      delete(entry);
+      Files.move(tmp, entry, StandardCopyOption.ATOMIC_MOVE);
+
+      logger.info("Stored the kieBases of {} in {}", kContainer.getReleaseId(), entry);
+
+    } catch (IOException e) {
+      logger.warn("Can not store the kieBases of {} in {}", kContainer.getReleaseId(), entry, e);
+    } finally {
+      delete(tmp);
+    }
+  }
+
+  /**
+   * @param kContainer
+   * @return true if the cache is enabled and the container comes from a kjar release
+   */
+  private boolean isCacheable(KieContainer kContainer) {
+    return settings.isEnabled()
+        && kContainer instanceof KieContainerImpl
+        && null != kContainer.getReleaseId();
+  }
+
+  /**
+   * @param kContainer
+   * @return the directory of the container's kjar
+   */
+  Path getEntry(KieContainer kContainer) throws IOException {
+
+    ReleaseId releaseId = kContainer.getReleaseId();
+
+    return Paths.get(settings.getDir())
+        .resolve(getReleasePrefix(releaseId) + getContentHash(kContainer));
+  }
+
+  private String getReleasePrefix(ReleaseId releaseId) {
+    return releaseId.getGroupId()
+        + "_"
+        + releaseId.getArtifactId()
+        + "_"
+        + releaseId.getVersion()
+        + "_";
+  }
+
+  /**
+   * Hashes every file of the kjars holding the kieBases, in name order, along with the Drools
+   * version which defines the serialized format.
+   *
+   * @param kContainer
+   * @return hex SHA-256
+   */
+  private String getContentHash(KieContainer kContainer) throws IOException {
+
+    // The kieBases of a container may come from the kjar and from its dependencies
+    Map<String, InternalKieModule> kieModules = new TreeMap<>();
+    for (String kieBaseName : kContainer.getKieBaseNames()) {
+      InternalKieModule kieModule =
+          (InternalKieModule) ((KieContainerImpl) kContainer).getKieModuleForKBase(kieBaseName);
+      kieModules.put(kieModule.getReleaseId().toExternalForm(), kieModule);
+    }
+
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      digest.update(Drools.getFullVersion().getBytes(StandardCharsets.UTF_8));
+
+      for (InternalKieModule kieModule : kieModules.values()) {
+        List<String> fileNames = new ArrayList<>(kieModule.getFileNames());
+        fileNames.sort(Comparator.naturalOrder());
+
+        for (String fileName : fileNames) {
+          byte[] bytes = kieModule.getBytes(fileName);
+          digest.update(fileName.getBytes(StandardCharsets.UTF_8));
+          if (null != bytes) {
+            digest.update(bytes);
+          }
+        }
+      }
+
+      StringBuilder hex = new StringBuilder();
+      for (byte b : digest.digest()) {
+        hex.append(String.format("%02x", b));
+      }
+      return hex.toString();
+
+    } catch (NoSuchAlgorithmException e) {
+      throw new IOException(e);
+    }
+  }
+
+  private void write(Path file, KieBase kieBase) throws IOException {
+
+    try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file));
+        ObjectOutputStream objectOut = new DroolsObjectOutputStream(out)) {
+      objectOut.writeObject(kieBase);
+    }
+  }
+
+  private KieBase read(Path file, KieContainer kContainer)
+      throws IOException, ClassNotFoundException {
+
+    try (InputStream in = new BufferedInputStream(Files.newInputStream(file));
+        DroolsObjectInputStream objectIn =
+            new DroolsObjectInputStream(in, kContainer.getClassLoader())) {
+
+      InternalKnowledgeBase kieBase = (InternalKnowledgeBase) objectIn.readObject();
+      kieBase.setKieContainer((InternalKieContainer) kContainer);
+      kieBase.setContainerId(((InternalKieContainer) kContainer).getContainerId());
+      // Not serialized, the rule profiler reads it
+      kieBase.setResolvedReleaseId(kContainer.getReleaseId());
+      return kieBase;
+    }
+  }
+
+  /**
+   * The container has no way to be given a kieBase, so its map of built kieBases is filled
+   * directly. The container then behaves as if it had built them.
+   */
+  @SuppressWarnings("unchecked")
+  private Map<String, KieBase> getKieBases(KieContainerImpl kContainer)
+      throws ReflectiveOperationException {
+
+    Field field = KieContainerImpl.class.getDeclaredField("kBases");
+    field.setAccessible(true);
+    return (Map<String, KieBase>) field.get(kContainer);
+  }
+
+  /**
+   * Deletes the entries of the same release with another hash. An entry name is the release prefix
+   * followed by the hash only, so the entries of other versions or artifacts never match.
+   *
+   * @param entry
+   * @param releasePrefix
+   */
+  private void deleteOtherBuilds(Path entry, String releasePrefix) throws IOException {
+
+    try (DirectoryStream<Path> entries = Files.newDirectoryStream(entry.getParent())) {
+      for (Path other : entries) {
+        String name = other.getFileName().toString();
+        if (name.startsWith(releasePrefix)
+            && HASH.matcher(name.substring(releasePrefix.length())).matches()
+            && !other.equals(entry)) {
+          logger.info("Deleting cached kieBases {}", other);
+          delete(other);
+        }
+      }
+    }
+  }
+
+  private void delete(Path path) {
+
+    if (null == path || !Files.exists(path)) {
+      return;
+    }
+    try (Stream<Path> paths = Files.walk(path)) {
+      paths.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+    } catch (IOException e) {
+      logger.warn("Can not delete {}", path, e);
+    }
+  }
+}
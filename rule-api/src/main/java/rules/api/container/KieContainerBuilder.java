@@ -0,0 +1,192 @@
+/** */
+package rules.api.container;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import org.apache.commons.lang.StringUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.kie.api.KieServices;
+import org.kie.api.builder.KieModule;
+import org.kie.api.builder.Message;
+import org.kie.api.builder.ReleaseId;
+import org.kie.api.builder.Results;
+import org.kie.api.io.Resource;
+import org.kie.api.runtime.KieContainer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import rules.api.config.ReleaseVersion;
+import rules.api.exception.RulesApiException;
+
+/**
+ * This class builds a container for the configured kjar and verifies its rules. It is used for the
+ * container created at startup, for the ones built by a hot swap and for the containers of the
+ * registry. The kjar is resolved by Maven from its release, or read from a local path when
+ * drools.kjarPath is set.
+ *
+ * @author chandresh.mishra
+ */
+@Component
+public class KieContainerBuilder {
+
+  private Logger logger = LogManager.getLogger(this);
+
+  @Autowired private ReleaseVersion releaseVersion;
+
+  @Autowired private KieBaseCache kieBaseCache;
+
+  private KieServices kieService = KieServices.Factory.get();
+
+  /**
+   * This method returns the release id of the configured group, artifact and version.
+   *
+   * @return ReleaseId
+   */
+  public ReleaseId getReleaseId() {
+
+    if (StringUtils.isEmpty(releaseVersion.getGroupID())
+        || StringUtils.isEmpty(releaseVersion.getArtifactID())
+        || StringUtils.isEmpty(releaseVersion.getVersion())) {
+
+      logger.error("Not able to build the container.Missing mandatory details");
+
+      throw new RulesApiException("Not able to build the container.Missing mandatory details");
+    }
+
+    return kieService.newReleaseId(
+        releaseVersion.getGroupID(), releaseVersion.getArtifactID(), releaseVersion.getVersion());
+  }
+
+  /**
+   * This method builds a new container with the latest kjar of the configured release, or from the
+   * configured kjar path. It will verify all the rules loaded from the kieJar and throw an
+   * exception in case of syntax error. When the kieBase cache holds the compiled kieBases of the
+   * same kjar, they are loaded instead and the verification is skipped.
+   *
+   * @return KieContainer
+   */
+  public KieContainer build() {
+
+    return isOffline() ? build(Paths.get(releaseVersion.getKjarPath())) : build(getReleaseId());
+  }
+
+  /** @return true if the kjar is read from a local path instead of being resolved by Maven */
+  public boolean isOffline() {
+    return !StringUtils.isEmpty(releaseVersion.getKjarPath());
+  }
+
+  /**
+   * This method builds a new container with the given release and verifies it like build().
+   *
+   * @param releaseId
+   * @return KieContainer
+   */
+  public KieContainer build(ReleaseId releaseId) {
+
+    logger.traceEntry("START - method - [build(ReleaseId)]");
+
+    logger.info("Building Container");
+    logger.info("Group ID " + releaseId.getGroupId());
+    logger.info("Artifact ID " + releaseId.getArtifactId());
+    logger.info("version " + releaseId.getVersion());
+
+    // Building container using kiejar from repository
+    KieContainer kContainer = verify(kieService.newKieContainer(releaseId));
+
+    logger.traceExit("END - method - [build(ReleaseId)]");
+    return kContainer;
+  }
+
+  /**
+   * This method builds a new container from a kjar file or an exploded kjar directory on local
+   * disk, without Maven. The kjar is added to the KieRepository under the release of its pom, so
+   * its dependencies must already be there. It is verified like build().
+   *
+   * @param kjarPath
+   * @return KieContainer
+   */
+  public KieContainer build(Path kjarPath) {
+
+    logger.traceEntry("START - method - [build(Path)]");
+
+    logger.info("Building Container from {}", kjarPath);
+
+    Resource kjar;
+    try {
+      kjar = readKjar(kjarPath);
+    } catch (IOException e) {
+      logger.error("Can not read the kjar {}", kjarPath, e);
+      throw new RulesApiException("Can not read the kjar " + kjarPath);
+    }
+
+    KieModule kieModule = kieService.getRepository().addKieModule(kjar);
+
+    logger.info("Release {}", kieModule.getReleaseId());
+
+    KieContainer kContainer = verify(kieService.newKieContainer(kieModule.getReleaseId()));
+
+    logger.traceExit("END - method - [build(Path)]");
+    return kContainer;
+  }
+
+  /**
+   * A directory is read in place. A file is read to the heap, as the KieRepository keeps the bytes
+   * of the kjar.
+   *
+   * @param kjarPath
+   * @return Resource
+   */
+  private Resource readKjar(Path kjarPath) throws IOException {
+
+    if (Files.isDirectory(kjarPath)) {
+      return kieService.getResources().newFileSystemResource(kjarPath.toFile());
+    }
+
+    return kieService.getResources().newByteArrayResource(Files.readAllBytes(kjarPath));
+  }
+
+  /**
+   * Loads the kieBases from the cache or verifies the rules of the container. The container is
+   * disposed when its rules have errors.
+   *
+   * @param kContainer
+   * @return the container
+   */
+  KieContainer verify(KieContainer kContainer) {
+
+    if (kieBaseCache.load(kContainer)) {
+      return kContainer;
+    }
+
+    // Verifying all the rules loaded in container
+    Results results = kContainer.verify();
+
+    // checking for errors in rule file.
+    if (results.hasMessages(Message.Level.WARNING, Message.Level.ERROR)) {
+
+      List<Message> messages = results.getMessages(Message.Level.WARNING, Message.Level.ERROR);
+
+      for (Message message : messages) {
+
+        logger.error(
+            "Compilation errors in rules: {} in file {} at line number  {} and coloumn {}.Error message is: {}",
+            message.getLevel(),
+            message.getPath(),
+            message.getLine(),
+            message.getColumn(),
+            message.getText());
+      }
+
+      kContainer.dispose();
+
+      throw new RulesApiException(
+          "Compilation errors are found in the rules file. Please check the logs.");
+    }
+
+    kieBaseCache.store(kContainer);
+    return kContainer;
+  }
+}
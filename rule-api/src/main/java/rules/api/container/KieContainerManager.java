@@ -0,0 +1,290 @@
+/** */
+package rules.api.container;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.kie.api.KieServices;
+import org.kie.api.builder.KieScanner;
+import org.kie.api.builder.Message;
+import org.kie.api.event.kiescanner.DefaultKieScannerEventListener;
+import org.kie.api.event.kiescanner.KieScannerUpdateResultsEvent;
+import org.kie.api.runtime.KieContainer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import rules.api.config.HotSwapSettings;
+import rules.api.config.ReleaseVersion;
+import rules.api.session.SessionKey;
+
+/**
+ * This class holds the container serving the requests. Sessions are created from a lease acquired
+ * here, which keeps their container alive until they are disposed.
+ *
+ * <p>Without hot swap the KieScanner updates the container in place and the listeners are notified.
+ * With hot swap a scanner watches the repository on a staging container of its own, whose kieBases
+ * are not built. On an update the staging container, now holding the new release, is verified and
+ * warmed on a background thread and then swapped in, and a new staging container is scanned. The
+ * old container is disposed once the requests running on it are done.
+ *
+ * <p>Requests naming a container are served from the container registry instead.
+ *
+ * @author chandresh.mishra
+ */
+@Component
+public class KieContainerManager {
+
+  private Logger logger = LogManager.getLogger(this);
+
+  @Autowired private KieContainer kContainer;
+
+  @Autowired(required = false)
+  private KieScanner kieScanner;
+
+  @Autowired private HotSwapSettings settings;
+
+  @Autowired private ReleaseVersion releaseVersion;
+
+  @Autowired private KieContainerBuilder containerBuilder;
+
+  // Injected before the warmer, whose session factory registers eviction listeners through this
+  // manager while it is still being created
+  @Autowired private ContainerRegistry containerRegistry;
+
+  @Autowired private ContainerWarmer containerWarmer;
+
+  private final AtomicReference<ContainerLease> current = new AtomicReference<>();
+
+  private final List<ContainerUpdateListener> listeners = new CopyOnWriteArrayList<>();
+
+  private ExecutorService swapExecutor;
+
+  // Container scanned for the next release and the scanner on it, swap thread only
+  private KieContainer stagingContainer;
+  private KieScanner stagingScanner;
+
+  /** Takes the startup container and registers with the KieScanner. */
+  @PostConstruct
+  public void init() {
+
+    current.set(new ContainerLease(kContainer));
+
+    if (settings.isEnabled()) {
+      swapExecutor =
+          Executors.newSingleThreadExecutor(
+              runnable -> {
+                Thread thread = new Thread(runnable, "rules-container-swap");
+                thread.setDaemon(true);
+                return thread;
+              });
+      if (!containerBuilder.isOffline() && releaseVersion.getScanInterval() > 0) {
+        swapExecutor.execute(this::stage);
+      }
+    }
+
+    if (null != kieScanner) {
+      kieScanner.addListener(
+          new DefaultKieScannerEventListener() {
+            @Override
+            public void onKieScannerUpdateResultsEvent(KieScannerUpdateResultsEvent event) {
+              if (null == event.getResults()
+                  || !event.getResults().hasMessages(Message.Level.ERROR)) {
+                notifyListeners(getContainer());
+              }
+            }
+          });
+    }
+  }
+
+  /** Stops the swap thread and the staging scanner. */
+  @PreDestroy
+  public void shutdown() {
+
+    if (null != swapExecutor) {
+      swapExecutor.shutdownNow();
+      try {
+        swapExecutor.awaitTermination(5, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      unstage();
+    }
+  }
+
+  /**
+   * Returns a lease on the current container. The caller must release it when the sessions created
+   * from the container are disposed.
+   *
+   * @return ContainerLease
+   */
+  public ContainerLease acquire() {
+
+    for (; ; ) {
+      ContainerLease lease = current.get();
+      // Fails only if the lease was swapped out and released in between
+      if (lease.tryRetain()) {
+        return lease;
+      }
+    }
+  }
+
+  /**
+   * Returns a lease on the container of the session key, the current container or one of the
+   * registry. The caller must release it when the sessions created from the container are disposed.
+   *
+   * @param sessionKey
+   * @return ContainerLease
+   */
+  public ContainerLease acquire(SessionKey sessionKey) {
+
+    return null == sessionKey.getContainerId()
+        ? acquire()
+        : containerRegistry.acquire(sessionKey.getContainerId());
+  }
+
+  /** @return the current container, for reading its metadata */
+  public KieContainer getContainer() {
+    return current.get().getContainer();
+  }
+
+  /**
+   * Registers a listener notified when the rules change.
+   *
+   * @param listener
+   */
+  public void addListener(ContainerUpdateListener listener) {
+    listeners.add(listener);
+  }
+
+  /**
+   * Registers a listener notified when the registry unloads a container.
+   *
+   * @param listener
+   */
+  public void addEvictionListener(ContainerEvictionListener listener) {
+    containerRegistry.addListener(listener);
+  }
+
+  /**
+   * Makes the given container current. New sessions are created from it and the previous one is
+   * disposed when its last session is gone.
+   *
+   * @param newContainer
+   */
+  public void swap(KieContainer newContainer) {
+
+    ContainerLease previous = current.getAndSet(new ContainerLease(newContainer));
+
+    logger.info(
+        "Swapped container {} for {}",
+        previous.getContainer().getReleaseId(),
+        newContainer.getReleaseId());
+
+    notifyListeners(newContainer);
+    previous.release();
+  }
+
+  /**
+   * Verifies and warms the staging container the scanner updated to the new release, then swaps it
+   * in and scans a new staging container. It runs on the swap thread.
+   *
+   * @param updated - staging container of the scanner that found the release
+   */
+  void hotSwap(KieContainer updated) {
+
+    // A later event of a scanner already replaced, or the first scan finding the current release
+    if (updated != stagingContainer
+        || updated.getReleaseId().equals(getContainer().getReleaseId())) {
+      return;
+    }
+    long start = System.currentTimeMillis();
+
+    // The scanner must not update the container once it serves requests
+    stagingScanner.shutdown();
+    stagingScanner = null;
+    stagingContainer = null;
+
+    try {
+      KieContainer newContainer;
+      try {
+        newContainer = containerBuilder.verify(updated);
+      } catch (RuntimeException e) {
+        logger.error("New release not swapped in, the current container is kept", e);
+        return;
+      }
+
+      try {
+        containerWarmer.warmUp(newContainer);
+      } catch (RuntimeException e) {
+        logger.error("Warm-up of the new release failed", e);
+      }
+
+      swap(newContainer);
+
+      logger.info("Hot swap done in {} ms", System.currentTimeMillis() - start);
+    } finally {
+      stage();
+    }
+  }
+
+  /**
+   * Creates the staging container of the configured release and starts a scanner on it. Its
+   * kieBases are only built once it is swapped in. It runs on the swap thread.
+   */
+  private void stage() {
+
+    KieServices kieService = KieServices.Factory.get();
+    KieContainer staged;
+    try {
+      staged = kieService.newKieContainer(containerBuilder.getReleaseId());
+    } catch (RuntimeException e) {
+      logger.error("Can not create the staging container, new releases are not swapped in", e);
+      return;
+    }
+
+    KieScanner scanner = kieService.newKieScanner(staged);
+    scanner.addListener(
+        new DefaultKieScannerEventListener() {
+          @Override
+          public void onKieScannerUpdateResultsEvent(KieScannerUpdateResultsEvent event) {
+            if (!swapExecutor.isShutdown()
+                && (null == event.getResults()
+                    || !event.getResults().hasMessages(Message.Level.ERROR))) {
+              swapExecutor.execute(() -> hotSwap(staged));
+            }
+          }
+        });
+
+    stagingContainer = staged;
+    stagingScanner = scanner;
+    scanner.start(releaseVersion.getScanInterval());
+  }
+
+  /** Stops the staging scanner and disposes its container. */
+  private void unstage() {
+
+    if (null != stagingScanner) {
+      stagingScanner.shutdown();
+      stagingContainer.dispose();
+      stagingScanner = null;
+      stagingContainer = null;
+    }
+  }
+
+  private void notifyListeners(KieContainer container) {
+
+    for (ContainerUpdateListener listener : listeners) {
+      try {
+        listener.containerUpdated(container);
+      } catch (RuntimeException e) {
+        logger.error("Container update listener failed", e);
+      }
+    }
+  }
+}
@@ -0,0 +1,91 @@
+/** */
+package rules.api.container;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.drools.core.base.ClassObjectType;
+import org.drools.core.impl.InternalKnowledgeBase;
+import org.drools.core.reteoo.ObjectTypeNode;
+import org.kie.api.KieBase;
+
+/**
+ * This class creates sample facts for a kieBase. The fact types are read from the object type nodes
+ * of the rule network, and one fact of each type is created with its no-arg constructor. Types
+ * without one are skipped. The facts only have default values, they exercise the constraints but
+ * are not expected to make many rules fire.
+ *
+ * @author chandresh.mishra
+ */
+final class SampleFactGenerator {
+
+  private static Logger logger = LogManager.getLogger(SampleFactGenerator.class);
+
+  private SampleFactGenerator() {
+    // static methods only
+  }
+
+  /**
+   * @param kieBase
+   * @return one fact of each type the rules match on
+   */
+  static List<Object> generate(KieBase kieBase) {
+
+    List<Object> facts = new ArrayList<>();
+
+    if (!(kieBase instanceof InternalKnowledgeBase)) {
+      return facts;
+    }
+
+    Set<Class<?>> factTypes = new LinkedHashSet<>();
+    for (ObjectTypeNode objectTypeNode :
+        ((InternalKnowledgeBase) kieBase).getRete().getObjectTypeNodes()) {
+      if (objectTypeNode.getObjectType() instanceof ClassObjectType) {
+        factTypes.add(((ClassObjectType) objectTypeNode.getObjectType()).getClassType());
+      }
+    }
+
+    for (Class<?> factType : factTypes) {
+      Object fact = newInstance(factType);
+      if (null != fact) {
+        facts.add(fact);
+      }
+    }
+    return facts;
+  }
+
+  /**
+   * @param kieBase
+   * @return the number of evaluations after which the constraints are compiled
+   */
+  static int getJittingThreshold(KieBase kieBase) {
+
+    return kieBase instanceof InternalKnowledgeBase
+        ? ((InternalKnowledgeBase) kieBase).getConfiguration().getJittingThreshold()
+        : 0;
+  }
+
+  private static Object newInstance(Class<?> factType) {
+
+    // Engine types such as the initial fact and JDK types are not sample facts
+    if (factType.isInterface()
+        || Modifier.isAbstract(factType.getModifiers())
+        || factType.getName().startsWith("java.")
+        || factType.getName().startsWith("org.drools.")) {
+      return null;
+    }
+    try {
+      Constructor<?> constructor = factType.getDeclaredConstructor();
+      constructor.setAccessible(true);
+      return constructor.newInstance();
+    } catch (ReflectiveOperationException | RuntimeException | LinkageError e) {
+      logger.debug("No sample fact of {}", factType.getName(), e);
+      return null;
+    }
+  }
+}
@@ -0,0 +1,75 @@
+/** */
+package rules.api.container;
+
+import javax.annotation.PostConstruct;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import rules.api.config.WarmupSettings;
+
+/**
+ * This class warms the startup container and holds the readiness of the engine. The engine is ready
+ * once the warm-up is complete, or at once when the startup warm-up is disabled. Requests are not
+ * refused before, the flag is meant for readiness probes and load balancers.
+ *
+ * @author chandresh.mishra
+ */
+@Component
+public class StartupWarmup {
+
+  private Logger logger = LogManager.getLogger(this);
+
+  @Autowired private WarmupSettings settings;
+
+  @Autowired private KieContainerManager containerManager;
+
+  @Autowired private ContainerWarmer containerWarmer;
+
+  private volatile boolean ready;
+
+  private volatile long warmupTime;
+
+  /** Warms the container during the context start or on a background thread. */
+  @PostConstruct
+  public void init() {
+
+    if (!settings.isStartup()) {
+      ready = true;
+      return;
+    }
+
+    if (settings.isBackground()) {
+      Thread thread = new Thread(this::warmUp, "rules-startup-warmup");
+      thread.setDaemon(true);
+      thread.start();
+    } else {
+      warmUp();
+    }
+  }
+
+  /** @return true once the startup container is warmed */
+  public boolean isReady() {
+    return ready;
+  }
+
+  /** @return the warm-up time in milliseconds, 0 until the warm-up is complete */
+  public long getWarmupTime() {
+    return warmupTime;
+  }
+
+  private void warmUp() {
+
+    ContainerLease lease = containerManager.acquire();
+    try {
+      warmupTime = containerWarmer.warmUp(lease.getContainer());
+      logger.info("Rules engine ready after a warm-up of {} ms", warmupTime);
+    } catch (RuntimeException e) {
+      // A failed warm-up makes the first requests slower, it does not stop the engine
+      logger.error("Startup warm-up failed", e);
+    } finally {
+      lease.release();
+      ready = true;
+    }
+  }
+}
@@ -0,0 +1,18 @@
+/** */
+package rules.api.container;
+
+import java.util.List;
+import rules.api.message.RulesRequest;
+
+/**
+ * Supplies sample requests fired on a new container before it serves real requests. Any Spring bean
+ * implementing this interface is picked up.
+ *
+ * @author chandresh.mishra
+ */
+@FunctionalInterface
+public interface WarmupRequestProvider {
+
+  /** @return requests with representative facts and globals */
+  List<RulesRequest> getWarmupRequests();
+}
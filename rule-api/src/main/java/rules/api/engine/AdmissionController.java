@@ -0,0 +1,157 @@
+/** */
+package rules.api.engine;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import javax.annotation.PostConstruct;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import rules.api.config.AdmissionSettings;
+import rules.api.enums.AdmissionPolicy;
+import rules.api.exception.RulesApiException;
+import rules.api.message.RulesRequest;
+import rules.api.message.RulesResponse;
+import rules.api.metrics.AdmissionMetrics;
+import rules.api.metrics.RulesMetrics;
+import rules.api.session.SessionKey;
+
+/**
+ * This class limits the number of requests running at the same time on each session key, so a burst
+ * on a heavy kieBase does not take every CPU from the other sessions. A request over the limit
+ * waits in a bounded queue, in arrival order, for at most maxWait milliseconds.
+ *
+ * <p>A request that finds the queue full or waits too long is rejected with a RulesApiException, or
+ * answered by the AdmissionFallback bean when the policy is fallback. The limit of a session is
+ * read from drools.admission.limits by its session or kieBase name, maxConcurrent otherwise.
+ *
+ * @author chandresh.mishra
+ */
+@Component
+public class AdmissionController {
+
+  private Logger logger = LogManager.getLogger(this);
+
+  @Autowired private AdmissionSettings settings;
+
+  @Autowired private RulesMetrics rulesMetrics;
+
+  @Autowired(required = false)
+  private AdmissionFallback admissionFallback;
+
+  private final ConcurrentMap<SessionKey, Limiter> limiters = new ConcurrentHashMap<>();
+
+  private Map<String, Integer> limits;
+
+  /** Reads the limits of the sessions. */
+  @PostConstruct
+  public void init() {
+    limits = settings.getLimits();
+  }
+
+  /** @return true if the requests are limited */
+  public boolean isEnabled() {
+    return settings.isEnabled();
+  }
+
+  /**
+   * Runs the request once the limit of its session key allows it.
+   *
+   * @param rulesRequest
+   * @param action - fires the rules of the request
+   * @return the response of the action, or of the fallback when the request is rejected
+   */
+  public RulesResponse admit(RulesRequest rulesRequest, Supplier<RulesResponse> action) {
+
+    SessionKey sessionKey = SessionKey.of(rulesRequest);
+
+    Limiter limiter = limiters.get(sessionKey);
+    if (null == limiter) {
+      limiter = limiters.computeIfAbsent(sessionKey, this::newLimiter);
+    }
+
+    if (!limiter.acquire()) {
+      return reject(rulesRequest, sessionKey, limiter);
+    }
+    try {
+      return action.get();
+    } finally {
+      limiter.permits.release();
+    }
+  }
+
+  private RulesResponse reject(RulesRequest rulesRequest, SessionKey sessionKey, Limiter limiter) {
+
+    if (settings.getPolicy() == AdmissionPolicy.FALLBACK && null != admissionFallback) {
+      limiter.metrics.fallback();
+      return admissionFallback.fallback(rulesRequest);
+    }
+    logger.warn("Session {} is busy. Request rejected", sessionKey);
+    throw new RulesApiException("Session " + sessionKey + " is busy. Request rejected");
+  }
+
+  private Limiter newLimiter(SessionKey sessionKey) {
+
+    Integer limit = null == sessionKey.getName() ? null : limits.get(sessionKey.getName());
+    return new Limiter(sessionKey, null == limit ? settings.getMaxConcurrent() : limit);
+  }
+
+  /** The permits and the waiting requests of one session key. */
+  private final class Limiter {
+
+    private final int limit;
+
+    private final Semaphore permits;
+
+    private final AtomicInteger waiting = new AtomicInteger();
+
+    private final AdmissionMetrics metrics;
+
+    private Limiter(SessionKey sessionKey, int limit) {
+      this.limit = limit;
+      // Fair, so the requests run in the order they arrived
+      this.permits = new Semaphore(limit, true);
+      this.metrics =
+          rulesMetrics.newAdmissionMetrics(
+              sessionKey, limit, () -> this.limit - permits.availablePermits(), waiting::get);
+    }
+
+    /** @return false when the queue is full or the request waited longer than maxWait */
+    private boolean acquire() {
+
+      // A barging tryAcquire would overtake the queued requests
+      if (waiting.get() == 0 && permits.tryAcquire()) {
+        metrics.admitted(0);
+        return true;
+      }
+
+      if (waiting.incrementAndGet() > settings.getQueueDepth()) {
+        waiting.decrementAndGet();
+        metrics.rejected();
+        return false;
+      }
+
+      long start = System.nanoTime();
+      try {
+        if (permits.tryAcquire(settings.getMaxWait(), TimeUnit.MILLISECONDS)) {
+          metrics.admitted(System.nanoTime() - start);
+          return true;
+        }
+        metrics.timedOut();
+        return false;
+
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new RulesApiException("Interrupted while waiting for a session");
+      } finally {
+        waiting.decrementAndGet();
+      }
+    }
+  }
+}
@@ -0,0 +1,21 @@
+/** */
+package rules.api.engine;
+
+import rules.api.message.RulesRequest;
+import rules.api.message.RulesResponse;
+
+/**
+ * Implemented by the application to answer the requests the admission control can not run, when
+ * drools.admission.policy is fallback. It may return a default or a cached response, and must not
+ * call the rule engine.
+ *
+ * @author chandresh.mishra
+ */
+public interface AdmissionFallback {
+
+  /**
+   * @param rulesRequest - the rejected request
+   * @return the response of the request
+   */
+  RulesResponse fallback(RulesRequest rulesRequest);
+}
@@ -0,0 +1,109 @@
+/** */
+package rules.api.engine;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import org.drools.core.command.impl.ExecutableCommand;
+import org.drools.core.command.impl.RegistryContext;
+import org.kie.api.runtime.Context;
+import org.kie.api.runtime.KieSession;
+import org.kie.api.runtime.rule.FactHandle;
+import rules.api.audit.AuditTrail;
+
+/**
+ * This command inserts the facts of a fact source in chunks. The rules can fire after every chunk,
+ * and the facts of a chunk can then be deleted so only one chunk is held in memory at a time. That
+ * is only correct for rules that do not join facts of different chunks. The facts of the last chunk
+ * are left to the fireAllRules that follows the command. The rules fired between the chunks count
+ * against the firing budget of the request.
+ *
+ * @author chandresh.mishra
+ */
+class ChunkedInsertCommand implements ExecutableCommand<Integer> {
+
+  private static final long serialVersionUID = 1L;
+
+  private final transient Iterator<?> factSource;
+
+  private final int chunkSize;
+
+  private final boolean fireBetweenChunks;
+
+  private final boolean retractProcessed;
+
+  private final transient AuditTrail auditTrail;
+
+  private final transient FiringBudget budget;
+
+  private int numberOfFiredRules;
+
+  /**
+   * @param factSource
+   * @param chunkSize
+   * @param fireBetweenChunks
+   * @param retractProcessed
+   * @param auditTrail
+   * @param budget - may be null
+   */
+  ChunkedInsertCommand(
+      Iterator<?> factSource,
+      int chunkSize,
+      boolean fireBetweenChunks,
+      boolean retractProcessed,
+      AuditTrail auditTrail,
+      FiringBudget budget) {
+    this.factSource = factSource;
+    this.chunkSize = chunkSize;
+    this.fireBetweenChunks = fireBetweenChunks;
+    this.retractProcessed = retractProcessed;
+    this.auditTrail = auditTrail;
+    this.budget = budget;
+  }
+
+  @Override
+  public Integer execute(Context context) {
+    return insertAll(((RegistryContext) context).lookup(KieSession.class));
+  }
+
+  /**
+   * Inserts all the facts of the source in the session.
+   *
+   * @param kSession
+   * @return int - the number of rules fired between the chunks
+   */
+  int insertAll(KieSession kSession) {
+
+    List<Object> chunk = new ArrayList<>(chunkSize);
+    List<FactHandle> factHandles = retractProcessed ? new ArrayList<>(chunkSize) : null;
+
+    while (factSource.hasNext()) {
+      Object fact = factSource.next();
+      FactHandle factHandle = kSession.insert(fact);
+      chunk.add(fact);
+      if (null != factHandles) {
+        factHandles.add(factHandle);
+      }
+
+      if (chunk.size() == chunkSize) {
+        auditTrail.factsInserted(chunk);
+        chunk.clear();
+
+        if (fireBetweenChunks && factSource.hasNext()) {
+          numberOfFiredRules += null == budget ? kSession.fireAllRules() : budget.fire(kSession);
+          if (null != factHandles) {
+            factHandles.forEach(kSession::delete);
+            factHandles.clear();
+          }
+        }
+      }
+    }
+    auditTrail.factsInserted(chunk);
+    return numberOfFiredRules;
+  }
+
+  /** @return the number of rules fired between the chunks */
+  int getNumberOfFiredRules() {
+    return numberOfFiredRules;
+  }
+}
@@ -0,0 +1,64 @@
+/** */
+package rules.api.engine;
+
+import java.util.Map;
+import org.drools.core.command.impl.ExecutableCommand;
+import org.drools.core.command.impl.RegistryContext;
+import org.kie.api.event.rule.AgendaEventListener;
+import org.kie.api.runtime.Channel;
+import org.kie.api.runtime.Context;
+import org.kie.api.runtime.KieSession;
+
+/**
+ * This command binds the listener, channel and globals of one request to the working memory that a
+ * stateless session creates for the execution. It must be the first command of the batch. Nothing
+ * is registered on the shared stateless session, so concurrent executions do not see each other's
+ * results.
+ *
+ * @author chandresh.mishra
+ */
+class ExecutionScopeCommand implements ExecutableCommand<Void> {
+
+  private static final long serialVersionUID = 1L;
+
+  private final transient AgendaEventListener agendaEventListener;
+
+  private final String channelName;
+
+  private final transient Channel channel;
+
+  private final transient Map<String, Object> globalElement;
+
+  /**
+   * @param agendaEventListener - may be null
+   * @param channelName
+   * @param channel
+   * @param globalElement - may be null
+   */
+  ExecutionScopeCommand(
+      AgendaEventListener agendaEventListener,
+      String channelName,
+      Channel channel,
+      Map<String, Object> globalElement) {
+    this.agendaEventListener = agendaEventListener;
+    this.channelName = channelName;
+    this.channel = channel;
+    this.globalElement = globalElement;
+  }
+
+  @Override
+  public Void execute(Context context) {
+
+    KieSession kSession = ((RegistryContext) context).lookup(KieSession.class);
+
+    if (null != agendaEventListener) {
+      kSession.addEventListener(agendaEventListener);
+    }
+    kSession.registerChannel(channelName, channel);
+
+    if (globalElement != null && globalElement.size() > 0) {
+      globalElement.forEach(kSession::setGlobal);
+    }
+    return null;
+  }
+}
@@ -0,0 +1,71 @@
+/** */
+package rules.api.engine;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * This class splits the facts of a sharded request by partition key. Facts with the same key are
+ * always in the same partition, so the rules joining them see all of them.
+ *
+ * @author chandresh.mishra
+ */
+final class FactPartitioner {
+
+  private FactPartitioner() {
+    // static methods only
+  }
+
+  /**
+   * Splits the facts. Facts without a key go to the first partition.
+   *
+   * @param facts - may be null
+   * @param factSource - may be null, it is read completely
+   * @param partitionKey
+   * @param partitions
+   * @return the facts of each partition
+   */
+  static List<List<Object>> partition(
+      List<Object> facts,
+      Iterator<?> factSource,
+      Function<Object, ?> partitionKey,
+      int partitions) {
+
+    int expectedSize = null == facts ? 16 : facts.size() / partitions + 1;
+
+    List<List<Object>> partitionFacts = new ArrayList<>(partitions);
+    for (int i = 0; i < partitions; i++) {
+      partitionFacts.add(new ArrayList<>(expectedSize));
+    }
+
+    if (null != facts) {
+      for (Object fact : facts) {
+        partitionFacts.get(indexOf(partitionKey.apply(fact), partitions)).add(fact);
+      }
+    }
+    if (null != factSource) {
+      while (factSource.hasNext()) {
+        Object fact = factSource.next();
+        partitionFacts.get(indexOf(partitionKey.apply(fact), partitions)).add(fact);
+      }
+    }
+    return partitionFacts;
+  }
+
+  /**
+   * @param key - may be null
+   * @param partitions
+   * @return the partition of the key
+   */
+  static int indexOf(Object key, int partitions) {
+
+    if (null == key) {
+      return 0;
+    }
+    int hash = key.hashCode();
+    // Spreads the high bits, as for the buckets of a HashMap
+    return Math.floorMod(hash ^ (hash >>> 16), partitions);
+  }
+}
@@ -0,0 +1,43 @@
+/** */
+package rules.api.engine;
+
+import org.drools.core.command.impl.RegistryContext;
+import org.drools.core.command.runtime.rule.FireAllRulesCommand;
+import org.drools.core.runtime.impl.ExecutionResultImpl;
+import org.kie.api.runtime.Context;
+import org.kie.api.runtime.KieSession;
+
+/**
+ * This command fires the rules of a stateless execution within the firing budget of the request, so
+ * the rules fired between the chunks of a fact source are taken from its maximum. The number of
+ * rules fired is set as the result of the out identifier. It is a FireAllRulesCommand so the
+ * stateless session does not fire the rules again at the end of the execution.
+ *
+ * @author chandresh.mishra
+ */
+class FireWithinBudgetCommand extends FireAllRulesCommand {
+
+  private static final long serialVersionUID = 1L;
+
+  private final transient FiringBudget budget;
+
+  /**
+   * @param budget
+   * @param outIdentifier
+   */
+  FireWithinBudgetCommand(FiringBudget budget, String outIdentifier) {
+    super(outIdentifier);
+    this.budget = budget;
+  }
+
+  @Override
+  public Integer execute(Context context) {
+
+    int fired = budget.fire(((RegistryContext) context).lookup(KieSession.class));
+
+    ((RegistryContext) context)
+        .lookup(ExecutionResultImpl.class)
+        .setResult(getOutIdentifier(), fired);
+    return fired;
+  }
+}
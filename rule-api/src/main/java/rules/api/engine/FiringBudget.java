@@ -0,0 +1,186 @@
+/** */
+package rules.api.engine;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import org.kie.api.definition.rule.Rule;
+import org.kie.api.event.rule.AfterMatchFiredEvent;
+import org.kie.api.event.rule.DefaultAgendaEventListener;
+import org.kie.api.runtime.KieSession;
+import org.kie.api.runtime.rule.AgendaFilter;
+import org.kie.api.runtime.rule.Match;
+import rules.api.enums.FiringStatus;
+
+/**
+ * This class holds the limits of the firing of one request. It counts the firings of each rule, so
+ * the response can name the rules that fired the most when the limits stopped the firing. Every
+ * fireAllRules of the request goes through the budget, which gives it the number of rules left to
+ * fire, and filters the matches so none fires once its watchdog marked the timeout.
+ *
+ * <p>When the timeout passes while the rules are firing, the watchdog also halts the session, so a
+ * runaway firing stops without evaluating the rules left. A consequence running at the timeout ends
+ * first. The filter covers the timeouts passing between two fires. It is meant for one request on
+ * one thread, only the watchdog runs on another one.
+ *
+ * @author chandresh.mishra
+ */
+class FiringBudget extends DefaultAgendaEventListener implements AgendaFilter {
+
+  private final long timeout;
+
+  private final int maxRulesFired;
+
+  // Firings of each rule by its package and name
+  private final Map<String, int[]> firings = new HashMap<>();
+
+  // Rules fired through the budget
+  private int fired;
+
+  private volatile boolean timedOut;
+
+  // Session firing through the budget, halted by the watchdog at the timeout
+  private volatile KieSession firing;
+
+  // The watchdog halted a firing
+  private volatile boolean halted;
+
+  // A match was left unfired at the timeout
+  private boolean cutShort;
+
+  private ScheduledFuture<?> watchdog;
+
+  /**
+   * @param timeout - in milliseconds, 0 for no timeout
+   * @param maxRulesFired - 0 for no maximum
+   */
+  FiringBudget(long timeout, int maxRulesFired) {
+    this.timeout = timeout;
+    this.maxRulesFired = maxRulesFired;
+  }
+
+  /**
+   * Starts the watchdog marking the timeout and halting the firing session.
+   *
+   * @param scheduler
+   */
+  void start(ScheduledExecutorService scheduler) {
+
+    if (timeout > 0) {
+      watchdog = scheduler.schedule(this::timeOut, timeout, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  /**
+   * Fires the rules of the session within what is left of the budget. Nothing fires once the
+   * maximum is reached.
+   *
+   * @param kSession
+   * @return the number of rules fired
+   */
+  int fire(KieSession kSession) {
+
+    if (maxRulesFired > 0 && fired >= maxRulesFired) {
+      return 0;
+    }
+
+    int count;
+    firing = kSession;
+    try {
+      count =
+          maxRulesFired <= 0
+              ? kSession.fireAllRules(this)
+              : kSession.fireAllRules(this, maxRulesFired - fired);
+    } finally {
+      firing = null;
+    }
+    if (halted) {
+      cutShort = true;
+    }
+    fired += count;
+    return count;
+  }
+
+  /** Stops the watchdog once the rules are fired. */
+  void stop() {
+
+    if (null != watchdog) {
+      watchdog.cancel(false);
+    }
+  }
+
+  /** @return the maximum of the request, -1 for no maximum */
+  int getMaxRulesFired() {
+    return maxRulesFired > 0 ? maxRulesFired : -1;
+  }
+
+  /**
+   * @param numberOfRulesFired
+   * @return how the firing ended. Reaching the maximum counts as stopped, even when no other rule
+   *     was left to fire, the timeout only when a match was left unfired
+   */
+  FiringStatus getStatus(int numberOfRulesFired) {
+
+    if (cutShort) {
+      return FiringStatus.TIMED_OUT;
+    }
+    if (maxRulesFired > 0 && numberOfRulesFired >= maxRulesFired) {
+      return FiringStatus.MAX_RULES_FIRED;
+    }
+    return FiringStatus.COMPLETED;
+  }
+
+  /**
+   * @param count
+   * @return the rules that fired the most, most fired first
+   */
+  List<String> getHotRules(int count) {
+
+    if (firings.isEmpty()) {
+      return Collections.emptyList();
+    }
+
+    List<Map.Entry<String, int[]>> rules = new ArrayList<>(firings.entrySet());
+    rules.sort((first, second) -> Integer.compare(second.getValue()[0], first.getValue()[0]));
+
+    List<String> hotRules = new ArrayList<>(Math.min(count, rules.size()));
+    for (Map.Entry<String, int[]> rule : rules.subList(0, Math.min(count, rules.size()))) {
+      hotRules.add(rule.getKey() + " (" + rule.getValue()[0] + ")");
+    }
+    return hotRules;
+  }
+
+  /** Marks the timeout and halts the session firing, if any. It runs on the watchdog thread. */
+  private void timeOut() {
+
+    timedOut = true;
+    KieSession kSession = firing;
+    if (null != kSession) {
+      halted = true;
+      kSession.halt();
+    }
+  }
+
+  /** Rejects the matches once the timeout is reached, they are cancelled without firing. */
+  @Override
+  public boolean accept(Match match) {
+
+    if (timedOut) {
+      cutShort = true;
+      return false;
+    }
+    return true;
+  }
+
+  @Override
+  public void afterMatchFired(AfterMatchFiredEvent event) {
+
+    Rule rule = event.getMatch().getRule();
+    firings.computeIfAbsent(rule.getPackageName() + "." + rule.getName(), name -> new int[1])[0]++;
+  }
+}
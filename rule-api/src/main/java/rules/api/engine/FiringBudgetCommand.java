@@ -0,0 +1,42 @@
+/** */
+package rules.api.engine;
+
+import java.util.concurrent.ScheduledExecutorService;
+import org.drools.core.command.impl.ExecutableCommand;
+import org.drools.core.command.impl.RegistryContext;
+import org.kie.api.runtime.Context;
+import org.kie.api.runtime.KieSession;
+
+/**
+ * This command binds the firing budget of one request to the working memory that a stateless
+ * session creates for the execution, and starts its watchdog. It must come before the inserts.
+ *
+ * @author chandresh.mishra
+ */
+class FiringBudgetCommand implements ExecutableCommand<Void> {
+
+  private static final long serialVersionUID = 1L;
+
+  private final transient FiringBudget budget;
+
+  private final transient ScheduledExecutorService scheduler;
+
+  /**
+   * @param budget
+   * @param scheduler
+   */
+  FiringBudgetCommand(FiringBudget budget, ScheduledExecutorService scheduler) {
+    this.budget = budget;
+    this.scheduler = scheduler;
+  }
+
+  @Override
+  public Void execute(Context context) {
+
+    KieSession kSession = ((RegistryContext) context).lookup(KieSession.class);
+
+    kSession.addEventListener(budget);
+    budget.start(scheduler);
+    return null;
+  }
+}
@@ -0,0 +1,88 @@
+/** */
+package rules.api.engine;
+
+import java.util.List;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import javax.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import rules.api.config.FiringLimitSettings;
+import rules.api.enums.FiringStatus;
+import rules.api.message.RulesRequest;
+import rules.api.message.RulesResponse;
+
+/**
+ * This class creates the firing budget of a request from its limits, or from the configured ones,
+ * and runs the watchdogs of every budget on one daemon thread.
+ *
+ * @author chandresh.mishra
+ */
+@Component
+class FiringWatchdog {
+
+  @Autowired private FiringLimitSettings settings;
+
+  private final ScheduledThreadPoolExecutor scheduler;
+
+  FiringWatchdog() {
+    scheduler =
+        new ScheduledThreadPoolExecutor(
+            1,
+            runnable -> {
+              Thread thread = new Thread(runnable, "rules-firing-watchdog");
+              thread.setDaemon(true);
+              return thread;
+            });
+    // Most requests end before their timeout, the cancelled watchdogs are not kept
+    scheduler.setRemoveOnCancelPolicy(true);
+  }
+
+  /** Stops the watchdog thread. */
+  @PreDestroy
+  public void shutdown() {
+    scheduler.shutdownNow();
+  }
+
+  /**
+   * @param rulesRequest
+   * @return the budget of the request, or null when it has no limit
+   */
+  FiringBudget newBudget(RulesRequest rulesRequest) {
+
+    long timeout =
+        rulesRequest.getTimeout() > 0 ? rulesRequest.getTimeout() : settings.getTimeout();
+    int maxRulesFired =
+        rulesRequest.getMaxRulesFired() > 0
+            ? rulesRequest.getMaxRulesFired()
+            : settings.getMaxRulesFired();
+
+    return timeout <= 0 && maxRulesFired <= 0 ? null : new FiringBudget(timeout, maxRulesFired);
+  }
+
+  /** @return the scheduler running the watchdogs */
+  ScheduledThreadPoolExecutor getScheduler() {
+    return scheduler;
+  }
+
+  /**
+   * @param budget - may be null
+   * @param numberOfRulesFired
+   * @param factsFromSession
+   * @return the response, naming the hot rules when the firing was stopped
+   */
+  RulesResponse newResponse(
+      FiringBudget budget, int numberOfRulesFired, List<Object> factsFromSession) {
+
+    FiringStatus firingStatus =
+        null == budget ? FiringStatus.COMPLETED : budget.getStatus(numberOfRulesFired);
+
+    if (firingStatus == FiringStatus.COMPLETED) {
+      return new RulesResponse(numberOfRulesFired, factsFromSession);
+    }
+    return new RulesResponse(
+        numberOfRulesFired,
+        factsFromSession,
+        firingStatus,
+        budget.getHotRules(settings.getHotRules()));
+  }
+}
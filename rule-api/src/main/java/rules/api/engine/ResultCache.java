@@ -0,0 +1,300 @@
+/** */
+package rules.api.engine;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.PostConstruct;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.kie.api.builder.ReleaseId;
+import org.kie.api.runtime.KieContainer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import rules.api.config.ResultCacheSettings;
+import rules.api.container.KieContainerManager;
+import rules.api.message.RulesRequest;
+import rules.api.message.RulesResponse;
+import rules.api.metrics.ResultCacheMetrics;
+import rules.api.metrics.RulesMetrics;
+import rules.api.session.SessionKey;
+
+/**
+ * This class caches the responses of stateless requests. A response is keyed by the session key,
+ * the kjar release, the facts, the globals and the requested classes, so a request repeating an
+ * earlier one is answered without running the rules.
+ *
+ * <p>It is only correct for rules that always give the same result for the same facts and globals,
+ * and that report through the channel rather than by changing the facts: the facts of a cached
+ * request are not changed. Facts and globals are compared with equals and hashCode, objects without
+ * them never match. The cache is cleared when the rules change, and it holds at most maxEntries
+ * responses for at most ttl milliseconds, the oldest being evicted first.
+ *
+ * @author chandresh.mishra
+ */
+@Component
+public class ResultCache {
+
+  private Logger logger = LogManager.getLogger(this);
+
+  @Autowired private ResultCacheSettings settings;
+
+  @Autowired private KieContainerManager containerManager;
+
+  @Autowired private RulesMetrics rulesMetrics;
+
+  private final ConcurrentMap<Key, CachedResponse> responses = new ConcurrentHashMap<>();
+
+  // Responses in the order they were cached, may hold responses already removed
+  private final Queue<CachedResponse> insertionOrder = new ConcurrentLinkedQueue<>();
+
+  private final AtomicInteger queued = new AtomicInteger();
+
+  // Responses of requests started before the current generation are not cached
+  private final AtomicLong generation = new AtomicLong();
+
+  private ResultCacheMetrics metrics;
+
+  /** Registers the cache with the container manager and publishes its metrics. */
+  @PostConstruct
+  public void init() {
+
+    if (settings.isEnabled()) {
+      metrics = rulesMetrics.newResultCacheMetrics(responses::size);
+      containerManager.addListener(container -> invalidateAll());
+      // A container of the registry may be built from a newer release when it is loaded again
+      containerManager.addEvictionListener(
+          containerId ->
+              responses
+                  .keySet()
+                  .removeIf(key -> containerId.equals(key.sessionKey.getContainerId())));
+    }
+  }
+
+  /** @return true if the cache is enabled */
+  public boolean isEnabled() {
+    return settings.isEnabled();
+  }
+
+  /**
+   * @param rulesRequest
+   * @param returnedFactsClass
+   * @return the key of the request, or null when the cache is disabled or the request streams its
+   *     facts
+   */
+  public Key newKey(RulesRequest rulesRequest, List<Class> returnedFactsClass) {
+
+    if (!settings.isEnabled() || null != rulesRequest.getFactSource()) {
+      return null;
+    }
+
+    SessionKey sessionKey = SessionKey.of(rulesRequest);
+
+    // The session key names the container of the registry
+    KieContainer kContainer =
+        null == sessionKey.getContainerId() ? containerManager.getContainer() : null;
+    ReleaseId releaseId = null == kContainer ? null : kContainer.getReleaseId();
+
+    return new Key(
+        sessionKey,
+        null == releaseId ? null : releaseId.toExternalForm(),
+        rulesRequest.getFacts(),
+        rulesRequest.getGlobalElement(),
+        returnedFactsClass,
+        generation.get());
+  }
+
+  /**
+   * @param key - may be null
+   * @return a copy of the cached response, or null
+   */
+  public RulesResponse get(Key key) {
+
+    if (null == key) {
+      return null;
+    }
+
+    CachedResponse cachedResponse = responses.get(key);
+
+    if (null != cachedResponse && cachedResponse.isExpired(System.nanoTime())) {
+      if (responses.remove(key, cachedResponse)) {
+        metrics.expired();
+      }
+      cachedResponse = null;
+    }
+
+    if (null == cachedResponse) {
+      metrics.miss();
+      return null;
+    }
+    metrics.hit();
+    return cachedResponse.newResponse();
+  }
+
+  /**
+   * Caches the response of a request. It is dropped when the rules changed while it was run, or
+   * when the firing was stopped by the limits of the request.
+   *
+   * @param key - may be null
+   * @param rulesResponse
+   */
+  public void put(Key key, RulesResponse rulesResponse) {
+
+    // A response stopped by the limits of the request depends on timing
+    if (null == key
+        || null == rulesResponse
+        || rulesResponse.isFailed()
+        || rulesResponse.isPartial()) {
+      return;
+    }
+
+    if (key.generation != generation.get()) {
+      return;
+    }
+
+    CachedResponse cachedResponse =
+        new CachedResponse(
+            key,
+            rulesResponse,
+            TimeUnit.MILLISECONDS.toNanos(settings.getTtl()),
+            System.nanoTime());
+
+    responses.put(key, cachedResponse);
+    insertionOrder.add(cachedResponse);
+
+    int size = queued.incrementAndGet();
+    while (size > settings.getMaxEntries()) {
+      CachedResponse oldest = insertionOrder.poll();
+      if (null == oldest) {
+        break;
+      }
+      size = queued.decrementAndGet();
+      if (responses.remove(oldest.key, oldest)) {
+        metrics.evicted();
+      }
+    }
+
+    // Cleared while the response was being cached
+    if (key.generation != generation.get()) {
+      responses.remove(key, cachedResponse);
+    }
+  }
+
+  /** Drops every cached response. It is called when a new kjar is deployed. */
+  public void invalidateAll() {
+
+    generation.incrementAndGet();
+    responses.clear();
+
+    CachedResponse dropped = insertionOrder.poll();
+    while (null != dropped) {
+      queued.decrementAndGet();
+      dropped = insertionOrder.poll();
+    }
+    if (null != metrics) {
+      metrics.invalidated();
+    }
+    logger.info("Stateless response cache invalidated");
+  }
+
+  /** @return number of cached responses */
+  public int size() {
+    return responses.size();
+  }
+
+  /**
+   * Key of a stateless request. The facts, globals and requested classes are copied, so the caller
+   * may reuse its lists, and the hash is computed once.
+   */
+  public static final class Key {
+
+    private final SessionKey sessionKey;
+    private final String releaseId;
+    private final List<Object> facts;
+    private final Map<String, Object> globals;
+    private final List<Class> returnedFactsClass;
+    private final long generation;
+    private final int hash;
+
+    private Key(
+        SessionKey sessionKey,
+        String releaseId,
+        List<Object> facts,
+        Map<String, Object> globals,
+        List<Class> returnedFactsClass,
+        long generation) {
+      this.sessionKey = sessionKey;
+      this.releaseId = releaseId;
+      this.facts = null == facts ? null : new ArrayList<>(facts);
+      this.globals = null == globals ? null : new HashMap<>(globals);
+      this.returnedFactsClass =
+          null == returnedFactsClass ? null : new ArrayList<>(returnedFactsClass);
+      this.generation = generation;
+      this.hash =
+          Objects.hash(
+              this.sessionKey, this.releaseId, this.facts, this.globals, this.returnedFactsClass);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) obj;
+      return hash == other.hash
+          && sessionKey.equals(other.sessionKey)
+          && Objects.equals(releaseId, other.releaseId)
+          && Objects.equals(returnedFactsClass, other.returnedFactsClass)
+          && Objects.equals(globals, other.globals)
+          && Objects.equals(facts, other.facts);
+    }
+  }
+
+  /** A cached response along with its key and expiry. */
+  private static final class CachedResponse {
+
+    private final Key key;
+    private final int numberOfRulesFired;
+    private final List<Object> factsFromSession;
+    private final long ttlNanos;
+    private final long cachedAt;
+
+    private CachedResponse(Key key, RulesResponse rulesResponse, long ttlNanos, long cachedAt) {
+      this.key = key;
+      this.numberOfRulesFired = rulesResponse.getNumberOfRulesFired();
+      this.factsFromSession =
+          null == rulesResponse.getFactsFromSession()
+              ? null
+              : new ArrayList<>(rulesResponse.getFactsFromSession());
+      this.ttlNanos = ttlNanos;
+      this.cachedAt = cachedAt;
+    }
+
+    private boolean isExpired(long now) {
+      return ttlNanos > 0 && now - cachedAt > ttlNanos;
+    }
+
+    private RulesResponse newResponse() {
+      return new RulesResponse(
+          numberOfRulesFired, null == factsFromSession ? null : new ArrayList<>(factsFromSession));
+    }
+  }
+}
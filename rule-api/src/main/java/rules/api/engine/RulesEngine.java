@@ -1,8 +1,12 @@
 package rules.api.engine;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import org.kie.api.runtime.Channel;
+import rules.api.message.FactChanges;
 import rules.api.message.RulesRequest;
 import rules.api.message.RulesResponse;
+import rules.api.stream.EventStream;
 
 /**
  * This interface has method to fire rules by passing the RulesRequest and get the response.
@@ -29,4 +33,91 @@ public interface RulesEngine {
    * @return RulesResponse
    */
   RulesResponse fireRules(RulesRequest rulesRequestParams, List<Class> returnedFactsClass);
+
+  /**
+   * This method fires the rules for a batch of requests in parallel. Requests for the same session
+   * are run together so pooled and cached sessions are reused.
+   *
+   * @param rulesRequests - Requests to run
+   * @param returnedFactsClass - List of class for facts returned from session.
+   * @return List of RulesResponse in the order of the requests. A request that failed has a
+   *     response with the failure.
+   */
+  List<RulesResponse> fireRulesBatch(
+      List<RulesRequest> rulesRequests, List<Class> returnedFactsClass);
+
+  /**
+   * This method fires the rules on the async executor and returns at once.
+   *
+   * @param rulesRequestParams - All the parameter required to fire the rule
+   * @param returnedFactsClass - List of class for facts returned from session.
+   * @return CompletableFuture of the RulesResponse. It completes exceptionally with
+   *     the error of the request, or with RulesApiException when the executor is full.
+   */
+  CompletableFuture<RulesResponse> fireRulesAsync(
+      RulesRequest rulesRequestParams, List<Class> returnedFactsClass);
+
+  /**
+   * This method opens a stateful session kept across requests, inserts the facts of the request and
+   * fires the rules.
+   *
+   * @param sessionId - Id used by the following requests
+   * @param rulesRequestParams - Session, globals and initial facts
+   * @param returnedFactsClass - List of class for facts returned from session.
+   * @return RulesResponse
+   */
+  RulesResponse openSession(
+      String sessionId, RulesRequest rulesRequestParams, List<Class> returnedFactsClass);
+
+  /**
+   * This method inserts, updates and deletes facts of an open session by their key and fires the
+   * rules again.
+   *
+   * @param sessionId - Id of the open session
+   * @param factChanges - Changes since the last request, may be null
+   * @param returnedFactsClass - List of class for facts returned from session.
+   * @return RulesResponse with the facts returned by this request only
+   */
+  RulesResponse fireSession(
+      String sessionId, FactChanges factChanges, List<Class> returnedFactsClass);
+
+  /**
+   * This method closes an open session.
+   *
+   * @param sessionId - Id of the open session
+   * @return false when no session is open with the id
+   */
+  boolean closeSession(String sessionId);
+
+  /**
+   * This method opens an event stream. The session runs in fireUntilHalt on its own thread and the
+   * events offered to the stream are inserted in batches.
+   *
+   * @param streamId - Id of the stream
+   * @param rulesRequestParams - Session, globals and facts inserted before the events
+   * @param resultChannel - Receives the facts sent by the rules, may be null
+   * @return EventStream
+   */
+  EventStream openEventStream(
+      String streamId, RulesRequest rulesRequestParams, Channel resultChannel);
+
+  /**
+   * @param streamId - Id of the stream
+   * @return EventStream or null when no stream is open with the id
+   */
+  EventStream getEventStream(String streamId);
+
+  /**
+   * This method inserts the events already offered to the stream, halts and disposes its session.
+   *
+   * @param streamId - Id of the stream
+   * @return false when no stream is open with the id
+   */
+  boolean closeEventStream(String streamId);
+
+  /**
+   * @return true once the startup warm-up is complete, or at once when it is disabled. It is meant
+   *     for readiness probes
+   */
+  boolean isReady();
 }
@@ -2,26 +2,45 @@
 package rules.api.engine;
 
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.PostConstruct;
 import org.apache.commons.collections4.CollectionUtils;
-import org.apache.commons.lang.StringUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.kie.api.KieServices;
 import org.kie.api.command.Command;
+import org.kie.api.runtime.Channel;
 import org.kie.api.runtime.ExecutionResults;
-import org.kie.api.runtime.KieContainer;
 import org.kie.api.runtime.KieSession;
 import org.kie.api.runtime.StatelessKieSession;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
-import rules.api.channels.SendData;
+import rules.api.audit.AuditTrail;
+import rules.api.channels.ResultCollector;
+import rules.api.config.StreamingSettings;
+import rules.api.container.ContainerLease;
+import rules.api.container.KieContainerManager;
+import rules.api.enums.FiringStatus;
 import rules.api.exception.RulesApiException;
 import rules.api.listener.RuleAgendaListener;
+import rules.api.message.FactChanges;
 import rules.api.message.RulesRequest;
 import rules.api.message.RulesResponse;
+import rules.api.metrics.RulesMetrics;
+import rules.api.metrics.SessionMetrics;
+import rules.api.profiler.RuleProfiler;
+import rules.api.session.KieSessionFactory;
+import rules.api.session.LongLivedSession;
+import rules.api.session.LongLivedSessionRegistry;
+import rules.api.session.SessionKey;
+import rules.api.session.SessionSnapshots;
+import rules.api.session.StatefulSessionPool;
+import rules.api.session.StatelessSessionCache;
+import rules.api.stream.EventStream;
+import rules.api.stream.EventStreamManager;
 
 /**
  * This class contains helper method used by the rule engine.It has default visibility.
@@ -31,14 +50,54 @@ import rules.api.message.RulesResponse;
 @Component
 class RulesEngineHelper {
 
-  @Autowired private KieContainer kContainer;
+  @Autowired private KieContainerManager containerManager;
+
+  @Autowired private KieSessionFactory sessionFactory;
+
+  @Autowired private StatefulSessionPool statefulSessionPool;
+
+  @Autowired private StatelessSessionCache statelessSessionCache;
+
+  @Autowired private LongLivedSessionRegistry longLivedSessionRegistry;
+
+  @Autowired private EventStreamManager eventStreamManager;
+
+  @Autowired private AuditTrail auditTrail;
+
+  @Autowired private RulesMetrics rulesMetrics;
+
+  @Autowired private StreamingSettings streamingSettings;
+
+  @Autowired private FiringWatchdog firingWatchdog;
+
+  @Autowired private RuleProfiler ruleProfiler;
+
+  @Autowired private SessionSnapshots sessionSnapshots;
+
+  // Number of facts returned by the last request of each session
+  private final Map<SessionKey, Integer> resultSizeHints = new ConcurrentHashMap<>();
 
   private Logger logger = LogManager.getLogger(this);
 
   private KieServices kieService = KieServices.Factory.get();
 
+  /** Opens the long lived sessions of the snapshots written when the engine last stopped. */
+  @PostConstruct
+  public void init() {
+
+    sessionSnapshots.restoreAll(
+        kSession -> {
+          // As when the session was opened, the globals of the requests are not kept
+          RuleAgendaListener ruleAgendaListner = newRuleAgendaListener();
+          if (null != ruleAgendaListner) {
+            kSession.addEventListener(ruleAgendaListner);
+          }
+        });
+  }
+
   /**
-   * This method returns the state full kieSession from the container
+   * This method returns the state full kieSession from the session pool. A new session is created
+   * from the current container when no idle session is available.
    *
    * @param rulesRequestParams
    * @return KieSession
@@ -47,34 +106,23 @@ class RulesEngineHelper {
 
     logger.traceEntry("START - method - [getStatefulKieSession(RulesRequest)]");
 
-    if (null == kContainer) {
+    if (null == containerManager.getContainer()) {
       logger.error("Can not initialise container");
 
       throw new RulesApiException("an not initialise container");
     }
 
-    KieSession kSession = null;
-
-    // Getting a default kiesession from kieBase if kiebase name is provided
-    if (rulesRequestParams.isBuildSessionByKieBase()
-        && !StringUtils.isEmpty(rulesRequestParams.getKieBasename())) {
-
-      kSession = kContainer.getKieBase(rulesRequestParams.getKieBasename()).newKieSession();
-    }
-
-    // If session type passed is state full and session name is given
-    else if (!rulesRequestParams.isBuildSessionByKieBase()
-        && !StringUtils.isEmpty(rulesRequestParams.getSessionName())) {
+    SessionKey sessionKey = SessionKey.of(rulesRequestParams);
 
-      logger.debug("Initialise session with session name {}" + rulesRequestParams.getSessionName());
-      // Initialise session with session name
-      kSession = kContainer.newKieSession(rulesRequestParams.getSessionName());
+    long start = System.nanoTime();
 
-    } else {
+    KieSession kSession =
+        statefulSessionPool.borrow(
+            sessionKey, kContainer -> sessionFactory.newKieSession(kContainer, sessionKey));
 
-      logger.debug("Getting a default kiesession from Container");
-      // Getting a default kiesession from Container
-      kSession = kContainer.newKieSession();
+    SessionMetrics sessionMetrics = rulesMetrics.getSessionMetrics(sessionKey);
+    if (null != sessionMetrics) {
+      sessionMetrics.acquired(System.nanoTime() - start);
     }
 
     logger.traceExit("END - method - [getStatefulKieSession(RulesRequest)]");
@@ -82,7 +130,8 @@ class RulesEngineHelper {
   }
 
   /**
-   * This method returns the state less kieSession from the container
+   * This method returns the state less kieSession cached for the session key. The session is
+   * created from the current container on first use.
    *
    * @param rulesRequestParams
    * @return StatelessKieSession
@@ -91,36 +140,24 @@ class RulesEngineHelper {
 
     logger.traceEntry("START - method - [getStatelessKieSession(RulesRequest)]");
 
-    if (null == kContainer) {
+    if (null == containerManager.getContainer()) {
       logger.error("Can not initialise container");
 
       throw new RulesApiException("an not initialise container");
     }
 
-    StatelessKieSession statelessKieSession = null;
-
-    // Getting a default session from kieBase if kiebase name is provided
-    if (rulesRequestParams.isBuildSessionByKieBase()
-        && !StringUtils.isEmpty(rulesRequestParams.getKieBasename())) {
-
-      statelessKieSession =
-          kContainer.getKieBase(rulesRequestParams.getKieBasename()).newStatelessKieSession();
+    SessionKey sessionKey = SessionKey.of(rulesRequestParams);
 
-    }
-    // If session type passed is state less and session name is given
-    else if (!rulesRequestParams.isBuildSessionByKieBase()
-        && !StringUtils.isEmpty(rulesRequestParams.getSessionName())) {
+    long start = System.nanoTime();
 
-      logger.debug(
-          "Initialise state less session with session name {}"
-              + rulesRequestParams.getSessionName());
-      // Initialise session with session name
-      statelessKieSession = kContainer.newStatelessKieSession(rulesRequestParams.getSessionName());
+    StatelessKieSession statelessKieSession =
+        statelessSessionCache.get(
+            sessionKey,
+            kContainer -> sessionFactory.newStatelessKieSession(kContainer, sessionKey));
 
-    } else {
-      logger.debug("Getting a default StatelessKieSession from Container");
-      // Getting a default StatelessKieSession from Container
-      statelessKieSession = kContainer.newStatelessKieSession();
+    SessionMetrics sessionMetrics = rulesMetrics.getSessionMetrics(sessionKey);
+    if (null != sessionMetrics) {
+      sessionMetrics.acquired(System.nanoTime() - start);
     }
 
     logger.traceExit("END - method - [getStatelessKieSession(RulesRequest)]");
@@ -144,34 +181,65 @@ class RulesEngineHelper {
 
       int numberOfFiredRules = 0;
       List<Object> factsFromSession = null;
+      boolean completed = false;
 
-      RuleAgendaListener ruleAgendaListner = new RuleAgendaListener();
+      // Null when the request has no limit
+      FiringBudget budget = firingWatchdog.newBudget(droolsParam);
 
-      SendData sendDataChannel = new SendData();
+      try {
+        RuleAgendaListener ruleAgendaListner = newRuleAgendaListener();
 
-      //Adding the listener to session
-      kSession.addEventListener(ruleAgendaListner);
+        SessionKey sessionKey = SessionKey.of(droolsParam);
 
-      //Adding the channel to session
-      kSession.registerChannel("send-channel", sendDataChannel);
+        ResultCollector resultCollector = newResultCollector(sessionKey);
 
-      // Setting global variables and Services
-      setGlobalElement(kSession, droolsParam.getGlobalElement());
+        //Adding the listener to session
+        if (null != ruleAgendaListner) {
+          kSession.addEventListener(ruleAgendaListner);
+        }
 
-      // firing rules by passing the facts
-      numberOfFiredRules = fireRulesWithFact(kSession, droolsParam.getFacts());
+        //Adding the channel to session
+        kSession.registerChannel("send-channel", resultCollector);
 
-      if (!CollectionUtils.isEmpty(returnedFactsClass)) {
-        // filter the facts that has been returned from session
-        factsFromSession = filterFacts(sendDataChannel, returnedFactsClass);
-      } else factsFromSession = sendDataChannel.getNewObjectInsterted();
+        // Setting global variables and Services
+        setGlobalElement(kSession, droolsParam.getGlobalElement());
+
+        // firing rules by passing the facts
+        numberOfFiredRules =
+            fireRulesWithFact(
+                kSession,
+                droolsParam.getFacts(),
+                droolsParam.getFactSource(),
+                rulesMetrics.getSessionMetrics(sessionKey),
+                budget);
+
+        if (!CollectionUtils.isEmpty(returnedFactsClass)) {
+          // filter the facts that has been returned from session
+          factsFromSession = resultCollector.getResults(returnedFactsClass);
+        } else factsFromSession = resultCollector.getResults();
+
+        resultSizeHints.put(sessionKey, resultCollector.size());
 
-      // disposing the session
-      kSession.dispose();
+        auditTrail.factsInserted(droolsParam.getFacts());
+        auditTrail.factsEmitted(resultCollector.getResults());
+        auditTrail.requestCompleted(droolsParam, numberOfFiredRules);
+
+        completed = true;
+
+      } finally {
+        // handing the session back to the pool. A failed or stopped session is disposed, as its
+        // agenda and a pending halt would carry over to the next request
+        if (completed
+            && (null == budget || budget.getStatus(numberOfFiredRules) == FiringStatus.COMPLETED)) {
+          statefulSessionPool.release(kSession);
+        } else {
+          statefulSessionPool.invalidate(kSession);
+        }
+      }
 
       logger.traceEntry("END - method - [fireStatefulRules(KieSession,RulesRequest,List<Class>)]");
 
-      return new RulesResponse(numberOfFiredRules, factsFromSession);
+      return firingWatchdog.newResponse(budget, numberOfFiredRules, factsFromSession);
     } else {
       logger.error("KieSession and RulesRequest are mandatory feilds");
       throw new RulesApiException("KieSession and RulesRequest are mandatory feilds");
@@ -193,51 +261,110 @@ class RulesEngineHelper {
 
     logger.traceEntry("START - method - [fireRuleStateless(KieSession,RulesRequest,List<Class>)]");
 
-    RuleAgendaListener ruleAgendaListner = new RuleAgendaListener();
-
-    SendData sendDataChannel = new SendData();
+    RuleAgendaListener ruleAgendaListner = newRuleAgendaListener();
 
     if (null != statelessKieSession && null != rulesRequest) {
 
+      SessionKey sessionKey = SessionKey.of(rulesRequest);
+
+      ResultCollector resultCollector = newResultCollector(sessionKey);
+
       int numberOfFiredRules = 0;
       List<Object> factsFromSession = null;
 
-      // Setting global variables and Services
-      setGlobalElement(statelessKieSession, rulesRequest.getGlobalElement());
+      List<Command> commandList = new ArrayList<>();
 
-      // Adding the listener for the session
-      statelessKieSession.addEventListener(ruleAgendaListner);
+      // The session is shared, so listener, channel and globals are bound to this execution only
+      commandList.add(
+          new ExecutionScopeCommand(
+              ruleAgendaListner, "send-channel", resultCollector, rulesRequest.getGlobalElement()));
 
-      //Register Channel
-      statelessKieSession.registerChannel("send-channel", sendDataChannel);
+      // Null when the request has no limit
+      FiringBudget budget = firingWatchdog.newBudget(rulesRequest);
+      if (null != budget) {
+        commandList.add(new FiringBudgetCommand(budget, firingWatchdog.getScheduler()));
+      }
 
-      List<Command> commandList = new ArrayList<>();
+      SessionMetrics sessionMetrics = rulesMetrics.getSessionMetrics(sessionKey);
+
+      // Marks the end of the inserts, when metrics are enabled
+      TimestampCommand insertsDone = null == sessionMetrics ? null : new TimestampCommand();
 
       if (!CollectionUtils.isEmpty(rulesRequest.getFacts())) { //Inserting the facts in the session
         Command newInsertOrder =
             kieService.getCommands().newInsertElements(rulesRequest.getFacts());
         commandList.add(newInsertOrder);
       }
-      Command newFireAllRules = kieService.getCommands().newFireAllRules("outFired");
+
+      ChunkedInsertCommand chunkedInsert = null;
+      if (null != rulesRequest.getFactSource()) {
+        chunkedInsert = newChunkedInsertCommand(rulesRequest.getFactSource(), budget);
+        commandList.add(chunkedInsert);
+      }
+      if (null != insertsDone) {
+        commandList.add(insertsDone);
+      }
+      Command newFireAllRules =
+          null == budget
+              ? kieService.getCommands().newFireAllRules("outFired")
+              : new FireWithinBudgetCommand(budget, "outFired");
 
       commandList.add(newFireAllRules);
 
-      //Executing the command as a batch process
-      ExecutionResults execResults =
-          statelessKieSession.execute(kieService.getCommands().newBatchExecution(commandList));
+      // Keeps the container of the session alive during the execution
+      ContainerLease lease = statelessSessionCache.pin(statelessKieSession);
+
+      while (null == lease) {
+        // The session was dropped by a swap, the one of the new container is used
+        statelessKieSession = getStatelessKieSession(rulesRequest);
+        if (null == statelessKieSession) {
+          logger.error("Can not instantiate stateless KieSession.Please check configuration");
+          throw new RulesApiException(
+              "Can not instantiate stateless KieSession.Please check configuration");
+        }
+        lease = statelessSessionCache.pin(statelessKieSession);
+      }
+
+      ExecutionResults execResults;
+      long start = System.nanoTime();
+      try {
+        //Executing the command as a batch process
+        execResults =
+            statelessKieSession.execute(kieService.getCommands().newBatchExecution(commandList));
+      } finally {
+        lease.release();
+        if (null != budget) {
+          budget.stop();
+        }
+      }
+
+      if (null != sessionMetrics) {
+        // Inserts include the creation of the working memory of the execution
+        sessionMetrics.inserted(insertsDone.getNanos() - start);
+        sessionMetrics.fired(System.nanoTime() - insertsDone.getNanos());
+      }
 
       numberOfFiredRules = (int) execResults.getValue("outFired");
+      if (null != chunkedInsert) {
+        numberOfFiredRules += chunkedInsert.getNumberOfFiredRules();
+      }
 
       //Filtering the facts that would be returned as a part of response
       if (!CollectionUtils.isEmpty(returnedFactsClass)) {
-        factsFromSession = filterFacts(sendDataChannel, returnedFactsClass);
+        factsFromSession = resultCollector.getResults(returnedFactsClass);
       } else {
-        factsFromSession = sendDataChannel.getNewObjectInsterted();
+        factsFromSession = resultCollector.getResults();
       }
 
+      resultSizeHints.put(sessionKey, resultCollector.size());
+
+      auditTrail.factsInserted(rulesRequest.getFacts());
+      auditTrail.factsEmitted(resultCollector.getResults());
+      auditTrail.requestCompleted(rulesRequest, numberOfFiredRules);
+
       logger.traceEntry(
           "START - method - [fireRuleStateless(KieSession,RulesRequest,List<Class>)]");
-      return new RulesResponse(numberOfFiredRules, factsFromSession);
+      return firingWatchdog.newResponse(budget, numberOfFiredRules, factsFromSession);
     } else {
       logger.error("statelessKieSession and RulesRequest are mandatory feilds");
       throw new RulesApiException("statelessKieSession and RulesRequest are mandatory feilds");
@@ -245,57 +372,354 @@ class RulesEngineHelper {
   }
 
   /**
-   * This method will fire all the rules using the facts passed
+   * This method opens a long lived session, inserts the facts of the request and fires the rules.
+   * The facts of the request have no key, they stay in the session until it is closed.
    *
-   * @param facts
-   * @param ruleRuntimeListener
-   * @return int -the number of matching rules fired
+   * @param sessionId
+   * @param rulesRequest
+   * @param returnedFactsClass
+   * @return RulesResponse
+   */
+  public RulesResponse openLongLivedSession(
+      String sessionId, RulesRequest rulesRequest, List<Class> returnedFactsClass) {
+
+    logger.traceEntry("START - method - [openLongLivedSession(String,RulesRequest,List<Class>)]");
+
+    if (null == containerManager.getContainer()) {
+      logger.error("Can not initialise container");
+
+      throw new RulesApiException("an not initialise container");
+    }
+
+    SessionKey sessionKey = SessionKey.of(rulesRequest);
+
+    LongLivedSession longLivedSession =
+        longLivedSessionRegistry.open(
+            sessionId,
+            sessionKey,
+            kContainer -> sessionFactory.newKieSession(kContainer, sessionKey));
+
+    int numberOfFiredRules = 0;
+    List<Object> factsFromSession = null;
+    boolean completed = false;
+
+    try {
+      KieSession kSession = longLivedSession.getSession();
+
+      // The listener and globals are kept for the life of the session
+      RuleAgendaListener ruleAgendaListner = newRuleAgendaListener();
+      if (null != ruleAgendaListner) {
+        kSession.addEventListener(ruleAgendaListner);
+      }
+      setGlobalElement(kSession, rulesRequest.getGlobalElement());
+
+      ResultCollector resultCollector = newResultCollector(sessionKey);
+      kSession.registerChannel("send-channel", resultCollector);
+
+      numberOfFiredRules =
+          fireRulesWithFact(
+              kSession,
+              rulesRequest.getFacts(),
+              rulesRequest.getFactSource(),
+              rulesMetrics.getSessionMetrics(sessionKey),
+              null);
+
+      if (!CollectionUtils.isEmpty(returnedFactsClass)) {
+        factsFromSession = resultCollector.getResults(returnedFactsClass);
+      } else {
+        factsFromSession = resultCollector.getResults();
+      }
+
+      resultSizeHints.put(sessionKey, resultCollector.size());
+
+      auditTrail.factsInserted(rulesRequest.getFacts());
+      auditTrail.factsEmitted(resultCollector.getResults());
+      auditTrail.requestCompleted(sessionKey, numberOfFiredRules);
+
+      completed = true;
+
+    } finally {
+      if (!completed) {
+        longLivedSessionRegistry.invalidate(longLivedSession);
+      }
+      longLivedSession.unlock();
+    }
+
+    logger.traceExit("END - method - [openLongLivedSession(String,RulesRequest,List<Class>)]");
+    return new RulesResponse(numberOfFiredRules, factsFromSession);
+  }
+
+  /**
+   * This method applies the changes to a long lived session and fires the rules. Only the facts
+   * that changed are propagated. A session whose rules failed is closed, as its state is unknown.
+   *
+   * @param sessionId
+   * @param factChanges - may be null to fire the rules only
+   * @param returnedFactsClass
+   * @return RulesResponse
    */
-  private int fireRulesWithFact(KieSession kSession, List<Object> facts) {
+  public RulesResponse fireLongLivedSession(
+      String sessionId, FactChanges factChanges, List<Class> returnedFactsClass) {
+
+    logger.traceEntry("START - method - [fireLongLivedSession(String,FactChanges,List<Class>)]");
+
+    LongLivedSession longLivedSession = longLivedSessionRegistry.get(sessionId);
+
+    if (null == longLivedSession) {
+      logger.error("Session {} is not open", sessionId);
+      throw new RulesApiException("Session " + sessionId + " is not open");
+    }
+
+    longLivedSession.lock();
+
+    int numberOfFiredRules = 0;
+    List<Object> factsFromSession = null;
+    boolean completed = false;
+
+    try {
+      KieSession kSession = longLivedSession.getSession();
+      SessionKey sessionKey = longLivedSession.getKey();
+
+      // Only the results of this request are returned
+      ResultCollector resultCollector = newResultCollector(sessionKey);
+      kSession.registerChannel("send-channel", resultCollector);
+
+      SessionMetrics sessionMetrics = rulesMetrics.getSessionMetrics(sessionKey);
+      long start = System.nanoTime();
+
+      if (null != factChanges) {
+        factChanges.getDeletes().forEach(longLivedSession::delete);
+        factChanges.getUpserts().forEach(longLivedSession::upsert);
+      }
+
+      long changesDone = System.nanoTime();
+
+      numberOfFiredRules = kSession.fireAllRules();
+
+      if (null != sessionMetrics) {
+        sessionMetrics.inserted(changesDone - start);
+        sessionMetrics.fired(System.nanoTime() - changesDone);
+      }
+
+      if (!CollectionUtils.isEmpty(returnedFactsClass)) {
+        factsFromSession = resultCollector.getResults(returnedFactsClass);
+      } else {
+        factsFromSession = resultCollector.getResults();
+      }
+
+      resultSizeHints.put(sessionKey, resultCollector.size());
 
-    if (!CollectionUtils.isEmpty(facts)) { //Adding all the facts to the session
-      facts.forEach(kSession::insert);
+      if (auditTrail.isEnabled() && null != factChanges) {
+        auditTrail.factsInserted(new ArrayList<>(factChanges.getUpserts().values()));
+      }
+      auditTrail.factsEmitted(resultCollector.getResults());
+      auditTrail.requestCompleted(sessionKey, numberOfFiredRules);
+
+      completed = true;
+
+    } finally {
+      if (!completed) {
+        longLivedSessionRegistry.invalidate(longLivedSession);
+      }
+      longLivedSession.unlock();
     }
-    // firing the rules
-    return kSession.fireAllRules();
+
+    logger.traceExit("END - method - [fireLongLivedSession(String,FactChanges,List<Class>)]");
+    return new RulesResponse(numberOfFiredRules, factsFromSession);
   }
 
   /**
-   * This method will filter the facts that need to be returned in response
+   * This method closes a long lived session.
    *
-   * @param returned Facts Class
-   * @return list of objects
+   * @param sessionId
+   * @return false when no session is open with the id
    */
-  private List<Object> filterFacts(SendData sendDataChannel, List<Class> returnedFactsClass) {
+  public boolean closeLongLivedSession(String sessionId) {
+    return longLivedSessionRegistry.close(sessionId);
+  }
+
+  /**
+   * This method opens an event stream. The session is created with the clock of the stream
+   * settings, the facts of the request are inserted before the first event and the results of the
+   * rules are sent to the channel from the engine thread.
+   *
+   * @param streamId
+   * @param rulesRequest
+   * @param resultChannel - may be null
+   * @return EventStream
+   */
+  public EventStream openEventStream(
+      String streamId, RulesRequest rulesRequest, Channel resultChannel) {
+
+    logger.traceEntry("START - method - [openEventStream(String,RulesRequest,Channel)]");
 
-    return sendDataChannel
-        .getNewObjectInsterted()
-        .stream()
-        .filter(element -> returnedFactsClass.contains(element.getClass()))
-        .collect(Collectors.toList());
+    if (null == containerManager.getContainer()) {
+      logger.error("Can not initialise container");
+
+      throw new RulesApiException("an not initialise container");
+    }
+
+    SessionKey sessionKey = SessionKey.of(rulesRequest);
+
+    EventStream eventStream =
+        eventStreamManager.open(
+            streamId,
+            sessionKey,
+            (kContainer, sessionConfiguration) -> {
+              KieSession kSession =
+                  sessionFactory.newKieSession(kContainer, sessionKey, sessionConfiguration);
+
+              RuleAgendaListener ruleAgendaListner = newRuleAgendaListener();
+              if (null != ruleAgendaListner) {
+                kSession.addEventListener(ruleAgendaListner);
+              }
+              if (null != resultChannel) {
+                kSession.registerChannel("send-channel", resultChannel);
+              }
+              setGlobalElement(kSession, rulesRequest.getGlobalElement());
+
+              if (!CollectionUtils.isEmpty(rulesRequest.getFacts())) {
+                rulesRequest.getFacts().forEach(kSession::insert);
+              }
+              return kSession;
+            });
+
+    logger.traceExit("END - method - [openEventStream(String,RulesRequest,Channel)]");
+    return eventStream;
   }
 
   /**
-   * This method set global service and variables to stateful session
+   * @param streamId
+   * @return EventStream or null when no stream is open with the id
+   */
+  public EventStream getEventStream(String streamId) {
+    return eventStreamManager.get(streamId);
+  }
+
+  /**
+   * This method closes an event stream.
    *
-   * @param session
-   * @param globalElement
+   * @param streamId
+   * @return false when no stream is open with the id
    */
-  private void setGlobalElement(KieSession session, Map<String, Object> globalElement) {
+  public boolean closeEventStream(String streamId) {
+    return eventStreamManager.close(streamId);
+  }
 
-    if (globalElement != null && globalElement.size() > 0 && session != null) {
+  /**
+   * This method creates the agenda listener of a request. The listener is only needed when the
+   * fired rules are audited, measured, profiled or logged.
+   *
+   * @return RuleAgendaListener or null
+   */
+  private RuleAgendaListener newRuleAgendaListener() {
 
-      globalElement.forEach(session::setGlobal);
+    boolean audit = auditTrail.isEnabled();
+    boolean ruleMetrics = rulesMetrics.isRuleMetricsEnabled();
+    boolean profile = ruleProfiler.isEnabled();
+
+    if (audit || ruleMetrics || profile) {
+      return new RuleAgendaListener(
+          audit ? auditTrail : null,
+          ruleMetrics ? rulesMetrics : null,
+          profile ? ruleProfiler : null);
+    }
+    return logger.isDebugEnabled() ? new RuleAgendaListener() : null;
+  }
+
+  /**
+   * This method creates the command inserting the facts of a fact source in chunks.
+   *
+   * @param factSource
+   * @param budget - may be null
+   * @return ChunkedInsertCommand
+   */
+  private ChunkedInsertCommand newChunkedInsertCommand(
+      Iterator<?> factSource, FiringBudget budget) {
+
+    return new ChunkedInsertCommand(
+        factSource,
+        streamingSettings.getChunkSize(),
+        streamingSettings.isFireBetweenChunks(),
+        streamingSettings.isRetractProcessed(),
+        auditTrail,
+        budget);
+  }
+
+  /**
+   * This method will fire all the rules using the facts passed. The facts of the fact source are
+   * inserted in chunks, and the rules fired between the chunks are counted as insert time. The
+   * timeout of the budget runs from the first insert.
+   *
+   * @param facts
+   * @param factSource - may be null
+   * @param sessionMetrics - may be null
+   * @param budget - may be null
+   * @return int -the number of matching rules fired
+   */
+  private int fireRulesWithFact(
+      KieSession kSession,
+      List<Object> facts,
+      Iterator<?> factSource,
+      SessionMetrics sessionMetrics,
+      FiringBudget budget) {
+
+    long start = System.nanoTime();
+    int numberOfFiredRules = 0;
+
+    if (null != budget) {
+      kSession.addEventListener(budget);
+      budget.start(firingWatchdog.getScheduler());
+    }
+
+    long insertsDone;
+
+    try {
+      if (!CollectionUtils.isEmpty(facts)) { //Adding all the facts to the session
+        facts.forEach(kSession::insert);
+      }
+
+      if (null != factSource) {
+        numberOfFiredRules += newChunkedInsertCommand(factSource, budget).insertAll(kSession);
+      }
+
+      insertsDone = System.nanoTime();
+
+      // firing the rules
+      numberOfFiredRules += null == budget ? kSession.fireAllRules() : budget.fire(kSession);
+    } finally {
+      if (null != budget) {
+        budget.stop();
+      }
     }
+
+    if (null != sessionMetrics) {
+      sessionMetrics.inserted(insertsDone - start);
+      sessionMetrics.fired(System.nanoTime() - insertsDone);
+    }
+    return numberOfFiredRules;
+  }
+
+  /**
+   * This method creates the channel collecting the facts returned in response. It is presized with
+   * the number of facts the last request of the session returned.
+   *
+   * @param sessionKey
+   * @return ResultCollector
+   */
+  private ResultCollector newResultCollector(SessionKey sessionKey) {
+
+    Integer expectedSize = resultSizeHints.get(sessionKey);
+    return null == expectedSize ? new ResultCollector() : new ResultCollector(expectedSize);
   }
 
   /**
-   * This method set global service and variables to stateless session
+   * This method set global service and variables to stateful session
    *
    * @param session
    * @param globalElement
    */
-  private void setGlobalElement(StatelessKieSession session, Map<String, Object> globalElement) {
+  private void setGlobalElement(KieSession session, Map<String, Object> globalElement) {
 
     if (globalElement != null && globalElement.size() > 0 && session != null) {
 
@@ -1,17 +1,37 @@
 /** */
 package rules.api.engine;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.kie.api.runtime.Channel;
 import org.kie.api.runtime.KieSession;
 import org.kie.api.runtime.StatelessKieSession;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Component;
+import rules.api.config.BatchSettings;
+import rules.api.config.ShardSettings;
+import rules.api.container.StartupWarmup;
+import rules.api.enums.FiringStatus;
 import rules.api.enums.SessionType;
 import rules.api.exception.RulesApiException;
+import rules.api.message.FactChanges;
 import rules.api.message.RulesRequest;
 import rules.api.message.RulesResponse;
+import rules.api.session.SessionKey;
+import rules.api.stream.EventStream;
 
 /**
  * This class provides the core methods to run the rule engine
@@ -23,6 +43,24 @@ public class RulesEngineImpl implements RulesEngine {
 
   @Autowired private RulesEngineHelper rulesEngineHelper;
 
+  @Autowired
+  @Qualifier("rulesBatchPool")
+  private ForkJoinPool batchPool;
+
+  @Autowired private BatchSettings batchSettings;
+
+  @Autowired private ShardSettings shardSettings;
+
+  @Autowired private StartupWarmup startupWarmup;
+
+  @Autowired private ResultCache resultCache;
+
+  @Autowired private AdmissionController admissionController;
+
+  @Autowired
+  @Qualifier("rulesAsyncExecutor")
+  private ExecutorService asyncExecutor;
+
   private Logger logger = LogManager.getLogger(this);
 
   /**
@@ -59,10 +97,7 @@ public class RulesEngineImpl implements RulesEngine {
 
     logger.traceEntry("START - method - [fireRules(RulesRequest,List<Class>)]");
 
-    KieSession kSession = null;
-    RulesResponse rulesResponse = null;
-
-    logger.info(rulesRequestParams);
+    logger.debug(rulesRequestParams);
 
     if (null == rulesRequestParams) {
 
@@ -71,6 +106,35 @@ public class RulesEngineImpl implements RulesEngine {
       throw new RulesApiException("Missing mandatory details in rulesRequest to run the rules");
     }
 
+    RulesResponse rulesResponse =
+        admissionController.isEnabled()
+            ? admissionController.admit(
+                rulesRequestParams, () -> fireRulesAdmitted(rulesRequestParams, returnedFactsClass))
+            : fireRulesAdmitted(rulesRequestParams, returnedFactsClass);
+
+    logger.debug(rulesResponse);
+    logger.traceExit("END - method - [fireRules(RulesRequest,List<Class>)]");
+    return rulesResponse;
+  }
+
+  /**
+   * This method fires the rules of a request once it is admitted. The partitions of a sharded
+   * request run here too, as the whole request is admitted once.
+   *
+   * @param rulesRequestParams
+   * @param returnedFactsClass
+   * @return RulesResponse
+   */
+  private RulesResponse fireRulesAdmitted(
+      RulesRequest rulesRequestParams, List<Class> returnedFactsClass) {
+
+    KieSession kSession = null;
+    RulesResponse rulesResponse = null;
+
+    if (null != rulesRequestParams.getPartitionKey()) {
+      return fireRulesSharded(rulesRequestParams, returnedFactsClass);
+    }
+
     // Using a default stateful session in case session type is not given OR session type is stateful
     if (null == rulesRequestParams.getSessionType()
         || rulesRequestParams.getSessionType() == SessionType.STATEFUL) {
@@ -90,21 +154,427 @@ public class RulesEngineImpl implements RulesEngine {
     // If session type passed is state less
     else if (rulesRequestParams.getSessionType() == SessionType.STATELESS) {
 
-      StatelessKieSession statelessKieSession =
-          rulesEngineHelper.getStatelessKieSession(rulesRequestParams);
+      // Null when the cache is disabled
+      ResultCache.Key cacheKey = resultCache.newKey(rulesRequestParams, returnedFactsClass);
 
-      if (null == statelessKieSession) {
-        logger.error("Can not instantiate stateless KieSession.Please check configuration");
-        throw new RulesApiException(
-            "Can not instantiate stateless KieSession.Please check configuration");
-      }
+      rulesResponse = resultCache.get(cacheKey);
 
-      rulesResponse =
-          rulesEngineHelper.fireRuleStateless(
-              statelessKieSession, rulesRequestParams, returnedFactsClass);
+      if (null == rulesResponse) {
+
+        StatelessKieSession statelessKieSession =
+            rulesEngineHelper.getStatelessKieSession(rulesRequestParams);
+
+        if (null == statelessKieSession) {
+          logger.error("Can not instantiate stateless KieSession.Please check configuration");
+          throw new RulesApiException(
+              "Can not instantiate stateless KieSession.Please check configuration");
+        }
+
+        rulesResponse =
+            rulesEngineHelper.fireRuleStateless(
+                statelessKieSession, rulesRequestParams, returnedFactsClass);
+
+        resultCache.put(cacheKey, rulesResponse);
+      }
     }
-    logger.info(rulesResponse);
-    logger.traceExit("END - method - [fireRules(RulesRequest,List<Class>)]");
     return rulesResponse;
   }
+
+  /**
+   * This method fires the rules for a batch of requests in parallel. Requests are grouped by
+   * session key and each group is split in chunks that a worker runs one after the other, so the
+   * same pooled or cached session serves the whole chunk.
+   *
+   * @param rulesRequests - Requests to run
+   * @param returnedFactsClass - List of class for facts returned from session.
+   * @return List of RulesResponse in the order of the requests
+   */
+  @Override
+  public List<RulesResponse> fireRulesBatch(
+      List<RulesRequest> rulesRequests, List<Class> returnedFactsClass) {
+
+    logger.traceEntry("START - method - [fireRulesBatch(List<RulesRequest>,List<Class>)]");
+
+    if (null == rulesRequests) {
+
+      logger.error("Missing mandatory details in rulesRequest to run the rules");
+
+      throw new RulesApiException("Missing mandatory details in rulesRequest to run the rules");
+    }
+
+    RulesResponse[] rulesResponses = new RulesResponse[rulesRequests.size()];
+
+    // Index of the requests per session key, in the order of the batch
+    Map<SessionKey, List<Integer>> requestsBySession = new LinkedHashMap<>();
+
+    for (int index = 0; index < rulesRequests.size(); index++) {
+      RulesRequest rulesRequest = rulesRequests.get(index);
+
+      if (null == rulesRequest) {
+        rulesResponses[index] =
+            new RulesResponse(
+                new RulesApiException(
+                    "Missing mandatory details in rulesRequest to run the rules"));
+      } else {
+        requestsBySession
+            .computeIfAbsent(SessionKey.of(rulesRequest), key -> new ArrayList<>())
+            .add(index);
+      }
+    }
+
+    List<Callable<Void>> tasks = new ArrayList<>();
+    int parallelism = batchPool.getParallelism();
+
+    for (List<Integer> indexes : requestsBySession.values()) {
+
+      // Small groups are spread over all the workers, large ones are capped by the chunk size
+      int chunkSize =
+          Math.max(
+              1,
+              Math.min(
+                  batchSettings.getChunkSize(), (indexes.size() + parallelism - 1) / parallelism));
+
+      for (int from = 0; from < indexes.size(); from += chunkSize) {
+        List<Integer> chunk = indexes.subList(from, Math.min(from + chunkSize, indexes.size()));
+        tasks.add(
+            () -> {
+              for (Integer index : chunk) {
+                rulesResponses[index] =
+                    fireRulesInBatch(rulesRequests.get(index), returnedFactsClass);
+              }
+              return null;
+            });
+      }
+    }
+
+    batchPool.invokeAll(tasks);
+
+    logger.traceExit("END - method - [fireRulesBatch(List<RulesRequest>,List<Class>)]");
+    return Arrays.asList(rulesResponses);
+  }
+
+  /**
+   * This method fires the rules on the async executor so the calling thread is not blocked while
+   * the rules are evaluated.
+   *
+   * @param rulesRequestParams - All the parameter required to fire the rule
+   * @param returnedFactsClass - List of class for facts returned from session.
+   * @return CompletableFuture of the RulesResponse
+   */
+  @Override
+  public CompletableFuture<RulesResponse> fireRulesAsync(
+      RulesRequest rulesRequestParams, List<Class> returnedFactsClass) {
+
+    try {
+      return CompletableFuture.supplyAsync(
+          () -> this.fireRules(rulesRequestParams, returnedFactsClass), asyncExecutor);
+
+    } catch (RejectedExecutionException e) {
+      logger.error("Async executor is full. Request rejected");
+
+      CompletableFuture<RulesResponse> rejected = new CompletableFuture<>();
+      rejected.completeExceptionally(
+          new RulesApiException("Async executor is full. Request rejected"));
+      return rejected;
+    }
+  }
+
+  /**
+   * This method opens a stateful session kept across requests, inserts the facts of the request and
+   * fires the rules.
+   *
+   * @param sessionId - Id used by the following requests
+   * @param rulesRequestParams - Session, globals and initial facts
+   * @param returnedFactsClass - List of class for facts returned from session.
+   * @return RulesResponse
+   */
+  @Override
+  public RulesResponse openSession(
+      String sessionId, RulesRequest rulesRequestParams, List<Class> returnedFactsClass) {
+
+    if (null == sessionId || null == rulesRequestParams) {
+
+      logger.error("Session id and rulesRequest are mandatory to open a session");
+
+      throw new RulesApiException("Session id and rulesRequest are mandatory to open a session");
+    }
+
+    return rulesEngineHelper.openLongLivedSession(
+        sessionId, rulesRequestParams, returnedFactsClass);
+  }
+
+  /**
+   * This method inserts, updates and deletes facts of an open session by their key and fires the
+   * rules again.
+   *
+   * @param sessionId - Id of the open session
+   * @param factChanges - Changes since the last request, may be null
+   * @param returnedFactsClass - List of class for facts returned from session.
+   * @return RulesResponse with the facts returned by this request only
+   */
+  @Override
+  public RulesResponse fireSession(
+      String sessionId, FactChanges factChanges, List<Class> returnedFactsClass) {
+
+    if (null == sessionId) {
+
+      logger.error("Session id is mandatory to fire a session");
+
+      throw new RulesApiException("Session id is mandatory to fire a session");
+    }
+
+    return rulesEngineHelper.fireLongLivedSession(sessionId, factChanges, returnedFactsClass);
+  }
+
+  /**
+   * This method closes an open session.
+   *
+   * @param sessionId - Id of the open session
+   * @return false when no session is open with the id
+   */
+  @Override
+  public boolean closeSession(String sessionId) {
+    return null != sessionId && rulesEngineHelper.closeLongLivedSession(sessionId);
+  }
+
+  /**
+   * This method opens an event stream. The session runs in fireUntilHalt on its own thread and the
+   * events offered to the stream are inserted in batches.
+   *
+   * @param streamId - Id of the stream
+   * @param rulesRequestParams - Session, globals and facts inserted before the events
+   * @param resultChannel - Receives the facts sent by the rules, may be null
+   * @return EventStream
+   */
+  @Override
+  public EventStream openEventStream(
+      String streamId, RulesRequest rulesRequestParams, Channel resultChannel) {
+
+    if (null == streamId || null == rulesRequestParams) {
+
+      logger.error("Stream id and rulesRequest are mandatory to open a stream");
+
+      throw new RulesApiException("Stream id and rulesRequest are mandatory to open a stream");
+    }
+
+    return rulesEngineHelper.openEventStream(streamId, rulesRequestParams, resultChannel);
+  }
+
+  /**
+   * @param streamId - Id of the stream
+   * @return EventStream or null when no stream is open with the id
+   */
+  @Override
+  public EventStream getEventStream(String streamId) {
+    return null == streamId ? null : rulesEngineHelper.getEventStream(streamId);
+  }
+
+  /**
+   * This method inserts the events already offered to the stream, halts and disposes its session.
+   *
+   * @param streamId - Id of the stream
+   * @return false when no stream is open with the id
+   */
+  @Override
+  public boolean closeEventStream(String streamId) {
+    return null != streamId && rulesEngineHelper.closeEventStream(streamId);
+  }
+
+  /**
+   * @return true once the startup warm-up is complete, or at once when it is disabled. It is meant
+   *     for readiness probes
+   */
+  @Override
+  public boolean isReady() {
+    return startupWarmup.isReady();
+  }
+
+  /**
+   * This method splits the facts of the request by partition key and fires the rules of each
+   * partition in its own session on the batch pool. The broadcast facts are inserted in every
+   * partition. The fired counts are added and the returned facts are merged in partition order.
+   *
+   * <p>The limits of the request hold for the whole request: the maximum of rules fired is split
+   * between the partitions, so there are no more partitions than the maximum, and every partition
+   * times out at the same deadline, counted from the start of the request.
+   *
+   * @param rulesRequest
+   * @param returnedFactsClass
+   * @return RulesResponse
+   */
+  private RulesResponse fireRulesSharded(
+      RulesRequest rulesRequest, List<Class> returnedFactsClass) {
+
+    logger.traceEntry("START - method - [fireRulesSharded(RulesRequest,List<Class>)]");
+
+    int partitions = rulesRequest.getPartitions();
+    if (partitions <= 0) {
+      partitions =
+          shardSettings.getPartitions() > 0
+              ? shardSettings.getPartitions()
+              : batchPool.getParallelism();
+    }
+
+    // Small requests are not worth the hand-off to other threads
+    if (null != rulesRequest.getFacts() && null == rulesRequest.getFactSource()) {
+      int factsPerPartition = shardSettings.getMinFactsPerPartition();
+      partitions =
+          Math.min(
+              partitions,
+              (rulesRequest.getFacts().size() + factsPerPartition - 1) / factsPerPartition);
+    }
+    if (rulesRequest.getMaxRulesFired() > 0) {
+      partitions = Math.min(partitions, rulesRequest.getMaxRulesFired());
+    }
+    partitions = Math.max(1, partitions);
+
+    long deadline =
+        rulesRequest.getTimeout() > 0 ? System.currentTimeMillis() + rulesRequest.getTimeout() : 0;
+
+    List<List<Object>> partitionFacts =
+        FactPartitioner.partition(
+            rulesRequest.getFacts(),
+            rulesRequest.getFactSource(),
+            rulesRequest.getPartitionKey(),
+            partitions);
+
+    List<List<Object>> nonEmptyFacts = new ArrayList<>(partitions);
+    for (List<Object> facts : partitionFacts) {
+      if (!facts.isEmpty()) {
+        nonEmptyFacts.add(facts);
+      }
+    }
+    if (nonEmptyFacts.isEmpty()) {
+      // Broadcast facts only
+      nonEmptyFacts.add(partitionFacts.get(0));
+    }
+
+    // The first partitions take the rest of the maximum
+    int maxRulesFired = rulesRequest.getMaxRulesFired();
+    int[] partitionMaxRulesFired = new int[nonEmptyFacts.size()];
+    for (int index = 0; index < partitionMaxRulesFired.length && maxRulesFired > 0; index++) {
+      partitionMaxRulesFired[index] =
+          maxRulesFired / partitionMaxRulesFired.length
+              + (index < maxRulesFired % partitionMaxRulesFired.length ? 1 : 0);
+    }
+
+    List<RulesResponse> rulesResponses = new ArrayList<>(nonEmptyFacts.size());
+    if (nonEmptyFacts.size() == 1) {
+      rulesResponses.add(
+          fireRulesAdmitted(
+              newPartitionRequest(
+                  rulesRequest, nonEmptyFacts.get(0), partitionMaxRulesFired[0], deadline),
+              returnedFactsClass));
+    } else {
+      List<Callable<RulesResponse>> tasks = new ArrayList<>(nonEmptyFacts.size());
+      for (int index = 0; index < nonEmptyFacts.size(); index++) {
+        List<Object> facts = nonEmptyFacts.get(index);
+        int partitionMax = partitionMaxRulesFired[index];
+        // The request is built when the partition starts, with the time left to the deadline
+        tasks.add(
+            () ->
+                fireRulesAdmitted(
+                    newPartitionRequest(rulesRequest, facts, partitionMax, deadline),
+                    returnedFactsClass));
+      }
+      for (Future<RulesResponse> future : batchPool.invokeAll(tasks)) {
+        rulesResponses.add(getPartitionResponse(future));
+      }
+    }
+
+    int numberOfRulesFired = 0;
+    int numberOfFacts = 0;
+    // A partition stopped by its limits makes the whole response partial
+    FiringStatus firingStatus = FiringStatus.COMPLETED;
+    List<String> hotRules = new ArrayList<>();
+    for (RulesResponse rulesResponse : rulesResponses) {
+      numberOfRulesFired += rulesResponse.getNumberOfRulesFired();
+      if (null != rulesResponse.getFactsFromSession()) {
+        numberOfFacts += rulesResponse.getFactsFromSession().size();
+      }
+      if (rulesResponse.isPartial()) {
+        if (firingStatus != FiringStatus.TIMED_OUT) {
+          firingStatus = rulesResponse.getFiringStatus();
+        }
+        hotRules.addAll(rulesResponse.getHotRules());
+      }
+    }
+    List<Object> factsFromSession = new ArrayList<>(numberOfFacts);
+    for (RulesResponse rulesResponse : rulesResponses) {
+      if (null != rulesResponse.getFactsFromSession()) {
+        factsFromSession.addAll(rulesResponse.getFactsFromSession());
+      }
+    }
+
+    logger.traceExit("END - method - [fireRulesSharded(RulesRequest,List<Class>)]");
+    return firingStatus == FiringStatus.COMPLETED
+        ? new RulesResponse(numberOfRulesFired, factsFromSession)
+        : new RulesResponse(numberOfRulesFired, factsFromSession, firingStatus, hotRules);
+  }
+
+  /**
+   * Builds the request of one partition. It runs on the same session key with the same globals.
+   *
+   * @param rulesRequest
+   * @param facts
+   * @param maxRulesFired - share of the maximum of the request, 0 for no maximum
+   * @param deadline - time the request times out at, 0 for no timeout
+   * @return RulesRequest
+   */
+  private RulesRequest newPartitionRequest(
+      RulesRequest rulesRequest, List<Object> facts, int maxRulesFired, long deadline) {
+
+    if (null != rulesRequest.getBroadcastFacts()) {
+      facts.addAll(0, rulesRequest.getBroadcastFacts());
+    }
+    return new RulesRequest.RulesRequestBuilder()
+        .containerId(rulesRequest.getContainerId())
+        .sessionName(rulesRequest.getSessionName())
+        .kieBasename(rulesRequest.getKieBasename())
+        .sessionType(rulesRequest.getSessionType())
+        .buildSessionByKieBase(rulesRequest.isBuildSessionByKieBase())
+        .globalService(rulesRequest.getGlobalElement())
+        .timeout(0 == deadline ? 0 : Math.max(1, deadline - System.currentTimeMillis()))
+        .maxRulesFired(maxRulesFired)
+        .facts(facts)
+        .build();
+  }
+
+  /**
+   * @param future
+   * @return the response of a partition. The failure of a partition fails the whole request
+   */
+  private RulesResponse getPartitionResponse(Future<RulesResponse> future) {
+
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RulesApiException("Interrupted while waiting for a partition");
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new RulesApiException("Partition failed: " + e.getCause());
+    }
+  }
+
+  /**
+   * Runs one request of a batch. The failure is returned in the response so the other requests of
+   * the batch are not affected.
+   *
+   * @param rulesRequest
+   * @param returnedFactsClass
+   * @return RulesResponse
+   */
+  private RulesResponse fireRulesInBatch(
+      RulesRequest rulesRequest, List<Class> returnedFactsClass) {
+
+    try {
+      return this.fireRules(rulesRequest, returnedFactsClass);
+    } catch (RuntimeException e) {
+      logger.error("Batch request failed", e);
+      return new RulesResponse(e);
+    }
+  }
 }
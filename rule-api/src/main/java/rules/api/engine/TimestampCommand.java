@@ -0,0 +1,29 @@
+/** */
+package rules.api.engine;
+
+import org.drools.core.command.impl.ExecutableCommand;
+import org.kie.api.runtime.Context;
+
+/**
+ * This command records the time at which the batch of a stateless session reaches it. It is used to
+ * split the execution in insert and fire time.
+ *
+ * @author chandresh.mishra
+ */
+class TimestampCommand implements ExecutableCommand<Void> {
+
+  private static final long serialVersionUID = 1L;
+
+  private long nanos;
+
+  @Override
+  public Void execute(Context context) {
+    nanos = System.nanoTime();
+    return null;
+  }
+
+  /** @return System.nanoTime() when the command was executed */
+  long getNanos() {
+    return nanos;
+  }
+}
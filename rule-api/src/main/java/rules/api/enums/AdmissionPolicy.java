@@ -0,0 +1,38 @@
+/** */
+package rules.api.enums;
+
+/**
+ * Enum holding constant for what the admission control does with a request it can not run.
+ *
+ * @author chandresh.mishra
+ */
+public enum AdmissionPolicy {
+  // The request fails with a RulesApiException
+  REJECT("reject"),
+  // The request is answered by the AdmissionFallback bean, or rejected when there is none
+  FALLBACK("fallback");
+
+  private String type;
+
+  private AdmissionPolicy(String type) {
+    this.type = type;
+  }
+
+  /** @return the type */
+  public String getType() {
+    return type;
+  }
+
+  /**
+   * @param type
+   * @return the AdmissionPolicy of the type. REJECT when the type is unknown
+   */
+  public static AdmissionPolicy of(String type) {
+    for (AdmissionPolicy admissionPolicy : values()) {
+      if (admissionPolicy.type.equalsIgnoreCase(type)) {
+        return admissionPolicy;
+      }
+    }
+    return REJECT;
+  }
+}
@@ -0,0 +1,25 @@
+/** */
+package rules.api.enums;
+
+/**
+ * Enum holding constant for the type of an audit event.
+ *
+ * @author chandresh.mishra
+ */
+public enum AuditEventType {
+  REQUEST_COMPLETED("request"),
+  RULE_FIRED("ruleFired"),
+  FACT_INSERTED("factInserted"),
+  FACT_EMITTED("factEmitted");
+
+  private String type;
+
+  private AuditEventType(String type) {
+    this.type = type;
+  }
+
+  /** @return the type */
+  public String getType() {
+    return type;
+  }
+}
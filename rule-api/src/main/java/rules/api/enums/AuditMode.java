@@ -0,0 +1,40 @@
+/** */
+package rules.api.enums;
+
+/**
+ * Enum holding constant for the audit mode of the rule engine.
+ *
+ * @author chandresh.mishra
+ */
+public enum AuditMode {
+  // Nothing is recorded
+  OFF("off"),
+  // Only counters of requests, rules fired and facts are kept
+  COUNTS("counts"),
+  // Counters plus one event per fired rule and fact, written by a background thread
+  FULL("full");
+
+  private String type;
+
+  private AuditMode(String type) {
+    this.type = type;
+  }
+
+  /** @return the type */
+  public String getType() {
+    return type;
+  }
+
+  /**
+   * @param type
+   * @return the AuditMode of the type. OFF when the type is unknown
+   */
+  public static AuditMode of(String type) {
+    for (AuditMode auditMode : values()) {
+      if (auditMode.type.equalsIgnoreCase(type)) {
+        return auditMode;
+      }
+    }
+    return OFF;
+  }
+}
@@ -0,0 +1,27 @@
+/** */
+package rules.api.enums;
+
+/**
+ * Enum holding constant for how the firing of a request ended.
+ *
+ * @author chandresh.mishra
+ */
+public enum FiringStatus {
+  // Every activated rule fired
+  COMPLETED("completed"),
+  // The firing stopped at the maximum number of rules fired of the request
+  MAX_RULES_FIRED("maxRulesFired"),
+  // The rules were halted at the timeout of the request
+  TIMED_OUT("timedOut");
+
+  private String type;
+
+  private FiringStatus(String type) {
+    this.type = type;
+  }
+
+  /** @return the type */
+  public String getType() {
+    return type;
+  }
+}
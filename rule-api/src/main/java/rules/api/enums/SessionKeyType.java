@@ -0,0 +1,24 @@
+/** */
+package rules.api.enums;
+
+/**
+ * Enum holding constant for the way a session is built from the container.
+ *
+ * @author chandresh.mishra
+ */
+public enum SessionKeyType {
+  KIE_BASE("kieBase"),
+  SESSION_NAME("session"),
+  DEFAULT("default");
+
+  private String type;
+
+  private SessionKeyType(String type) {
+    this.type = type;
+  }
+
+  /** @return the type */
+  public String getType() {
+    return type;
+  }
+}
@@ -3,6 +3,7 @@ package rules.api.listener;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.kie.api.definition.rule.Rule;
 import org.kie.api.event.rule.AfterMatchFiredEvent;
 import org.kie.api.event.rule.AgendaEventListener;
 import org.kie.api.event.rule.AgendaGroupPoppedEvent;
@@ -12,10 +13,15 @@ import org.kie.api.event.rule.MatchCancelledEvent;
 import org.kie.api.event.rule.MatchCreatedEvent;
 import org.kie.api.event.rule.RuleFlowGroupActivatedEvent;
 import org.kie.api.event.rule.RuleFlowGroupDeactivatedEvent;
+import org.kie.api.runtime.KieRuntime;
+import rules.api.audit.AuditTrail;
+import rules.api.metrics.RulesMetrics;
+import rules.api.profiler.ReleaseProfile;
+import rules.api.profiler.RuleProfiler;
 
 /**
- * This class act as a rule agenda listener.It would be used for the auditing to print all the rules
- * matched and fired. It implements AgendaEventListener
+ * This class act as a rule agenda listener.It would be used for the auditing to record all the
+ * rules fired. It implements AgendaEventListener
  *
  * @author chandresh.mishra
  */
@@ -23,28 +29,121 @@ public class RuleAgendaListener implements AgendaEventListener {
 
   private Logger log = LogManager.getLogger(this);
 
+  // Receives the fired rules. Null when audit is off
+  private final AuditTrail auditTrail;
+
+  // Receives the RHS time of the fired rules. Null when rule metrics are off
+  private final RulesMetrics rulesMetrics;
+
+  // Receives the matches of the rules. Null when the profiler is off
+  private final RuleProfiler ruleProfiler;
+
+  // Profile of the release of the session, resolved on the first match
+  private ReleaseProfile releaseProfile;
+
+  // A session fires one rule at a time
+  private long fireStart;
+
+  public RuleAgendaListener() {
+    this(null, null);
+  }
+
+  /** @param auditTrail */
+  public RuleAgendaListener(AuditTrail auditTrail) {
+    this(auditTrail, null);
+  }
+
+  /**
+   * @param auditTrail - may be null
+   * @param rulesMetrics - may be null
+   */
+  public RuleAgendaListener(AuditTrail auditTrail, RulesMetrics rulesMetrics) {
+    this(auditTrail, rulesMetrics, null);
+  }
+
+  /**
+   * @param auditTrail - may be null
+   * @param rulesMetrics - may be null
+   * @param ruleProfiler - may be null
+   */
+  public RuleAgendaListener(
+      AuditTrail auditTrail, RulesMetrics rulesMetrics, RuleProfiler ruleProfiler) {
+    this.auditTrail = auditTrail;
+    this.rulesMetrics = rulesMetrics;
+    this.ruleProfiler = ruleProfiler;
+  }
+
   /* (non-Javadoc)
    * @see org.kie.api.event.rule.AgendaEventListener#afterMatchFired(org.kie.api.event.rule.AfterMatchFiredEvent)
    */
   @Override
   public void afterMatchFired(AfterMatchFiredEvent event) {
-    log.info("Rules fired : " + event.getMatch().getRule().getName());
+
+    Rule rule = event.getMatch().getRule();
+
+    if (null != rulesMetrics || null != ruleProfiler) {
+      long rhsTime = System.nanoTime() - fireStart;
+      if (null != rulesMetrics) {
+        rulesMetrics.getRuleMetrics(rule.getPackageName(), rule.getName()).fired(rhsTime);
+      }
+      if (null != ruleProfiler) {
+        getReleaseProfile(event.getKieRuntime())
+            .getRuleProfile(rule.getPackageName(), rule.getName())
+            .matchFired(rhsTime);
+      }
+    }
+    if (null != auditTrail) {
+      auditTrail.ruleFired(rule.getName());
+    }
+    if (log.isDebugEnabled()) {
+      log.debug("Rules fired : {}", rule.getName());
+    }
   }
 
   @Override
   public void matchCreated(MatchCreatedEvent event) {
-    // No Implementation
+
+    if (null != ruleProfiler) {
+      Rule rule = event.getMatch().getRule();
+      getReleaseProfile(event.getKieRuntime())
+          .getRuleProfile(rule.getPackageName(), rule.getName())
+          .matchCreated();
+    }
   }
 
   @Override
   public void matchCancelled(MatchCancelledEvent event) {
-    // No Implementation
+
+    if (null != ruleProfiler) {
+      Rule rule = event.getMatch().getRule();
+      getReleaseProfile(event.getKieRuntime())
+          .getRuleProfile(rule.getPackageName(), rule.getName())
+          .matchCancelled();
+    }
   }
 
   @Override
   public void beforeMatchFired(BeforeMatchFiredEvent event) {
-    // No Implementation
 
+    if (null != rulesMetrics || null != ruleProfiler) {
+      fireStart = System.nanoTime();
+    }
+  }
+
+  /**
+   * The listener serves one request, or one long lived session, so the request is counted on the
+   * first match.
+   *
+   * @param kieRuntime
+   * @return the profile of the release of the session
+   */
+  private ReleaseProfile getReleaseProfile(KieRuntime kieRuntime) {
+
+    if (null == releaseProfile) {
+      releaseProfile = ruleProfiler.getReleaseProfile(kieRuntime.getKieBase());
+      releaseProfile.requestProfiled();
+    }
+    return releaseProfile;
   }
 
   @Override
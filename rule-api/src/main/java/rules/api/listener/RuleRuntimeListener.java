@@ -29,7 +29,7 @@ public class RuleRuntimeListener implements RuleRuntimeEventListener {
   @Override
   public void objectInserted(ObjectInsertedEvent event) {
     newObjectInsterted.add(event.getObject());
-    log.debug("inserted new fact" + event.getObject().toString());
+    log.debug("inserted new fact {}", event.getObject());
   }
 
   @Override
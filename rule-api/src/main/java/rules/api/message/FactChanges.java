@@ -0,0 +1,91 @@
+/** */
+package rules.api.message;
+
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * This class holds the changes applied to a long lived session before its rules are fired again.
+ * Facts are identified by a business key chosen by the caller. The deletes are applied first, then
+ * the upserts in the order they were added.
+ *
+ * @author chandresh.mishra
+ */
+public class FactChanges {
+
+  // Facts inserted, or updated when the key is already in the session
+  private Map<Object, Object> upserts = new LinkedHashMap<>();
+  // Keys of the facts deleted from the session
+  private Set<Object> deletes = new LinkedHashSet<>();
+
+  public FactChanges() { // default constructor
+  }
+
+  /** @return the upserts */
+  public Map<Object, Object> getUpserts() {
+    return upserts;
+  }
+
+  /** @return the deletes */
+  public Set<Object> getDeletes() {
+    return deletes;
+  }
+
+  /** @param upserts the upserts to set */
+  public void setUpserts(Map<Object, Object> upserts) {
+    this.upserts = upserts;
+  }
+
+  /** @param deletes the deletes to set */
+  public void setDeletes(Set<Object> deletes) {
+    this.deletes = deletes;
+  }
+
+  // Builder pattern
+  public static class FactChangesBuilder {
+
+    private final Map<Object, Object> upserts = new LinkedHashMap<>();
+    private final Set<Object> deletes = new LinkedHashSet<>();
+
+    public FactChangesBuilder() {
+      // default constructor
+    }
+
+    public FactChangesBuilder upsert(Object key, Object fact) {
+      this.upserts.put(key, fact);
+      return this;
+    }
+
+    public FactChangesBuilder upserts(Map<?, ?> facts) {
+      this.upserts.putAll(facts);
+      return this;
+    }
+
+    public FactChangesBuilder delete(Object key) {
+      this.deletes.add(key);
+      return this;
+    }
+
+    public FactChanges build() {
+
+      FactChanges factChanges = new FactChanges();
+      factChanges.upserts = new LinkedHashMap<>(this.upserts);
+      factChanges.deletes = new LinkedHashSet<>(this.deletes);
+
+      return factChanges;
+    }
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder builder = new StringBuilder();
+    builder.append("FactChanges [upserts=");
+    builder.append(upserts);
+    builder.append(", deletes=");
+    builder.append(deletes);
+    builder.append("]");
+    return builder.toString();
+  }
+}
@@ -1,7 +1,12 @@
 package rules.api.message;
 
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Function;
+import java.util.stream.Stream;
 import rules.api.enums.SessionType;
 
 /**
@@ -11,6 +16,8 @@ import rules.api.enums.SessionType;
  */
 public class RulesRequest {
 
+  // Tenant or release of the container the rules are taken from. Null for the default container
+  private String containerId;
   // KieSession name from Kiemodule
   private String sessionName;
   // KieBase name from Kiemodule
@@ -19,8 +26,20 @@ public class RulesRequest {
   private SessionType sessionType;
   // Facts passes to session.It is mandatory field.
   private List<Object> facts;
+  // Facts read one by one and inserted in chunks after the facts list. Optional.
+  private Iterator<?> factSource;
   // Map of global elements if present in rule.
   private Map<String, Object> globalElement;
+  // Key of a fact. When set the facts are split by key and evaluated in parallel sessions
+  private Function<Object, ?> partitionKey;
+  // Facts inserted in every partition of a sharded request, like reference data
+  private List<Object> broadcastFacts;
+  // Number of partitions of a sharded request. 0 uses the configured number
+  private int partitions;
+  // Time in milliseconds after which the rules are halted. 0 uses the configured timeout
+  private long timeout;
+  // Number of rules fired after which the firing stops. 0 uses the configured maximum
+  private int maxRulesFired;
   // Build session by using kiebase name or kieSession name.It is mandatory field.
   private boolean buildSessionByKieBase;
 
@@ -53,6 +72,11 @@ public class RulesRequest {
     this.buildSessionByKieBase = buildSessionByKieBase;
   }
 
+  /** @return the containerId */
+  public String getContainerId() {
+    return containerId;
+  }
+
   /** @return the kieBasename */
   public String getKieBasename() {
     return kieBasename;
@@ -78,16 +102,56 @@ public class RulesRequest {
     return facts;
   }
 
+  /** @return the factSource */
+  public Iterator<?> getFactSource() {
+    return factSource;
+  }
+
   /** @return the globalElement */
   public Map<String, Object> getGlobalElement() {
     return globalElement;
   }
 
+  /** @return the partitionKey */
+  public Function<Object, ?> getPartitionKey() {
+    return partitionKey;
+  }
+
+  /** @return the broadcastFacts */
+  public List<Object> getBroadcastFacts() {
+    return broadcastFacts;
+  }
+
+  /** @return the partitions */
+  public int getPartitions() {
+    return partitions;
+  }
+
+  /** @return the timeout */
+  public long getTimeout() {
+    return timeout;
+  }
+
+  /** @return the maxRulesFired */
+  public int getMaxRulesFired() {
+    return maxRulesFired;
+  }
+
   /** @param sessionName the sessionName to set */
   public void setSessionName(String sessionName) {
     this.sessionName = sessionName;
   }
 
+  /**
+   * A tenant configured in drools.containers.releases, or a groupId:artifactId:version release when
+   * drools.containers.dynamic is set.
+   *
+   * @param containerId the containerId to set
+   */
+  public void setContainerId(String containerId) {
+    this.containerId = containerId;
+  }
+
   /** @param kieBasename the kieBasename to set */
   public void setKieBasename(String kieBasename) {
     this.kieBasename = kieBasename;
@@ -103,11 +167,56 @@ public class RulesRequest {
     this.facts = facts;
   }
 
+  /**
+   * The facts are only read while the rules are evaluated, so the source can be larger than the
+   * heap. It can be consumed once.
+   *
+   * @param factSource the factSource to set
+   */
+  public void setFactSource(Iterator<?> factSource) {
+    this.factSource = factSource;
+  }
+
   /** @param globalElement the globalElement to set */
   public void setGlobalElement(Map<String, Object> globalElement) {
     this.globalElement = globalElement;
   }
 
+  /**
+   * Rules must not join facts with different keys, and the globals are shared by all the partitions
+   * so they must be thread safe.
+   *
+   * @param partitionKey the partitionKey to set
+   */
+  public void setPartitionKey(Function<Object, ?> partitionKey) {
+    this.partitionKey = partitionKey;
+  }
+
+  /** @param broadcastFacts the broadcastFacts to set */
+  public void setBroadcastFacts(List<Object> broadcastFacts) {
+    this.broadcastFacts = broadcastFacts;
+  }
+
+  /** @param partitions the partitions to set */
+  public void setPartitions(int partitions) {
+    this.partitions = partitions;
+  }
+
+  /**
+   * The rules are halted between two firings, so a rule looping inside its consequence is not
+   * stopped.
+   *
+   * @param timeout the timeout to set
+   */
+  public void setTimeout(long timeout) {
+    this.timeout = timeout;
+  }
+
+  /** @param maxRulesFired the maxRulesFired to set */
+  public void setMaxRulesFired(int maxRulesFired) {
+    this.maxRulesFired = maxRulesFired;
+  }
+
   /** @param buildSessionByKieBase the buildSessionByKieBase to set */
   public void setBuildSessionByKieBase(boolean buildSessionByKieBase) {
     this.buildSessionByKieBase = buildSessionByKieBase;
@@ -116,11 +225,18 @@ public class RulesRequest {
   // Builder pattern
   public static class RulesRequestBuilder {
 
+    private String containerId;
     private String sessionName;
     private String kieBasename;
     private SessionType sessionType;
     private List<Object> facts;
+    private Iterator<?> factSource;
     private Map<String, Object> globalElement;
+    private Function<Object, ?> partitionKey;
+    private List<Object> broadcastFacts;
+    private int partitions;
+    private long timeout;
+    private int maxRulesFired;
     private boolean buildSessionByKieBase;
 
     public RulesRequestBuilder() {
@@ -132,11 +248,32 @@ public class RulesRequest {
       return this;
     }
 
+    public RulesRequestBuilder factSource(Iterator<?> factSource) {
+      this.factSource = factSource;
+      return this;
+    }
+
+    // Closing the stream is left to the caller
+    public RulesRequestBuilder factSource(Stream<?> factSource) {
+      this.factSource = null == factSource ? null : factSource.iterator();
+      return this;
+    }
+
+    public RulesRequestBuilder factSource(Spliterator<?> factSource) {
+      this.factSource = null == factSource ? null : Spliterators.iterator(factSource);
+      return this;
+    }
+
     public RulesRequestBuilder buildSessionByKieBase(boolean buildSessionByKieBase) {
       this.buildSessionByKieBase = buildSessionByKieBase;
       return this;
     }
 
+    public RulesRequestBuilder containerId(String containerId) {
+      this.containerId = containerId;
+      return this;
+    }
+
     public RulesRequestBuilder sessionName(String sessionName) {
       this.sessionName = sessionName;
       return this;
@@ -157,14 +294,46 @@ public class RulesRequest {
       return this;
     }
 
+    public RulesRequestBuilder partitionKey(Function<Object, ?> partitionKey) {
+      this.partitionKey = partitionKey;
+      return this;
+    }
+
+    public RulesRequestBuilder broadcastFacts(List<Object> broadcastFacts) {
+      this.broadcastFacts = broadcastFacts;
+      return this;
+    }
+
+    public RulesRequestBuilder partitions(int partitions) {
+      this.partitions = partitions;
+      return this;
+    }
+
+    public RulesRequestBuilder timeout(long timeout) {
+      this.timeout = timeout;
+      return this;
+    }
+
+    public RulesRequestBuilder maxRulesFired(int maxRulesFired) {
+      this.maxRulesFired = maxRulesFired;
+      return this;
+    }
+
     public RulesRequest build() {
 
       RulesRequest rulesRequest = new RulesRequest();
       rulesRequest.globalElement = this.globalElement;
+      rulesRequest.containerId = this.containerId;
       rulesRequest.sessionName = this.sessionName;
       rulesRequest.sessionType = this.sessionType;
       rulesRequest.kieBasename = this.kieBasename;
       rulesRequest.facts = this.facts;
+      rulesRequest.factSource = this.factSource;
+      rulesRequest.partitionKey = this.partitionKey;
+      rulesRequest.broadcastFacts = this.broadcastFacts;
+      rulesRequest.partitions = this.partitions;
+      rulesRequest.timeout = this.timeout;
+      rulesRequest.maxRulesFired = this.maxRulesFired;
       rulesRequest.buildSessionByKieBase = this.buildSessionByKieBase;
 
       return rulesRequest;
@@ -174,7 +343,9 @@ public class RulesRequest {
   @Override
   public String toString() {
     StringBuilder builder = new StringBuilder();
-    builder.append("RulesRequest [sessionName=");
+    builder.append("RulesRequest [containerId=");
+    builder.append(containerId);
+    builder.append(", sessionName=");
     builder.append(sessionName);
     builder.append(", kieBasename=");
     builder.append(kieBasename);
@@ -182,8 +353,20 @@ public class RulesRequest {
     builder.append(sessionType);
     builder.append(", facts=");
     builder.append(facts);
+    builder.append(", factSource=");
+    builder.append(factSource);
     builder.append(", globalElement=");
     builder.append(globalElement);
+    builder.append(", partitionKey=");
+    builder.append(partitionKey);
+    builder.append(", broadcastFacts=");
+    builder.append(broadcastFacts);
+    builder.append(", partitions=");
+    builder.append(partitions);
+    builder.append(", timeout=");
+    builder.append(timeout);
+    builder.append(", maxRulesFired=");
+    builder.append(maxRulesFired);
     builder.append(", buildSessionByKieBase=");
     builder.append(buildSessionByKieBase);
     builder.append("]");
@@ -2,6 +2,7 @@
 package rules.api.message;
 
 import java.util.List;
+import rules.api.enums.FiringStatus;
 
 /**
  * This class is responsible for sending back the response from rules engine
@@ -16,6 +17,15 @@ public class RulesResponse {
   // List of objects from session
   private List<Object> factsFromSession;
 
+  // Error raised while running the request. Null when the rules were fired
+  private RuntimeException failure;
+
+  // Whether the firing completed or was stopped by the limits of the request
+  private FiringStatus firingStatus = FiringStatus.COMPLETED;
+
+  // Rules that fired the most when the firing was stopped, most fired first
+  private List<String> hotRules;
+
   /**
    * @param factsFromSession
    * @param numberOfRulesFired
@@ -26,7 +36,35 @@ public class RulesResponse {
     this.numberOfRulesFired = numberOfRulesFired;
   }
 
-  /** @return the factsFromSession */
+  /**
+   * Response of a request whose firing may have been stopped by its limits.
+   *
+   * @param numberOfRulesFired
+   * @param factsFromSession
+   * @param firingStatus
+   * @param hotRules - may be null
+   */
+  public RulesResponse(
+      int numberOfRulesFired,
+      List<Object> factsFromSession,
+      FiringStatus firingStatus,
+      List<String> hotRules) {
+    this(numberOfRulesFired, factsFromSession);
+    this.firingStatus = firingStatus;
+    this.hotRules = hotRules;
+  }
+
+  /**
+   * Response of a request that could not be run.
+   *
+   * @param failure
+   */
+  public RulesResponse(RuntimeException failure) {
+    super();
+    this.failure = failure;
+  }
+
+  /** @return the facts sent to the channel by the rules, in the order they were sent */
   public List<Object> getFactsFromSession() {
     return factsFromSession;
   }
@@ -36,6 +74,31 @@ public class RulesResponse {
     return numberOfRulesFired;
   }
 
+  /** @return the failure */
+  public RuntimeException getFailure() {
+    return failure;
+  }
+
+  /** @return the firingStatus */
+  public FiringStatus getFiringStatus() {
+    return firingStatus;
+  }
+
+  /** @return true if the firing was stopped before all the rules fired */
+  public boolean isPartial() {
+    return firingStatus != FiringStatus.COMPLETED;
+  }
+
+  /** @return the rules that fired the most when the firing was stopped, null otherwise */
+  public List<String> getHotRules() {
+    return hotRules;
+  }
+
+  /** @return true if the request could not be run */
+  public boolean isFailed() {
+    return null != failure;
+  }
+
   @Override
   public String toString() {
     StringBuilder builder = new StringBuilder();
@@ -43,6 +106,16 @@ public class RulesResponse {
     builder.append(numberOfRulesFired);
     builder.append(", factsFromSession=");
     builder.append(factsFromSession);
+    if (firingStatus != FiringStatus.COMPLETED) {
+      builder.append(", firingStatus=");
+      builder.append(firingStatus);
+      builder.append(", hotRules=");
+      builder.append(hotRules);
+    }
+    if (null != failure) {
+      builder.append(", failure=");
+      builder.append(failure.getMessage());
+    }
     builder.append("]");
     return builder.toString();
   }
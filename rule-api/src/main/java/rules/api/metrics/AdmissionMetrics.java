@@ -0,0 +1,102 @@
+/** */
+package rules.api.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+/**
+ * This class holds the admission counters and the queue wait time of one session key.
+ *
+ * @author chandresh.mishra
+ */
+public class AdmissionMetrics implements AdmissionMetricsMXBean {
+
+  private final String sessionKey;
+
+  private final int concurrencyLimit;
+
+  private final IntSupplier active;
+
+  private final IntSupplier queued;
+
+  private final LongAdder rejected = new LongAdder();
+
+  private final LongAdder timedOut = new LongAdder();
+
+  private final LongAdder fallbacks = new LongAdder();
+
+  private final LatencyHistogram queueWait = new LatencyHistogram();
+
+  AdmissionMetrics(
+      String sessionKey, int concurrencyLimit, IntSupplier active, IntSupplier queued) {
+    this.sessionKey = sessionKey;
+    this.concurrencyLimit = concurrencyLimit;
+    this.active = active;
+    this.queued = queued;
+  }
+
+  /** @param nanos - time the request waited before it ran */
+  public void admitted(long nanos) {
+    queueWait.record(nanos);
+  }
+
+  /** Records a request rejected because the queue was full. */
+  public void rejected() {
+    rejected.increment();
+  }
+
+  /** Records a request rejected because it waited longer than maxWait. */
+  public void timedOut() {
+    timedOut.increment();
+  }
+
+  /** Records a rejected request answered by the fallback. */
+  public void fallback() {
+    fallbacks.increment();
+  }
+
+  @Override
+  public String getSessionKey() {
+    return sessionKey;
+  }
+
+  @Override
+  public int getConcurrencyLimit() {
+    return concurrencyLimit;
+  }
+
+  @Override
+  public int getActive() {
+    return active.getAsInt();
+  }
+
+  @Override
+  public int getQueued() {
+    return queued.getAsInt();
+  }
+
+  @Override
+  public long getAdmitted() {
+    return queueWait.getCount();
+  }
+
+  @Override
+  public long getRejected() {
+    return rejected.sum();
+  }
+
+  @Override
+  public long getTimedOut() {
+    return timedOut.sum();
+  }
+
+  @Override
+  public long getFallbacks() {
+    return fallbacks.sum();
+  }
+
+  @Override
+  public LatencyStats getQueueWait() {
+    return queueWait.getStats();
+  }
+}
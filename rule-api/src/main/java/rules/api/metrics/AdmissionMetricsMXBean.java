@@ -0,0 +1,37 @@
+/** */
+package rules.api.metrics;
+
+/**
+ * Management interface of the admission metrics of one session key.
+ *
+ * @author chandresh.mishra
+ */
+public interface AdmissionMetricsMXBean {
+
+  /** @return the session key */
+  String getSessionKey();
+
+  /** @return number of requests allowed to run at the same time */
+  int getConcurrencyLimit();
+
+  /** @return number of requests running */
+  int getActive();
+
+  /** @return number of requests waiting to run */
+  int getQueued();
+
+  /** @return number of requests run */
+  long getAdmitted();
+
+  /** @return number of requests rejected because the queue was full */
+  long getRejected();
+
+  /** @return number of requests rejected because they waited longer than maxWait */
+  long getTimedOut();
+
+  /** @return number of rejected requests answered by the fallback */
+  long getFallbacks();
+
+  /** @return time the admitted requests waited before they ran */
+  LatencyStats getQueueWait();
+}
@@ -0,0 +1,98 @@
+/** */
+package rules.api.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+/**
+ * This class holds the queue counters and the ingestion lag of one event stream.
+ *
+ * @author chandresh.mishra
+ */
+public class EventStreamMetrics implements EventStreamMetricsMXBean {
+
+  private final String streamId;
+
+  private final int queueCapacity;
+
+  private final IntSupplier queueDepth;
+
+  private final LongAdder offered = new LongAdder();
+
+  private final LongAdder rejected = new LongAdder();
+
+  private final LatencyHistogram ingestionLag = new LatencyHistogram();
+
+  private volatile String failure;
+
+  EventStreamMetrics(String streamId, int queueCapacity, IntSupplier queueDepth) {
+    this.streamId = streamId;
+    this.queueCapacity = queueCapacity;
+    this.queueDepth = queueDepth;
+  }
+
+  /** Records an event accepted by the queue. */
+  public void offered() {
+    offered.increment();
+  }
+
+  /** Records an event rejected because the queue was full. */
+  public void rejected() {
+    rejected.increment();
+  }
+
+  /** @param nanos - time the event waited before it was inserted */
+  public void inserted(long nanos) {
+    ingestionLag.record(nanos);
+  }
+
+  /** @param e - failure that stopped the session of the stream */
+  public void failed(Throwable e) {
+    failure = e.toString();
+  }
+
+  @Override
+  public String getStreamId() {
+    return streamId;
+  }
+
+  @Override
+  public int getQueueDepth() {
+    return queueDepth.getAsInt();
+  }
+
+  @Override
+  public int getQueueCapacity() {
+    return queueCapacity;
+  }
+
+  @Override
+  public long getOffered() {
+    return offered.sum();
+  }
+
+  @Override
+  public long getRejected() {
+    return rejected.sum();
+  }
+
+  @Override
+  public long getInserted() {
+    return ingestionLag.getCount();
+  }
+
+  @Override
+  public LatencyStats getIngestionLag() {
+    return ingestionLag.getStats();
+  }
+
+  @Override
+  public boolean isFailed() {
+    return null != failure;
+  }
+
+  @Override
+  public String getFailure() {
+    return failure;
+  }
+}
@@ -0,0 +1,37 @@
+/** */
+package rules.api.metrics;
+
+/**
+ * Management interface of the metrics of one event stream.
+ *
+ * @author chandresh.mishra
+ */
+public interface EventStreamMetricsMXBean {
+
+  /** @return the stream id */
+  String getStreamId();
+
+  /** @return number of events waiting to be inserted */
+  int getQueueDepth();
+
+  /** @return number of events the queue can hold */
+  int getQueueCapacity();
+
+  /** @return number of events accepted by the queue */
+  long getOffered();
+
+  /** @return number of events rejected because the queue was full */
+  long getRejected();
+
+  /** @return number of events inserted in the session */
+  long getInserted();
+
+  /** @return time between the offer of an event and its insertion */
+  LatencyStats getIngestionLag();
+
+  /** @return true when the session of the stream failed, the stream must then be closed */
+  boolean isFailed();
+
+  /** @return the failure that stopped the session, null while it runs */
+  String getFailure();
+}
@@ -0,0 +1,139 @@
+/** */
+package rules.api.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class is a fixed size latency histogram in nanoseconds, in the style of HdrHistogram. Each
+ * power of two is split in 32 linear buckets, so a recorded value is known within about 3%. Values
+ * under 32 ns are exact and values above about 18 minutes go to the last bucket.
+ *
+ * <p>Recording is lock free and does not allocate. Percentiles are computed when read.
+ *
+ * @author chandresh.mishra
+ */
+public final class LatencyHistogram {
+
+  private static final int SUB_BUCKET_BITS = 5;
+
+  private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+  // Highest power of two tracked, 2^40 ns is about 18 minutes
+  private static final int MAX_EXPONENT = 40;
+
+  private static final int BUCKET_COUNT =
+      SUB_BUCKET_COUNT + (MAX_EXPONENT - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT;
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+
+  private final LongAdder count = new LongAdder();
+
+  private final LongAdder total = new LongAdder();
+
+  private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+  /**
+   * Records a value.
+   *
+   * @param nanos - negative values are recorded as 0
+   */
+  public void record(long nanos) {
+
+    long value = Math.max(0, nanos);
+
+    counts.incrementAndGet(indexOf(value));
+    count.increment();
+    total.add(value);
+    max.accumulate(value);
+  }
+
+  /** @return number of recorded values */
+  public long getCount() {
+    return count.sum();
+  }
+
+  /** @return sum of the recorded values in nanoseconds */
+  public long getTotal() {
+    return total.sum();
+  }
+
+  /** @return the highest recorded value in nanoseconds */
+  public long getMax() {
+    return max.get();
+  }
+
+  /** @return the mean in nanoseconds, 0 when empty */
+  public double getMean() {
+    long recorded = count.sum();
+    return recorded == 0 ? 0 : (double) total.sum() / recorded;
+  }
+
+  /**
+   * Returns the value below which the given percentage of the recorded values fall. The result is
+   * the upper bound of the bucket, capped by the highest recorded value.
+   *
+   * @param percentile - between 0 and 100
+   * @return value in nanoseconds, 0 when empty
+   */
+  public long getValueAtPercentile(double percentile) {
+
+    long[] snapshot = new long[BUCKET_COUNT];
+    long recorded = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      snapshot[i] = counts.get(i);
+      recorded += snapshot[i];
+    }
+    if (recorded == 0) {
+      return 0;
+    }
+
+    long rank = Math.max(1, (long) Math.ceil(Math.min(100, percentile) / 100 * recorded));
+    long seen = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      seen += snapshot[i];
+      if (seen >= rank) {
+        // The last bucket holds every value out of range
+        return i == BUCKET_COUNT - 1 ? getMax() : Math.min(highestValueOf(i), getMax());
+      }
+    }
+    return getMax();
+  }
+
+  /** @return an immutable summary of the histogram */
+  public LatencyStats getStats() {
+    return new LatencyStats(
+        getCount(),
+        getMean(),
+        getValueAtPercentile(50),
+        getValueAtPercentile(90),
+        getValueAtPercentile(99),
+        getValueAtPercentile(99.9),
+        getMax());
+  }
+
+  static int indexOf(long value) {
+
+    if (value < SUB_BUCKET_COUNT) {
+      return (int) value;
+    }
+    int exponent = 63 - Long.numberOfLeadingZeros(value);
+    if (exponent > MAX_EXPONENT) {
+      return BUCKET_COUNT - 1;
+    }
+    int shift = exponent - SUB_BUCKET_BITS;
+    int subBucket = (int) (value >>> shift) - SUB_BUCKET_COUNT;
+    return SUB_BUCKET_COUNT + shift * SUB_BUCKET_COUNT + subBucket;
+  }
+
+  static long highestValueOf(int index) {
+
+    if (index < SUB_BUCKET_COUNT) {
+      return index;
+    }
+    int shift = (index - SUB_BUCKET_COUNT) / SUB_BUCKET_COUNT;
+    int subBucket = (index - SUB_BUCKET_COUNT) % SUB_BUCKET_COUNT;
+    return ((long) (SUB_BUCKET_COUNT + subBucket + 1) << shift) - 1;
+  }
+}
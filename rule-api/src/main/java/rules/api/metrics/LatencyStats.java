@@ -0,0 +1,105 @@
+/** */
+package rules.api.metrics;
+
+import java.beans.ConstructorProperties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class is an immutable summary of a LatencyHistogram. Times are in microseconds, which reads
+ * better in a JMX console than nanoseconds.
+ *
+ * @author chandresh.mishra
+ */
+public final class LatencyStats {
+
+  private final long count;
+  private final double mean;
+  private final double p50;
+  private final double p90;
+  private final double p99;
+  private final double p999;
+  private final double max;
+
+  LatencyStats(long count, double meanNanos, long p50, long p90, long p99, long p999, long max) {
+    this(
+        count,
+        meanNanos / 1000,
+        toMicros(p50),
+        toMicros(p90),
+        toMicros(p99),
+        toMicros(p999),
+        toMicros(max));
+  }
+
+  @ConstructorProperties({"count", "mean", "p50", "p90", "p99", "p999", "max"})
+  public LatencyStats(
+      long count, double mean, double p50, double p90, double p99, double p999, double max) {
+    this.count = count;
+    this.mean = mean;
+    this.p50 = p50;
+    this.p90 = p90;
+    this.p99 = p99;
+    this.p999 = p999;
+    this.max = max;
+  }
+
+  private static double toMicros(long nanos) {
+    return (double) nanos / TimeUnit.MICROSECONDS.toNanos(1);
+  }
+
+  /** @return the count */
+  public long getCount() {
+    return count;
+  }
+
+  /** @return the mean in microseconds */
+  public double getMean() {
+    return mean;
+  }
+
+  /** @return the median in microseconds */
+  public double getP50() {
+    return p50;
+  }
+
+  /** @return the 90th percentile in microseconds */
+  public double getP90() {
+    return p90;
+  }
+
+  /** @return the 99th percentile in microseconds */
+  public double getP99() {
+    return p99;
+  }
+
+  /** @return the 99.9th percentile in microseconds */
+  public double getP999() {
+    return p999;
+  }
+
+  /** @return the max in microseconds */
+  public double getMax() {
+    return max;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder builder = new StringBuilder();
+    builder.append("LatencyStats [count=");
+    builder.append(count);
+    builder.append(", mean=");
+    builder.append(mean);
+    builder.append(", p50=");
+    builder.append(p50);
+    builder.append(", p90=");
+    builder.append(p90);
+    builder.append(", p99=");
+    builder.append(p99);
+    builder.append(", p999=");
+    builder.append(p999);
+    builder.append(", max=");
+    builder.append(max);
+    builder.append("]");
+    return builder.toString();
+  }
+}
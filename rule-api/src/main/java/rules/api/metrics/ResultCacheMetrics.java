@@ -0,0 +1,91 @@
+/** */
+package rules.api.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+/**
+ * This class holds the counters of the stateless response cache.
+ *
+ * @author chandresh.mishra
+ */
+public class ResultCacheMetrics implements ResultCacheMetricsMXBean {
+
+  private final IntSupplier size;
+
+  private final LongAdder hits = new LongAdder();
+
+  private final LongAdder misses = new LongAdder();
+
+  private final LongAdder evictions = new LongAdder();
+
+  private final LongAdder expirations = new LongAdder();
+
+  private final LongAdder invalidations = new LongAdder();
+
+  ResultCacheMetrics(IntSupplier size) {
+    this.size = size;
+  }
+
+  /** Records a request answered from the cache. */
+  public void hit() {
+    hits.increment();
+  }
+
+  /** Records a request run on a session. */
+  public void miss() {
+    misses.increment();
+  }
+
+  /** Records a response evicted because the cache was full. */
+  public void evicted() {
+    evictions.increment();
+  }
+
+  /** Records a response dropped at the end of its time to live. */
+  public void expired() {
+    expirations.increment();
+  }
+
+  /** Records the cache being cleared. */
+  public void invalidated() {
+    invalidations.increment();
+  }
+
+  @Override
+  public int getSize() {
+    return size.getAsInt();
+  }
+
+  @Override
+  public long getHits() {
+    return hits.sum();
+  }
+
+  @Override
+  public long getMisses() {
+    return misses.sum();
+  }
+
+  @Override
+  public double getHitRate() {
+    long hitCount = hits.sum();
+    long lookups = hitCount + misses.sum();
+    return lookups == 0 ? 0 : (double) hitCount / lookups;
+  }
+
+  @Override
+  public long getEvictions() {
+    return evictions.sum();
+  }
+
+  @Override
+  public long getExpirations() {
+    return expirations.sum();
+  }
+
+  @Override
+  public long getInvalidations() {
+    return invalidations.sum();
+  }
+}
@@ -0,0 +1,31 @@
+/** */
+package rules.api.metrics;
+
+/**
+ * Management interface of the metrics of the stateless response cache.
+ *
+ * @author chandresh.mishra
+ */
+public interface ResultCacheMetricsMXBean {
+
+  /** @return number of cached responses */
+  int getSize();
+
+  /** @return number of requests answered from the cache */
+  long getHits();
+
+  /** @return number of requests run on a session because no response was cached */
+  long getMisses();
+
+  /** @return hits divided by lookups, 0 before the first lookup */
+  double getHitRate();
+
+  /** @return number of responses evicted because the cache was full */
+  long getEvictions();
+
+  /** @return number of responses dropped because their time to live was over */
+  long getExpirations();
+
+  /** @return number of times the cache was cleared because the rules changed */
+  long getInvalidations();
+}
@@ -0,0 +1,47 @@
+/** */
+package rules.api.metrics;
+
+/**
+ * This class holds the fire count and RHS time of one rule.
+ *
+ * @author chandresh.mishra
+ */
+public class RuleMetrics implements RuleMetricsMXBean {
+
+  private final String ruleName;
+
+  private final LatencyHistogram rhsTime = new LatencyHistogram();
+
+  RuleMetrics(String ruleName) {
+    this.ruleName = ruleName;
+  }
+
+  /**
+   * Records one firing.
+   *
+   * @param nanos - time from beforeMatchFired to afterMatchFired
+   */
+  public void fired(long nanos) {
+    rhsTime.record(nanos);
+  }
+
+  @Override
+  public String getRuleName() {
+    return ruleName;
+  }
+
+  @Override
+  public long getFireCount() {
+    return rhsTime.getCount();
+  }
+
+  @Override
+  public LatencyStats getRhsTime() {
+    return rhsTime.getStats();
+  }
+
+  /** @return the histogram of the RHS time */
+  public LatencyHistogram getRhsTimeHistogram() {
+    return rhsTime;
+  }
+}
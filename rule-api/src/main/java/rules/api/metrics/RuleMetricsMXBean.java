@@ -0,0 +1,19 @@
+/** */
+package rules.api.metrics;
+
+/**
+ * Management interface of the metrics of one rule.
+ *
+ * @author chandresh.mishra
+ */
+public interface RuleMetricsMXBean {
+
+  /** @return package and name of the rule */
+  String getRuleName();
+
+  /** @return number of times the rule fired */
+  long getFireCount();
+
+  /** @return time spent in the RHS of the rule */
+  LatencyStats getRhsTime();
+}
@@ -0,0 +1,256 @@
+/** */
+package rules.api.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.IntSupplier;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import rules.api.config.MetricsSettings;
+import rules.api.session.SessionKey;
+
+/**
+ * This class holds the metrics of every rule and session key. Each of them is published as an
+ * MXBean when first used, as rules.api:type=Rule,name="package.rule" and
+ * rules.api:type=Session,name="type:name". Event streams are published as
+ * rules.api:type=EventStream,name="id" while they are open, the stateless response cache as
+ * rules.api:type=ResultCache,name="stateless", the admission of a session key as
+ * rules.api:type=Admission,name="type:name" and the snapshots of the long lived sessions as
+ * rules.api:type=Snapshot,name="longLived".
+ *
+ * @author chandresh.mishra
+ */
+@Component
+public class RulesMetrics {
+
+  static final String DOMAIN = "rules.api";
+
+  private Logger logger = LogManager.getLogger(this);
+
+  @Autowired private MetricsSettings settings;
+
+  // Rule metrics by package then by rule name, looked up without building a string
+  private final ConcurrentMap<String, ConcurrentMap<String, RuleMetrics>> rules =
+      new ConcurrentHashMap<>();
+
+  private final ConcurrentMap<SessionKey, SessionMetrics> sessions = new ConcurrentHashMap<>();
+
+  private final Set<ObjectName> registered = ConcurrentHashMap.newKeySet();
+
+  private MBeanServer mBeanServer;
+
+  /** Looks up the platform MBean server when JMX is enabled. */
+  @PostConstruct
+  public void init() {
+
+    if (settings.isEnabled() && settings.isJmx()) {
+      mBeanServer = ManagementFactory.getPlatformMBeanServer();
+    }
+  }
+
+  /** Removes the MBeans. */
+  @PreDestroy
+  public void shutdown() {
+
+    for (ObjectName objectName : registered) {
+      try {
+        mBeanServer.unregisterMBean(objectName);
+      } catch (JMException e) {
+        logger.debug("Can not unregister {}", objectName, e);
+      }
+    }
+    registered.clear();
+  }
+
+  /** @return true if the session metrics are recorded */
+  public boolean isEnabled() {
+    return settings.isEnabled();
+  }
+
+  /** @return true if the rule metrics are recorded */
+  public boolean isRuleMetricsEnabled() {
+    return settings.isRules();
+  }
+
+  /**
+   * @param sessionKey
+   * @return the metrics of the session key, null when metrics are disabled
+   */
+  public SessionMetrics getSessionMetrics(SessionKey sessionKey) {
+
+    if (!settings.isEnabled()) {
+      return null;
+    }
+
+    SessionMetrics sessionMetrics = sessions.get(sessionKey);
+
+    if (null == sessionMetrics) {
+      sessionMetrics =
+          sessions.computeIfAbsent(
+              sessionKey,
+              key -> register(new SessionMetrics(key.toString()), "Session", key.toString()));
+    }
+    return sessionMetrics;
+  }
+
+  /**
+   * @param packageName
+   * @param ruleName
+   * @return the metrics of the rule
+   */
+  public RuleMetrics getRuleMetrics(String packageName, String ruleName) {
+
+    ConcurrentMap<String, RuleMetrics> packageRules = rules.get(packageName);
+
+    if (null == packageRules) {
+      packageRules = rules.computeIfAbsent(packageName, name -> new ConcurrentHashMap<>());
+    }
+
+    RuleMetrics ruleMetrics = packageRules.get(ruleName);
+
+    if (null == ruleMetrics) {
+      String fullName = packageName + "." + ruleName;
+      ruleMetrics =
+          packageRules.computeIfAbsent(
+              ruleName, name -> register(new RuleMetrics(fullName), "Rule", fullName));
+    }
+    return ruleMetrics;
+  }
+
+  /**
+   * Creates the metrics of an event stream. They are recorded even when metrics are disabled, as
+   * the stream reports its queue from them, but only published when enabled.
+   *
+   * @param streamId
+   * @param queueCapacity
+   * @param queueDepth
+   * @return EventStreamMetrics
+   */
+  public EventStreamMetrics newEventStreamMetrics(
+      String streamId, int queueCapacity, IntSupplier queueDepth) {
+
+    EventStreamMetrics eventStreamMetrics =
+        new EventStreamMetrics(streamId, queueCapacity, queueDepth);
+    return settings.isEnabled()
+        ? register(eventStreamMetrics, "EventStream", streamId)
+        : eventStreamMetrics;
+  }
+
+  /**
+   * Removes the MBean of a closed event stream.
+   *
+   * @param eventStreamMetrics
+   */
+  public void removeEventStreamMetrics(EventStreamMetrics eventStreamMetrics) {
+    unregister("EventStream", eventStreamMetrics.getStreamId());
+  }
+
+  /**
+   * Creates the metrics of the stateless response cache. They are recorded even when metrics are
+   * disabled, but only published when enabled.
+   *
+   * @param size - number of cached responses
+   * @return ResultCacheMetrics
+   */
+  public ResultCacheMetrics newResultCacheMetrics(IntSupplier size) {
+
+    ResultCacheMetrics resultCacheMetrics = new ResultCacheMetrics(size);
+    return settings.isEnabled()
+        ? register(resultCacheMetrics, "ResultCache", "stateless")
+        : resultCacheMetrics;
+  }
+
+  /**
+   * Creates the admission metrics of a session key. They are recorded even when metrics are
+   * disabled, but only published when enabled.
+   *
+   * @param sessionKey
+   * @param concurrencyLimit
+   * @param active - number of requests running
+   * @param queued - number of requests waiting
+   * @return AdmissionMetrics
+   */
+  public AdmissionMetrics newAdmissionMetrics(
+      SessionKey sessionKey, int concurrencyLimit, IntSupplier active, IntSupplier queued) {
+
+    AdmissionMetrics admissionMetrics =
+        new AdmissionMetrics(sessionKey.toString(), concurrencyLimit, active, queued);
+    return settings.isEnabled()
+        ? register(admissionMetrics, "Admission", sessionKey.toString())
+        : admissionMetrics;
+  }
+
+  /**
+   * Creates the metrics of the snapshots of the long lived sessions. They are recorded even when
+   * metrics are disabled, but only published when enabled.
+   *
+   * @return SnapshotMetrics
+   */
+  public SnapshotMetrics newSnapshotMetrics() {
+
+    SnapshotMetrics snapshotMetrics = new SnapshotMetrics();
+    return settings.isEnabled()
+        ? register(snapshotMetrics, "Snapshot", "longLived")
+        : snapshotMetrics;
+  }
+
+  /** @return the metrics of every rule that fired */
+  public List<RuleMetrics> getRuleMetrics() {
+
+    List<RuleMetrics> ruleMetrics = new ArrayList<>();
+    for (Map<String, RuleMetrics> packageRules : rules.values()) {
+      ruleMetrics.addAll(packageRules.values());
+    }
+    return ruleMetrics;
+  }
+
+  /** @return the metrics of every session key used */
+  public Collection<SessionMetrics> getSessionMetrics() {
+    return sessions.values();
+  }
+
+  private <T> T register(T mBean, String type, String name) {
+
+    if (null == mBeanServer) {
+      return mBean;
+    }
+    try {
+      ObjectName objectName =
+          new ObjectName(DOMAIN + ":type=" + type + ",name=" + ObjectName.quote(name));
+      mBeanServer.registerMBean(mBean, objectName);
+      registered.add(objectName);
+    } catch (JMException e) {
+      logger.warn("Can not register the metrics of {} {}", type, name, e);
+    }
+    return mBean;
+  }
+
+  private void unregister(String type, String name) {
+
+    if (null == mBeanServer) {
+      return;
+    }
+    try {
+      ObjectName objectName =
+          new ObjectName(DOMAIN + ":type=" + type + ",name=" + ObjectName.quote(name));
+      if (registered.remove(objectName)) {
+        mBeanServer.unregisterMBean(objectName);
+      }
+    } catch (JMException e) {
+      logger.debug("Can not unregister the metrics of {} {}", type, name, e);
+    }
+  }
+}
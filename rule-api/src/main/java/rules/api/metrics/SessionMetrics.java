@@ -0,0 +1,62 @@
+/** */
+package rules.api.metrics;
+
+/**
+ * This class holds the latency histograms of one session key.
+ *
+ * @author chandresh.mishra
+ */
+public class SessionMetrics implements SessionMetricsMXBean {
+
+  private final String sessionKey;
+
+  private final LatencyHistogram acquireTime = new LatencyHistogram();
+
+  private final LatencyHistogram insertTime = new LatencyHistogram();
+
+  private final LatencyHistogram fireTime = new LatencyHistogram();
+
+  SessionMetrics(String sessionKey) {
+    this.sessionKey = sessionKey;
+  }
+
+  /** @param nanos - time to get the session */
+  public void acquired(long nanos) {
+    acquireTime.record(nanos);
+  }
+
+  /** @param nanos - time to insert the facts */
+  public void inserted(long nanos) {
+    insertTime.record(nanos);
+  }
+
+  /** @param nanos - time spent in fireAllRules */
+  public void fired(long nanos) {
+    fireTime.record(nanos);
+  }
+
+  @Override
+  public String getSessionKey() {
+    return sessionKey;
+  }
+
+  @Override
+  public long getRequests() {
+    return fireTime.getCount();
+  }
+
+  @Override
+  public LatencyStats getAcquireTime() {
+    return acquireTime.getStats();
+  }
+
+  @Override
+  public LatencyStats getInsertTime() {
+    return insertTime.getStats();
+  }
+
+  @Override
+  public LatencyStats getFireTime() {
+    return fireTime.getStats();
+  }
+}
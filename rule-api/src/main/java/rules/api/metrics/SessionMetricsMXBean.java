@@ -0,0 +1,25 @@
+/** */
+package rules.api.metrics;
+
+/**
+ * Management interface of the metrics of one session key.
+ *
+ * @author chandresh.mishra
+ */
+public interface SessionMetricsMXBean {
+
+  /** @return the session key */
+  String getSessionKey();
+
+  /** @return number of requests */
+  long getRequests();
+
+  /** @return time to get a session from the pool or the cache */
+  LatencyStats getAcquireTime();
+
+  /** @return time to insert the facts */
+  LatencyStats getInsertTime();
+
+  /** @return time spent in fireAllRules */
+  LatencyStats getFireTime();
+}
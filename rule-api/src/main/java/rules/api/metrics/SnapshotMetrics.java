@@ -0,0 +1,105 @@
+/** */
+package rules.api.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class holds the counters, sizes and times of the snapshots of the long lived sessions.
+ *
+ * @author chandresh.mishra
+ */
+public class SnapshotMetrics implements SnapshotMetricsMXBean {
+
+  private final LongAdder snapshotFailures = new LongAdder();
+
+  private final LongAdder snapshotsSkipped = new LongAdder();
+
+  private final LongAdder snapshotBytes = new LongAdder();
+
+  private volatile long lastSnapshotBytes;
+
+  private final LatencyHistogram snapshotTime = new LatencyHistogram();
+
+  private final LongAdder restoreFailures = new LongAdder();
+
+  private final LatencyHistogram restoreTime = new LatencyHistogram();
+
+  SnapshotMetrics() {}
+
+  /**
+   * Records a snapshot written.
+   *
+   * @param bytes - size of the snapshot
+   * @param nanos - time taken to write it
+   */
+  public void snapshotWritten(long bytes, long nanos) {
+    snapshotBytes.add(bytes);
+    lastSnapshotBytes = bytes;
+    snapshotTime.record(nanos);
+  }
+
+  /** Records a snapshot that failed. */
+  public void snapshotFailed() {
+    snapshotFailures.increment();
+  }
+
+  /** Records a snapshot postponed because the session was in use. */
+  public void snapshotSkipped() {
+    snapshotsSkipped.increment();
+  }
+
+  /** @param nanos - time taken to restore a session */
+  public void restored(long nanos) {
+    restoreTime.record(nanos);
+  }
+
+  /** Records a snapshot that could not be restored. */
+  public void restoreFailed() {
+    restoreFailures.increment();
+  }
+
+  @Override
+  public long getSnapshots() {
+    return snapshotTime.getCount();
+  }
+
+  @Override
+  public long getSnapshotFailures() {
+    return snapshotFailures.sum();
+  }
+
+  @Override
+  public long getSnapshotsSkipped() {
+    return snapshotsSkipped.sum();
+  }
+
+  @Override
+  public long getLastSnapshotBytes() {
+    return lastSnapshotBytes;
+  }
+
+  @Override
+  public long getSnapshotBytes() {
+    return snapshotBytes.sum();
+  }
+
+  @Override
+  public LatencyStats getSnapshotTime() {
+    return snapshotTime.getStats();
+  }
+
+  @Override
+  public long getRestored() {
+    return restoreTime.getCount();
+  }
+
+  @Override
+  public long getRestoreFailures() {
+    return restoreFailures.sum();
+  }
+
+  @Override
+  public LatencyStats getRestoreTime() {
+    return restoreTime.getStats();
+  }
+}
@@ -0,0 +1,37 @@
+/** */
+package rules.api.metrics;
+
+/**
+ * Management interface of the metrics of the snapshots of the long lived sessions.
+ *
+ * @author chandresh.mishra
+ */
+public interface SnapshotMetricsMXBean {
+
+  /** @return number of snapshots written */
+  long getSnapshots();
+
+  /** @return number of snapshots that failed */
+  long getSnapshotFailures();
+
+  /** @return number of snapshots postponed because the session was in use */
+  long getSnapshotsSkipped();
+
+  /** @return size in bytes of the last snapshot written */
+  long getLastSnapshotBytes();
+
+  /** @return size in bytes of all the snapshots written */
+  long getSnapshotBytes();
+
+  /** @return time taken to write a snapshot */
+  LatencyStats getSnapshotTime();
+
+  /** @return number of sessions restored from a snapshot */
+  long getRestored();
+
+  /** @return number of snapshots that could not be restored */
+  long getRestoreFailures();
+
+  /** @return time taken to restore a session */
+  LatencyStats getRestoreTime();
+}
@@ -0,0 +1,330 @@
+/** */
+package rules.api.profiler;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import rules.api.exception.RulesApiException;
+
+/**
+ * This class is the ranked report of a profiling run of one kjar release. It is written as a tab
+ * separated file, with the release and number of requests in the header lines, and rules ranked by
+ * the matches they created then by their RHS time.
+ *
+ * <p>Two reports are compared per request, so runs of different length or of different kjar
+ * versions can be compared. The comparison ranks first the rules whose cost grew the most.
+ *
+ * @author chandresh.mishra
+ */
+public final class ProfileReport {
+
+  private static final String RELEASE = "# release\t";
+
+  private static final String REQUESTS = "# requests\t";
+
+  private static final String PERIOD = "# period\t";
+
+  private static final String COLUMNS =
+      "rank\trule\tmatchesCreated\tmatchesCancelled\tmatchesFired\tcancelledRatio\trhsMicros"
+          + "\trhsMeanMicros";
+
+  private final String release;
+
+  private final long requests;
+
+  private final long startTime;
+
+  private final long endTime;
+
+  // Rules ranked by cost
+  private final List<Row> rows;
+
+  private ProfileReport(
+      String release, long requests, long startTime, long endTime, List<Row> rows) {
+    this.release = release;
+    this.requests = requests;
+    this.startTime = startTime;
+    this.endTime = endTime;
+    this.rows = rows;
+    this.rows.sort(
+        Comparator.comparingLong((Row row) -> row.matchesCreated)
+            .thenComparingLong(row -> row.rhsNanos)
+            .reversed()
+            .thenComparing(row -> row.ruleName));
+  }
+
+  /**
+   * @param releaseProfile
+   * @return the report of the release until now
+   */
+  public static ProfileReport of(ReleaseProfile releaseProfile) {
+
+    List<Row> rows = new ArrayList<>();
+    for (RuleProfile ruleProfile : releaseProfile.getRuleProfiles()) {
+      rows.add(
+          new Row(
+              ruleProfile.getRuleName(),
+              ruleProfile.getMatchesCreated(),
+              ruleProfile.getMatchesCancelled(),
+              ruleProfile.getMatchesFired(),
+              ruleProfile.getRhsNanos()));
+    }
+    return new ProfileReport(
+        releaseProfile.getRelease(),
+        releaseProfile.getRequests(),
+        releaseProfile.getStartTime(),
+        System.currentTimeMillis(),
+        rows);
+  }
+
+  /**
+   * Reads a report written by write.
+   *
+   * @param file
+   * @return ProfileReport
+   */
+  public static ProfileReport read(Path file) {
+
+    String release = null;
+    long requests = 0;
+    long startTime = 0;
+    long endTime = 0;
+    List<Row> rows = new ArrayList<>();
+
+    try {
+      for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+        if (line.startsWith(RELEASE)) {
+          release = line.substring(RELEASE.length());
+        } else if (line.startsWith(REQUESTS)) {
+          requests = Long.parseLong(line.substring(REQUESTS.length()));
+        } else if (line.startsWith(PERIOD)) {
+          String[] period = line.substring(PERIOD.length()).split("\t");
+          startTime = Long.parseLong(period[0]);
+          endTime = Long.parseLong(period[1]);
+        } else if (!line.isEmpty() && !line.startsWith("#") && !line.equals(COLUMNS)) {
+          String[] columns = line.split("\t");
+          rows.add(
+              new Row(
+                  columns[1],
+                  Long.parseLong(columns[2]),
+                  Long.parseLong(columns[3]),
+                  Long.parseLong(columns[4]),
+                  TimeUnit.MICROSECONDS.toNanos(Long.parseLong(columns[6]))));
+        }
+      }
+    } catch (IOException | RuntimeException e) {
+      throw new RulesApiException("Can not read the profile report " + file + ": " + e);
+    }
+
+    if (null == release) {
+      throw new RulesApiException("Not a profile report " + file);
+    }
+    return new ProfileReport(release, requests, startTime, endTime, rows);
+  }
+
+  /**
+   * Writes the report, replacing the file.
+   *
+   * @param file
+   */
+  public void write(Path file) {
+
+    try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+      writer.write(RELEASE + release);
+      writer.newLine();
+      writer.write(REQUESTS + requests);
+      writer.newLine();
+      writer.write(PERIOD + startTime + "\t" + endTime);
+      writer.newLine();
+      writer.write(COLUMNS);
+      writer.newLine();
+
+      int rank = 1;
+      for (Row row : rows) {
+        long rhsMicros = TimeUnit.NANOSECONDS.toMicros(row.rhsNanos);
+        writer.write(
+            String.format(
+                Locale.ROOT,
+                "%d\t%s\t%d\t%d\t%d\t%.3f\t%d\t%.3f",
+                rank++,
+                row.ruleName,
+                row.matchesCreated,
+                row.matchesCancelled,
+                row.matchesFired,
+                ratio(row.matchesCancelled, row.matchesCreated),
+                rhsMicros,
+                ratio(rhsMicros, row.matchesFired)));
+        writer.newLine();
+      }
+    } catch (IOException e) {
+      throw new RulesApiException("Can not write the profile report " + file + ": " + e);
+    }
+  }
+
+  /**
+   * Writes the comparison of a report with a baseline, usually of the previous kjar version. The
+   * counts are per request. Rules are ranked by the growth of the matches they create per request
+   * then of their RHS time per request, and marked new or removed when only one report has them.
+   *
+   * @param baseline
+   * @param file
+   */
+  public void writeComparison(ProfileReport baseline, Path file) {
+
+    Map<String, Row> before = baseline.rowsByRule();
+    Map<String, Row> after = rowsByRule();
+
+    Set<String> ruleNames = new HashSet<>(before.keySet());
+    ruleNames.addAll(after.keySet());
+
+    List<Change> changes = new ArrayList<>();
+    for (String ruleName : ruleNames) {
+      changes.add(
+          new Change(
+              ruleName, before.get(ruleName), baseline.requests, after.get(ruleName), requests));
+    }
+    changes.sort(
+        Comparator.comparingDouble((Change change) -> change.matchesCreatedGrowth)
+            .thenComparingDouble(change -> change.rhsMicrosGrowth)
+            .reversed()
+            .thenComparing(change -> change.ruleName));
+
+    try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+      writer.write("# baseline\t" + baseline.release + "\t" + baseline.requests);
+      writer.newLine();
+      writer.write("# candidate\t" + release + "\t" + requests);
+      writer.newLine();
+      writer.write(
+          "rank\trule\tstatus\tmatchesCreatedBefore\tmatchesCreatedAfter\tmatchesCreatedGrowth"
+              + "\trhsMicrosBefore\trhsMicrosAfter\trhsMicrosGrowth");
+      writer.newLine();
+
+      int rank = 1;
+      for (Change change : changes) {
+        writer.write(
+            String.format(
+                Locale.ROOT,
+                "%d\t%s\t%s\t%.3f\t%.3f\t%.3f\t%.3f\t%.3f\t%.3f",
+                rank++,
+                change.ruleName,
+                change.status,
+                change.matchesCreatedBefore,
+                change.matchesCreatedAfter,
+                change.matchesCreatedGrowth,
+                change.rhsMicrosBefore,
+                change.rhsMicrosAfter,
+                change.rhsMicrosGrowth));
+        writer.newLine();
+      }
+    } catch (IOException e) {
+      throw new RulesApiException("Can not write the profile comparison " + file + ": " + e);
+    }
+  }
+
+  /** @return the release as groupId:artifactId:version */
+  public String getRelease() {
+    return release;
+  }
+
+  /** @return number of requests profiled */
+  public long getRequests() {
+    return requests;
+  }
+
+  /** @return the time the profiling started */
+  public long getStartTime() {
+    return startTime;
+  }
+
+  /** @return the time of the report */
+  public long getEndTime() {
+    return endTime;
+  }
+
+  /** @return the rules ranked by cost, most expensive first */
+  public List<String> getRanking() {
+
+    List<String> ranking = new ArrayList<>(rows.size());
+    for (Row row : rows) {
+      ranking.add(row.ruleName);
+    }
+    return Collections.unmodifiableList(ranking);
+  }
+
+  private Map<String, Row> rowsByRule() {
+
+    Map<String, Row> rowsByRule = new LinkedHashMap<>();
+    for (Row row : rows) {
+      rowsByRule.put(row.ruleName, row);
+    }
+    return rowsByRule;
+  }
+
+  private static double ratio(long dividend, long divisor) {
+    return divisor == 0 ? 0 : (double) dividend / divisor;
+  }
+
+  /** The counts of one rule. */
+  private static final class Row {
+
+    private final String ruleName;
+    private final long matchesCreated;
+    private final long matchesCancelled;
+    private final long matchesFired;
+    private final long rhsNanos;
+
+    private Row(
+        String ruleName,
+        long matchesCreated,
+        long matchesCancelled,
+        long matchesFired,
+        long rhsNanos) {
+      this.ruleName = ruleName;
+      this.matchesCreated = matchesCreated;
+      this.matchesCancelled = matchesCancelled;
+      this.matchesFired = matchesFired;
+      this.rhsNanos = rhsNanos;
+    }
+  }
+
+  /** The cost per request of one rule in the baseline and in the candidate. */
+  private static final class Change {
+
+    private final String ruleName;
+    private final String status;
+    private final double matchesCreatedBefore;
+    private final double matchesCreatedAfter;
+    private final double matchesCreatedGrowth;
+    private final double rhsMicrosBefore;
+    private final double rhsMicrosAfter;
+    private final double rhsMicrosGrowth;
+
+    private Change(
+        String ruleName, Row before, long requestsBefore, Row after, long requestsAfter) {
+      this.ruleName = ruleName;
+      this.status = null == before ? "new" : null == after ? "removed" : "kept";
+      this.matchesCreatedBefore = null == before ? 0 : ratio(before.matchesCreated, requestsBefore);
+      this.matchesCreatedAfter = null == after ? 0 : ratio(after.matchesCreated, requestsAfter);
+      this.matchesCreatedGrowth = matchesCreatedAfter - matchesCreatedBefore;
+      this.rhsMicrosBefore =
+          null == before
+              ? 0
+              : ratio(TimeUnit.NANOSECONDS.toMicros(before.rhsNanos), requestsBefore);
+      this.rhsMicrosAfter =
+          null == after ? 0 : ratio(TimeUnit.NANOSECONDS.toMicros(after.rhsNanos), requestsAfter);
+      this.rhsMicrosGrowth = rhsMicrosAfter - rhsMicrosBefore;
+    }
+  }
+}
@@ -0,0 +1,84 @@
+/** */
+package rules.api.profiler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class holds the rule profiles of one kjar release since the profiling started.
+ *
+ * @author chandresh.mishra
+ */
+public class ReleaseProfile {
+
+  private final String release;
+
+  private final long startTime = System.currentTimeMillis();
+
+  private final LongAdder requests = new LongAdder();
+
+  // Rule profiles by package then by rule name, looked up without building a string
+  private final ConcurrentMap<String, ConcurrentMap<String, RuleProfile>> rules =
+      new ConcurrentHashMap<>();
+
+  ReleaseProfile(String release) {
+    this.release = release;
+  }
+
+  /** Records a request that ran on the release. */
+  public void requestProfiled() {
+    requests.increment();
+  }
+
+  /**
+   * @param packageName
+   * @param ruleName
+   * @return the profile of the rule
+   */
+  public RuleProfile getRuleProfile(String packageName, String ruleName) {
+
+    ConcurrentMap<String, RuleProfile> packageRules = rules.get(packageName);
+
+    if (null == packageRules) {
+      packageRules = rules.computeIfAbsent(packageName, name -> new ConcurrentHashMap<>());
+    }
+
+    RuleProfile ruleProfile = packageRules.get(ruleName);
+
+    if (null == ruleProfile) {
+      ruleProfile =
+          packageRules.computeIfAbsent(
+              ruleName, name -> new RuleProfile(packageName + "." + ruleName));
+    }
+    return ruleProfile;
+  }
+
+  /** @return the release as groupId:artifactId:version */
+  public String getRelease() {
+    return release;
+  }
+
+  /** @return the time the profiling of the release started */
+  public long getStartTime() {
+    return startTime;
+  }
+
+  /** @return number of requests that ran on the release */
+  public long getRequests() {
+    return requests.sum();
+  }
+
+  /** @return the profile of every rule that had a match */
+  public List<RuleProfile> getRuleProfiles() {
+
+    List<RuleProfile> ruleProfiles = new ArrayList<>();
+    for (Map<String, RuleProfile> packageRules : rules.values()) {
+      ruleProfiles.addAll(packageRules.values());
+    }
+    return ruleProfiles;
+  }
+}
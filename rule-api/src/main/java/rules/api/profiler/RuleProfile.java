@@ -0,0 +1,67 @@
+/** */
+package rules.api.profiler;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class holds the match counts and the RHS time of one rule.
+ *
+ * @author chandresh.mishra
+ */
+public class RuleProfile {
+
+  private final String ruleName;
+
+  private final LongAdder matchesCreated = new LongAdder();
+
+  private final LongAdder matchesCancelled = new LongAdder();
+
+  private final LongAdder matchesFired = new LongAdder();
+
+  private final LongAdder rhsNanos = new LongAdder();
+
+  RuleProfile(String ruleName) {
+    this.ruleName = ruleName;
+  }
+
+  /** Records a match added to the agenda. */
+  public void matchCreated() {
+    matchesCreated.increment();
+  }
+
+  /** Records a match removed from the agenda before it fired. */
+  public void matchCancelled() {
+    matchesCancelled.increment();
+  }
+
+  /** @param nanos - time from beforeMatchFired to afterMatchFired */
+  public void matchFired(long nanos) {
+    matchesFired.increment();
+    rhsNanos.add(nanos);
+  }
+
+  /** @return package and name of the rule */
+  public String getRuleName() {
+    return ruleName;
+  }
+
+  /** @return number of matches added to the agenda */
+  public long getMatchesCreated() {
+    return matchesCreated.sum();
+  }
+
+  /** @return number of matches removed from the agenda before they fired */
+  public long getMatchesCancelled() {
+    return matchesCancelled.sum();
+  }
+
+  /** @return number of matches fired */
+  public long getMatchesFired() {
+    return matchesFired.sum();
+  }
+
+  /** @return time spent in the RHS of the rule, in nanoseconds */
+  public long getRhsNanos() {
+    return rhsNanos.sum();
+  }
+}
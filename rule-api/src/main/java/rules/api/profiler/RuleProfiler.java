@@ -0,0 +1,141 @@
+/** */
+package rules.api.profiler;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.annotation.PreDestroy;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.drools.core.impl.InternalKnowledgeBase;
+import org.kie.api.KieBase;
+import org.kie.api.builder.ReleaseId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import rules.api.config.ProfilerSettings;
+import rules.api.exception.RulesApiException;
+
+/**
+ * This class profiles the rules of every kjar release the engine runs. The agenda listener of each
+ * request counts the matches created, cancelled and fired by every rule, and the time spent in its
+ * RHS. Matches created and cancelled show what a rule costs to match even when it seldom fires.
+ *
+ * <p>A run lasts from the start of the engine, or the last reset, to the report. The reports are
+ * written to the report directory when the engine stops, one file per release, and can be compared
+ * with compareReports to catch a new kjar version adding matching cost.
+ *
+ * @author chandresh.mishra
+ */
+@Component
+public class RuleProfiler {
+
+  private Logger logger = LogManager.getLogger(this);
+
+  @Autowired private ProfilerSettings settings;
+
+  private final ConcurrentMap<String, ReleaseProfile> releases = new ConcurrentHashMap<>();
+
+  /** Writes the reports of the run. */
+  @PreDestroy
+  public void shutdown() {
+
+    if (settings.isEnabled() && !releases.isEmpty()) {
+      try {
+        writeReports();
+      } catch (RulesApiException e) {
+        logger.error("Can not write the rule profiles", e);
+      }
+    }
+  }
+
+  /** @return true if the rules are profiled */
+  public boolean isEnabled() {
+    return settings.isEnabled();
+  }
+
+  /**
+   * @param kieBase
+   * @return the profile of the release the kieBase was built from
+   */
+  public ReleaseProfile getReleaseProfile(KieBase kieBase) {
+
+    ReleaseId releaseId =
+        kieBase instanceof InternalKnowledgeBase
+            ? ((InternalKnowledgeBase) kieBase).getResolvedReleaseId()
+            : null;
+    String release = null == releaseId ? "unknown" : releaseId.toExternalForm();
+
+    ReleaseProfile releaseProfile = releases.get(release);
+    if (null == releaseProfile) {
+      releaseProfile = releases.computeIfAbsent(release, ReleaseProfile::new);
+    }
+    return releaseProfile;
+  }
+
+  /** @return the profiles of the run, one per release */
+  public List<ReleaseProfile> getReleaseProfiles() {
+    return new ArrayList<>(releases.values());
+  }
+
+  /** Drops the profiles so a new run starts. */
+  public void reset() {
+    releases.clear();
+  }
+
+  /**
+   * Writes the report of every release of the run, named after the release and the time.
+   *
+   * @return the report files
+   */
+  public List<Path> writeReports() {
+
+    Path reportDir = Paths.get(settings.getReportDir());
+    String timestamp = new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date());
+
+    try {
+      Files.createDirectories(reportDir);
+    } catch (IOException e) {
+      throw new RulesApiException("Can not create the profile directory " + reportDir + ": " + e);
+    }
+
+    List<Path> reports = new ArrayList<>();
+    for (Map.Entry<String, ReleaseProfile> release : releases.entrySet()) {
+      Path report =
+          reportDir.resolve(
+              "rules-profile-" + release.getKey().replace(':', '_') + "-" + timestamp + ".tsv");
+      ProfileReport.of(release.getValue()).write(report);
+      reports.add(report);
+      logger.info("Rule profile of {} written to {}", release.getKey(), report);
+    }
+    return reports;
+  }
+
+  /**
+   * Compares the report of a candidate release with the report of a baseline. The comparison is
+   * written next to the candidate report.
+   *
+   * @param baseline - report file
+   * @param candidate - report file
+   * @return the comparison file
+   */
+  public Path compareReports(Path baseline, Path candidate) {
+
+    String fileName = candidate.getFileName().toString();
+    if (fileName.endsWith(".tsv")) {
+      fileName = fileName.substring(0, fileName.length() - ".tsv".length());
+    }
+    Path comparison = candidate.resolveSibling(fileName + "-vs-" + baseline.getFileName());
+
+    ProfileReport.read(candidate).writeComparison(ProfileReport.read(baseline), comparison);
+    logger.info("Rule profile comparison written to {}", comparison);
+    return comparison;
+  }
+}
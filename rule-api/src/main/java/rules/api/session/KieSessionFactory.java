@@ -0,0 +1,143 @@
+/** */
+package rules.api.session;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.kie.api.runtime.KieContainer;
+import org.kie.api.runtime.KieSession;
+import org.kie.api.runtime.KieSessionConfiguration;
+import org.kie.api.runtime.StatelessKieSession;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * This class creates the sessions of a session key from a given container. The static globals of
+ * the key are bound to every session it creates.
+ *
+ * @author chandresh.mishra
+ */
+@Component
+public class KieSessionFactory {
+
+  private Logger logger = LogManager.getLogger(this);
+
+  @Autowired private StaticGlobals staticGlobals;
+
+  /**
+   * This method creates a new state full kieSession from the container
+   *
+   * @param kContainer
+   * @param sessionKey
+   * @return KieSession
+   */
+  public KieSession newKieSession(KieContainer kContainer, SessionKey sessionKey) {
+
+    KieSession kSession = null;
+
+    switch (sessionKey.getType()) {
+      case KIE_BASE:
+        // Getting a default kiesession from kieBase if kiebase name is provided
+        kSession = kContainer.getKieBase(sessionKey.getName()).newKieSession();
+        break;
+
+      case SESSION_NAME:
+        // If session type passed is state full and session name is given
+        logger.debug("Initialise session with session name {}", sessionKey.getName());
+        // Initialise session with session name
+        kSession = kContainer.newKieSession(sessionKey.getName());
+        break;
+
+      default:
+        logger.debug("Getting a default kiesession from Container");
+        // Getting a default kiesession from Container
+        kSession = kContainer.newKieSession();
+    }
+    bindStaticGlobals(kSession, sessionKey);
+    return kSession;
+  }
+
+  /**
+   * This method creates a new state full kieSession from the container with the given
+   * configuration. The configuration replaces the one of the kieSession model.
+   *
+   * @param kContainer
+   * @param sessionKey
+   * @param sessionConfiguration
+   * @return KieSession
+   */
+  public KieSession newKieSession(
+      KieContainer kContainer,
+      SessionKey sessionKey,
+      KieSessionConfiguration sessionConfiguration) {
+
+    KieSession kSession = null;
+
+    switch (sessionKey.getType()) {
+      case KIE_BASE:
+        kSession =
+            kContainer.getKieBase(sessionKey.getName()).newKieSession(sessionConfiguration, null);
+        break;
+
+      case SESSION_NAME:
+        logger.debug("Initialise session with session name {}", sessionKey.getName());
+        kSession = kContainer.newKieSession(sessionKey.getName(), sessionConfiguration);
+        break;
+
+      default:
+        logger.debug("Getting a default kiesession from Container");
+        kSession = kContainer.newKieSession(sessionConfiguration);
+    }
+    bindStaticGlobals(kSession, sessionKey);
+    return kSession;
+  }
+
+  /**
+   * This method creates a new state less kieSession from the container
+   *
+   * @param kContainer
+   * @param sessionKey
+   * @return StatelessKieSession
+   */
+  public StatelessKieSession newStatelessKieSession(
+      KieContainer kContainer, SessionKey sessionKey) {
+
+    StatelessKieSession statelessKieSession = null;
+
+    switch (sessionKey.getType()) {
+      case KIE_BASE:
+        // Getting a default session from kieBase if kiebase name is provided
+        statelessKieSession = kContainer.getKieBase(sessionKey.getName()).newStatelessKieSession();
+        break;
+
+      case SESSION_NAME:
+        // If session type passed is state less and session name is given
+        logger.debug("Initialise state less session with session name {}", sessionKey.getName());
+        // Initialise session with session name
+        statelessKieSession = kContainer.newStatelessKieSession(sessionKey.getName());
+        break;
+
+      default:
+        logger.debug("Getting a default StatelessKieSession from Container");
+        // Getting a default StatelessKieSession from Container
+        statelessKieSession = kContainer.newStatelessKieSession();
+    }
+    if (null != statelessKieSession) {
+      staticGlobals.bind(
+          statelessKieSession.getGlobals(), statelessKieSession.getKieBase(), sessionKey);
+    }
+    return statelessKieSession;
+  }
+
+  private void bindStaticGlobals(KieSession kSession, SessionKey sessionKey) {
+
+    if (null == kSession) {
+      return;
+    }
+    try {
+      staticGlobals.bind(kSession.getGlobals(), kSession.getKieBase(), sessionKey);
+    } catch (RuntimeException e) {
+      kSession.dispose();
+      throw e;
+    }
+  }
+}
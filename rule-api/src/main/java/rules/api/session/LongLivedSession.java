@@ -0,0 +1,210 @@
+/** */
+package rules.api.session;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import org.drools.core.common.InternalFactHandle;
+import org.kie.api.runtime.KieContainer;
+import org.kie.api.runtime.KieSession;
+import org.kie.api.runtime.rule.FactHandle;
+import rules.api.container.ContainerLease;
+import rules.api.exception.RulesApiException;
+
+/**
+ * This class is a stateful session kept open across requests. The facts are registered under a
+ * business key, so a request only inserts, updates or deletes what changed and the rules are
+ * re-evaluated for those facts only.
+ *
+ * <p>One request at a time uses the session: the fact methods must be called between lock() and
+ * unlock(). The session keeps the container it was created from until it is closed, a new kjar is
+ * only used by the sessions opened after the swap.
+ *
+ * @author chandresh.mishra
+ */
+public final class LongLivedSession {
+
+  private final String id;
+
+  private final SessionKey key;
+
+  private final KieSession session;
+
+  private final ContainerLease lease;
+
+  // Guarded by the lock
+  private final Map<Object, FactHandle> factHandles = new HashMap<>();
+
+  private final ReentrantLock lock = new ReentrantLock();
+
+  private final long created;
+
+  private volatile long lastUsed;
+
+  private volatile boolean closed;
+
+  LongLivedSession(String id, SessionKey key, KieSession session, ContainerLease lease) {
+    this.id = id;
+    this.key = key;
+    this.session = session;
+    this.lease = lease;
+    this.created = System.currentTimeMillis();
+    this.lastUsed = created;
+  }
+
+  /** Waits until no other request uses the session. */
+  public void lock() {
+
+    lock.lock();
+    if (closed) {
+      lock.unlock();
+      throw new RulesApiException("Session " + id + " is closed");
+    }
+  }
+
+  /** Hands the session to the next request. */
+  public void unlock() {
+    lastUsed = System.currentTimeMillis();
+    lock.unlock();
+  }
+
+  /** Hands the session back without marking it used, so it still becomes idle. */
+  void unlockIdle() {
+    lock.unlock();
+  }
+
+  /**
+   * Inserts the fact, or updates the fact registered under the key.
+   *
+   * @param factKey
+   * @param fact
+   */
+  public void upsert(Object factKey, Object fact) {
+
+    FactHandle factHandle = factHandles.get(factKey);
+    if (null == factHandle) {
+      factHandles.put(factKey, session.insert(fact));
+    } else {
+      session.update(factHandle, fact);
+    }
+  }
+
+  /**
+   * Deletes the fact registered under the key.
+   *
+   * @param factKey
+   * @return false when no fact is registered under the key
+   */
+  public boolean delete(Object factKey) {
+
+    FactHandle factHandle = factHandles.remove(factKey);
+    if (null == factHandle) {
+      return false;
+    }
+    session.delete(factHandle);
+    return true;
+  }
+
+  /**
+   * @param factKey
+   * @return the fact registered under the key or null
+   */
+  public Object getFact(Object factKey) {
+    FactHandle factHandle = factHandles.get(factKey);
+    return null == factHandle ? null : session.getObject(factHandle);
+  }
+
+  /** @return the number of facts registered under a key */
+  public int getFactCount() {
+    return factHandles.size();
+  }
+
+  /** @return the id */
+  public String getId() {
+    return id;
+  }
+
+  /** @return the key */
+  public SessionKey getKey() {
+    return key;
+  }
+
+  /** @return the session */
+  public KieSession getSession() {
+    return session;
+  }
+
+  /** @return the creation time in milliseconds */
+  public long getCreated() {
+    return created;
+  }
+
+  /** @return the time in milliseconds the session was last handed back */
+  public long getLastUsed() {
+    return lastUsed;
+  }
+
+  /** @return true once the session is closed */
+  public boolean isClosed() {
+    return closed;
+  }
+
+  /** @return the container the session was created from */
+  KieContainer getContainer() {
+    return lease.getContainer();
+  }
+
+  /**
+   * The caller holds the lock.
+   *
+   * @return the id of the fact handle of every fact key, kept by the snapshot of the session
+   */
+  HashMap<Object, Integer> getFactHandleIds() {
+
+    HashMap<Object, Integer> factHandleIds = new HashMap<>(factHandles.size() * 4 / 3 + 1);
+    factHandles.forEach(
+        (factKey, factHandle) ->
+            factHandleIds.put(factKey, ((InternalFactHandle) factHandle).getId()));
+    return factHandleIds;
+  }
+
+  /**
+   * Registers the facts of a session restored from a snapshot under their keys. The caller holds
+   * the lock.
+   *
+   * @param factHandleIds - the id of the fact handle of every fact key
+   */
+  void restoreFactHandles(Map<Object, Integer> factHandleIds) {
+
+    Map<Integer, FactHandle> factHandlesById = new HashMap<>();
+    for (FactHandle factHandle : session.getFactHandles()) {
+      factHandlesById.put(((InternalFactHandle) factHandle).getId(), factHandle);
+    }
+    factHandleIds.forEach(
+        (factKey, factHandleId) -> {
+          FactHandle factHandle = factHandlesById.get(factHandleId);
+          if (null == factHandle) {
+            throw new RulesApiException("Fact " + factKey + " is missing from session " + id);
+          }
+          factHandles.put(factKey, factHandle);
+        });
+  }
+
+  /** @return true if the lock was free, the session is then locked */
+  boolean tryLock() {
+    // The lock is reentrant, a session the caller is using is not free
+    return !lock.isHeldByCurrentThread() && lock.tryLock();
+  }
+
+  /** Disposes the session. The caller holds the lock. */
+  void close() {
+
+    closed = true;
+    factHandles.clear();
+    try {
+      session.dispose();
+    } finally {
+      lease.release();
+    }
+  }
+}
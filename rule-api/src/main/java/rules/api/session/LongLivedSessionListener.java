@@ -0,0 +1,19 @@
+/** */
+package rules.api.session;
+
+/**
+ * Listener notified when the registry closes or evicts a long lived session, so what is kept for
+ * it can be dropped. It is not notified of the sessions closed when the engine stops.
+ *
+ * @author chandresh.mishra
+ */
+@FunctionalInterface
+public interface LongLivedSessionListener {
+
+  /**
+   * Called after the session is closed, from the thread closing it, which holds its lock.
+   *
+   * @param sessionId
+   */
+  void sessionClosed(String sessionId);
+}
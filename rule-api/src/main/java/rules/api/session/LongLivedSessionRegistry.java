@@ -0,0 +1,303 @@
+/** */
+package rules.api.session;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.kie.api.runtime.KieContainer;
+import org.kie.api.runtime.KieSession;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import rules.api.config.LongLivedSessionSettings;
+import rules.api.container.ContainerLease;
+import rules.api.container.KieContainerManager;
+import rules.api.exception.RulesApiException;
+
+/**
+ * This class keeps the long lived sessions by id. Sessions are closed explicitly, when they have
+ * been idle for longer than the idle timeout, or when the maximum number of sessions is reached and
+ * another one is opened. A session in use is never evicted.
+ *
+ * @author chandresh.mishra
+ */
+@Component
+public class LongLivedSessionRegistry {
+
+  private Logger logger = LogManager.getLogger(this);
+
+  @Autowired private LongLivedSessionSettings settings;
+
+  @Autowired private KieContainerManager containerManager;
+
+  private final ConcurrentMap<String, LongLivedSession> sessions = new ConcurrentHashMap<>();
+
+  // Sessions open or being opened, never above the maximum number of sessions
+  private final AtomicInteger slots = new AtomicInteger();
+
+  private final LongAdder opened = new LongAdder();
+  private final LongAdder closed = new LongAdder();
+  private final LongAdder evicted = new LongAdder();
+
+  private final List<LongLivedSessionListener> listeners = new CopyOnWriteArrayList<>();
+
+  private ScheduledExecutorService evictor;
+
+  // The sessions closed when the engine stops are not notified
+  private volatile boolean stopping;
+
+  /** Starts the idle eviction. */
+  @PostConstruct
+  public void init() {
+
+    if (settings.getIdleTimeout() > 0) {
+      evictor =
+          Executors.newSingleThreadScheduledExecutor(
+              runnable -> {
+                Thread thread = new Thread(runnable, "rules-long-lived-session-evictor");
+                thread.setDaemon(true);
+                return thread;
+              });
+      evictor.scheduleWithFixedDelay(
+          this::evictIdle,
+          settings.getEvictionInterval(),
+          settings.getEvictionInterval(),
+          TimeUnit.MILLISECONDS);
+    }
+  }
+
+  /** Stops the eviction and closes all the sessions. */
+  @PreDestroy
+  public void shutdown() {
+
+    stopping = true;
+    if (null != evictor) {
+      evictor.shutdownNow();
+    }
+    for (String id : new ArrayList<>(sessions.keySet())) {
+      close(id);
+    }
+  }
+
+  /**
+   * Opens a session from the current container. The session is returned locked.
+   *
+   * @param id
+   * @param key
+   * @param factory - creates a new session for the key from the container
+   * @return LongLivedSession
+   */
+  public LongLivedSession open(
+      String id, SessionKey key, Function<KieContainer, KieSession> factory) {
+
+    if (sessions.containsKey(id)) {
+      throw new RulesApiException("Session " + id + " is already open");
+    }
+
+    reserveSlot(id);
+
+    LongLivedSession longLivedSession;
+    try {
+      ContainerLease lease = containerManager.acquire(key);
+      try {
+        KieSession kSession = factory.apply(lease.getContainer());
+        if (null == kSession) {
+          throw new RulesApiException("Can not instantiate KieSession.Please check configuration");
+        }
+        longLivedSession = new LongLivedSession(id, key, kSession, lease);
+
+      } catch (RuntimeException e) {
+        lease.release();
+        throw e;
+      }
+    } catch (RuntimeException e) {
+      slots.decrementAndGet();
+      throw e;
+    }
+
+    longLivedSession.lock();
+    if (null != sessions.putIfAbsent(id, longLivedSession)) {
+      slots.decrementAndGet();
+      longLivedSession.close();
+      longLivedSession.unlockIdle();
+      throw new RulesApiException("Session " + id + " is already open");
+    }
+    opened.increment();
+    return longLivedSession;
+  }
+
+  /**
+   * Registers a listener notified when a session is closed or evicted.
+   *
+   * @param listener
+   */
+  public void addListener(LongLivedSessionListener listener) {
+    listeners.add(listener);
+  }
+
+  /**
+   * @param id
+   * @return LongLivedSession or null when no session is open with the id
+   */
+  public LongLivedSession get(String id) {
+    return sessions.get(id);
+  }
+
+  /**
+   * Closes the session once the request using it, if any, is done.
+   *
+   * @param id
+   * @return false when no session is open with the id
+   */
+  public boolean close(String id) {
+
+    LongLivedSession longLivedSession = sessions.get(id);
+    if (null == longLivedSession) {
+      return false;
+    }
+    try {
+      longLivedSession.lock();
+    } catch (RulesApiException e) {
+      // Closed meanwhile
+      return false;
+    }
+    try {
+      return remove(longLivedSession);
+    } finally {
+      longLivedSession.unlock();
+    }
+  }
+
+  /**
+   * Closes a session whose state is unknown. The caller holds the lock.
+   *
+   * @param longLivedSession
+   */
+  public void invalidate(LongLivedSession longLivedSession) {
+    remove(longLivedSession);
+  }
+
+  /** @return the sessions currently open */
+  public Collection<LongLivedSession> getSessions() {
+    return sessions.values();
+  }
+
+  /** @return number of sessions opened */
+  public long getOpened() {
+    return opened.sum();
+  }
+
+  /** @return number of sessions closed, evicted ones included */
+  public long getClosed() {
+    return closed.sum();
+  }
+
+  /** @return number of sessions closed by the eviction */
+  public long getEvicted() {
+    return evicted.sum();
+  }
+
+  /** Closes the sessions that have been idle for longer than the idle timeout. */
+  void evictIdle() {
+
+    long oldest = System.currentTimeMillis() - settings.getIdleTimeout();
+
+    for (LongLivedSession longLivedSession : sessions.values()) {
+      if (longLivedSession.getLastUsed() < oldest) {
+        evict(longLivedSession);
+      }
+    }
+  }
+
+  /**
+   * Takes a slot for a new session, evicting the least recently used idle sessions while all the
+   * slots are taken. The slot is given back when the session is removed.
+   *
+   * @param id
+   */
+  private void reserveSlot(String id) {
+
+    for (; ; ) {
+      int taken = slots.get();
+      if (taken < settings.getMaxSessions()) {
+        if (slots.compareAndSet(taken, taken + 1)) {
+          return;
+        }
+      } else if (!evictLeastRecentlyUsed()) {
+        logger.error("Can not open session {}, {} sessions are in use", id, taken);
+        throw new RulesApiException("Can not open session " + id + ", all sessions are in use");
+      }
+    }
+  }
+
+  /** @return false when every session is in use */
+  private boolean evictLeastRecentlyUsed() {
+
+    List<LongLivedSession> candidates = new ArrayList<>(sessions.values());
+    candidates.sort(Comparator.comparingLong(LongLivedSession::getLastUsed));
+
+    for (LongLivedSession longLivedSession : candidates) {
+      if (evict(longLivedSession)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** @return false when the session is in use */
+  private boolean evict(LongLivedSession longLivedSession) {
+
+    if (!longLivedSession.tryLock()) {
+      return false;
+    }
+    try {
+      if (remove(longLivedSession)) {
+        evicted.increment();
+        logger.info("Session {} evicted", longLivedSession.getId());
+      }
+      return true;
+    } finally {
+      // Evicting does not use the session, it stays idle when it is not removed
+      longLivedSession.unlockIdle();
+    }
+  }
+
+  /** @return false when the session was already removed */
+  private boolean remove(LongLivedSession longLivedSession) {
+
+    if (!sessions.remove(longLivedSession.getId(), longLivedSession)) {
+      return false;
+    }
+    slots.decrementAndGet();
+    closed.increment();
+    try {
+      longLivedSession.close();
+    } catch (RuntimeException e) {
+      logger.error("Can not dispose session {}", longLivedSession.getId(), e);
+    }
+
+    if (!stopping) {
+      for (LongLivedSessionListener listener : listeners) {
+        try {
+          listener.sessionClosed(longLivedSession.getId());
+        } catch (RuntimeException e) {
+          logger.error("Long lived session listener failed", e);
+        }
+      }
+    }
+    return true;
+  }
+}
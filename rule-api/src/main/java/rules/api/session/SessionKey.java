@@ -0,0 +1,125 @@
+/** */
+package rules.api.session;
+
+import org.apache.commons.lang.StringUtils;
+import rules.api.enums.SessionKeyType;
+import rules.api.message.RulesRequest;
+
+/**
+ * This class identifies the session a request runs on. Two requests with the same key are built
+ * from the same kieBase or kieSession model of the same container, so sessions can be shared
+ * between them.
+ *
+ * @author chandresh.mishra
+ */
+public final class SessionKey {
+
+  private static final SessionKey DEFAULT_KEY = new SessionKey(null, SessionKeyType.DEFAULT, null);
+
+  // Container of the registry the session is built from. Null for the default container
+  private final String containerId;
+
+  // How the session is built
+  private final SessionKeyType type;
+
+  // KieBase or kieSession name. Null for the default session
+  private final String name;
+
+  private final int hash;
+
+  private SessionKey(String containerId, SessionKeyType type, String name) {
+    this.containerId = containerId;
+    this.type = type;
+    this.name = name;
+    this.hash =
+        31 * (31 * (containerId == null ? 0 : containerId.hashCode()) + type.hashCode())
+            + (name == null ? 0 : name.hashCode());
+  }
+
+  /**
+   * Resolves the key for a request using the same rules as the session creation: kieBase name when
+   * buildSessionByKieBase is set, session name otherwise and the default session when neither is
+   * given. The container id of the request is kept.
+   *
+   * @param rulesRequest
+   * @return SessionKey
+   */
+  public static SessionKey of(RulesRequest rulesRequest) {
+
+    String containerId = StringUtils.trimToNull(rulesRequest.getContainerId());
+
+    if (rulesRequest.isBuildSessionByKieBase()
+        && !StringUtils.isEmpty(rulesRequest.getKieBasename())) {
+      return new SessionKey(containerId, SessionKeyType.KIE_BASE, rulesRequest.getKieBasename());
+    }
+    if (!rulesRequest.isBuildSessionByKieBase()
+        && !StringUtils.isEmpty(rulesRequest.getSessionName())) {
+      return new SessionKey(
+          containerId, SessionKeyType.SESSION_NAME, rulesRequest.getSessionName());
+    }
+    return null == containerId
+        ? DEFAULT_KEY
+        : new SessionKey(containerId, SessionKeyType.DEFAULT, null);
+  }
+
+  /**
+   * @param kieBasename
+   * @return key for sessions built from the kieBase of the default container
+   */
+  public static SessionKey ofKieBase(String kieBasename) {
+    return new SessionKey(null, SessionKeyType.KIE_BASE, kieBasename);
+  }
+
+  /**
+   * @param sessionName
+   * @return key for sessions built from the kieSession model of the default container
+   */
+  public static SessionKey ofSessionName(String sessionName) {
+    return new SessionKey(null, SessionKeyType.SESSION_NAME, sessionName);
+  }
+
+  /** @return key for the default session of the container */
+  public static SessionKey ofDefault() {
+    return DEFAULT_KEY;
+  }
+
+  /** @return the containerId, null for the default container */
+  public String getContainerId() {
+    return containerId;
+  }
+
+  /** @return the type */
+  public SessionKeyType getType() {
+    return type;
+  }
+
+  /** @return the name */
+  public String getName() {
+    return name;
+  }
+
+  @Override
+  public int hashCode() {
+    return hash;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (!(obj instanceof SessionKey)) {
+      return false;
+    }
+    SessionKey other = (SessionKey) obj;
+    return type == other.type
+        && StringUtils.equals(name, other.name)
+        && StringUtils.equals(containerId, other.containerId);
+  }
+
+  @Override
+  public String toString() {
+    String key = name == null ? type.getType() : type.getType() + ":" + name;
+    return containerId == null ? key : containerId + "/" + key;
+  }
+}
@@ -0,0 +1,120 @@
+/** */
+package rules.api.session;
+
+/**
+ * This class holds a snapshot of the stateful session pool counters.
+ *
+ * @author chandresh.mishra
+ */
+public class SessionPoolStats {
+
+  // Sessions created by the pool
+  private final long created;
+  // Borrows served by an idle session
+  private final long hits;
+  // Borrows that needed a new session
+  private final long misses;
+  // Sessions handed back to the pool
+  private final long returned;
+  // Sessions disposed by the pool
+  private final long destroyed;
+  // Sessions disposed by the idle eviction
+  private final long evicted;
+  // Number of times the whole pool was invalidated
+  private final long invalidations;
+  // Idle sessions at the time of the snapshot
+  private final int idle;
+  // Sessions in use at the time of the snapshot
+  private final int inUse;
+
+  public SessionPoolStats(
+      long created,
+      long hits,
+      long misses,
+      long returned,
+      long destroyed,
+      long evicted,
+      long invalidations,
+      int idle,
+      int inUse) {
+    this.created = created;
+    this.hits = hits;
+    this.misses = misses;
+    this.returned = returned;
+    this.destroyed = destroyed;
+    this.evicted = evicted;
+    this.invalidations = invalidations;
+    this.idle = idle;
+    this.inUse = inUse;
+  }
+
+  /** @return the created */
+  public long getCreated() {
+    return created;
+  }
+
+  /** @return the hits */
+  public long getHits() {
+    return hits;
+  }
+
+  /** @return the misses */
+  public long getMisses() {
+    return misses;
+  }
+
+  /** @return the returned */
+  public long getReturned() {
+    return returned;
+  }
+
+  /** @return the destroyed */
+  public long getDestroyed() {
+    return destroyed;
+  }
+
+  /** @return the evicted */
+  public long getEvicted() {
+    return evicted;
+  }
+
+  /** @return the invalidations */
+  public long getInvalidations() {
+    return invalidations;
+  }
+
+  /** @return the idle */
+  public int getIdle() {
+    return idle;
+  }
+
+  /** @return the inUse */
+  public int getInUse() {
+    return inUse;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder builder = new StringBuilder();
+    builder.append("SessionPoolStats [created=");
+    builder.append(created);
+    builder.append(", hits=");
+    builder.append(hits);
+    builder.append(", misses=");
+    builder.append(misses);
+    builder.append(", returned=");
+    builder.append(returned);
+    builder.append(", destroyed=");
+    builder.append(destroyed);
+    builder.append(", evicted=");
+    builder.append(evicted);
+    builder.append(", invalidations=");
+    builder.append(invalidations);
+    builder.append(", idle=");
+    builder.append(idle);
+    builder.append(", inUse=");
+    builder.append(inUse);
+    builder.append("]");
+    return builder.toString();
+  }
+}
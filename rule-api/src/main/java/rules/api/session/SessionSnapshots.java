@@ -0,0 +1,528 @@
+/** */
+package rules.api.session;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.drools.core.common.DroolsObjectInputStream;
+import org.kie.api.KieServices;
+import org.kie.api.builder.ReleaseId;
+import org.kie.api.marshalling.Marshaller;
+import org.kie.api.runtime.KieContainer;
+import org.kie.api.runtime.KieSession;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import rules.api.config.SnapshotSettings;
+import rules.api.enums.SessionKeyType;
+import rules.api.exception.RulesApiException;
+import rules.api.message.RulesRequest;
+import rules.api.metrics.RulesMetrics;
+import rules.api.metrics.SnapshotMetrics;
+
+/**
+ * This class writes the long lived sessions to local files and opens them again when the engine
+ * starts, which is much faster than inserting their facts again. A session is written when the
+ * engine stops and, every interval, when it was used since its last snapshot. A session is locked
+ * while it is written, a session in use is written at the next interval. The snapshot of a session
+ * is deleted when the session is closed or evicted.
+ *
+ * <p>A snapshot holds the key of the session, the release of its container, the fact keys and the
+ * session marshalled by Drools. The facts and the fact keys must be serializable. The globals of a
+ * request are not kept, the static globals are bound again. A snapshot of another release than the
+ * current one of its container is dropped, as the rules it was evaluated with are gone.
+ *
+ * @author chandresh.mishra
+ */
+@Component
+public class SessionSnapshots {
+
+  private static final int MAGIC = 0x52534E50;
+
+  private static final int VERSION = 1;
+
+  private static final String SUFFIX = ".snapshot";
+
+  private Logger logger = LogManager.getLogger(this);
+
+  @Autowired private SnapshotSettings settings;
+
+  @Autowired private LongLivedSessionRegistry registry;
+
+  @Autowired private KieSessionFactory sessionFactory;
+
+  @Autowired private RulesMetrics rulesMetrics;
+
+  private final KieServices kieService = KieServices.Factory.get();
+
+  // Last use of each session when its snapshot was written
+  private final ConcurrentMap<String, Long> snapshotTimes = new ConcurrentHashMap<>();
+
+  private SnapshotMetrics metrics;
+
+  private ScheduledExecutorService scheduler;
+
+  /** Starts the periodic snapshots. */
+  @PostConstruct
+  public void init() {
+
+    if (!settings.isEnabled()) {
+      return;
+    }
+    metrics = rulesMetrics.newSnapshotMetrics();
+    registry.addListener(this::deleteSnapshot);
+
+    if (settings.getInterval() > 0) {
+      scheduler =
+          Executors.newSingleThreadScheduledExecutor(
+              runnable -> {
+                Thread thread = new Thread(runnable, "rules-session-snapshot");
+                thread.setDaemon(true);
+                return thread;
+              });
+      scheduler.scheduleWithFixedDelay(
+          this::snapshotAll, settings.getInterval(), settings.getInterval(), TimeUnit.MILLISECONDS);
+    }
+  }
+
+  /**
+   * Stops the periodic snapshots and writes every session, before the sessions are closed. The
+   * snapshots of the sessions closed since are deleted.
+   */
+  @PreDestroy
+  public void shutdown() {
+
+    if (!settings.isEnabled()) {
+      return;
+    }
+    if (null != scheduler) {
+      scheduler.shutdownNow();
+    }
+    deleteClosed();
+
+    for (LongLivedSession longLivedSession : registry.getSessions()) {
+      try {
+        longLivedSession.lock();
+      } catch (RulesApiException e) {
+        // Closed meanwhile
+        continue;
+      }
+      try {
+        snapshot(longLivedSession);
+      } finally {
+        longLivedSession.unlockIdle();
+      }
+    }
+  }
+
+  /** @return true if the sessions are written to local files */
+  public boolean isEnabled() {
+    return settings.isEnabled();
+  }
+
+  /**
+   * Writes the sessions used since their last snapshot. A session in use is skipped, and the
+   * snapshots of the sessions closed since are deleted.
+   */
+  public void snapshotAll() {
+
+    logger.traceEntry("START - method - [snapshotAll()]");
+
+    for (LongLivedSession longLivedSession : registry.getSessions()) {
+      Long snapshotTime = snapshotTimes.get(longLivedSession.getId());
+      if (null != snapshotTime && snapshotTime == longLivedSession.getLastUsed()) {
+        continue;
+      }
+      if (!longLivedSession.tryLock()) {
+        metrics.snapshotSkipped();
+        continue;
+      }
+      try {
+        if (!longLivedSession.isClosed()) {
+          snapshot(longLivedSession);
+        }
+      } finally {
+        longLivedSession.unlockIdle();
+      }
+    }
+
+    deleteClosed();
+  }
+
+  /**
+   * Writes a session now, waiting until no request uses it.
+   *
+   * @param sessionId
+   */
+  public void snapshot(String sessionId) {
+
+    if (!settings.isEnabled()) {
+      throw new RulesApiException("Session snapshots are not enabled");
+    }
+
+    LongLivedSession longLivedSession = registry.get(sessionId);
+    if (null == longLivedSession) {
+      throw new RulesApiException("Session " + sessionId + " is not open");
+    }
+
+    longLivedSession.lock();
+    try {
+      if (!snapshot(longLivedSession)) {
+        throw new RulesApiException("Can not write the snapshot of session " + sessionId);
+      }
+    } finally {
+      longLivedSession.unlockIdle();
+    }
+  }
+
+  /**
+   * Opens the sessions of the snapshot files. A snapshot that can not be restored is deleted.
+   *
+   * @param initializer - prepares a restored session for the requests, like the session opening
+   */
+  public void restoreAll(Consumer<KieSession> initializer) {
+
+    logger.traceEntry("START - method - [restoreAll(Consumer<KieSession>)]");
+
+    if (!settings.isRestore()) {
+      return;
+    }
+
+    Path dir = Paths.get(settings.getDir());
+    if (!Files.isDirectory(dir)) {
+      return;
+    }
+
+    try (DirectoryStream<Path> snapshots = Files.newDirectoryStream(dir, "*" + SUFFIX)) {
+      for (Path path : snapshots) {
+        if (!restore(path, initializer)) {
+          metrics.restoreFailed();
+          delete(path);
+        }
+      }
+    } catch (IOException e) {
+      logger.error("Can not read the session snapshots of {}", dir, e);
+    }
+
+    logger.traceExit("END - method - [restoreAll(Consumer<KieSession>)]");
+  }
+
+  /**
+   * Deletes the snapshot of a session closed or evicted.
+   *
+   * @param sessionId
+   */
+  private void deleteSnapshot(String sessionId) {
+
+    snapshotTimes.remove(sessionId);
+    delete(getPath(sessionId));
+  }
+
+  /** Deletes the snapshots of the sessions no longer open. */
+  private void deleteClosed() {
+
+    for (String id : snapshotTimes.keySet()) {
+      if (null == registry.get(id)) {
+        deleteSnapshot(id);
+      }
+    }
+  }
+
+  /**
+   * Writes the session to a temporary file which then replaces its snapshot, so a snapshot is never
+   * left half written. The caller holds the lock.
+   *
+   * @param longLivedSession
+   * @return false when the snapshot failed
+   */
+  private boolean snapshot(LongLivedSession longLivedSession) {
+
+    long start = System.nanoTime();
+    String id = longLivedSession.getId();
+    SessionKey key = longLivedSession.getKey();
+    ReleaseId releaseId = longLivedSession.getContainer().getReleaseId();
+
+    Path path = getPath(id);
+    Path tmpPath = path.resolveSibling(path.getFileName() + ".tmp");
+
+    long bytes;
+    try {
+      Files.createDirectories(path.getParent());
+
+      // The fact keys are written first, with their length, so they are read before the session
+      ByteArrayOutputStream factKeys = new ByteArrayOutputStream();
+      try (ObjectOutputStream out = new ObjectOutputStream(factKeys)) {
+        out.writeObject(longLivedSession.getFactHandleIds());
+      }
+
+      try (FileChannel channel =
+          FileChannel.open(
+              tmpPath,
+              StandardOpenOption.CREATE,
+              StandardOpenOption.WRITE,
+              StandardOpenOption.TRUNCATE_EXISTING)) {
+
+        DataOutputStream out =
+            new DataOutputStream(
+                new BufferedOutputStream(
+                    new UnclosedOutputStream(Channels.newOutputStream(channel)), 64 * 1024));
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeUTF(id);
+        out.writeUTF(toString(key.getContainerId()));
+        out.writeUTF(key.getType().name());
+        out.writeUTF(toString(key.getName()));
+        out.writeUTF(null == releaseId ? "" : releaseId.toExternalForm());
+        out.writeLong(System.currentTimeMillis());
+        out.writeInt(factKeys.size());
+        factKeys.writeTo(out);
+
+        KieSession kSession = longLivedSession.getSession();
+        newMarshaller(kSession).marshall(out, kSession);
+        out.flush();
+
+        channel.force(false);
+        bytes = channel.size();
+      }
+
+      Files.move(
+          tmpPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+    } catch (IOException | RuntimeException e) {
+      logger.error("Can not write the snapshot of session {}", id, e);
+      metrics.snapshotFailed();
+      delete(tmpPath);
+      return false;
+    }
+
+    long nanos = System.nanoTime() - start;
+    snapshotTimes.put(id, longLivedSession.getLastUsed());
+    metrics.snapshotWritten(bytes, nanos);
+
+    logger.info(
+        "Session {} snapshot of {} bytes in {} ms",
+        id,
+        bytes,
+        TimeUnit.NANOSECONDS.toMillis(nanos));
+    return true;
+  }
+
+  /**
+   * Opens the session of a snapshot file, read from memory.
+   *
+   * @param path
+   * @param initializer
+   * @return false when the snapshot can not be restored
+   */
+  private boolean restore(Path path, Consumer<KieSession> initializer) {
+
+    long start = System.nanoTime();
+    String id = null;
+
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+
+      InputStream in =
+          new ByteBufferInputStream(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+
+      DataInputStream header = new DataInputStream(in);
+      if (header.readInt() != MAGIC || header.readInt() != VERSION) {
+        logger.error("Unknown session snapshot {}", path);
+        return false;
+      }
+      id = header.readUTF();
+      String containerId = header.readUTF();
+      SessionKeyType type = SessionKeyType.valueOf(header.readUTF());
+      String name = header.readUTF();
+      String release = header.readUTF();
+      header.readLong();
+      byte[] factKeys = new byte[header.readInt()];
+      header.readFully(factKeys);
+
+      SessionKey key = newSessionKey(containerId, type, name);
+      Map<Object, Integer> factHandleIds = new HashMap<>();
+
+      LongLivedSession longLivedSession =
+          registry.open(
+              id,
+              key,
+              kContainer -> {
+                ReleaseId releaseId = kContainer.getReleaseId();
+                if (!release.equals(null == releaseId ? "" : releaseId.toExternalForm())) {
+                  throw new RulesApiException(
+                      "Snapshot of release " + release + " does not match " + releaseId);
+                }
+                factHandleIds.putAll(readFactKeys(factKeys, kContainer));
+
+                KieSession kSession = sessionFactory.newKieSession(kContainer, key);
+                try {
+                  newMarshaller(kSession).unmarshall(in, kSession);
+                } catch (IOException | ClassNotFoundException e) {
+                  kSession.dispose();
+                  throw new RulesApiException("Can not read the session: " + e.getMessage());
+                }
+                return kSession;
+              });
+
+      try {
+        longLivedSession.restoreFactHandles(factHandleIds);
+        initializer.accept(longLivedSession.getSession());
+      } catch (RuntimeException e) {
+        registry.invalidate(longLivedSession);
+        throw e;
+      } finally {
+        longLivedSession.unlock();
+      }
+      snapshotTimes.put(id, longLivedSession.getLastUsed());
+
+    } catch (IOException | RuntimeException e) {
+      logger.error("Can not restore session {} from {}", id, path, e);
+      return false;
+    }
+
+    long nanos = System.nanoTime() - start;
+    metrics.restored(nanos);
+
+    logger.info("Session {} restored in {} ms", id, TimeUnit.NANOSECONDS.toMillis(nanos));
+    return true;
+  }
+
+  /**
+   * @param factKeys
+   * @param kContainer - the fact keys may be classes of the kjar
+   * @return the id of the fact handle of every fact key
+   */
+  @SuppressWarnings("unchecked")
+  private Map<Object, Integer> readFactKeys(byte[] factKeys, KieContainer kContainer) {
+
+    try (ObjectInputStream in =
+        new DroolsObjectInputStream(
+            new ByteArrayInputStream(factKeys), kContainer.getClassLoader())) {
+      return (Map<Object, Integer>) in.readObject();
+    } catch (IOException | ClassNotFoundException e) {
+      throw new RulesApiException("Can not read the fact keys: " + e.getMessage());
+    }
+  }
+
+  private SessionKey newSessionKey(String containerId, SessionKeyType type, String name) {
+
+    return SessionKey.of(
+        new RulesRequest.RulesRequestBuilder()
+            .containerId(containerId)
+            .kieBasename(type == SessionKeyType.KIE_BASE ? name : null)
+            .sessionName(type == SessionKeyType.SESSION_NAME ? name : null)
+            .buildSessionByKieBase(type == SessionKeyType.KIE_BASE)
+            .build());
+  }
+
+  private Marshaller newMarshaller(KieSession kSession) {
+    return kieService.getMarshallers().newMarshaller(kSession.getKieBase());
+  }
+
+  /**
+   * @param sessionId
+   * @return the snapshot file of the session, named after its encoded id
+   */
+  private Path getPath(String sessionId) {
+
+    try {
+      return Paths.get(settings.getDir(), URLEncoder.encode(sessionId, "UTF-8") + SUFFIX);
+    } catch (UnsupportedEncodingException e) {
+      throw new RulesApiException(e.getMessage());
+    }
+  }
+
+  private void delete(Path path) {
+
+    try {
+      Files.deleteIfExists(path);
+    } catch (IOException e) {
+      logger.error("Can not delete {}", path, e);
+    }
+  }
+
+  private static String toString(String value) {
+    return null == value ? "" : value;
+  }
+
+  /** Keeps the file open when the marshaller closes its stream, so it can still be forced. */
+  private static final class UnclosedOutputStream extends FilterOutputStream {
+
+    private UnclosedOutputStream(OutputStream out) {
+      super(out);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+      out.write(bytes, offset, length);
+    }
+
+    @Override
+    public void close() throws IOException {
+      flush();
+    }
+  }
+
+  /** Reads a snapshot mapped in memory. */
+  private static final class ByteBufferInputStream extends InputStream {
+
+    private final ByteBuffer buffer;
+
+    private ByteBufferInputStream(ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+
+    @Override
+    public int read() {
+      return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) {
+
+      if (length == 0) {
+        return 0;
+      }
+      if (!buffer.hasRemaining()) {
+        return -1;
+      }
+      int count = Math.min(length, buffer.remaining());
+      buffer.get(bytes, offset, count);
+      return count;
+    }
+
+    @Override
+    public int available() {
+      return buffer.remaining();
+    }
+  }
+}
@@ -0,0 +1,523 @@
+/** */
+package rules.api.session;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.drools.core.impl.StatefulKnowledgeSessionImpl;
+import org.kie.api.event.rule.AgendaEventListener;
+import org.kie.api.event.rule.RuleRuntimeEventListener;
+import org.kie.api.runtime.KieContainer;
+import org.kie.api.runtime.KieSession;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import rules.api.config.SessionPoolSettings;
+import rules.api.container.ContainerLease;
+import rules.api.container.KieContainerManager;
+import rules.api.exception.RulesApiException;
+
+/**
+ * This class keeps a bounded pool of stateful sessions per session key. A session handed back to
+ * the pool is cleaned with reset() so facts, globals and agenda are gone and the listeners and
+ * channels added during the request are removed. The node memories built for the kieBase are kept,
+ * which is what makes reuse cheaper than creating a new session.
+ *
+ * <p>Every session holds a lease on the container it was created from. When the rules change the
+ * idle sessions are replaced by sessions of the new container, and sessions in use are disposed
+ * when they are handed back. The sessions of a container unloaded by the registry are dropped the
+ * same way.
+ *
+ * @author chandresh.mishra
+ */
+@Component
+public class StatefulSessionPool {
+
+  private Logger logger = LogManager.getLogger(this);
+
+  @Autowired private SessionPoolSettings settings;
+
+  @Autowired private KieContainerManager containerManager;
+
+  // Idle sessions and borrow permits per session key
+  private final ConcurrentMap<SessionKey, KeyedPool> pools = new ConcurrentHashMap<>();
+
+  // Sessions currently handed out. KieSession uses identity equality
+  private final ConcurrentMap<KieSession, PooledSession> borrowed = new ConcurrentHashMap<>();
+
+  // Sessions created before the current generation are not reused
+  private final AtomicLong generation = new AtomicLong();
+
+  private final LongAdder created = new LongAdder();
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder returned = new LongAdder();
+  private final LongAdder destroyed = new LongAdder();
+  private final LongAdder evicted = new LongAdder();
+  private final LongAdder invalidations = new LongAdder();
+
+  private ScheduledExecutorService evictor;
+
+  /** Starts the idle eviction and registers the pool with the container manager. */
+  @PostConstruct
+  public void init() {
+
+    if (settings.isEnabled() && settings.getIdleTimeout() > 0) {
+      evictor =
+          Executors.newSingleThreadScheduledExecutor(
+              runnable -> {
+                Thread thread = new Thread(runnable, "rules-session-pool-evictor");
+                thread.setDaemon(true);
+                return thread;
+              });
+      evictor.scheduleWithFixedDelay(
+          this::evictIdle,
+          settings.getEvictionInterval(),
+          settings.getEvictionInterval(),
+          TimeUnit.MILLISECONDS);
+    }
+
+    containerManager.addListener(container -> refresh());
+    containerManager.addEvictionListener(this::invalidateContainer);
+  }
+
+  /** Stops the eviction and disposes all the idle sessions. */
+  @PreDestroy
+  public void shutdown() {
+
+    if (null != evictor) {
+      evictor.shutdownNow();
+    }
+    invalidateAll();
+  }
+
+  /**
+   * Hands out a session for the key. An idle session is reused when one is available, otherwise a
+   * new one is created with the factory from the current container.
+   *
+   * @param key
+   * @param factory - creates a new session for the key from the container
+   * @return KieSession or null when the factory does not return a session
+   */
+  public KieSession borrow(SessionKey key, Function<KieContainer, KieSession> factory) {
+
+    if (!settings.isEnabled()) {
+      // Sessions are still tracked so their container lease is released on dispose
+      PooledSession pooledSession = newPooledSession(key, null, factory);
+      if (null == pooledSession) {
+        return null;
+      }
+      borrowed.put(pooledSession.session, pooledSession);
+      return pooledSession.session;
+    }
+
+    KeyedPool pool = pools.computeIfAbsent(key, k -> new KeyedPool(settings.getMaxTotalPerKey()));
+    pool.factory = factory;
+
+    acquirePermit(pool, key);
+
+    try {
+      PooledSession pooledSession;
+      while (null != (pooledSession = pool.idle.pollFirst())) {
+        pool.idleCount.decrementAndGet();
+        if (pooledSession.generation == generation.get()) {
+          hits.increment();
+          borrowed.put(pooledSession.session, pooledSession);
+          return pooledSession.session;
+        }
+        destroy(pooledSession);
+      }
+
+      misses.increment();
+      pooledSession = newPooledSession(key, pool, factory);
+      if (null == pooledSession) {
+        pool.permits.release();
+        return null;
+      }
+      borrowed.put(pooledSession.session, pooledSession);
+      return pooledSession.session;
+
+    } catch (RuntimeException e) {
+      pool.permits.release();
+      throw e;
+    }
+  }
+
+  /**
+   * Gives a session back to the pool. The session is cleaned and kept as idle, or disposed when it
+   * can not be reused.
+   *
+   * @param kSession
+   */
+  public void release(KieSession kSession) {
+
+    PooledSession pooledSession = borrowed.remove(kSession);
+
+    if (null == pooledSession) {
+      // Not handed out by the pool
+      kSession.dispose();
+      return;
+    }
+
+    returned.increment();
+
+    KeyedPool pool = pooledSession.pool;
+    if (null == pool) {
+      // Pooling is disabled
+      destroy(pooledSession);
+      return;
+    }
+
+    try {
+      if (pooledSession.generation == generation.get()
+          && !pool.retired
+          && pool.idleCount.get() < settings.getMaxIdlePerKey()
+          && reset(pooledSession)) {
+        pooledSession.lastUsed = System.currentTimeMillis();
+        pool.idleCount.incrementAndGet();
+        pool.idle.offerFirst(pooledSession);
+        // The container was unloaded in between
+        if (pool.retired && pool.idle.remove(pooledSession)) {
+          pool.idleCount.decrementAndGet();
+          destroy(pooledSession);
+        }
+      } else {
+        destroy(pooledSession);
+      }
+    } finally {
+      pool.permits.release();
+    }
+  }
+
+  /**
+   * Disposes a session instead of returning it to the pool. It is used when the request failed and
+   * the state of the session is unknown.
+   *
+   * @param kSession
+   */
+  public void invalidate(KieSession kSession) {
+
+    PooledSession pooledSession = borrowed.remove(kSession);
+
+    if (null == pooledSession) {
+      kSession.dispose();
+      return;
+    }
+    try {
+      destroy(pooledSession);
+    } finally {
+      if (null != pooledSession.pool) {
+        pooledSession.pool.permits.release();
+      }
+    }
+  }
+
+  /**
+   * Drops every idle session. Sessions in use are disposed when they are handed back.
+   *
+   * @return number of idle sessions dropped per key
+   */
+  public Map<SessionKey, Integer> invalidateAll() {
+
+    generation.incrementAndGet();
+    invalidations.increment();
+
+    Map<SessionKey, Integer> dropped = new HashMap<>();
+
+    for (Map.Entry<SessionKey, KeyedPool> entry : pools.entrySet()) {
+      KeyedPool pool = entry.getValue();
+      PooledSession pooledSession;
+      int count = 0;
+      while (null != (pooledSession = pool.idle.pollFirst())) {
+        pool.idleCount.decrementAndGet();
+        destroy(pooledSession);
+        count++;
+      }
+      dropped.put(entry.getKey(), count);
+    }
+    logger.info("Session pool invalidated");
+    return dropped;
+  }
+
+  /**
+   * Drops the idle sessions of a container unloaded by the registry. Sessions in use are disposed
+   * when they are handed back.
+   *
+   * @param containerId
+   */
+  public void invalidateContainer(String containerId) {
+
+    for (Map.Entry<SessionKey, KeyedPool> entry : pools.entrySet()) {
+      if (!containerId.equals(entry.getKey().getContainerId())
+          || !pools.remove(entry.getKey(), entry.getValue())) {
+        continue;
+      }
+      KeyedPool pool = entry.getValue();
+      pool.retired = true;
+      PooledSession pooledSession;
+      while (null != (pooledSession = pool.idle.pollFirst())) {
+        pool.idleCount.decrementAndGet();
+        destroy(pooledSession);
+      }
+    }
+  }
+
+  /**
+   * Replaces the idle sessions with sessions of the current container. It is called when a new kjar
+   * is deployed, so the requests following a swap find sessions ready.
+   */
+  public void refresh() {
+
+    Map<SessionKey, Integer> dropped = invalidateAll();
+
+    if (!settings.isEnabled()) {
+      return;
+    }
+
+    int prefilled = 0;
+
+    for (Map.Entry<SessionKey, Integer> entry : dropped.entrySet()) {
+      // Containers of the registry are not reloaded before they are requested again
+      if (null != entry.getKey().getContainerId()) {
+        continue;
+      }
+      KeyedPool pool = pools.get(entry.getKey());
+      // At least one session per key seen, even when all of them were in use
+      int count = Math.min(Math.max(1, entry.getValue()), settings.getMaxIdlePerKey());
+
+      for (int i = 0; i < count && null != pool.factory; i++) {
+        try {
+          PooledSession pooledSession = newPooledSession(entry.getKey(), pool, pool.factory);
+          if (null == pooledSession) {
+            break;
+          }
+          pool.idleCount.incrementAndGet();
+          pool.idle.offerLast(pooledSession);
+          prefilled++;
+        } catch (RuntimeException e) {
+          logger.error("Can not create a session of {}", entry.getKey(), e);
+          break;
+        }
+      }
+    }
+    logger.info("Session pool refilled with {} sessions", prefilled);
+  }
+
+  /** @return the statistics of the pool */
+  public SessionPoolStats getStats() {
+
+    int idle = 0;
+    for (KeyedPool pool : pools.values()) {
+      idle += pool.idleCount.get();
+    }
+    return new SessionPoolStats(
+        created.sum(),
+        hits.sum(),
+        misses.sum(),
+        returned.sum(),
+        destroyed.sum(),
+        evicted.sum(),
+        invalidations.sum(),
+        idle,
+        borrowed.size());
+  }
+
+  /**
+   * @param key
+   * @return number of idle sessions for the key
+   */
+  public int getIdleCount(SessionKey key) {
+    KeyedPool pool = pools.get(key);
+    return null == pool ? 0 : pool.idleCount.get();
+  }
+
+  /** Disposes the sessions that have been idle for longer than the idle timeout. */
+  void evictIdle() {
+
+    long oldest = System.currentTimeMillis() - settings.getIdleTimeout();
+
+    for (KeyedPool pool : pools.values()) {
+      // Least recently used sessions are at the end of the deque
+      PooledSession pooledSession;
+      while (null != (pooledSession = pool.idle.peekLast()) && pooledSession.lastUsed < oldest) {
+        if (pool.idle.removeLastOccurrence(pooledSession)) {
+          pool.idleCount.decrementAndGet();
+          evicted.increment();
+          destroy(pooledSession);
+        }
+      }
+    }
+  }
+
+  /**
+   * Creates a session from the current container. The session keeps a lease on the container.
+   *
+   * @param key
+   * @param pool - null when pooling is disabled
+   * @param factory
+   * @return PooledSession or null when the factory does not return a session
+   */
+  private PooledSession newPooledSession(
+      SessionKey key, KeyedPool pool, Function<KieContainer, KieSession> factory) {
+
+    // Read before the lease, a session of an older container is then never reused
+    long sessionGeneration = generation.get();
+
+    ContainerLease lease = containerManager.acquire(key);
+    try {
+      KieSession kSession = factory.apply(lease.getContainer());
+      if (null == kSession) {
+        lease.release();
+        return null;
+      }
+      created.increment();
+      return new PooledSession(key, pool, kSession, lease, sessionGeneration);
+
+    } catch (RuntimeException e) {
+      lease.release();
+      throw e;
+    }
+  }
+
+  /**
+   * Waits for a free slot of the key.
+   *
+   * @param pool
+   * @param key
+   */
+  private void acquirePermit(KeyedPool pool, SessionKey key) {
+
+    try {
+      if (!pool.permits.tryAcquire(settings.getBorrowTimeout(), TimeUnit.MILLISECONDS)) {
+        logger.error("Timed out waiting for a session of {}", key);
+        throw new RulesApiException("Timed out waiting for a session of " + key);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RulesApiException("Interrupted while waiting for a session of " + key);
+    }
+  }
+
+  /**
+   * Removes what the request added to the session and clears its working memory.
+   *
+   * @param pooledSession
+   * @return false when the session can not be cleaned
+   */
+  private boolean reset(PooledSession pooledSession) {
+
+    KieSession kSession = pooledSession.session;
+
+    if (!(kSession instanceof StatefulKnowledgeSessionImpl)) {
+      return false;
+    }
+
+    try {
+      for (AgendaEventListener listener : new ArrayList<>(kSession.getAgendaEventListeners())) {
+        if (!pooledSession.agendaListeners.contains(listener)) {
+          kSession.removeEventListener(listener);
+        }
+      }
+      for (RuleRuntimeEventListener listener :
+          new ArrayList<>(kSession.getRuleRuntimeEventListeners())) {
+        if (!pooledSession.runtimeListeners.contains(listener)) {
+          kSession.removeEventListener(listener);
+        }
+      }
+      for (String channel : new ArrayList<>(kSession.getChannels().keySet())) {
+        if (!pooledSession.channels.contains(channel)) {
+          kSession.unregisterChannel(channel);
+        }
+      }
+
+      // Clears facts, agenda and globals, and empties the node memories, which stay allocated with
+      // their segments for the next request
+      ((StatefulKnowledgeSessionImpl) kSession).reset();
+      return true;
+
+    } catch (RuntimeException e) {
+      logger.error("Can not reset the session of {}", pooledSession.key, e);
+      return false;
+    }
+  }
+
+  private void destroy(PooledSession pooledSession) {
+
+    destroyed.increment();
+    try {
+      pooledSession.session.dispose();
+    } catch (RuntimeException e) {
+      logger.error("Can not dispose the session of {}", pooledSession.key, e);
+    } finally {
+      pooledSession.lease.release();
+    }
+  }
+
+  /** Idle sessions and the borrow limit of one session key. */
+  private static final class KeyedPool {
+
+    // Most recently used sessions first
+    private final ConcurrentLinkedDeque<PooledSession> idle = new ConcurrentLinkedDeque<>();
+
+    // ConcurrentLinkedDeque.size() is not constant time
+    private final AtomicInteger idleCount = new AtomicInteger();
+
+    private final Semaphore permits;
+
+    // Factory of the last borrow, used to refill the pool after a swap
+    private volatile Function<KieContainer, KieSession> factory;
+
+    // Set when the container of the key is unloaded, sessions are then no longer kept
+    private volatile boolean retired;
+
+    private KeyedPool(int maxTotal) {
+      this.permits = new Semaphore(maxTotal);
+    }
+  }
+
+  /** A session created by the pool along with what it had at creation time. */
+  private static final class PooledSession {
+
+    private final SessionKey key;
+    private final KeyedPool pool;
+    private final KieSession session;
+    private final ContainerLease lease;
+    private final long generation;
+
+    // Listeners and channels configured in the kmodule are kept on reset
+    private final Set<AgendaEventListener> agendaListeners;
+    private final Set<RuleRuntimeEventListener> runtimeListeners;
+    private final Set<String> channels;
+
+    private volatile long lastUsed;
+
+    private PooledSession(
+        SessionKey key, KeyedPool pool, KieSession session, ContainerLease lease, long generation) {
+      this.key = key;
+      this.pool = pool;
+      this.session = session;
+      this.lease = lease;
+      this.generation = generation;
+      this.agendaListeners = new HashSet<>(session.getAgendaEventListeners());
+      this.runtimeListeners = new HashSet<>(session.getRuleRuntimeEventListeners());
+      this.channels = new HashSet<>(session.getChannels().keySet());
+      this.lastUsed = System.currentTimeMillis();
+    }
+  }
+}
@@ -0,0 +1,168 @@
+/** */
+package rules.api.session;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import javax.annotation.PostConstruct;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.kie.api.runtime.KieContainer;
+import org.kie.api.runtime.StatelessKieSession;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import rules.api.container.ContainerLease;
+import rules.api.container.KieContainerManager;
+
+/**
+ * This class keeps one stateless session per session key. A stateless session creates a new working
+ * memory for every execution, so it can be shared by concurrent callers as long as nothing is
+ * registered on it. Listeners, channels and globals of a request must be bound to the execution
+ * through its batch command instead.
+ *
+ * <p>Every cached session holds a lease on its container, and an execution pins the lease with
+ * pin() so the container is not disposed under it. The cache is cleared when the rules change.
+ *
+ * @author chandresh.mishra
+ */
+@Component
+public class StatelessSessionCache {
+
+  private Logger logger = LogManager.getLogger(this);
+
+  @Autowired private KieContainerManager containerManager;
+
+  private final ConcurrentMap<SessionKey, CachedSession> sessions = new ConcurrentHashMap<>();
+
+  // Lease of every cached session. StatelessKieSession uses identity equality
+  private final ConcurrentMap<StatelessKieSession, ContainerLease> leases =
+      new ConcurrentHashMap<>();
+
+  // Sessions created before the current generation are not cached
+  private final AtomicLong generation = new AtomicLong();
+
+  /** Registers the cache with the container manager. */
+  @PostConstruct
+  public void init() {
+    containerManager.addListener(container -> invalidateAll());
+    containerManager.addEvictionListener(this::invalidateContainer);
+  }
+
+  /**
+   * Returns the cached session of the key. The session is created with the factory from the current
+   * container on first use.
+   *
+   * @param key
+   * @param factory - creates the session for the key from the container
+   * @return StatelessKieSession or null when the factory does not return a session
+   */
+  public StatelessKieSession get(
+      SessionKey key, Function<KieContainer, StatelessKieSession> factory) {
+
+    CachedSession cachedSession = sessions.get(key);
+
+    while (null == cachedSession) {
+      cachedSession = sessions.computeIfAbsent(key, k -> newCachedSession(k, factory));
+
+      if (null == cachedSession) {
+        return null;
+      }
+      // Created from the previous container while the cache was being cleared
+      if (cachedSession.generation != generation.get() && sessions.remove(key, cachedSession)) {
+        drop(cachedSession);
+        cachedSession = null;
+      }
+    }
+    return cachedSession.session;
+  }
+
+  /**
+   * Pins the container of a cached session for one execution. The caller must release the lease
+   * when the execution is done.
+   *
+   * @param statelessKieSession
+   * @return ContainerLease or null when the session is no longer cached
+   */
+  public ContainerLease pin(StatelessKieSession statelessKieSession) {
+
+    ContainerLease lease = leases.get(statelessKieSession);
+    return null != lease && lease.tryRetain() ? lease : null;
+  }
+
+  /** Drops every cached session. It is called when a new kjar is deployed. */
+  public void invalidateAll() {
+
+    generation.incrementAndGet();
+
+    for (CachedSession cachedSession : sessions.values()) {
+      if (sessions.remove(cachedSession.key, cachedSession)) {
+        drop(cachedSession);
+      }
+    }
+    logger.info("Stateless session cache invalidated");
+  }
+
+  /**
+   * Drops the cached sessions of a container unloaded by the registry.
+   *
+   * @param containerId
+   */
+  public void invalidateContainer(String containerId) {
+
+    for (CachedSession cachedSession : sessions.values()) {
+      if (containerId.equals(cachedSession.key.getContainerId())
+          && sessions.remove(cachedSession.key, cachedSession)) {
+        drop(cachedSession);
+      }
+    }
+  }
+
+  /** @return number of cached sessions */
+  public int size() {
+    return sessions.size();
+  }
+
+  private CachedSession newCachedSession(
+      SessionKey key, Function<KieContainer, StatelessKieSession> factory) {
+
+    long sessionGeneration = generation.get();
+
+    ContainerLease lease = containerManager.acquire(key);
+    try {
+      StatelessKieSession statelessKieSession = factory.apply(lease.getContainer());
+      if (null == statelessKieSession) {
+        lease.release();
+        return null;
+      }
+      leases.put(statelessKieSession, lease);
+      return new CachedSession(key, statelessKieSession, lease, sessionGeneration);
+
+    } catch (RuntimeException e) {
+      lease.release();
+      throw e;
+    }
+  }
+
+  private void drop(CachedSession cachedSession) {
+    leases.remove(cachedSession.session);
+    cachedSession.lease.release();
+  }
+
+  /** A cached session along with the lease on its container. */
+  private static final class CachedSession {
+
+    private final SessionKey key;
+    private final StatelessKieSession session;
+    private final ContainerLease lease;
+    private final long generation;
+
+    private CachedSession(
+        SessionKey key, StatelessKieSession session, ContainerLease lease, long generation) {
+      this.key = key;
+      this.session = session;
+      this.lease = lease;
+      this.generation = generation;
+    }
+  }
+}
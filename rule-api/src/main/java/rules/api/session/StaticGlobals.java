@@ -0,0 +1,113 @@
+/** */
+package rules.api.session;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.annotation.PostConstruct;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.drools.core.base.MapGlobalResolver;
+import org.drools.core.impl.InternalKnowledgeBase;
+import org.kie.api.KieBase;
+import org.kie.api.runtime.Globals;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import rules.api.container.KieContainerManager;
+import rules.api.exception.RulesApiException;
+
+/**
+ * This class binds the globals of the StaticGlobalsProvider beans to the sessions of a session key
+ * when they are created. The globals of a key are resolved once and set as the delegate of the
+ * session globals, so they are found when a request did not set a global of the same name.
+ *
+ * <p>The delegate is kept when a pooled session is reset, which only clears the globals set by the
+ * request, and a stateless session passes it on to the working memory of every execution. The
+ * globals of a key are checked against the kieBase once and resolved again when the rules change.
+ *
+ * @author chandresh.mishra
+ */
+@Component
+public class StaticGlobals {
+
+  private Logger logger = LogManager.getLogger(this);
+
+  @Autowired private KieContainerManager containerManager;
+
+  @Autowired(required = false)
+  private List<StaticGlobalsProvider> staticGlobalsProviders = Collections.emptyList();
+
+  // Resolved globals per session key, NONE when the key has none
+  private final ConcurrentMap<SessionKey, Globals> globals = new ConcurrentHashMap<>();
+
+  private static final Globals NONE = new MapGlobalResolver();
+
+  /** Registers with the container manager when static globals are provided. */
+  @PostConstruct
+  public void init() {
+
+    if (!staticGlobalsProviders.isEmpty()) {
+      containerManager.addListener(container -> globals.clear());
+      containerManager.addEvictionListener(
+          containerId ->
+              globals.keySet().removeIf(key -> containerId.equals(key.getContainerId())));
+    }
+  }
+
+  /**
+   * Binds the static globals of the key to the globals of a new session.
+   *
+   * @param sessionGlobals - globals of the session
+   * @param kieBase - kieBase of the session
+   * @param sessionKey
+   */
+  public void bind(Globals sessionGlobals, KieBase kieBase, SessionKey sessionKey) {
+
+    if (staticGlobalsProviders.isEmpty() || null == sessionGlobals) {
+      return;
+    }
+
+    Globals staticGlobals = globals.computeIfAbsent(sessionKey, key -> resolve(key, kieBase));
+
+    if (staticGlobals != NONE) {
+      sessionGlobals.setDelegate(staticGlobals);
+    }
+  }
+
+  private Globals resolve(SessionKey sessionKey, KieBase kieBase) {
+
+    Map<String, Object> resolved = new HashMap<>();
+    for (StaticGlobalsProvider provider : staticGlobalsProviders) {
+      Map<String, Object> provided = provider.getGlobals(sessionKey);
+      if (null != provided) {
+        resolved.putAll(provided);
+      }
+    }
+
+    if (resolved.isEmpty()) {
+      return NONE;
+    }
+
+    // The delegate is not type checked by the session, so it is checked here once
+    if (kieBase instanceof InternalKnowledgeBase) {
+      Map<String, Class<?>> declared = ((InternalKnowledgeBase) kieBase).getGlobals();
+      for (Map.Entry<String, Object> global : resolved.entrySet()) {
+        Class<?> type = declared.get(global.getKey());
+        if (null == type) {
+          throw new RulesApiException(
+              "Static global " + global.getKey() + " is not declared for " + sessionKey);
+        }
+        if (null != global.getValue() && !type.isInstance(global.getValue())) {
+          throw new RulesApiException(
+              "Static global " + global.getKey() + " is not a " + type.getName());
+        }
+      }
+    }
+
+    logger.info("Static globals {} bound to {}", resolved.keySet(), sessionKey);
+    return new MapGlobalResolver(resolved);
+  }
+}
@@ -0,0 +1,23 @@
+/** */
+package rules.api.session;
+
+import java.util.Map;
+
+/**
+ * Supplies the globals that are the same for every request of a session key, such as services. They
+ * are bound once to the sessions of the key instead of being set on every request. Any Spring bean
+ * implementing this interface is picked up.
+ *
+ * @author chandresh.mishra
+ */
+@FunctionalInterface
+public interface StaticGlobalsProvider {
+
+  /**
+   * Called once per session key and container.
+   *
+   * @param sessionKey - kieBase, session name or default session
+   * @return the globals of the session key, null or empty when it has none
+   */
+  Map<String, Object> getGlobals(SessionKey sessionKey);
+}
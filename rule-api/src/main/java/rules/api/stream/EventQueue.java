@@ -0,0 +1,91 @@
+/** */
+package rules.api.stream;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * This class is a bounded lock-free queue of events with many producers and one consumer. Producers
+ * claim a sequence with a compare-and-set and publish the event in its slot. The consumer clears
+ * the slot before it frees it, so a producer never overwrites an event that was not drained.
+ *
+ * @author chandresh.mishra
+ */
+final class EventQueue {
+
+  private final AtomicReferenceArray<QueuedEvent> slots;
+
+  private final int mask;
+
+  // Next sequence to claim by a producer
+  private final AtomicLong tail = new AtomicLong();
+
+  // Next sequence to read by the consumer
+  private final AtomicLong head = new AtomicLong();
+
+  /** @param capacity - rounded up to a power of two */
+  EventQueue(int capacity) {
+
+    int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+    this.slots = new AtomicReferenceArray<>(size);
+    this.mask = size - 1;
+  }
+
+  /**
+   * @param queuedEvent
+   * @return false when the queue is full
+   */
+  boolean offer(QueuedEvent queuedEvent) {
+
+    long sequence;
+    do {
+      sequence = tail.get();
+      if (sequence - head.get() >= slots.length()) {
+        return false;
+      }
+    } while (!tail.compareAndSet(sequence, sequence + 1));
+
+    slots.lazySet((int) sequence & mask, queuedEvent);
+    return true;
+  }
+
+  /**
+   * Moves the published events to the batch in order. Only one thread may drain the queue.
+   *
+   * @param batch
+   * @param maxEvents
+   * @return number of events drained
+   */
+  int drain(List<QueuedEvent> batch, int maxEvents) {
+
+    long sequence = head.get();
+    int drained = 0;
+
+    while (drained < maxEvents) {
+      int index = (int) sequence & mask;
+      QueuedEvent queuedEvent = slots.get(index);
+      if (null == queuedEvent) {
+        // Not published yet
+        break;
+      }
+      slots.lazySet(index, null);
+      batch.add(queuedEvent);
+      sequence++;
+      drained++;
+      // Frees the slot for the producers
+      head.lazySet(sequence);
+    }
+    return drained;
+  }
+
+  /** @return number of events waiting to be drained */
+  int size() {
+    return (int) Math.max(0, tail.get() - head.get());
+  }
+
+  /** @return the capacity */
+  int capacity() {
+    return slots.length();
+  }
+}
@@ -0,0 +1,378 @@
+/** */
+package rules.api.stream;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.LockSupport;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.kie.api.runtime.KieSession;
+import org.kie.api.runtime.rule.EntryPoint;
+import org.kie.api.time.SessionPseudoClock;
+import rules.api.container.ContainerLease;
+import rules.api.exception.RulesApiException;
+import rules.api.metrics.EventStreamMetrics;
+import rules.api.session.SessionKey;
+
+/**
+ * This class runs a session in fireUntilHalt on its own thread and feeds it with the events offered
+ * by any number of producers. Events wait in a bounded lock-free queue. An ingestion thread drains
+ * them in batches and submits each batch to the session as one atomic action, so a batch is
+ * inserted between two rule firings. At most two batches are pending at a time, a session that can
+ * not keep up fills the queue and the producers see their events rejected.
+ *
+ * <p>A session that fails, like on an exception of a consequence, stops the stream. Its events are
+ * no longer accepted and the flushes return false, the stream must be closed.
+ *
+ * @author chandresh.mishra
+ */
+public final class EventStream {
+
+  private static final int MAX_PENDING_BATCHES = 2;
+
+  private static final String DEFAULT_ENTRY_POINT = "DEFAULT";
+
+  private Logger logger = LogManager.getLogger(this);
+
+  private final String id;
+
+  private final SessionKey key;
+
+  private final KieSession session;
+
+  private final ContainerLease lease;
+
+  private final EventQueue queue;
+
+  private final int batchSize;
+
+  private final long drainInterval;
+
+  private final boolean pseudoClock;
+
+  private final Semaphore pendingBatches = new Semaphore(MAX_PENDING_BATCHES);
+
+  // Flushes waiting for their marker
+  private final Set<CompletableFuture<Boolean>> flushes = ConcurrentHashMap.newKeySet();
+
+  // Only used by the engine thread
+  private final Map<String, EntryPoint> entryPoints = new HashMap<>();
+
+  private EventStreamMetrics metrics;
+
+  private Thread engine;
+
+  private Thread ingestion;
+
+  private volatile boolean running;
+
+  private volatile Throwable failure;
+
+  EventStream(
+      String id,
+      SessionKey key,
+      KieSession session,
+      ContainerLease lease,
+      int queueCapacity,
+      int batchSize,
+      long drainInterval,
+      boolean pseudoClock) {
+    this.id = id;
+    this.key = key;
+    this.session = session;
+    this.lease = lease;
+    this.queue = new EventQueue(queueCapacity);
+    this.batchSize = batchSize;
+    this.drainInterval = TimeUnit.MILLISECONDS.toNanos(drainInterval);
+    this.pseudoClock = pseudoClock;
+  }
+
+  /**
+   * Offers an event to the default entry point.
+   *
+   * @param event
+   * @return false when the queue is full
+   */
+  public boolean insert(Object event) {
+    return insert(DEFAULT_ENTRY_POINT, event);
+  }
+
+  /**
+   * Offers an event to an entry point.
+   *
+   * @param entryPoint
+   * @param event
+   * @return false when the queue is full
+   */
+  public boolean insert(String entryPoint, Object event) {
+
+    if (null == event) {
+      throw new RulesApiException("Event is mandatory");
+    }
+    return offer(new QueuedEvent(entryPoint, event, 0, System.nanoTime()));
+  }
+
+  /**
+   * Moves the pseudo clock once the events offered before are inserted.
+   *
+   * @param amount
+   * @param unit
+   * @return false when the queue is full
+   */
+  public boolean advanceTime(long amount, TimeUnit unit) {
+
+    if (!pseudoClock) {
+      throw new RulesApiException("Stream " + id + " does not use the pseudo clock");
+    }
+    return offer(new QueuedEvent(null, null, unit.toMillis(amount), System.nanoTime()));
+  }
+
+  /**
+   * Waits until the events offered before the call are inserted. The rules they match may still be
+   * firing.
+   *
+   * @param timeout
+   * @param unit
+   * @return false when the timeout elapsed
+   */
+  public boolean flush(long timeout, TimeUnit unit) {
+
+    long deadline = System.nanoTime() + unit.toNanos(timeout);
+    CompletableFuture<Boolean> flushed = new CompletableFuture<>();
+
+    // Completed as false by a failure of the session
+    flushes.add(flushed);
+    try {
+      if (!running) {
+        return false;
+      }
+      // The marker is inserted after the events offered before it, the ones drained in a batch not
+      // submitted yet included
+      while (!queue.offer(new QueuedEvent(flushed, System.nanoTime()))) {
+        if (System.nanoTime() > deadline || !running) {
+          return false;
+        }
+        LockSupport.parkNanos(drainInterval);
+      }
+      return flushed.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+
+    } catch (TimeoutException | ExecutionException e) {
+      return false;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    } finally {
+      flushes.remove(flushed);
+    }
+  }
+
+  /** @return the id */
+  public String getId() {
+    return id;
+  }
+
+  /** @return the key */
+  public SessionKey getKey() {
+    return key;
+  }
+
+  /** @return the session. It is used by the engine thread */
+  public KieSession getSession() {
+    return session;
+  }
+
+  /** @return number of events waiting to be inserted */
+  public int getQueueDepth() {
+    return queue.size();
+  }
+
+  /** @return the metrics */
+  public EventStreamMetrics getMetrics() {
+    return metrics;
+  }
+
+  /** @return true until the stream is closed or its session failed */
+  public boolean isRunning() {
+    return running;
+  }
+
+  /** @return the failure that stopped the session, null while it runs */
+  public Throwable getFailure() {
+    return failure;
+  }
+
+  /** @return the queue capacity */
+  int getQueueCapacity() {
+    return queue.capacity();
+  }
+
+  /**
+   * Starts the engine and ingestion threads.
+   *
+   * @param metrics
+   */
+  void start(EventStreamMetrics metrics) {
+
+    this.metrics = metrics;
+    running = true;
+
+    // The ingestion is started first, the engine thread stops it on a failure
+    ingestion = new Thread(this::ingestEvents, "rules-stream-" + id + "-ingestion");
+    ingestion.setDaemon(true);
+    ingestion.start();
+
+    engine = new Thread(this::fireUntilHalt, "rules-stream-" + id);
+    engine.setDaemon(true);
+    engine.start();
+  }
+
+  /**
+   * Inserts the events left in the queue, halts the session and disposes it.
+   *
+   * @param timeout - time in milliseconds to wait for each thread
+   */
+  void close(long timeout) {
+
+    running = false;
+    try {
+      LockSupport.unpark(ingestion);
+      ingestion.join(timeout);
+
+      // Every batch is submitted once the ingestion stopped, they are inserted before this action
+      if (null == failure) {
+        CountDownLatch inserted = new CountDownLatch(1);
+        session.submit(kieSession -> inserted.countDown());
+        inserted.await(timeout, TimeUnit.MILLISECONDS);
+      }
+
+      session.halt();
+      engine.join(timeout);
+
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      try {
+        session.dispose();
+      } finally {
+        lease.release();
+      }
+    }
+  }
+
+  private boolean offer(QueuedEvent queuedEvent) {
+
+    if (!running) {
+      throw new RulesApiException(
+          null == failure
+              ? "Stream " + id + " is closed"
+              : "Stream " + id + " failed: " + failure.getMessage());
+    }
+    if (queue.offer(queuedEvent)) {
+      metrics.offered();
+      return true;
+    }
+    metrics.rejected();
+    return false;
+  }
+
+  /** Body of the engine thread. */
+  private void fireUntilHalt() {
+
+    try {
+      session.fireUntilHalt();
+    } catch (Throwable e) {
+      fail(e);
+    }
+  }
+
+  /**
+   * Stops the stream once its session failed. The ingestion stops and the waiting flushes return
+   * false.
+   *
+   * @param e
+   */
+  private void fail(Throwable e) {
+
+    logger.error("Stream {} failed and must be closed", id, e);
+    failure = e;
+    running = false;
+    metrics.failed(e);
+
+    ingestion.interrupt();
+    for (CompletableFuture<Boolean> flushed : flushes) {
+      flushed.complete(false);
+    }
+  }
+
+  /** Body of the ingestion thread. */
+  private void ingestEvents() {
+
+    // Drains what is left once the stream is closed
+    boolean more = true;
+
+    while ((running || more) && null == failure) {
+      List<QueuedEvent> batch = new ArrayList<>(Math.min(batchSize, queue.size() + 1));
+      more = queue.drain(batch, batchSize) > 0;
+
+      if (!more) {
+        LockSupport.parkNanos(this, drainInterval);
+        continue;
+      }
+      try {
+        pendingBatches.acquire();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+      session.submit(kieSession -> insertBatch(kieSession, batch));
+    }
+  }
+
+  /**
+   * Inserts a batch. It runs on the engine thread between two rule firings.
+   *
+   * @param kieSession
+   * @param batch
+   */
+  private void insertBatch(KieSession kieSession, List<QueuedEvent> batch) {
+
+    pendingBatches.release();
+
+    for (QueuedEvent queuedEvent : batch) {
+      try {
+        if (null != queuedEvent.flushed) {
+          queuedEvent.flushed.complete(true);
+          continue;
+        }
+        if (null == queuedEvent.event) {
+          SessionPseudoClock clock = kieSession.getSessionClock();
+          clock.advanceTime(queuedEvent.clockAdvance, TimeUnit.MILLISECONDS);
+          continue;
+        }
+
+        EntryPoint entryPoint =
+            entryPoints.computeIfAbsent(queuedEvent.entryPoint, kieSession::getEntryPoint);
+
+        if (null == entryPoint) {
+          logger.error("Stream {} has no entry point {}", id, queuedEvent.entryPoint);
+          continue;
+        }
+        entryPoint.insert(queuedEvent.event);
+        metrics.inserted(System.nanoTime() - queuedEvent.enqueued);
+
+      } catch (RuntimeException e) {
+        logger.error("Stream {} can not insert {}", id, queuedEvent.event, e);
+      }
+    }
+  }
+}
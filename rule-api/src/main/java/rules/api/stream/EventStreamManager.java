@@ -0,0 +1,156 @@
+/** */
+package rules.api.stream;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BiFunction;
+import javax.annotation.PreDestroy;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.kie.api.KieServices;
+import org.kie.api.runtime.KieContainer;
+import org.kie.api.runtime.KieSession;
+import org.kie.api.runtime.KieSessionConfiguration;
+import org.kie.api.runtime.conf.ClockTypeOption;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import rules.api.config.EventStreamSettings;
+import rules.api.container.ContainerLease;
+import rules.api.container.KieContainerManager;
+import rules.api.exception.RulesApiException;
+import rules.api.metrics.RulesMetrics;
+import rules.api.session.SessionKey;
+
+/**
+ * This class keeps the open event streams by id. A stream keeps a lease on the container it was
+ * opened from until it is closed, a new kjar is only used by the streams opened after the swap.
+ *
+ * @author chandresh.mishra
+ */
+@Component
+public class EventStreamManager {
+
+  private static final String PSEUDO_CLOCK = "pseudo";
+
+  // Time in milliseconds to wait for the threads of a stream on close
+  private static final long CLOSE_TIMEOUT = 10000;
+
+  private Logger logger = LogManager.getLogger(this);
+
+  @Autowired private EventStreamSettings settings;
+
+  @Autowired private KieContainerManager containerManager;
+
+  @Autowired private RulesMetrics rulesMetrics;
+
+  private final ConcurrentMap<String, EventStream> streams = new ConcurrentHashMap<>();
+
+  private KieServices kieService = KieServices.Factory.get();
+
+  /** Closes all the streams. */
+  @PreDestroy
+  public void shutdown() {
+
+    for (String id : new ArrayList<>(streams.keySet())) {
+      close(id);
+    }
+  }
+
+  /**
+   * Opens a stream on a session of the current container and starts it.
+   *
+   * @param id
+   * @param key
+   * @param factory - creates the session for the key from the container and the configuration
+   *     holding the clock
+   * @return EventStream
+   */
+  public EventStream open(
+      String id,
+      SessionKey key,
+      BiFunction<KieContainer, KieSessionConfiguration, KieSession> factory) {
+
+    if (streams.containsKey(id)) {
+      throw new RulesApiException("Stream " + id + " is already open");
+    }
+
+    boolean pseudoClock = PSEUDO_CLOCK.equals(settings.getClock());
+
+    KieSessionConfiguration sessionConfiguration = kieService.newKieSessionConfiguration();
+    sessionConfiguration.setOption(ClockTypeOption.get(settings.getClock()));
+
+    ContainerLease lease = containerManager.acquire(key);
+    EventStream eventStream;
+    try {
+      KieSession kSession = factory.apply(lease.getContainer(), sessionConfiguration);
+      if (null == kSession) {
+        throw new RulesApiException("Can not instantiate KieSession.Please check configuration");
+      }
+      eventStream =
+          new EventStream(
+              id,
+              key,
+              kSession,
+              lease,
+              settings.getQueueCapacity(),
+              settings.getBatchSize(),
+              settings.getDrainInterval(),
+              pseudoClock);
+
+    } catch (RuntimeException e) {
+      lease.release();
+      throw e;
+    }
+
+    if (null != streams.putIfAbsent(id, eventStream)) {
+      eventStream.getSession().dispose();
+      lease.release();
+      throw new RulesApiException("Stream " + id + " is already open");
+    }
+
+    eventStream.start(
+        rulesMetrics.newEventStreamMetrics(
+            id, eventStream.getQueueCapacity(), eventStream::getQueueDepth));
+
+    logger.info("Stream {} opened on {} with the {} clock", id, key, settings.getClock());
+    return eventStream;
+  }
+
+  /**
+   * @param id
+   * @return EventStream or null when no stream is open with the id
+   */
+  public EventStream get(String id) {
+    return streams.get(id);
+  }
+
+  /**
+   * Inserts the events already offered, halts the session and disposes it.
+   *
+   * @param id
+   * @return false when no stream is open with the id
+   */
+  public boolean close(String id) {
+
+    EventStream eventStream = streams.remove(id);
+    if (null == eventStream) {
+      return false;
+    }
+    try {
+      eventStream.close(CLOSE_TIMEOUT);
+    } catch (RuntimeException e) {
+      logger.error("Can not close stream {}", id, e);
+    } finally {
+      rulesMetrics.removeEventStreamMetrics(eventStream.getMetrics());
+    }
+    logger.info("Stream {} closed", id);
+    return true;
+  }
+
+  /** @return the streams currently open */
+  public Collection<EventStream> getStreams() {
+    return streams.values();
+  }
+}
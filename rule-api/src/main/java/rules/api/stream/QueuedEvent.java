@@ -0,0 +1,50 @@
+/** */
+package rules.api.stream;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * This class is an event waiting in the queue of a stream, a move of the pseudo clock or the marker
+ * of a flush. Moves of the clock and flush markers go through the queue so they are applied in
+ * order with the events.
+ *
+ * @author chandresh.mishra
+ */
+final class QueuedEvent {
+
+  // Entry point of the event
+  final String entryPoint;
+
+  // Null for a move of the clock or a flush marker
+  final Object event;
+
+  // Milliseconds added to the pseudo clock
+  final long clockAdvance;
+
+  // System.nanoTime() when the event was offered
+  final long enqueued;
+
+  // Completed once the events offered before the marker are inserted, null for the others
+  final CompletableFuture<Boolean> flushed;
+
+  QueuedEvent(String entryPoint, Object event, long clockAdvance, long enqueued) {
+    this(entryPoint, event, clockAdvance, enqueued, null);
+  }
+
+  QueuedEvent(CompletableFuture<Boolean> flushed, long enqueued) {
+    this(null, null, 0, enqueued, flushed);
+  }
+
+  private QueuedEvent(
+      String entryPoint,
+      Object event,
+      long clockAdvance,
+      long enqueued,
+      CompletableFuture<Boolean> flushed) {
+    this.entryPoint = entryPoint;
+    this.event = event;
+    this.clockAdvance = clockAdvance;
+    this.enqueued = enqueued;
+    this.flushed = flushed;
+  }
+}
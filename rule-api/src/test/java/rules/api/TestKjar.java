@@ -0,0 +1,67 @@
+/** */
+package rules.api;
+
+import org.kie.api.KieServices;
+import org.kie.api.builder.KieBuilder;
+import org.kie.api.builder.KieFileSystem;
+import org.kie.api.builder.Message;
+import org.kie.api.builder.ReleaseId;
+import org.kie.api.builder.Results;
+
+/**
+ * This class builds small kjars for the tests and installs them in the KieRepository, so they are
+ * found without any maven repository. A kjar has one kieBase with a stateful and a stateless
+ * session and the rules of the package "rules".
+ *
+ * @author chandresh.mishra
+ */
+public final class TestKjar {
+
+  public static final String GROUP_ID = "com.rules-api";
+
+  public static final String KIE_BASE = "testBase";
+  public static final String STATEFUL_SESSION = "testSession";
+  public static final String STATELESS_SESSION = "testStatelessSession";
+
+  private static final String KMODULE =
+      "<kmodule xmlns=\"http://www.drools.org/xsd/kmodule\">"
+          + "<kbase name=\""
+          + KIE_BASE
+          + "\" packages=\"rules\" default=\"true\">"
+          + "<ksession name=\""
+          + STATEFUL_SESSION
+          + "\" default=\"true\"/>"
+          + "<ksession name=\""
+          + STATELESS_SESSION
+          + "\" type=\"stateless\" default=\"true\"/>"
+          + "</kbase></kmodule>";
+
+  private TestKjar() {}
+
+  /**
+   * Builds a kjar and adds it to the KieRepository.
+   *
+   * @param artifactId
+   * @param version
+   * @param drl - rules of the package "rules"
+   * @return the release of the kjar
+   */
+  public static ReleaseId install(String artifactId, String version, String drl) {
+
+    KieServices kieService = KieServices.Factory.get();
+    ReleaseId releaseId = kieService.newReleaseId(GROUP_ID, artifactId, version);
+
+    KieFileSystem kieFileSystem = kieService.newKieFileSystem();
+    kieFileSystem.generateAndWritePomXML(releaseId);
+    kieFileSystem.write("src/main/resources/META-INF/kmodule.xml", KMODULE);
+    kieFileSystem.write("src/main/resources/rules/rules.drl", drl);
+
+    // buildAll adds the module to the KieRepository
+    KieBuilder kieBuilder = kieService.newKieBuilder(kieFileSystem).buildAll();
+    Results results = kieBuilder.getResults();
+    if (results.hasMessages(Message.Level.ERROR)) {
+      throw new IllegalStateException("Test kjar does not build: " + results.getMessages());
+    }
+    return releaseId;
+  }
+}
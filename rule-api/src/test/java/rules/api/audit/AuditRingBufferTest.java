@@ -0,0 +1,78 @@
+/** */
+package rules.api.audit;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.testng.annotations.Test;
+import rules.api.enums.AuditEventType;
+
+/**
+ * Test class for the AuditRingBuffer
+ *
+ * @author chandresh.mishra
+ */
+public class AuditRingBufferTest {
+
+  @Test
+  public void testCapacityIsPowerOfTwo() {
+    assertEquals(new AuditRingBuffer(1000).capacity(), 1024);
+    assertEquals(new AuditRingBuffer(1024).capacity(), 1024);
+  }
+
+  @Test
+  public void testDrainInOrder() {
+    AuditRingBuffer ringBuffer = new AuditRingBuffer(4);
+    List<Object> names = new ArrayList<>();
+
+    ringBuffer.publish(AuditEventType.RULE_FIRED, "first", null, 0);
+    ringBuffer.publish(AuditEventType.RULE_FIRED, "second", null, 0);
+
+    assertEquals(ringBuffer.drain(event -> names.add(event.getName())), 2);
+    assertEquals(names.toString(), "[first, second]");
+    assertEquals(ringBuffer.size(), 0);
+  }
+
+  @Test
+  public void testFullBufferDropsEvents() {
+    AuditRingBuffer ringBuffer = new AuditRingBuffer(2);
+
+    ringBuffer.publish(AuditEventType.FACT_INSERTED, null, String.class, 0);
+    ringBuffer.publish(AuditEventType.FACT_INSERTED, null, String.class, 0);
+
+    assertFalse(ringBuffer.publish(AuditEventType.FACT_INSERTED, null, String.class, 0));
+    assertEquals(ringBuffer.getDropped(), 1);
+
+    ringBuffer.drain(event -> {});
+    ringBuffer.publish(AuditEventType.FACT_INSERTED, null, Integer.class, 0);
+
+    List<Class<?>> classes = new ArrayList<>();
+    ringBuffer.drain(event -> classes.add(event.getFactClass()));
+    assertEquals(classes.get(0), Integer.class);
+  }
+
+  @Test
+  public void testConcurrentProducers() throws InterruptedException {
+    AuditRingBuffer ringBuffer = new AuditRingBuffer(1 << 16);
+    List<Thread> producers = new ArrayList<>();
+
+    for (int i = 0; i < 4; i++) {
+      Thread producer =
+          new Thread(
+              () -> {
+                for (int j = 0; j < 10000; j++) {
+                  ringBuffer.publish(AuditEventType.RULE_FIRED, "rule", null, 0);
+                }
+              });
+      producers.add(producer);
+      producer.start();
+    }
+    for (Thread producer : producers) {
+      producer.join();
+    }
+
+    assertEquals(ringBuffer.drain(event -> {}), 40000);
+  }
+}
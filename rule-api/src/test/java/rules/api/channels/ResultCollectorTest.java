@@ -0,0 +1,78 @@
+/** */
+package rules.api.channels;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import org.testng.annotations.Test;
+
+/**
+ * Test class for the ResultCollector
+ *
+ * @author chandresh.mishra
+ */
+public class ResultCollectorTest {
+
+  @Test
+  public void testResultsByClass() {
+    ResultCollector resultCollector = new ResultCollector();
+    resultCollector.send("a");
+    resultCollector.send(1);
+    resultCollector.send("b");
+    resultCollector.send(2L);
+
+    assertEquals(resultCollector.getResults(), Arrays.asList("a", 1, "b", 2L));
+    assertEquals(resultCollector.getResults(String.class), Arrays.asList("a", "b"));
+    assertTrue(resultCollector.getResults(Double.class).isEmpty());
+
+    List<Class> resultClasses = Arrays.asList(Integer.class, Long.class);
+    assertEquals(resultCollector.getResults(resultClasses), Arrays.asList(1, 2L));
+  }
+
+  @Test
+  public void testSingleClassIsNotCopied() {
+    ResultCollector resultCollector = new ResultCollector(1);
+    resultCollector.send("a");
+
+    List<Class> resultClasses = Arrays.asList(String.class);
+    assertSame(resultCollector.getResults(resultClasses), resultCollector.getResults(String.class));
+  }
+
+  @Test
+  public void testNullResult() {
+    ResultCollector resultCollector = new ResultCollector();
+    resultCollector.send(null);
+
+    assertEquals(resultCollector.size(), 1);
+    assertTrue(resultCollector.getResults(Object.class).isEmpty());
+  }
+
+  @Test
+  public void testNullClassIsSkipped() {
+    ResultCollector resultCollector = new ResultCollector();
+    resultCollector.send("a");
+    resultCollector.send(1);
+
+    List<Class> resultClasses = Arrays.asList(null, Integer.class, null);
+    assertEquals(resultCollector.getResults(resultClasses), Arrays.asList(1));
+  }
+
+  @Test
+  public void testSupertypesAndInterfaces() {
+    ResultCollector resultCollector = new ResultCollector();
+    resultCollector.send(1);
+    resultCollector.send("a");
+    resultCollector.send(2L);
+    resultCollector.send(3);
+
+    assertEquals(resultCollector.getResults(Number.class), Arrays.asList(1, 2L, 3));
+    assertEquals(resultCollector.getResults(CharSequence.class), Arrays.asList("a"));
+
+    // A result is returned once, in the order it was sent
+    List<Class> resultClasses = Arrays.asList(Long.class, Comparable.class, Object.class);
+    assertEquals(resultCollector.getResults(resultClasses), Arrays.asList(1, "a", 2L, 3));
+  }
+}
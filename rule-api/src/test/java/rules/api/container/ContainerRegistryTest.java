@@ -0,0 +1,141 @@
+/** */
+package rules.api.container;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.kie.api.KieServices;
+import org.kie.api.builder.ReleaseId;
+import org.kie.api.runtime.KieContainer;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import rules.api.config.ContainerRegistrySettings;
+import rules.api.exception.RulesApiException;
+
+/**
+ * Test class for the ContainerRegistry
+ *
+ * @author chandresh.mishra
+ */
+public class ContainerRegistryTest {
+
+  private ContainerRegistry registry;
+
+  private KieContainerBuilder containerBuilder;
+
+  private List<String> evicted = Collections.synchronizedList(new ArrayList<>());
+
+  /** Setup method - executes before any test in this class. */
+  @BeforeMethod
+  protected void setUp() {
+    ContainerRegistrySettings settings = new ContainerRegistrySettings();
+    ReflectionTestUtils.setField(
+        settings,
+        "releases",
+        "a=com.rules-api:a:1.0.0,b=com.rules-api:b:1.0.0,c=com.rules-api:c:1.0.0");
+    ReflectionTestUtils.setField(settings, "maxLoaded", 2);
+    ReflectionTestUtils.setField(settings, "idleTimeout", 0L);
+
+    containerBuilder = mock(KieContainerBuilder.class);
+    when(containerBuilder.build(any(ReleaseId.class)))
+        .thenAnswer(invocation -> mock(KieContainer.class));
+
+    registry = new ContainerRegistry();
+    ReflectionTestUtils.setField(registry, "settings", settings);
+    ReflectionTestUtils.setField(registry, "containerBuilder", containerBuilder);
+    registry.init();
+
+    evicted.clear();
+    registry.addListener(evicted::add);
+  }
+
+  @AfterMethod
+  protected void tearDown() {
+    registry.shutdown();
+  }
+
+  @Test
+  public void testContainerIsLoadedOnFirstAcquire() {
+    verify(containerBuilder, never()).build(any(ReleaseId.class));
+
+    ContainerLease first = registry.acquire("a");
+    ContainerLease second = registry.acquire("a");
+    first.release();
+    second.release();
+
+    assertSame(first, second);
+    verify(containerBuilder)
+        .build(KieServices.Factory.get().newReleaseId("com.rules-api", "a", "1.0.0"));
+
+    ContainerStats stats = getStats("a");
+    assertTrue(stats.isLoaded());
+    assertEquals(stats.getLoads(), 1);
+    assertEquals(stats.getRequests(), 2);
+  }
+
+  @Test
+  public void testLeastRecentlyUsedContainerIsEvicted() throws InterruptedException {
+    registry.acquire("a").release();
+    Thread.sleep(5);
+    registry.acquire("b").release();
+    Thread.sleep(5);
+    registry.acquire("c").release();
+
+    assertEquals(evicted, Collections.singletonList("a"));
+    assertFalse(getStats("a").isLoaded());
+    assertEquals(getStats("a").getEvictions(), 1);
+    assertTrue(getStats("b").isLoaded());
+    assertTrue(getStats("c").isLoaded());
+  }
+
+  @Test
+  public void testContainerIsLoadedAgainAfterEviction() {
+    ContainerLease first = registry.acquire("a");
+    first.release();
+    KieContainer firstContainer = first.getContainer();
+
+    assertTrue(registry.evict("a"));
+    assertFalse(registry.evict("a"));
+    verify(firstContainer).dispose();
+
+    ContainerLease second = registry.acquire("a");
+    second.release();
+
+    assertNotSame(second.getContainer(), firstContainer);
+    verify(containerBuilder, times(2)).build(any(ReleaseId.class));
+
+    ContainerStats stats = getStats("a");
+    assertTrue(stats.isLoaded());
+    assertEquals(stats.getLoads(), 2);
+    assertEquals(stats.getEvictions(), 1);
+  }
+
+  @Test(expectedExceptions = RulesApiException.class)
+  public void testUnknownTenantIsRejected() {
+    registry.acquire("com.rules-api:d:1.0.0");
+  }
+
+  private ContainerStats getStats(String containerId) {
+
+    for (ContainerStats stats : registry.getStats()) {
+      if (stats.getContainerId().equals(containerId)) {
+        return stats;
+      }
+    }
+    throw new AssertionError("No statistics for container " + containerId);
+  }
+}
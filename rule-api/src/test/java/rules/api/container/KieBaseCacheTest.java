@@ -0,0 +1,104 @@
+/** */
+package rules.api.container;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.kie.api.KieServices;
+import org.kie.api.builder.ReleaseId;
+import org.kie.api.runtime.KieContainer;
+import org.kie.api.runtime.KieSession;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.FileSystemUtils;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import rules.api.TestKjar;
+import rules.api.config.KieBaseCacheSettings;
+
+/**
+ * Test class for the KieBaseCache
+ *
+ * @author chandresh.mishra
+ */
+public class KieBaseCacheTest {
+
+  private static final String DRL =
+      "package rules;\n" + "rule \"hello\" when String() then end\n";
+
+  private static final String CHANGED_DRL =
+      "package rules;\n" + "rule \"hello again\" when String() then end\n";
+
+  private KieServices kieService = KieServices.Factory.get();
+
+  private KieBaseCache cache;
+
+  private Path dir;
+
+  /** Setup method - executes before any test in this class. */
+  @BeforeMethod
+  protected void setUp() throws IOException {
+    dir = Files.createTempDirectory("kbase-cache-test");
+
+    KieBaseCacheSettings settings = new KieBaseCacheSettings();
+    ReflectionTestUtils.setField(settings, "enabled", true);
+    ReflectionTestUtils.setField(settings, "dir", dir.toString());
+
+    cache = new KieBaseCache();
+    ReflectionTestUtils.setField(cache, "settings", settings);
+  }
+
+  @AfterMethod
+  protected void tearDown() {
+    FileSystemUtils.deleteRecursively(dir.toFile());
+  }
+
+  @Test
+  public void testMissStoreHit() throws IOException {
+    ReleaseId releaseId = TestKjar.install("kbase-cache", "1.0.0", DRL);
+
+    KieContainer built = kieService.newKieContainer(releaseId);
+    assertFalse(cache.load(built));
+    cache.store(built);
+    assertTrue(Files.isDirectory(cache.getEntry(built)));
+
+    KieContainer cached = kieService.newKieContainer(releaseId);
+    assertTrue(cache.load(cached));
+
+    KieSession kSession = cached.newKieSession(TestKjar.STATEFUL_SESSION);
+    try {
+      kSession.insert("fact");
+      assertEquals(kSession.fireAllRules(), 1);
+    } finally {
+      kSession.dispose();
+    }
+  }
+
+  @Test
+  public void testChangedKjarGetsNewHash() throws IOException {
+    ReleaseId otherVersion = TestKjar.install("kbase-cache-changed", "2.0.0", DRL);
+    KieContainer other = kieService.newKieContainer(otherVersion);
+    cache.store(other);
+
+    ReleaseId releaseId = TestKjar.install("kbase-cache-changed", "1.0.0", DRL);
+    KieContainer first = kieService.newKieContainer(releaseId);
+    cache.store(first);
+
+    TestKjar.install("kbase-cache-changed", "1.0.0", CHANGED_DRL);
+    KieContainer changed = kieService.newKieContainer(releaseId);
+    Path changedEntry = cache.getEntry(changed);
+    assertNotEquals(changedEntry, cache.getEntry(first));
+    assertFalse(cache.load(changed));
+
+    cache.store(changed);
+    assertTrue(Files.isDirectory(changedEntry));
+    // The older build of the release is deleted, the other version is kept
+    assertFalse(Files.exists(cache.getEntry(first)));
+    assertTrue(Files.isDirectory(cache.getEntry(other)));
+  }
+}
@@ -0,0 +1,135 @@
+/** */
+package rules.api.engine;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import rules.api.config.AdmissionSettings;
+import rules.api.config.MetricsSettings;
+import rules.api.enums.SessionType;
+import rules.api.exception.RulesApiException;
+import rules.api.message.RulesRequest;
+import rules.api.message.RulesResponse;
+import rules.api.metrics.RulesMetrics;
+
+/**
+ * Test class for the AdmissionController
+ *
+ * @author chandresh.mishra
+ */
+public class AdmissionControllerTest {
+
+  private AdmissionSettings settings;
+
+  private AdmissionController admissionController;
+
+  private CountDownLatch running;
+
+  private CountDownLatch release;
+
+  private CompletableFuture<RulesResponse> busy;
+
+  /** Setup method - executes before any test in this class. */
+  @BeforeMethod
+  protected void setUp() {
+    settings = new AdmissionSettings();
+    ReflectionTestUtils.setField(settings, "enabled", true);
+    ReflectionTestUtils.setField(settings, "maxConcurrent", 4);
+    ReflectionTestUtils.setField(settings, "limits", "heavy=1");
+    ReflectionTestUtils.setField(settings, "queueDepth", 0);
+    ReflectionTestUtils.setField(settings, "maxWait", 1000L);
+    ReflectionTestUtils.setField(settings, "policy", "reject");
+
+    RulesMetrics rulesMetrics = new RulesMetrics();
+    ReflectionTestUtils.setField(rulesMetrics, "settings", new MetricsSettings());
+
+    admissionController = new AdmissionController();
+    ReflectionTestUtils.setField(admissionController, "settings", settings);
+    ReflectionTestUtils.setField(admissionController, "rulesMetrics", rulesMetrics);
+    admissionController.init();
+
+    // Takes the only permit of the heavy session
+    running = new CountDownLatch(1);
+    release = new CountDownLatch(1);
+    busy =
+        CompletableFuture.supplyAsync(
+            () ->
+                admissionController.admit(
+                    newRequest("heavy"),
+                    () -> {
+                      running.countDown();
+                      await(release);
+                      return new RulesResponse(1, null);
+                    }));
+    await(running);
+  }
+
+  @AfterMethod
+  protected void tearDown() {
+    release.countDown();
+    busy.join();
+  }
+
+  @Test(expectedExceptions = RulesApiException.class)
+  public void testRequestOverTheLimitIsRejected() {
+    admissionController.admit(newRequest("heavy"), () -> new RulesResponse(2, null));
+  }
+
+  @Test
+  public void testOtherSessionsAreNotLimited() {
+    assertEquals(
+        admissionController
+            .admit(newRequest("light"), () -> new RulesResponse(2, null))
+            .getNumberOfRulesFired(),
+        2);
+  }
+
+  @Test
+  public void testRejectedRequestIsAnsweredByTheFallback() {
+    ReflectionTestUtils.setField(settings, "policy", "fallback");
+    RulesResponse fallbackResponse = new RulesResponse(0, Collections.emptyList());
+    ReflectionTestUtils.setField(
+        admissionController,
+        "admissionFallback",
+        (AdmissionFallback) rulesRequest -> fallbackResponse);
+
+    assertSame(
+        admissionController.admit(newRequest("heavy"), () -> new RulesResponse(2, null)),
+        fallbackResponse);
+  }
+
+  @Test
+  public void testQueuedRequestRunsOnceThePermitIsReleased() {
+    ReflectionTestUtils.setField(settings, "queueDepth", 1);
+
+    CompletableFuture<RulesResponse> queued =
+        CompletableFuture.supplyAsync(
+            () -> admissionController.admit(newRequest("heavy"), () -> new RulesResponse(2, null)));
+    release.countDown();
+
+    assertEquals(queued.join().getNumberOfRulesFired(), 2);
+  }
+
+  private static RulesRequest newRequest(String sessionName) {
+    return new RulesRequest.RulesRequestBuilder()
+        .sessionName(sessionName)
+        .sessionType(SessionType.STATELESS)
+        .build();
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
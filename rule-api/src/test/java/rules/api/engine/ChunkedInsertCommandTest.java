@@ -0,0 +1,88 @@
+/** */
+package rules.api.engine;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+
+import java.util.stream.IntStream;
+import org.kie.api.runtime.KieSession;
+import org.kie.api.runtime.rule.AgendaFilter;
+import org.kie.api.runtime.rule.FactHandle;
+import org.testng.annotations.Test;
+import rules.api.audit.AuditTrail;
+
+/**
+ * Test class for the ChunkedInsertCommand
+ *
+ * @author chandresh.mishra
+ */
+public class ChunkedInsertCommandTest {
+
+  @Test
+  public void testFireAndRetractBetweenChunks() {
+    KieSession kSession = mock(KieSession.class);
+    when(kSession.insert(any())).thenReturn(mock(FactHandle.class));
+    when(kSession.fireAllRules()).thenReturn(2);
+
+    ChunkedInsertCommand command =
+        new ChunkedInsertCommand(
+            IntStream.range(0, 10).boxed().iterator(),
+            4,
+            true,
+            true,
+            mock(AuditTrail.class),
+            null);
+
+    // Chunks of 4, 4 and 2 facts. The last one is left to the final fireAllRules
+    assertEquals(command.insertAll(kSession), 4);
+    verify(kSession, times(10)).insert(any());
+    verify(kSession, times(2)).fireAllRules();
+    verify(kSession, times(8)).delete(any(FactHandle.class));
+  }
+
+  @Test
+  public void testFireOnceAtTheEnd() {
+    KieSession kSession = mock(KieSession.class);
+
+    ChunkedInsertCommand command =
+        new ChunkedInsertCommand(
+            IntStream.range(0, 8).boxed().iterator(),
+            4,
+            false,
+            false,
+            mock(AuditTrail.class),
+            null);
+
+    assertEquals(command.insertAll(kSession), 0);
+    verify(kSession, times(8)).insert(any());
+    verify(kSession, never()).fireAllRules();
+    verify(kSession, never()).delete(any(FactHandle.class));
+  }
+
+  @Test
+  public void testChunksFireWithinTheBudget() {
+    KieSession kSession = mock(KieSession.class);
+    FiringBudget budget = new FiringBudget(0, 5);
+    when(kSession.fireAllRules(budget, 5)).thenReturn(5);
+
+    ChunkedInsertCommand command =
+        new ChunkedInsertCommand(
+            IntStream.range(0, 30).boxed().iterator(),
+            10,
+            true,
+            false,
+            mock(AuditTrail.class),
+            budget);
+
+    // The first chunk takes the whole budget, nothing fires after the second one
+    assertEquals(command.insertAll(kSession), 5);
+    verify(kSession, times(1)).fireAllRules(any(AgendaFilter.class), anyInt());
+    verify(kSession, never()).fireAllRules();
+  }
+}
@@ -0,0 +1,128 @@
+/** */
+package rules.api.engine;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+import org.kie.api.KieServices;
+import org.kie.api.definition.rule.Rule;
+import org.kie.api.event.rule.AfterMatchFiredEvent;
+import org.kie.api.runtime.KieSession;
+import org.kie.api.runtime.rule.AgendaFilter;
+import org.kie.api.runtime.rule.Match;
+import org.testng.annotations.Test;
+import rules.api.TestKjar;
+import rules.api.enums.FiringStatus;
+
+/**
+ * Test class for the FiringBudget
+ *
+ * @author chandresh.mishra
+ */
+public class FiringBudgetTest {
+
+  @Test
+  public void testStatusOfTheFiring() {
+    FiringBudget budget = new FiringBudget(0, 10);
+    assertEquals(budget.getMaxRulesFired(), 10);
+    assertEquals(budget.getStatus(9), FiringStatus.COMPLETED);
+    assertEquals(budget.getStatus(10), FiringStatus.MAX_RULES_FIRED);
+
+    assertEquals(new FiringBudget(100, 0).getMaxRulesFired(), -1);
+  }
+
+  @Test
+  public void testTimeoutRejectsTheMatchesLeft() throws Exception {
+    FiringBudget budget = new FiringBudget(1, 0);
+    ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    try {
+      budget.start(scheduler);
+      Thread.sleep(50);
+    } finally {
+      scheduler.shutdownNow();
+    }
+
+    // The timeout passed before any firing, nothing was cut short yet
+    assertEquals(budget.getStatus(0), FiringStatus.COMPLETED);
+
+    assertFalse(budget.accept(mock(Match.class)));
+    assertEquals(budget.getStatus(0), FiringStatus.TIMED_OUT);
+  }
+
+  @Test
+  public void testTimeoutHaltsARunawayFiring() {
+    KieSession kSession =
+        KieServices.Factory.get()
+            .newKieContainer(
+                TestKjar.install(
+                    "firing-budget",
+                    "1.0.0",
+                    "package rules\n"
+                        + "rule \"spin\" when $count : java.util.concurrent.atomic.AtomicLong() "
+                        + "then $count.incrementAndGet(); update($count); end\n"))
+            .newKieSession(TestKjar.STATEFUL_SESSION);
+    AtomicLong count = new AtomicLong();
+    kSession.insert(count);
+
+    FiringBudget budget = new FiringBudget(100, 0);
+    ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    try {
+      budget.start(scheduler);
+      int fired = budget.fire(kSession);
+
+      assertTrue(fired > 0);
+      assertEquals(budget.getStatus(fired), FiringStatus.TIMED_OUT);
+    } finally {
+      scheduler.shutdownNow();
+      kSession.dispose();
+    }
+  }
+
+  @Test
+  public void testFiringsTakeFromTheMaximum() {
+    FiringBudget budget = new FiringBudget(0, 10);
+    KieSession kSession = mock(KieSession.class);
+    when(kSession.fireAllRules(budget, 10)).thenReturn(7);
+    when(kSession.fireAllRules(budget, 3)).thenReturn(3);
+
+    assertEquals(budget.fire(kSession), 7);
+    assertEquals(budget.fire(kSession), 3);
+    assertEquals(budget.fire(kSession), 0);
+    verify(kSession, times(2)).fireAllRules(any(AgendaFilter.class), anyInt());
+  }
+
+  @Test
+  public void testHotRulesAreMostFiredFirst() {
+    FiringBudget budget = new FiringBudget(0, 10);
+    fire(budget, "once", 1);
+    fire(budget, "loop", 3);
+    fire(budget, "twice", 2);
+
+    assertEquals(budget.getHotRules(2), Arrays.asList("p.loop (3)", "p.twice (2)"));
+  }
+
+  private static void fire(FiringBudget budget, String ruleName, int times) {
+    Rule rule = mock(Rule.class);
+    when(rule.getPackageName()).thenReturn("p");
+    when(rule.getName()).thenReturn(ruleName);
+    Match match = mock(Match.class);
+    when(match.getRule()).thenReturn(rule);
+    AfterMatchFiredEvent event = mock(AfterMatchFiredEvent.class);
+    when(event.getMatch()).thenReturn(match);
+
+    for (int i = 0; i < times; i++) {
+      budget.afterMatchFired(event);
+    }
+  }
+}
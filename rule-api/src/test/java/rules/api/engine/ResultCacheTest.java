@@ -0,0 +1,100 @@
+/** */
+package rules.api.engine;
+
+import static org.mockito.Mockito.mock;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import rules.api.config.MetricsSettings;
+import rules.api.config.ResultCacheSettings;
+import rules.api.container.KieContainerManager;
+import rules.api.enums.SessionType;
+import rules.api.message.RulesRequest;
+import rules.api.message.RulesResponse;
+import rules.api.metrics.RulesMetrics;
+
+/**
+ * Test class for the ResultCache
+ *
+ * @author chandresh.mishra
+ */
+public class ResultCacheTest {
+
+  private ResultCache resultCache;
+
+  /** Setup method - executes before any test in this class. */
+  @BeforeMethod
+  protected void setUp() {
+    ResultCacheSettings settings = new ResultCacheSettings();
+    ReflectionTestUtils.setField(settings, "enabled", true);
+    ReflectionTestUtils.setField(settings, "maxEntries", 2);
+
+    RulesMetrics rulesMetrics = new RulesMetrics();
+    ReflectionTestUtils.setField(rulesMetrics, "settings", new MetricsSettings());
+
+    resultCache = new ResultCache();
+    ReflectionTestUtils.setField(resultCache, "settings", settings);
+    ReflectionTestUtils.setField(resultCache, "containerManager", mock(KieContainerManager.class));
+    ReflectionTestUtils.setField(resultCache, "rulesMetrics", rulesMetrics);
+    resultCache.init();
+  }
+
+  @Test
+  public void testEqualRequestIsAnsweredFromCache() {
+    List<Object> facts = new ArrayList<>(Arrays.asList("a", 1));
+    ResultCache.Key key = resultCache.newKey(newRequest(facts), null);
+    assertNull(resultCache.get(key));
+
+    List<Object> results = Collections.singletonList("r");
+    resultCache.put(key, new RulesResponse(3, results));
+
+    // The caller may change its list once the request is run
+    facts.clear();
+    RulesResponse cached =
+        resultCache.get(resultCache.newKey(newRequest(Arrays.asList("a", 1)), null));
+    assertEquals(cached.getNumberOfRulesFired(), 3);
+    assertEquals(cached.getFactsFromSession(), results);
+    assertNotSame(cached.getFactsFromSession(), results);
+
+    assertNull(resultCache.get(resultCache.newKey(newRequest(Arrays.asList("a", 2)), null)));
+  }
+
+  @Test
+  public void testOldestResponseIsEvicted() {
+    for (int i = 0; i < 3; i++) {
+      resultCache.put(
+          resultCache.newKey(newRequest(Arrays.asList(i)), null), new RulesResponse(i, null));
+    }
+    assertEquals(resultCache.size(), 2);
+    assertNull(resultCache.get(resultCache.newKey(newRequest(Arrays.asList(0)), null)));
+    assertEquals(
+        resultCache
+            .get(resultCache.newKey(newRequest(Arrays.asList(2)), null))
+            .getNumberOfRulesFired(),
+        2);
+  }
+
+  @Test
+  public void testResponseOfPreviousRulesIsNotCached() {
+    ResultCache.Key key = resultCache.newKey(newRequest(Arrays.asList("a")), null);
+    resultCache.invalidateAll();
+    resultCache.put(key, new RulesResponse(1, null));
+    assertEquals(resultCache.size(), 0);
+  }
+
+  private RulesRequest newRequest(List<Object> facts) {
+    return new RulesRequest.RulesRequestBuilder()
+        .facts(facts)
+        .sessionName("sls")
+        .sessionType(SessionType.STATELESS)
+        .build();
+  }
+}
@@ -1,19 +1,34 @@
 /** */
 package rules.api.engine;
 
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.kie.api.runtime.StatelessKieSession;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
+import rules.api.config.BatchSettings;
+import rules.api.config.ShardSettings;
 import rules.api.enums.SessionType;
 import rules.api.exception.RulesApiException;
 import rules.api.message.RulesRequest;
+import rules.api.message.RulesResponse;
 
 /**
  * Test class for the RuleEngine
@@ -26,6 +41,10 @@ public class RulesEngineTest {
 
   @Mock private RulesEngineHelper rulesEngineHelper;
 
+  @Mock private ResultCache resultCache;
+
+  @Mock private AdmissionController admissionController;
+
   /** Setup method - executes before any test in this class. */
   @BeforeMethod
   protected void setUp() {
@@ -84,4 +103,82 @@ public class RulesEngineTest {
     when(this.rulesEngineHelper.getStatelessKieSession(rulesRequestParam)).thenReturn(null);
     rulesEngine.fireRules(rulesRequestParam);
   }
+
+  @Test
+  public void testBatchFailurePerRequest() {
+    ReflectionTestUtils.setField(rulesEngine, "batchPool", new ForkJoinPool(2));
+    ReflectionTestUtils.setField(rulesEngine, "batchSettings", new BatchSettings());
+
+    List<Object> facts = new ArrayList<>();
+    facts.add(new Object());
+    RulesRequest rulesRequestParam =
+        new RulesRequest.RulesRequestBuilder()
+            .facts(facts)
+            .buildSessionByKieBase(false)
+            .sessionName("ABC")
+            .sessionType(SessionType.STATELESS)
+            .build();
+    when(this.rulesEngineHelper.getStatelessKieSession(rulesRequestParam)).thenReturn(null);
+
+    List<RulesResponse> rulesResponses =
+        rulesEngine.fireRulesBatch(Arrays.asList(rulesRequestParam, null), null);
+
+    assertEquals(rulesResponses.size(), 2);
+    assertTrue(rulesResponses.get(0).isFailed());
+    assertTrue(rulesResponses.get(1).isFailed());
+  }
+
+  @Test(expectedExceptions = ExecutionException.class)
+  public void testAsyncRejected() throws Exception {
+    ExecutorService executor =
+        new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new SynchronousQueue<>());
+    executor.shutdown();
+    ReflectionTestUtils.setField(rulesEngine, "asyncExecutor", executor);
+
+    RulesRequest rulesRequestParam =
+        new RulesRequest.RulesRequestBuilder().sessionName("ABC").build();
+
+    rulesEngine.fireRulesAsync(rulesRequestParam, null).get();
+  }
+
+  @Test
+  public void testShardedRequestIsMerged() {
+    ShardSettings shardSettings = new ShardSettings();
+    ReflectionTestUtils.setField(shardSettings, "minFactsPerPartition", 2);
+    ReflectionTestUtils.setField(rulesEngine, "shardSettings", shardSettings);
+    ReflectionTestUtils.setField(rulesEngine, "batchPool", new ForkJoinPool(4));
+
+    when(this.rulesEngineHelper.getStatelessKieSession(any(RulesRequest.class)))
+        .thenReturn(mock(StatelessKieSession.class));
+    // Each partition returns its facts, reference data included
+    when(this.rulesEngineHelper.fireRuleStateless(any(), any(RulesRequest.class), any()))
+        .thenAnswer(
+            invocation -> {
+              List<Object> facts = ((RulesRequest) invocation.getArguments()[1]).getFacts();
+              return new RulesResponse(facts.size(), new ArrayList<>(facts));
+            });
+
+    List<Object> facts = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      facts.add(i);
+    }
+    RulesRequest rulesRequestParam =
+        new RulesRequest.RulesRequestBuilder()
+            .facts(facts)
+            .broadcastFacts(Arrays.asList("ref"))
+            .partitionKey(fact -> (Integer) fact % 3)
+            .partitions(4)
+            .sessionName("ABC")
+            .sessionType(SessionType.STATELESS)
+            .build();
+
+    RulesResponse rulesResponse = rulesEngine.fireRules(rulesRequestParam, null);
+
+    // Keys 0, 1 and 2 are in 3 partitions at most, each with a copy of the reference data
+    List<Object> factsFromSession = rulesResponse.getFactsFromSession();
+    assertTrue(factsFromSession.containsAll(facts));
+    int partitions = factsFromSession.size() - facts.size();
+    assertTrue(partitions >= 1 && partitions <= 3);
+    assertEquals(rulesResponse.getNumberOfRulesFired(), factsFromSession.size());
+  }
 }
@@ -0,0 +1,50 @@
+/** */
+package rules.api.metrics;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import org.testng.annotations.Test;
+
+/**
+ * Test class for the LatencyHistogram
+ *
+ * @author chandresh.mishra
+ */
+public class LatencyHistogramTest {
+
+  @Test
+  public void testBucketPrecision() {
+    for (long value = 0; value < 10_000_000; value = value * 3 / 2 + 1) {
+      long highest = LatencyHistogram.highestValueOf(LatencyHistogram.indexOf(value));
+      assertTrue(highest >= value, "value " + value);
+      assertTrue(highest - value <= value / 32, "value " + value + " bucket " + highest);
+    }
+  }
+
+  @Test
+  public void testPercentiles() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (long value = 1; value <= 100_000; value++) {
+      histogram.record(value);
+    }
+
+    assertEquals(histogram.getCount(), 100_000);
+    assertEquals(histogram.getMax(), 100_000);
+    assertEquals(histogram.getMean(), 50_000.5, 0.001);
+    assertEquals(histogram.getValueAtPercentile(50), 50_000, 50_000 / 32);
+    assertEquals(histogram.getValueAtPercentile(99), 99_000, 99_000 / 32);
+    assertEquals(histogram.getValueAtPercentile(100), 100_000);
+  }
+
+  @Test
+  public void testEmptyAndOutOfRange() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    assertEquals(histogram.getValueAtPercentile(99), 0);
+
+    histogram.record(-5);
+    histogram.record(Long.MAX_VALUE);
+    assertEquals(histogram.getValueAtPercentile(50), 0);
+    assertEquals(histogram.getValueAtPercentile(100), Long.MAX_VALUE);
+  }
+}
@@ -0,0 +1,76 @@
+/** */
+package rules.api.profiler;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import org.testng.annotations.Test;
+
+/**
+ * Test class for the ProfileReport
+ *
+ * @author chandresh.mishra
+ */
+public class ProfileReportTest {
+
+  @Test
+  public void testReportIsRankedAndReadBack() throws IOException {
+    ReleaseProfile releaseProfile = new ReleaseProfile("g:a:1.0");
+    releaseProfile.requestProfiled();
+    record(releaseProfile, "cheap", 1, 1000);
+    record(releaseProfile, "churn", 50, 10);
+
+    Path file = Files.createTempFile("rules-profile", ".tsv");
+    try {
+      ProfileReport.of(releaseProfile).write(file);
+      ProfileReport report = ProfileReport.read(file);
+
+      assertEquals(report.getRelease(), "g:a:1.0");
+      assertEquals(report.getRequests(), 1);
+      assertEquals(report.getRanking(), Arrays.asList("p.churn", "p.cheap"));
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test
+  public void testComparisonRanksTheGrowthPerRequest() throws IOException {
+    ReleaseProfile baseline = new ReleaseProfile("g:a:1.0");
+    baseline.requestProfiled();
+    record(baseline, "stable", 10, 0);
+    record(baseline, "dropped", 5, 0);
+
+    ReleaseProfile candidate = new ReleaseProfile("g:a:1.1");
+    candidate.requestProfiled();
+    candidate.requestProfiled();
+    record(candidate, "stable", 20, 0);
+    record(candidate, "added", 6, 0);
+
+    Path file = Files.createTempFile("rules-profile-comparison", ".tsv");
+    try {
+      ProfileReport.of(candidate).writeComparison(ProfileReport.of(baseline), file);
+      List<String> lines = Files.readAllLines(file);
+
+      // Same number of matches per request for the stable rule
+      assertTrue(lines.get(3).startsWith("1\tp.added\tnew\t0.000\t3.000"), lines.get(3));
+      assertTrue(lines.get(4).startsWith("2\tp.stable\tkept\t10.000\t10.000\t0.000"), lines.get(4));
+      assertTrue(lines.get(5).startsWith("3\tp.dropped\tremoved"), lines.get(5));
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  private static void record(
+      ReleaseProfile releaseProfile, String ruleName, int matches, long rhsNanos) {
+    RuleProfile ruleProfile = releaseProfile.getRuleProfile("p", ruleName);
+    for (int i = 0; i < matches; i++) {
+      ruleProfile.matchCreated();
+    }
+    ruleProfile.matchFired(rhsNanos);
+  }
+}
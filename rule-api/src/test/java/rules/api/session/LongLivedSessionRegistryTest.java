@@ -0,0 +1,146 @@
+/** */
+package rules.api.session;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.kie.api.runtime.KieContainer;
+import org.kie.api.runtime.KieSession;
+import org.kie.api.runtime.rule.FactHandle;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import rules.api.config.LongLivedSessionSettings;
+import rules.api.container.ContainerLease;
+import rules.api.container.KieContainerManager;
+import rules.api.exception.RulesApiException;
+
+/**
+ * Test class for the LongLivedSessionRegistry
+ *
+ * @author chandresh.mishra
+ */
+public class LongLivedSessionRegistryTest {
+
+  private LongLivedSessionRegistry registry;
+
+  private SessionKey key = SessionKey.ofSessionName("ABC");
+
+  /** Setup method - executes before any test in this class. */
+  @BeforeMethod
+  protected void setUp() {
+    LongLivedSessionSettings settings = new LongLivedSessionSettings();
+    ReflectionTestUtils.setField(settings, "maxSessions", 2);
+
+    ContainerLease lease = new ContainerLease(mock(KieContainer.class));
+    KieContainerManager containerManager = mock(KieContainerManager.class);
+    when(containerManager.acquire(any(SessionKey.class)))
+        .thenAnswer(
+            invocation -> {
+              lease.tryRetain();
+              return lease;
+            });
+
+    registry = new LongLivedSessionRegistry();
+    ReflectionTestUtils.setField(registry, "settings", settings);
+    ReflectionTestUtils.setField(registry, "containerManager", containerManager);
+  }
+
+  @Test
+  public void testUpsertAndDeleteByKey() {
+    KieSession kSession = mock(KieSession.class);
+    FactHandle factHandle = mock(FactHandle.class);
+    when(kSession.insert("a")).thenReturn(factHandle);
+
+    LongLivedSession session = registry.open("s1", key, c -> kSession);
+    session.upsert(1, "a");
+    session.upsert(1, "b");
+    session.unlock();
+
+    verify(kSession).update(factHandle, "b");
+    assertEquals(session.getFactCount(), 1);
+
+    session.lock();
+    assertFalse(session.delete(2));
+    session.delete(1);
+    session.unlock();
+
+    verify(kSession).delete(factHandle);
+    assertEquals(session.getFactCount(), 0);
+  }
+
+  @Test
+  public void testLeastRecentlyUsedIdleSessionIsEvicted() {
+    KieSession inUse = mock(KieSession.class);
+    KieSession idle = mock(KieSession.class);
+
+    registry.open("s1", key, c -> inUse);
+    registry.open("s2", key, c -> idle).unlock();
+    registry.open("s3", key, c -> mock(KieSession.class)).unlock();
+
+    verify(inUse, never()).dispose();
+    verify(idle).dispose();
+    assertNull(registry.get("s2"));
+    assertEquals(registry.getEvicted(), 1);
+  }
+
+  @Test
+  public void testListenersAreNotifiedOfClosedSessions() {
+    List<String> closed = new ArrayList<>();
+    registry.addListener(closed::add);
+
+    registry.open("s1", key, c -> mock(KieSession.class)).unlock();
+    registry.open("s2", key, c -> mock(KieSession.class)).unlock();
+    registry.open("s3", key, c -> mock(KieSession.class)).unlock();
+    registry.close("s3");
+
+    // The sessions closed when the engine stops are not notified
+    registry.shutdown();
+    assertEquals(closed, Arrays.asList("s1", "s3"));
+  }
+
+  @Test(expectedExceptions = RulesApiException.class)
+  public void testAllSessionsInUse() {
+    registry.open("s1", key, c -> mock(KieSession.class));
+    registry.open("s2", key, c -> mock(KieSession.class));
+    registry.open("s3", key, c -> mock(KieSession.class));
+  }
+
+  @Test
+  public void testFailedOpenGivesBackItsSlot() {
+    for (int i = 0; i < 3; i++) {
+      try {
+        registry.open("s1", key, c -> null);
+      } catch (RulesApiException e) {
+        // The factory created no session
+      }
+    }
+
+    KieSession first = mock(KieSession.class);
+    registry.open("s1", key, c -> first).unlock();
+    registry.open("s2", key, c -> mock(KieSession.class)).unlock();
+
+    verify(first, never()).dispose();
+    assertEquals(registry.getEvicted(), 0);
+  }
+
+  @Test(expectedExceptions = RulesApiException.class)
+  public void testClosedSessionCanNotBeUsed() {
+    LongLivedSession session = registry.open("s1", key, c -> mock(KieSession.class));
+    session.unlock();
+
+    registry.close("s1");
+    assertSame(registry.get("s1"), null);
+    session.lock();
+  }
+}
@@ -0,0 +1,172 @@
+/** */
+package rules.api.session;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.kie.api.KieServices;
+import org.kie.api.builder.ReleaseId;
+import org.kie.api.runtime.KieContainer;
+import org.kie.api.runtime.KieSession;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.FileSystemUtils;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import rules.api.TestKjar;
+import rules.api.config.LongLivedSessionSettings;
+import rules.api.config.MetricsSettings;
+import rules.api.config.SnapshotSettings;
+import rules.api.container.ContainerLease;
+import rules.api.container.KieContainerManager;
+import rules.api.metrics.RulesMetrics;
+
+/**
+ * Test class for the SessionSnapshots
+ *
+ * @author chandresh.mishra
+ */
+public class SessionSnapshotsTest {
+
+  private static final String DRL =
+      "package rules;\n" + "rule \"count\" when String() then end\n";
+
+  private SessionKey key = SessionKey.ofSessionName(TestKjar.STATEFUL_SESSION);
+
+  // Never released, so the container outlives the sessions
+  private ContainerLease lease;
+
+  private Path dir;
+
+  private LongLivedSessionRegistry registry;
+
+  private SessionSnapshots snapshots;
+
+  /** Builds the kjar once for the class. */
+  @BeforeClass
+  protected void setUpClass() {
+    ReleaseId releaseId = TestKjar.install("session-snapshots", "1.0.0", DRL);
+    lease = new ContainerLease(KieServices.Factory.get().newKieContainer(releaseId));
+  }
+
+  /** Setup method - executes before any test in this class. */
+  @BeforeMethod
+  protected void setUp() throws IOException {
+    dir = Files.createTempDirectory("session-snapshots-test");
+    registry = newRegistry();
+    snapshots = newSnapshots(registry);
+  }
+
+  @AfterMethod
+  protected void tearDown() {
+    registry.shutdown();
+    FileSystemUtils.deleteRecursively(dir.toFile());
+  }
+
+  @Test
+  public void testSessionIsRestoredWithItsFacts() {
+    LongLivedSession session = registry.open("s1", key, this::newKieSession);
+    session.upsert(1, "a");
+    session.upsert(2, "b");
+    assertEquals(session.getSession().fireAllRules(), 2);
+    session.unlock();
+
+    snapshots.snapshot("s1");
+    assertTrue(Files.isRegularFile(dir.resolve("s1.snapshot")));
+
+    // An engine started again restores the session from the snapshot
+    LongLivedSessionRegistry restartedRegistry = newRegistry();
+    newSnapshots(restartedRegistry).restoreAll(kSession -> {});
+
+    LongLivedSession restored = restartedRegistry.get("s1");
+    assertNotNull(restored);
+    restored.lock();
+    try {
+      assertEquals(restored.getFactCount(), 2);
+      assertEquals(restored.getFact(1), "a");
+      assertEquals(restored.getFact(2), "b");
+      assertEquals(restored.getSession().getFactCount(), 2);
+
+      // The rules already fired before the snapshot
+      assertEquals(restored.getSession().fireAllRules(), 0);
+      restored.upsert(3, "c");
+      assertEquals(restored.getSession().fireAllRules(), 1);
+    } finally {
+      restored.unlock();
+    }
+    restartedRegistry.shutdown();
+  }
+
+  @Test
+  public void testSnapshotIsDeletedWhenTheSessionIsClosedOrEvicted() {
+    registry.open("s1", key, this::newKieSession).unlock();
+    registry.open("s2", key, this::newKieSession).unlock();
+    snapshots.snapshot("s1");
+    snapshots.snapshot("s2");
+    assertTrue(Files.isRegularFile(dir.resolve("s1.snapshot")));
+    assertTrue(Files.isRegularFile(dir.resolve("s2.snapshot")));
+
+    registry.close("s1");
+    assertFalse(Files.exists(dir.resolve("s1.snapshot")));
+
+    // The registry holds two sessions, opening two more evicts s2
+    registry.open("s3", key, this::newKieSession).unlock();
+    registry.open("s4", key, this::newKieSession).unlock();
+    assertFalse(Files.exists(dir.resolve("s2.snapshot")));
+    assertEquals(registry.getEvicted(), 1);
+  }
+
+  private KieSession newKieSession(KieContainer container) {
+    return container.newKieSession(TestKjar.STATEFUL_SESSION);
+  }
+
+  private LongLivedSessionRegistry newRegistry() {
+
+    LongLivedSessionSettings settings = new LongLivedSessionSettings();
+    ReflectionTestUtils.setField(settings, "maxSessions", 2);
+
+    KieContainerManager containerManager = mock(KieContainerManager.class);
+    when(containerManager.acquire(any(SessionKey.class)))
+        .thenAnswer(
+            invocation -> {
+              lease.tryRetain();
+              return lease;
+            });
+
+    LongLivedSessionRegistry longLivedSessionRegistry = new LongLivedSessionRegistry();
+    ReflectionTestUtils.setField(longLivedSessionRegistry, "settings", settings);
+    ReflectionTestUtils.setField(longLivedSessionRegistry, "containerManager", containerManager);
+    return longLivedSessionRegistry;
+  }
+
+  private SessionSnapshots newSnapshots(LongLivedSessionRegistry longLivedSessionRegistry) {
+
+    SnapshotSettings settings = new SnapshotSettings();
+    ReflectionTestUtils.setField(settings, "enabled", true);
+    ReflectionTestUtils.setField(settings, "dir", dir.toString());
+    ReflectionTestUtils.setField(settings, "restore", true);
+
+    KieSessionFactory sessionFactory = new KieSessionFactory();
+    ReflectionTestUtils.setField(sessionFactory, "staticGlobals", mock(StaticGlobals.class));
+
+    RulesMetrics rulesMetrics = new RulesMetrics();
+    ReflectionTestUtils.setField(rulesMetrics, "settings", new MetricsSettings());
+
+    SessionSnapshots sessionSnapshots = new SessionSnapshots();
+    ReflectionTestUtils.setField(sessionSnapshots, "settings", settings);
+    ReflectionTestUtils.setField(sessionSnapshots, "registry", longLivedSessionRegistry);
+    ReflectionTestUtils.setField(sessionSnapshots, "sessionFactory", sessionFactory);
+    ReflectionTestUtils.setField(sessionSnapshots, "rulesMetrics", rulesMetrics);
+    sessionSnapshots.init();
+    return sessionSnapshots;
+  }
+}
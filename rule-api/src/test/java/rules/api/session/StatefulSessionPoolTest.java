@@ -0,0 +1,156 @@
+/** */
+package rules.api.session;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+
+import java.util.function.Function;
+import org.drools.core.impl.StatefulKnowledgeSessionImpl;
+import org.kie.api.runtime.KieContainer;
+import org.kie.api.runtime.KieSession;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import rules.api.config.SessionPoolSettings;
+import rules.api.container.ContainerLease;
+import rules.api.container.KieContainerManager;
+
+/**
+ * Test class for the StatefulSessionPool
+ *
+ * @author chandresh.mishra
+ */
+public class StatefulSessionPoolTest {
+
+  private StatefulSessionPool pool;
+
+  private SessionKey key = SessionKey.ofSessionName("ABC");
+
+  private ContainerLease lease;
+
+  /** Setup method - executes before any test in this class. */
+  @BeforeMethod
+  protected void setUp() {
+    SessionPoolSettings settings = new SessionPoolSettings();
+    ReflectionTestUtils.setField(settings, "enabled", true);
+    ReflectionTestUtils.setField(settings, "maxTotalPerKey", 4);
+    ReflectionTestUtils.setField(settings, "maxIdlePerKey", 1);
+    ReflectionTestUtils.setField(settings, "borrowTimeout", 100L);
+
+    lease = new ContainerLease(mock(KieContainer.class));
+    KieContainerManager containerManager = mock(KieContainerManager.class);
+    when(containerManager.acquire(any(SessionKey.class)))
+        .thenAnswer(
+            invocation -> {
+              lease.tryRetain();
+              return lease;
+            });
+
+    pool = new StatefulSessionPool();
+    ReflectionTestUtils.setField(pool, "settings", settings);
+    ReflectionTestUtils.setField(pool, "containerManager", containerManager);
+  }
+
+  @Test
+  public void testSessionIsReused() {
+    KieSession kSession = mock(StatefulKnowledgeSessionImpl.class);
+
+    assertSame(pool.borrow(key, c -> kSession), kSession);
+    pool.release(kSession);
+    assertSame(pool.borrow(key, c -> mock(StatefulKnowledgeSessionImpl.class)), kSession);
+
+    verify((StatefulKnowledgeSessionImpl) kSession).reset();
+    verify(kSession, never()).dispose();
+    assertEquals(pool.getStats().getHits(), 1);
+    assertEquals(pool.getStats().getMisses(), 1);
+  }
+
+  @Test
+  public void testMaxIdle() {
+    KieSession first = mock(StatefulKnowledgeSessionImpl.class);
+    KieSession second = mock(StatefulKnowledgeSessionImpl.class);
+
+    pool.borrow(key, c -> first);
+    pool.borrow(key, c -> second);
+    pool.release(first);
+    pool.release(second);
+
+    verify(second).dispose();
+    assertEquals(pool.getIdleCount(key), 1);
+  }
+
+  @Test
+  public void testInvalidateAll() {
+    KieSession idle = mock(StatefulKnowledgeSessionImpl.class);
+    KieSession inUse = mock(StatefulKnowledgeSessionImpl.class);
+
+    pool.borrow(key, c -> idle);
+    pool.borrow(key, c -> inUse);
+    pool.release(idle);
+
+    pool.invalidateAll();
+    verify(idle).dispose();
+
+    pool.release(inUse);
+    verify(inUse).dispose();
+    assertNotSame(pool.borrow(key, c -> mock(StatefulKnowledgeSessionImpl.class)), inUse);
+  }
+
+  @Test
+  public void testFailedSessionIsDisposed() {
+    KieSession kSession = mock(StatefulKnowledgeSessionImpl.class);
+
+    pool.borrow(key, c -> kSession);
+    pool.invalidate(kSession);
+
+    verify(kSession).dispose();
+    assertEquals(pool.getIdleCount(key), 0);
+  }
+
+  @Test
+  public void testSessionWithoutResetIsDisposed() {
+    KieSession kSession = mock(KieSession.class);
+
+    pool.borrow(key, c -> kSession);
+    pool.release(kSession);
+
+    verify(kSession).dispose();
+    assertEquals(pool.getIdleCount(key), 0);
+  }
+
+  @Test
+  public void testSessionPinsContainer() {
+    KieSession kSession = mock(StatefulKnowledgeSessionImpl.class);
+
+    pool.borrow(key, c -> kSession);
+    assertEquals(lease.getReferences(), 2);
+
+    pool.invalidate(kSession);
+    assertEquals(lease.getReferences(), 1);
+
+    lease.release();
+    verify(lease.getContainer()).dispose();
+  }
+
+  @Test
+  public void testRefreshReplacesIdleSessions() {
+    Function<KieContainer, KieSession> factory = c -> mock(StatefulKnowledgeSessionImpl.class);
+
+    KieSession old = pool.borrow(key, factory);
+    pool.release(old);
+
+    pool.refresh();
+    verify(old).dispose();
+    assertEquals(pool.getIdleCount(key), 1);
+
+    assertNotSame(pool.borrow(key, factory), old);
+    assertEquals(pool.getStats().getHits(), 1);
+    assertEquals(pool.getStats().getCreated(), 2);
+  }
+}
@@ -0,0 +1,76 @@
+/** */
+package rules.api.stream;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.testng.annotations.Test;
+
+/**
+ * Test class for the EventQueue
+ *
+ * @author chandresh.mishra
+ */
+public class EventQueueTest {
+
+  @Test
+  public void testFullQueueRejects() {
+    EventQueue queue = new EventQueue(3);
+    assertEquals(queue.capacity(), 4);
+
+    for (int i = 0; i < 4; i++) {
+      assertTrue(queue.offer(new QueuedEvent("DEFAULT", i, 0, 0)));
+    }
+    assertFalse(queue.offer(new QueuedEvent("DEFAULT", 4, 0, 0)));
+
+    List<QueuedEvent> batch = new ArrayList<>();
+    assertEquals(queue.drain(batch, 3), 3);
+    assertEquals(batch.get(0).event, 0);
+    assertEquals(queue.size(), 1);
+    assertTrue(queue.offer(new QueuedEvent("DEFAULT", 4, 0, 0)));
+  }
+
+  @Test
+  public void testProducersKeepTheirOrder() throws Exception {
+    EventQueue queue = new EventQueue(64);
+    int producers = 4;
+    int events = 20000;
+
+    ExecutorService executor = Executors.newFixedThreadPool(producers);
+    CountDownLatch done = new CountDownLatch(producers);
+    for (int p = 0; p < producers; p++) {
+      int producer = p;
+      executor.execute(
+          () -> {
+            for (int i = 0; i < events; i++) {
+              while (!queue.offer(new QueuedEvent("DEFAULT", new int[] {producer, i}, 0, 0))) {
+                Thread.yield();
+              }
+            }
+            done.countDown();
+          });
+    }
+
+    int[] next = new int[producers];
+    List<QueuedEvent> batch = new ArrayList<>();
+    int drained = 0;
+    while (drained < producers * events) {
+      batch.clear();
+      drained += queue.drain(batch, 16);
+      for (QueuedEvent queuedEvent : batch) {
+        int[] event = (int[]) queuedEvent.event;
+        assertEquals(event[1], next[event[0]]++);
+      }
+    }
+    assertTrue(done.await(10, TimeUnit.SECONDS));
+    executor.shutdown();
+    assertEquals(queue.size(), 0);
+  }
+}